@@ -36,6 +36,7 @@ import org.python.pydev.shared_ui.ImageCache;
 import org.python.pydev.shared_ui.UIConstants;
 
 import com.python.pydev.analysis.additionalinfo.IInfo;
+import com.python.pydev.analysis.builder.AnalysisResultsCache;
 
 /**
  * The main plugin class to be used in the desktop.
@@ -113,6 +114,7 @@ public class AnalysisPlugin extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        AnalysisResultsCache.saveInstance();
         super.stop(context);
         plugin = null;
     }
@@ -14,7 +14,6 @@ import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.SortedMap;
 
@@ -373,6 +372,24 @@ public class GlobalsTwoPanelElementSelector2 extends FilteredItemsSelectionDialo
         };
     }
 
+    /**
+     * @return the tokens that may match the given name pattern: the ranked search in the index is used for
+     * prefix/camel-case patterns and the ones with wildcards get all the tokens with the chars of the pattern in
+     * the same order (no duplicates are returned).
+     */
+    private static Collection<IInfo> getTokensMatchingPattern(AbstractAdditionalTokensInfo additionalInfo,
+            String namePattern) {
+        int getWhat = AbstractAdditionalTokensInfo.TOP_LEVEL | AbstractAdditionalTokensInfo.INNER;
+        String query = namePattern;
+        if (query.endsWith("<") || query.endsWith(" ")) {
+            query = query.substring(0, query.length() - 1);
+        }
+        if (query.length() == 0 || query.indexOf('*') != -1 || query.indexOf('?') != -1) {
+            return additionalInfo.getTokensMatchingSequence(namePattern, getWhat);
+        }
+        return additionalInfo.searchTokens(query, getWhat, Integer.MAX_VALUE);
+    }
+
     /**
      * This is the place where we put all the info in the content provider. Note that here we must add
      * ALL the info -- later, we'll filter it based on the active working set.
@@ -393,8 +410,10 @@ public class GlobalsTwoPanelElementSelector2 extends FilteredItemsSelectionDialo
                         progressMonitor.worked(1);
                     }
                 }
-                Collection<IInfo> allTokens = new HashSet<IInfo>(additionalInfo.getAllTokens()); //no duplicates
-                for (IInfo iInfo : allTokens) {
+                //only get the tokens which may match the pattern from the index (the filter does the actual matching).
+                Collection<IInfo> tokens = getTokensMatchingPattern(additionalInfo,
+                        MatchHelper.getNamePattern(itemsFilter.getPattern()));
+                for (IInfo iInfo : tokens) {
                     contentProvider.add(new AdditionalInfoAndIInfo(additionalInfo, iInfo), itemsFilter);
                 }
 
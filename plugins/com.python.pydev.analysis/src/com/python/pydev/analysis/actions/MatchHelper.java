@@ -61,6 +61,21 @@ public class MatchHelper {
         return tailPattern.matches(info.getName());
     }
 
+    /**
+     * @return the part of the pattern which is matched against the name of the token (i.e.: for django.AAA, it's
+     * AAA and for django. it's an empty string).
+     */
+    public static String getNamePattern(String pattern) {
+        if (pattern == null || pattern.endsWith(".")) {
+            return "";
+        }
+        List<String> split = StringUtils.splitAndRemoveEmptyTrimmed(pattern, '.');
+        if (split.size() == 0) {
+            return "";
+        }
+        return split.get(split.size() - 1);
+    }
+
     /**
      * Checks if equals considering scopes.
      */
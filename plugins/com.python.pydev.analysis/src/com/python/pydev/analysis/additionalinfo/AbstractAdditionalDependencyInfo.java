@@ -19,6 +19,7 @@ import java.io.OutputStreamWriter;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -65,6 +66,9 @@ import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_core.structure.Tuple3;
 import org.python.pydev.ui.pythonpathconf.InterpreterInfo;
 
+import com.python.pydev.analysis.additionalinfo.dependencies.ModuleImportGraph;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
+
 /**
  * Adds dependency information to the interpreter information. This should be used only for
  * classes that are part of a project (this info will not be gotten for the system interpreter) 
@@ -94,6 +98,13 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
      */
     public DiskCache completeIndex;
 
+    /**
+     * Keeps the imports among the modules indexed (so that we know which modules depend on a changed module).
+     * 
+     * The imports are persisted with the info and the graph is rebuilt when the info is restored.
+     */
+    public final ModuleImportGraph importGraph = new ModuleImportGraph();
+
     /**
      * default constructor
      * @throws MisconfigurationException 
@@ -146,6 +157,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
             } catch (NullPointerException e) {
                 //that's ok... because it might be called before actually having any values
             }
+            importGraph.clear();
         }
     }
 
@@ -591,6 +603,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 }
                 completeIndex.add(completeIndexKey);
 
+                updateImportGraph(node, key, addAstInfo, generateDelta);
             }
         } catch (Exception e) {
             Log.log(e);
@@ -605,14 +618,32 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 throw new AssertionError("The module name may not be null.");
             }
             completeIndex.remove(new CompleteIndexKey(moduleName));
+            importGraph.removeModuleImports(moduleName);
             super.removeInfoFromModule(moduleName, generateDelta);
         }
     }
 
+    /**
+     * Updates the imports and public tokens of the module in the import graph.
+     *
+     * @param generateDelta if true, a change in the public structure of the module is kept in the graph
+     * (so that the modules which depend on it may be analyzed again).
+     */
+    private void updateImportGraph(SimpleNode node, ModulesKey key, List<IInfo> infos, boolean generateDelta) {
+        boolean isPackage = key.file != null && key.file.getName().startsWith("__init__.");
+        PyStructuralChange change = importGraph.setModuleInfo(key.name, key.file,
+                ModuleImportGraph.getImportedModules(node, key.name, isPackage),
+                ModuleImportGraph.getPublicTokens(infos));
+        if (change != null && generateDelta) {
+            importGraph.addPendingChange(change);
+        }
+    }
+
     @Override
     protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
         synchronized (lock) {
             completeIndex.writeTo(tempBuf);
+            importGraph.writeImportsTo(tempBuf);
             writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
             tempBuf.clear();
 
@@ -645,6 +676,37 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         }
     }
 
+    /**
+     * Rebuilds the import graph from the restored info (the public tokens of each module are gotten from the
+     * restored tokens and the files from the complete index).
+     * 
+     * @param restoredImports the imports persisted with the info (null if not available, in which case the
+     * imports of a module are only known when it's indexed again).
+     */
+    private void restoreImportGraph(Map<String, Set<String>> restoredImports) {
+        synchronized (lock) {
+            Map<String, List<IInfo>> moduleToInfos = new HashMap<String, List<IInfo>>();
+            for (IInfo info : getAllTokens()) {
+                List<IInfo> infos = moduleToInfos.get(info.getDeclaringModuleName());
+                if (infos == null) {
+                    infos = new ArrayList<IInfo>();
+                    moduleToInfos.put(info.getDeclaringModuleName(), infos);
+                }
+                infos.add(info);
+            }
+
+            importGraph.clear();
+            for (CompleteIndexKey key : completeIndex.keys().values()) {
+                String moduleName = key.key.name;
+                Set<String> imports = restoredImports != null ? restoredImports.get(moduleName) : null;
+                List<IInfo> infos = moduleToInfos.get(moduleName);
+                importGraph.setModuleInfo(moduleName, key.key.file,
+                        imports != null ? imports : new HashSet<String>(),
+                        ModuleImportGraph.getPublicTokens(infos != null ? infos : new ArrayList<IInfo>(0)));
+            }
+        }
+    }
+
     /**
      * actually does the load
      * @return true if it was successfully loaded and false otherwise
@@ -697,6 +759,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                         new Tuple3<Object, Object, Object>(
                                 null, null, null), null);
                 Tuple3<Object, Object, Object> superTupWithResults = tupWithResults.o1;
+                Map<String, Set<String>> restoredImports = null;
                 //tupWithResults.o2 = DiskCache
                 if (string.toString().equals(expected)) {
                     //OK, proceed with new I/O format!
@@ -723,6 +786,9 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                                     } else if (line.startsWith("-- START DISKCACHE")) {
                                         tupWithResults.o2 = DiskCache.loadFrom(bufferedReader, objectsPoolMap);
 
+                                    } else if (line.startsWith("-- START IMPORTS")) {
+                                        restoredImports = ModuleImportGraph.loadImportsFrom(bufferedReader);
+
                                     } else if (line.startsWith("-- VERSION_")) {
                                         if (!line.endsWith(String.valueOf(AbstractAdditionalTokensInfo.version))) {
                                             throw new RuntimeException("Expected the version to be: "
@@ -743,6 +809,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                     }
 
                     restoreSavedInfo(tupWithResults);
+                    restoreImportGraph(restoredImports);
                     //                    timer.printDiff("Time taken");
                     return tupWithResults;
                 } else {
@@ -755,6 +822,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 //                Timer timer2 = new Timer();
                 Object tupWithResults = IOUtils.readFromFile(file);
                 restoreSavedInfo(tupWithResults);
+                restoreImportGraph(null);
                 //                timer2.printDiff("IOUtils time");
                 save(); //Save in new format!
                 return tupWithResults;
@@ -119,6 +119,14 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     protected SortedMap<String, Set<IInfo>> innerInitialsToInfo = new PyPublicTreeMap<String, Set<IInfo>>();
 
+    /**
+     * Index to search the tokens by name (prefix, camel-humps or substring). It's only created when the first
+     * search is done and is kept updated as the info is added/removed afterwards.
+     * 
+     * This index is not persisted.
+     */
+    private TokensSearchIndex searchIndex;
+
     /**
      * Should be used before re-creating the info, so that we have enough memory. 
      */
@@ -130,48 +138,12 @@ public abstract class AbstractAdditionalTokensInfo {
             if (innerInitialsToInfo != null) {
                 innerInitialsToInfo.clear();
             }
+            searchIndex = null;
         }
     }
 
     protected Object lock = new Object();
 
-    /**
-     * The filter interface
-     */
-    public interface Filter {
-        boolean doCompare(String lowerCaseQual, IInfo info);
-
-        boolean doCompare(String lowerCaseQual, String infoName);
-    }
-
-    /**
-     * A filter that checks if tokens are equal
-     */
-    private final Filter equalsFilter = new Filter() {
-        public boolean doCompare(String qualifier, IInfo info) {
-            return info.getName().equals(qualifier);
-        }
-
-        public boolean doCompare(String qualifier, String infoName) {
-            return infoName.equals(qualifier);
-        }
-    };
-
-    /**
-     * A filter that checks if the tokens starts with a qualifier
-     */
-    private final Filter startingWithFilter = new Filter() {
-
-        public boolean doCompare(String lowerCaseQual, IInfo info) {
-            return doCompare(lowerCaseQual, info.getName());
-        }
-
-        public boolean doCompare(String qualifier, String infoName) {
-            return infoName.toLowerCase().startsWith(qualifier);
-        }
-
-    };
-
     /**
      * 2: because we've removed some info (the hash is no longer saved)
      * 3: Changed from string-> list to string->set
@@ -212,6 +184,9 @@ public abstract class AbstractAdditionalTokensInfo {
             }
             Set<IInfo> listForInitials = getAndCreateListForInitials(initials, initialsToInfo);
             listForInitials.add(info);
+            if (searchIndex != null) {
+                searchIndex.add(info);
+            }
         }
     }
 
@@ -538,6 +513,9 @@ public abstract class AbstractAdditionalTokensInfo {
         synchronized (lock) {
             removeInfoFromMap(moduleName, topLevelInitialsToInfo);
             removeInfoFromMap(moduleName, innerInitialsToInfo);
+            if (searchIndex != null) {
+                searchIndex.removeModule(moduleName);
+            }
         }
 
     }
@@ -570,71 +548,77 @@ public abstract class AbstractAdditionalTokensInfo {
      * @return a list of info, all starting with the given qualifier
      */
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, null);
-        }
+        return getTokensStartingWith(qualifier, getWhat, null);
     }
 
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
         synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
+            if (result == null) {
+                result = new ArrayList<IInfo>();
+            }
+            getSearchIndex().getTokensStartingWith(qualifier, getWhat, result);
+            return result;
         }
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, null);
-        }
+        return getTokensEqualTo(qualifier, getWhat, null);
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat, Collection<IInfo> result) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, result);
-        }
-    }
-
-    protected Collection<IInfo> getWithFilter(String qualifier, int getWhat, Filter filter, boolean useLowerCaseQual,
-            Collection<IInfo> result) {
         synchronized (lock) {
             if (result == null) {
                 result = new ArrayList<IInfo>();
             }
-
-            if ((getWhat & TOP_LEVEL) != 0) {
-                getWithFilter(qualifier, topLevelInitialsToInfo, result, filter, useLowerCaseQual);
-            }
-            if ((getWhat & INNER) != 0) {
-                getWithFilter(qualifier, innerInitialsToInfo, result, filter, useLowerCaseQual);
-            }
+            getSearchIndex().getTokensEqualTo(qualifier, getWhat, result);
             return result;
         }
     }
 
     /**
-     * @param qualifier
-     * @param initialsToInfo this is where we are going to get the info from (currently: inner or top level list)
-     * @param toks (out) the tokens will be added to this list
-     * @return
+     * @return the tokens which may match the given pattern (with wildcards or camel-case) -- i.e.: the ones
+     * which have all the chars of the pattern in the same order (the actual matching must still be done by
+     * the caller).
      */
-    protected void getWithFilter(String qualifier, SortedMap<String, Set<IInfo>> initialsToInfo,
-            Collection<IInfo> toks, Filter filter, boolean useLowerCaseQual) {
-        String initials = getInitials(qualifier);
-        String qualToCompare = qualifier;
-        if (useLowerCaseQual) {
-            qualToCompare = qualifier.toLowerCase();
+    public Collection<IInfo> getTokensMatchingSequence(String pattern, int getWhat) {
+        synchronized (lock) {
+            Collection<IInfo> result = new ArrayList<IInfo>();
+            getSearchIndex().getTokensMatchingSequence(pattern, getWhat, result);
+            return result;
         }
+    }
 
-        //get until the end of the alphabet
-        SortedMap<String, Set<IInfo>> subMap = initialsToInfo.subMap(initials, initials + "z");
-
-        for (Set<IInfo> listForInitials : subMap.values()) {
+    /**
+     * @return the best tokens matching the given query (by prefix, camel-humps or substring), with the best
+     * matches first.
+     */
+    public List<IInfo> searchTokens(String query, int getWhat, int maxResults) {
+        synchronized (lock) {
+            return getSearchIndex().search(query, getWhat, maxResults);
+        }
+    }
 
-            for (IInfo info : listForInitials) {
-                if (filter.doCompare(qualToCompare, info)) {
-                    toks.add(info);
+    /**
+     * @return the index to search for tokens (created if still not available).
+     * 
+     * Must be called with the lock held.
+     */
+    private TokensSearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            TokensSearchIndex index = new TokensSearchIndex();
+            for (Set<IInfo> infos : topLevelInitialsToInfo.values()) {
+                for (IInfo info : infos) {
+                    index.add(info);
+                }
+            }
+            for (Set<IInfo> infos : innerInitialsToInfo.values()) {
+                for (IInfo info : infos) {
+                    index.add(info);
                 }
             }
+            searchIndex = index;
         }
+        return searchIndex;
     }
 
     /**
@@ -760,6 +744,7 @@ public abstract class AbstractAdditionalTokensInfo {
 
             this.topLevelInitialsToInfo = o1;
             this.innerInitialsToInfo = o2;
+            this.searchIndex = null;
             if (readFromFile.o3 != null) {
                 //may be null in new format (where that's checked during load time).
                 if (AbstractAdditionalTokensInfo.version != (Integer) readFromFile.o3) {
@@ -254,6 +254,19 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
         return ret;
     }
 
+    /**
+     * @return the best tokens matching the qualifier in each info (see: AbstractAdditionalTokensInfo.searchTokens).
+     */
+    public static List<IInfo> searchTokens(String qualifier, IPythonNature nature, int getWhat, int maxResults)
+            throws MisconfigurationException {
+        ArrayList<IInfo> ret = new ArrayList<IInfo>();
+        List<AbstractAdditionalTokensInfo> additionalInfo = getAdditionalInfo(nature);
+        for (AbstractAdditionalTokensInfo info : additionalInfo) {
+            ret.addAll(info.searchTokens(qualifier, getWhat, maxResults));
+        }
+        return ret;
+    }
+
     /**
      * @param project the project we want to get info on
      * @return a list of the additional info for the project + referencing projects
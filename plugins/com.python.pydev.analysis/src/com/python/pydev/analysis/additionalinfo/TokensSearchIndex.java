@@ -0,0 +1,567 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.python.pydev.shared_core.utils.Metrics;
+
+/**
+ * An index to search the tokens of an AbstractAdditionalTokensInfo by name (prefix, camel-humps or substring).
+ *
+ * The index is kept per distinct (lowercase) name and has:
+ *
+ * - a sorted map with the names (for prefix/equals searches);
+ * - a sorted map with the initials of the humps of the names (i.e.: GlobalsTwoPanel and globals_two_panel are
+ * both indexed as 'gtp') for camel-hump searches;
+ * - the trigrams of the names (for substring searches);
+ * - a mask with the chars of each name (to discard names quickly when looking for a sequence of chars).
+ *
+ * Note: it's not synchronized (the AbstractAdditionalTokensInfo that owns it must synchronize the access).
+ *
+ * Entries for names whose tokens were all removed are kept (as usually the module is analyzed again and the same
+ * names are added back), and are only discarded when the index is compacted (when most entries are empty).
+ *
+ * @author Fabio
+ */
+public final class TokensSearchIndex {
+
+    /**
+     * Time taken by the searches in all the indexes.
+     */
+    private static final Metrics.Timer SEARCH_TIMER = Metrics.timer("TokensSearchIndex.search");
+
+    /**
+     * Entry for a given (lowercase) name.
+     */
+    private static final class NameEntry {
+
+        private final String lowerName;
+        private final long charsMask;
+        private final Set<IInfo> infos = new HashSet<IInfo>(2);
+
+        private NameEntry(String lowerName) {
+            this.lowerName = lowerName;
+            this.charsMask = getCharsMask(lowerName);
+        }
+    }
+
+    /**
+     * An entry found in a search (with its score).
+     */
+    private static final class ScoredEntry {
+
+        private final NameEntry entry;
+        private final int score;
+
+        private ScoredEntry(NameEntry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Higher scores first (and for the same score, sort by name).
+     */
+    private static final Comparator<ScoredEntry> BEST_FIRST = new Comparator<ScoredEntry>() {
+
+        @Override
+        public int compare(ScoredEntry o1, ScoredEntry o2) {
+            if (o1.score != o2.score) {
+                return o1.score > o2.score ? -1 : 1;
+            }
+            return o1.entry.lowerName.compareTo(o2.entry.lowerName);
+        }
+    };
+
+    private static final int SCORE_EXACT_CASE = 1000;
+    private static final int SCORE_EXACT = 900;
+    private static final int SCORE_PREFIX_CASE = 800;
+    private static final int SCORE_PREFIX = 700;
+    private static final int SCORE_CAMEL = 600;
+    private static final int SCORE_SUBSTRING = 500;
+
+    /**
+     * lowercase name -> entry
+     */
+    private final TreeMap<String, NameEntry> nameToEntry = new TreeMap<String, NameEntry>();
+
+    /**
+     * initials of the humps -> entries
+     */
+    private final TreeMap<String, List<NameEntry>> humpsToEntries = new TreeMap<String, List<NameEntry>>();
+
+    /**
+     * trigram -> entries
+     */
+    private final Map<String, List<NameEntry>> trigramToEntries = new HashMap<String, List<NameEntry>>();
+
+    /**
+     * module name -> infos declared in the module (used to remove the infos of a module).
+     */
+    private final Map<String, List<IInfo>> moduleToInfos = new HashMap<String, List<IInfo>>();
+
+    private int emptyEntries;
+
+    public void add(IInfo info) {
+        String name = info.getName();
+        if (name == null) {
+            return;
+        }
+        String lowerName = name.toLowerCase();
+        NameEntry entry = nameToEntry.get(lowerName);
+        if (entry == null) {
+            entry = new NameEntry(lowerName);
+            nameToEntry.put(lowerName, entry);
+            indexEntry(entry, name);
+
+        } else if (entry.infos.size() == 0) {
+            emptyEntries--;
+        }
+        if (entry.infos.add(info)) {
+            String module = info.getDeclaringModuleName();
+            List<IInfo> moduleInfos = moduleToInfos.get(module);
+            if (moduleInfos == null) {
+                moduleInfos = new ArrayList<IInfo>();
+                moduleToInfos.put(module, moduleInfos);
+            }
+            moduleInfos.add(info);
+        }
+    }
+
+    private void indexEntry(NameEntry entry, String name) {
+        addToList(humpsToEntries, getHumpsInitials(name), entry);
+
+        String lowerName = entry.lowerName;
+        int len = lowerName.length();
+        if (len >= 3) {
+            Set<String> trigrams = new HashSet<String>();
+            for (int i = 0; i + 3 <= len; i++) {
+                String trigram = lowerName.substring(i, i + 3);
+                if (trigrams.add(trigram)) {
+                    addToList(trigramToEntries, trigram, entry);
+                }
+            }
+        }
+    }
+
+    private static void addToList(Map<String, List<NameEntry>> map, String key, NameEntry entry) {
+        List<NameEntry> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<NameEntry>(2);
+            map.put(key, list);
+        }
+        list.add(entry);
+    }
+
+    /**
+     * Removes all the infos declared in the given module.
+     */
+    public void removeModule(String moduleName) {
+        List<IInfo> infos = moduleToInfos.remove(moduleName);
+        if (infos == null) {
+            return;
+        }
+        for (IInfo info : infos) {
+            NameEntry entry = nameToEntry.get(info.getName().toLowerCase());
+            if (entry != null && entry.infos.remove(info) && entry.infos.size() == 0) {
+                emptyEntries++;
+            }
+        }
+        if (emptyEntries > 1000 && emptyEntries > nameToEntry.size() / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Discards the entries which have no infos (and recreates the indexes without them).
+     */
+    private void compact() {
+        List<IInfo> all = new ArrayList<IInfo>();
+        for (NameEntry entry : nameToEntry.values()) {
+            all.addAll(entry.infos);
+        }
+        clear();
+        for (IInfo info : all) {
+            add(info);
+        }
+    }
+
+    public void clear() {
+        nameToEntry.clear();
+        humpsToEntries.clear();
+        trigramToEntries.clear();
+        moduleToInfos.clear();
+        emptyEntries = 0;
+    }
+
+    /**
+     * @return the number of distinct (lowercase) names with tokens in the index.
+     */
+    public int getNamesCount() {
+        return nameToEntry.size() - emptyEntries;
+    }
+
+    // Queries ------------------------------------------------------------------------------------------------------
+
+    /**
+     * Adds to the result the infos whose name starts with the given qualifier (case-insensitive).
+     */
+    public void getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
+        long initial = SEARCH_TIMER.start();
+        String lowerQual = qualifier.toLowerCase();
+        for (NameEntry entry : getEntriesStartingWith(lowerQual).values()) {
+            addInfos(entry, getWhat, result, Integer.MAX_VALUE);
+        }
+        SEARCH_TIMER.stop(initial);
+    }
+
+    /**
+     * Adds to the result the infos whose name is equal to the given qualifier (case-sensitive).
+     */
+    public void getTokensEqualTo(String qualifier, int getWhat, Collection<IInfo> result) {
+        NameEntry entry = nameToEntry.get(qualifier.toLowerCase());
+        if (entry != null) {
+            for (IInfo info : entry.infos) {
+                if (info.getName().equals(qualifier) && accept(info, getWhat)) {
+                    result.add(info);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds to the result the infos whose name may match the given pattern (as used in the globals browser).
+     *
+     * The pattern may have wildcards ('*' and '?') and the ending chars ('<' and ' '), which are ignored, so,
+     * the names returned are the ones which have all the other chars of the pattern in the same order (which is
+     * a superset of the names matched by a prefix, camel-case or wildcards pattern) -- the caller is still
+     * responsible for the actual matching.
+     */
+    public void getTokensMatchingSequence(String pattern, int getWhat, Collection<IInfo> result) {
+        long initial = SEARCH_TIMER.start();
+        String sequence = getCharsSequence(pattern);
+        long mask = getCharsMask(sequence);
+        for (NameEntry entry : nameToEntry.values()) {
+            if ((entry.charsMask & mask) != mask || entry.infos.size() == 0) {
+                continue;
+            }
+            if (isSubsequence(sequence, entry.lowerName)) {
+                addInfos(entry, getWhat, result, Integer.MAX_VALUE);
+            }
+        }
+        SEARCH_TIMER.stop(initial);
+    }
+
+    /**
+     * Searches the tokens matching the query (by prefix, camel-humps or substring) and returns the best ones
+     * (exact matches first, then prefix, camel-humps and substring matches -- and shorter names first).
+     *
+     * @param maxResults the maximum number of infos to return.
+     */
+    public List<IInfo> search(String query, int getWhat, int maxResults) {
+        long initial = SEARCH_TIMER.start();
+        List<IInfo> result = new ArrayList<IInfo>();
+        if (query.length() == 0 || maxResults <= 0) {
+            return result;
+        }
+        String lowerQuery = query.toLowerCase();
+        Map<NameEntry, Integer> scores = new HashMap<NameEntry, Integer>();
+
+        //prefix (and exact)
+        for (NameEntry entry : getEntriesStartingWith(lowerQuery).values()) {
+            addScore(scores, entry, scorePrefix(query, lowerQuery, entry));
+        }
+
+        //camel humps
+        List<String> queryHumps = getQueryHumps(query);
+        String queryInitials = getInitials(queryHumps);
+        for (List<NameEntry> entries : humpsToEntries.subMap(queryInitials, queryInitials + Character.MAX_VALUE)
+                .values()) {
+            for (NameEntry entry : entries) {
+                if (!scores.containsKey(entry) && matchesHumps(queryHumps, entry)) {
+                    addScore(scores, entry, SCORE_CAMEL);
+                }
+            }
+        }
+
+        //substring (using the trigram with less entries)
+        if (lowerQuery.length() >= 3) {
+            List<NameEntry> smallest = null;
+            for (int i = 0; i + 3 <= lowerQuery.length(); i++) {
+                List<NameEntry> entries = trigramToEntries.get(lowerQuery.substring(i, i + 3));
+                if (entries == null) {
+                    smallest = null;
+                    break;
+                }
+                if (smallest == null || entries.size() < smallest.size()) {
+                    smallest = entries;
+                }
+            }
+            if (smallest != null) {
+                for (NameEntry entry : smallest) {
+                    if (!scores.containsKey(entry)) {
+                        int i = entry.lowerName.indexOf(lowerQuery);
+                        if (i >= 0) {
+                            addScore(scores, entry, SCORE_SUBSTRING - Math.min(i, 99));
+                        }
+                    }
+                }
+            }
+        }
+
+        //top-k: keep the worst on the head of the queue to remove it when we have more than needed.
+        PriorityQueue<ScoredEntry> best = new PriorityQueue<ScoredEntry>(Math.min(maxResults, 64) + 1,
+                Collections.reverseOrder(BEST_FIRST));
+        for (Map.Entry<NameEntry, Integer> e : scores.entrySet()) {
+            NameEntry entry = e.getKey();
+            if (!hasInfos(entry, getWhat)) {
+                continue;
+            }
+            //shorter names are better
+            int score = e.getValue() * 1000 - Math.min(entry.lowerName.length(), 999);
+            best.add(new ScoredEntry(entry, score));
+            if (best.size() > maxResults) {
+                best.poll();
+            }
+        }
+        List<ScoredEntry> sorted = new ArrayList<ScoredEntry>(best);
+        Collections.sort(sorted, BEST_FIRST);
+        for (ScoredEntry scoredEntry : sorted) {
+            addInfos(scoredEntry.entry, getWhat, result, maxResults);
+            if (result.size() >= maxResults) {
+                break;
+            }
+        }
+        SEARCH_TIMER.stop(initial);
+        return result;
+    }
+
+    private static void addScore(Map<NameEntry, Integer> scores, NameEntry entry, int score) {
+        if (entry.infos.size() > 0) {
+            scores.put(entry, score);
+        }
+    }
+
+    private static int scorePrefix(String query, String lowerQuery, NameEntry entry) {
+        boolean exact = entry.lowerName.length() == lowerQuery.length();
+        for (IInfo info : entry.infos) {
+            if (info.getName().startsWith(query)) {
+                return exact ? SCORE_EXACT_CASE : SCORE_PREFIX_CASE;
+            }
+        }
+        return exact ? SCORE_EXACT : SCORE_PREFIX;
+    }
+
+    private SortedMap<String, NameEntry> getEntriesStartingWith(String lowerQual) {
+        return nameToEntry.subMap(lowerQual, lowerQual + Character.MAX_VALUE);
+    }
+
+    private static boolean accept(IInfo info, int getWhat) {
+        String path = info.getPath();
+        if (path == null || path.length() == 0) {
+            return (getWhat & AbstractAdditionalTokensInfo.TOP_LEVEL) != 0;
+        }
+        return (getWhat & AbstractAdditionalTokensInfo.INNER) != 0;
+    }
+
+    private static boolean hasInfos(NameEntry entry, int getWhat) {
+        for (IInfo info : entry.infos) {
+            if (accept(info, getWhat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addInfos(NameEntry entry, int getWhat, Collection<IInfo> result, int maxResults) {
+        for (IInfo info : entry.infos) {
+            if (accept(info, getWhat)) {
+                result.add(info);
+                if (result.size() >= maxResults) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Helpers to deal with humps/chars -----------------------------------------------------------------------------
+
+    /**
+     * @return the humps of a name (i.e.: GlobalsTwoPanel = [Globals, Two, Panel], get_all_tokens = [get, all, tokens],
+     * HTTPServer = [HTTP, Server]). Digits don't start a new hump (as in the camel-case matching of the globals
+     * browser: Py3Grammar = [Py3, Grammar]).
+     */
+    public static List<String> getHumps(String name) {
+        List<String> humps = new ArrayList<String>();
+        int len = name.length();
+        int start = -1;
+        for (int i = 0; i < len; i++) {
+            char c = name.charAt(i);
+            if (c == '_') {
+                if (start != -1) {
+                    humps.add(name.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (start == -1) {
+                start = i;
+                continue;
+            }
+            char prev = name.charAt(i - 1);
+            boolean newHump = false;
+            if (Character.isUpperCase(c)) {
+                if (!Character.isUpperCase(prev)) {
+                    newHump = true;
+                } else if (i + 1 < len && Character.isLowerCase(name.charAt(i + 1))) {
+                    newHump = true; //the S in HTTPServer
+                }
+            }
+            if (newHump) {
+                humps.add(name.substring(start, i));
+                start = i;
+            }
+        }
+        if (start != -1) {
+            humps.add(name.substring(start));
+        }
+        return humps;
+    }
+
+    /**
+     * @return the lowercase initials of the humps of the name.
+     */
+    public static String getHumpsInitials(String name) {
+        return getInitials(getHumps(name));
+    }
+
+    private static String getInitials(List<String> humps) {
+        StringBuilder buf = new StringBuilder(humps.size());
+        for (String hump : humps) {
+            buf.append(Character.toLowerCase(hump.charAt(0)));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A query with uppercase chars is split in the uppercase chars (GloTP = [Glo, T, P]) and a lowercase query is
+     * considered to have only the initials (gtp = [g, t, p]).
+     */
+    private static List<String> getQueryHumps(String query) {
+        boolean hasUpper = false;
+        for (int i = 1; i < query.length(); i++) {
+            if (Character.isUpperCase(query.charAt(i))) {
+                hasUpper = true;
+                break;
+            }
+        }
+        List<String> humps = new ArrayList<String>();
+        if (!hasUpper) {
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c != '_') {
+                    humps.add(String.valueOf(c));
+                }
+            }
+            return humps;
+        }
+        int start = 0;
+        for (int i = 1; i < query.length(); i++) {
+            if (Character.isUpperCase(query.charAt(i))) {
+                humps.add(query.substring(start, i));
+                start = i;
+            }
+        }
+        humps.add(query.substring(start));
+        return humps;
+    }
+
+    private static boolean matchesHumps(List<String> queryHumps, NameEntry entry) {
+        //Any of the infos has the original name (they only differ in the case).
+        Iterator<IInfo> it = entry.infos.iterator();
+        if (!it.hasNext()) {
+            return false;
+        }
+        List<String> nameHumps = getHumps(it.next().getName());
+        if (nameHumps.size() < queryHumps.size()) {
+            return false;
+        }
+        for (int i = 0; i < queryHumps.size(); i++) {
+            String queryHump = queryHumps.get(i);
+            String nameHump = nameHumps.get(i);
+            if (!nameHump.regionMatches(true, 0, queryHump, 0, queryHump.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the lowercase chars of the pattern without wildcards and ending chars.
+     */
+    private static String getCharsSequence(String pattern) {
+        StringBuilder buf = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '*' && c != '?' && c != '<' && c != ' ') {
+                buf.append(Character.toLowerCase(c));
+            }
+        }
+        return buf.toString();
+    }
+
+    private static boolean isSubsequence(String sequence, String lowerName) {
+        int j = 0;
+        int len = lowerName.length();
+        for (int i = 0; i < sequence.length(); i++) {
+            char c = sequence.charAt(i);
+            while (j < len && lowerName.charAt(j) != c) {
+                j++;
+            }
+            if (j == len) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    /**
+     * @return a mask with a bit for each char (a-z, 0-9 and '_' have their own bits, others share the last bit).
+     */
+    private static long getCharsMask(String lowerName) {
+        long mask = 0;
+        for (int i = 0; i < lowerName.length(); i++) {
+            char c = lowerName.charAt(i);
+            int bit;
+            if (c >= 'a' && c <= 'z') {
+                bit = c - 'a';
+            } else if (c >= '0' && c <= '9') {
+                bit = 26 + (c - '0');
+            } else if (c == '_') {
+                bit = 36;
+            } else {
+                bit = 37;
+            }
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+}
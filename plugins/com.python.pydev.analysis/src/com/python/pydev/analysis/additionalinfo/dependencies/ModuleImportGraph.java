@@ -0,0 +1,492 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo.dependencies;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Import;
+import org.python.pydev.parser.jython.ast.ImportFrom;
+import org.python.pydev.parser.jython.ast.NameTok;
+import org.python.pydev.parser.jython.ast.aliasType;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.parser.visitors.scope.EasyASTIteratorVisitor;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+import com.python.pydev.analysis.additionalinfo.IInfo;
+
+/**
+ * Keeps (in memory) which modules are imported by each module of a project and the reverse mapping (which
+ * modules import a given module), along with the public structure (the global tokens) of each module.
+ *
+ * It's updated as the modules are indexed, so, when the public structure of a module changes, it's possible
+ * to know which modules directly depend on it (and only those have to be analyzed again).
+ *
+ * The imports are persisted along with the additional info (see: writeImportsTo/loadImportsFrom) and the graph
+ * is rebuilt when the additional info is restored.
+ *
+ * @author Fabio
+ */
+public class ModuleImportGraph {
+
+    private final Object lock = new Object();
+
+    /**
+     * module name -> names imported by the module (access synchronized with lock).
+     */
+    private final Map<String, Set<String>> moduleToImports = new HashMap<String, Set<String>>();
+
+    /**
+     * imported name -> modules which import that name (access synchronized with lock).
+     */
+    private final Map<String, Set<String>> importedToImporters = new HashMap<String, Set<String>>();
+
+    /**
+     * module name -> public tokens of the module (access synchronized with lock).
+     *
+     * Note that it's kept even when the info of a module is removed (as a module is usually removed and
+     * added again when it changes and we want to compare its old structure with the new one).
+     */
+    private final Map<String, Set<String>> moduleToPublicTokens = new HashMap<String, Set<String>>();
+
+    /**
+     * module name -> file for the module (access synchronized with lock).
+     */
+    private final Map<String, File> moduleToFile = new HashMap<String, File>();
+
+    /**
+     * module name -> structural change not handled yet (access synchronized with lock).
+     */
+    private final Map<String, PyStructuralChange> pendingChanges = new HashMap<String, PyStructuralChange>();
+
+    /**
+     * Sum of the hashes of the public structure of all the modules (access synchronized with lock).
+     */
+    private long structureHash;
+
+    /**
+     * Sets the information for a module.
+     *
+     * @return the structural change in the module or null if its public structure didn't change. If the module
+     * wasn't known before, a change (with all its tokens and the module name itself) is only returned if some
+     * module already imports it (so that its "Unresolved import" errors are gone).
+     */
+    public PyStructuralChange setModuleInfo(String moduleName, File file, Set<String> imports,
+            Set<String> publicTokens) {
+        synchronized (lock) {
+            removeImports(moduleName);
+            moduleToImports.put(moduleName, imports);
+            for (String imported : imports) {
+                Set<String> importers = importedToImporters.get(imported);
+                if (importers == null) {
+                    importers = new HashSet<String>();
+                    importedToImporters.put(imported, importers);
+                }
+                importers.add(moduleName);
+            }
+            if (file != null) {
+                moduleToFile.put(moduleName, file);
+            }
+
+            Set<String> oldTokens = moduleToPublicTokens.put(moduleName, publicTokens);
+            structureHash += getModuleHash(moduleName, publicTokens);
+            if (oldTokens == null) {
+                Set<String> importers = importedToImporters.get(moduleName);
+                if (importers == null || (importers.size() == 1 && importers.contains(moduleName))) {
+                    return null;
+                }
+                PyStructuralChange change = createChange(moduleName, new HashSet<String>(), publicTokens);
+                if (change == null) {
+                    change = new PyStructuralChange();
+                    change.setModule(moduleName);
+                }
+                change.addToken(moduleName);
+                return change;
+            }
+            structureHash -= getModuleHash(moduleName, oldTokens);
+            return createChange(moduleName, oldTokens, publicTokens);
+        }
+    }
+
+    /**
+     * Removes the imports of the given module (the public structure is kept so that it can be compared if the
+     * module is added again).
+     */
+    public void removeModuleImports(String moduleName) {
+        synchronized (lock) {
+            removeImports(moduleName);
+        }
+    }
+
+    /**
+     * Removes all the info on the module (i.e.: the module was deleted).
+     *
+     * @return a structural change with all the tokens of the module removed (and the module name itself) or null
+     * if the module wasn't known.
+     */
+    public PyStructuralChange removeModule(String moduleName) {
+        synchronized (lock) {
+            removeImports(moduleName);
+            moduleToFile.remove(moduleName);
+            Set<String> oldTokens = moduleToPublicTokens.remove(moduleName);
+            if (oldTokens == null) {
+                return null;
+            }
+            structureHash -= getModuleHash(moduleName, oldTokens);
+            PyStructuralChange change = createChange(moduleName, oldTokens, new HashSet<String>());
+            if (change == null) {
+                change = new PyStructuralChange();
+                change.setModule(moduleName);
+            }
+            change.addRemovedToken(moduleName);
+            return change;
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void removeImports(String moduleName) {
+        Set<String> imports = moduleToImports.remove(moduleName);
+        if (imports == null) {
+            return;
+        }
+        for (String imported : imports) {
+            Set<String> importers = importedToImporters.get(imported);
+            if (importers != null) {
+                importers.remove(moduleName);
+                if (importers.size() == 0) {
+                    importedToImporters.remove(imported);
+                }
+            }
+        }
+    }
+
+    private PyStructuralChange createChange(String moduleName, Set<String> oldTokens, Set<String> newTokens) {
+        PyStructuralChange change = null;
+        for (String tok : newTokens) {
+            if (!oldTokens.contains(tok)) {
+                if (change == null) {
+                    change = new PyStructuralChange();
+                    change.setModule(moduleName);
+                }
+                change.addToken(tok);
+            }
+        }
+        for (String tok : oldTokens) {
+            if (!newTokens.contains(tok)) {
+                if (change == null) {
+                    change = new PyStructuralChange();
+                    change.setModule(moduleName);
+                }
+                change.addRemovedToken(tok);
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Keeps a change so that it can be handled later on (see: popPendingChange).
+     */
+    public void addPendingChange(PyStructuralChange change) {
+        synchronized (lock) {
+            PyStructuralChange old = pendingChanges.put(change.getModule(), change);
+            if (old != null) {
+                //the previous change wasn't handled yet: keep its tokens too.
+                for (String tok : old.getChangedTokens()) {
+                    change.addToken(tok);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the pending structural change for the module (or null if there's no pending change) -- the
+     * change is removed from the pending changes.
+     */
+    public PyStructuralChange popPendingChange(String moduleName) {
+        synchronized (lock) {
+            return pendingChanges.remove(moduleName);
+        }
+    }
+
+    /**
+     * @return the modules which import the given module directly (the module itself is never returned).
+     */
+    public Set<String> getDirectImporters(String moduleName) {
+        synchronized (lock) {
+            Set<String> ret = new HashSet<String>();
+            Set<String> importers = importedToImporters.get(moduleName);
+            if (importers != null) {
+                ret.addAll(importers);
+            }
+            ret.remove(moduleName);
+            return ret;
+        }
+    }
+
+    /**
+     * @return the file for the given module (or null if not known).
+     */
+    public File getFile(String moduleName) {
+        synchronized (lock) {
+            return moduleToFile.get(moduleName);
+        }
+    }
+
+    public Set<String> getImports(String moduleName) {
+        synchronized (lock) {
+            Set<String> imports = moduleToImports.get(moduleName);
+            if (imports == null) {
+                return new HashSet<String>();
+            }
+            return new HashSet<String>(imports);
+        }
+    }
+
+    /**
+     * @return a hash of the public structure of all the modules in the graph (it changes whenever a module is
+     * added or removed or when its public structure changes and it's the same when the graph is restored).
+     */
+    public long getStructureHash() {
+        synchronized (lock) {
+            return structureHash;
+        }
+    }
+
+    /**
+     * @return the hash and number of the public tokens of the given module or null if the module is not known.
+     */
+    public String getStructureFingerprint(String moduleName) {
+        synchronized (lock) {
+            Set<String> tokens = moduleToPublicTokens.get(moduleName);
+            if (tokens == null) {
+                return null;
+            }
+            return getTokensHash(tokens) + "/" + tokens.size();
+        }
+    }
+
+    public String getDependenciesFingerprint(String moduleName) {
+        return getDependenciesFingerprint(moduleName, new ArrayList<ModuleImportGraph>(0));
+    }
+
+    /**
+     * Only the imports which resolve to a module in this graph (or in one of the referenced graphs) are considered:
+     * for "from a import b", "a.b" is only a module if it's known, otherwise "b" is a token in "a" (which is
+     * already in the imports). The imports of the interpreter libraries are not known here (the structure of
+     * those is given by the interpreter, so, its hash must be considered separately by the client).
+     *
+     * @param referencedGraphs graphs of other projects where the imports should be resolved.
+     *
+     * @return a string which changes when the imports of the module change or when the public structure of
+     * any module it imports changes ('?' if the module itself is not indexed).
+     */
+    public String getDependenciesFingerprint(String moduleName, List<ModuleImportGraph> referencedGraphs) {
+        List<String> sortedImports;
+        synchronized (lock) {
+            Set<String> imports = moduleToImports.get(moduleName);
+            if (imports == null) {
+                return "?";
+            }
+            sortedImports = new ArrayList<String>(imports);
+        }
+        Collections.sort(sortedImports);
+
+        StringBuilder buf = new StringBuilder();
+        for (String imported : sortedImports) {
+            String structure = getStructureFingerprint(imported);
+            for (int i = 0; structure == null && i < referencedGraphs.size(); i++) {
+                structure = referencedGraphs.get(i).getStructureFingerprint(imported);
+            }
+            if (structure != null) {
+                buf.append(imported).append(':').append(structure).append('\n');
+            }
+        }
+        return buf.toString();
+    }
+
+    private static int getTokensHash(Set<String> tokens) {
+        List<String> sortedTokens = new ArrayList<String>(tokens);
+        Collections.sort(sortedTokens);
+        return sortedTokens.hashCode();
+    }
+
+    private static long getModuleHash(String moduleName, Set<String> tokens) {
+        return moduleName.hashCode() * 31L + getTokensHash(tokens);
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            moduleToImports.clear();
+            importedToImporters.clear();
+            moduleToPublicTokens.clear();
+            moduleToFile.clear();
+            pendingChanges.clear();
+            structureHash = 0;
+        }
+    }
+
+    // Persistence --------------------------------------------------------------------------------------------------
+
+    /**
+     * Writes the imports of the modules in a format that may later be restored with loadImportsFrom (the public
+     * tokens and files are not written as they're restored from the additional info itself).
+     */
+    public void writeImportsTo(FastStringBuffer tempBuf) {
+        synchronized (lock) {
+            tempBuf.append("-- START IMPORTS\n");
+            for (Map.Entry<String, Set<String>> entry : moduleToImports.entrySet()) {
+                tempBuf.append(entry.getKey());
+                for (String imported : entry.getValue()) {
+                    tempBuf.append('|').append(imported);
+                }
+                tempBuf.append('\n');
+            }
+            tempBuf.append("-- END IMPORTS\n");
+        }
+    }
+
+    /**
+     * Loads from a reader the imports written with writeImportsTo.
+     *
+     * @return module name -> names imported by the module.
+     */
+    public static Map<String, Set<String>> loadImportsFrom(FastBufferedReader reader) throws IOException {
+        Map<String, Set<String>> ret = new HashMap<String, Set<String>>();
+        while (true) {
+            FastStringBuffer line = reader.readLine();
+            if (line == null || line.startsWith("-- ")) {
+                if (line != null && line.startsWith("-- END IMPORTS")) {
+                    return ret;
+                }
+                throw new RuntimeException("Unexpected line: " + line);
+            }
+            List<String> parts = StringUtils.split(line.toString(), '|');
+            if (parts.size() > 0) {
+                ret.put(parts.get(0), new HashSet<String>(parts.subList(1, parts.size())));
+            }
+        }
+    }
+
+    // Helpers to get the info from an ast --------------------------------------------------------------------------
+
+    /**
+     * @return the public tokens for the given infos (as returned from addAstInfo) -- i.e.: path.name
+     */
+    public static Set<String> getPublicTokens(Collection<IInfo> infos) {
+        Set<String> ret = new HashSet<String>(infos.size());
+        for (IInfo info : infos) {
+            String path = info.getPath();
+            if (path != null && path.length() > 0) {
+                ret.add(path + "." + info.getName());
+            } else {
+                ret.add(info.getName());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param ast the ast for the module.
+     * @param moduleName the name of the module.
+     * @param isPackage whether the module is a package (i.e.: __init__), used to resolve relative imports.
+     *
+     * @return the names of the modules that may be imported by the module (for "from a.b import c", "a.b" and
+     * "a.b.c" are returned, as we don't know whether "c" is a module or a token in "a.b" -- that's only resolved
+     * in getDependenciesFingerprint; for "import a.b", "a" and "a.b" are returned, as both are executed on the
+     * import).
+     */
+    public static Set<String> getImportedModules(SimpleNode ast, String moduleName, boolean isPackage) {
+        Set<String> ret = new HashSet<String>();
+        if (ast == null) {
+            return ret;
+        }
+        EasyASTIteratorVisitor visitor = new EasyASTIteratorVisitor();
+        try {
+            ast.accept(visitor);
+        } catch (Exception e) {
+            Log.log(e);
+            return ret;
+        }
+        Iterator<ASTEntry> it = visitor.getIterator(new Class[] { Import.class, ImportFrom.class });
+        while (it.hasNext()) {
+            SimpleNode node = it.next().node;
+            if (node instanceof Import) {
+                for (aliasType alias : ((Import) node).names) {
+                    addWithParents(ret, ((NameTok) alias.name).id);
+                }
+
+            } else if (node instanceof ImportFrom) {
+                ImportFrom importFrom = (ImportFrom) node;
+                String base = importFrom.module != null ? ((NameTok) importFrom.module).id : "";
+                if (importFrom.level > 0) {
+                    base = resolveRelative(moduleName, isPackage, importFrom.level, base);
+                    if (base == null) {
+                        continue;
+                    }
+                }
+                if (base.length() > 0) {
+                    addWithParents(ret, base);
+                }
+                for (aliasType alias : importFrom.names) {
+                    String name = ((NameTok) alias.name).id;
+                    if ("*".equals(name)) {
+                        continue;
+                    }
+                    ret.add(base.length() > 0 ? base + "." + name : name);
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void addWithParents(Set<String> ret, String name) {
+        List<String> parts = StringUtils.dotSplit(name);
+        StringBuilder buf = new StringBuilder(name.length());
+        for (String part : parts) {
+            if (buf.length() > 0) {
+                buf.append('.');
+            }
+            buf.append(part);
+            ret.add(buf.toString());
+        }
+    }
+
+    /**
+     * @return the absolute name for a relative import (or null if it goes beyond the top-level package).
+     */
+    public static String resolveRelative(String moduleName, boolean isPackage, int level, String relative) {
+        List<String> parts = new ArrayList<String>(StringUtils.dotSplit(moduleName));
+        if (!isPackage && parts.size() > 0) {
+            parts.remove(parts.size() - 1);
+        }
+        for (int i = 1; i < level; i++) {
+            if (parts.size() == 0) {
+                return null;
+            }
+            parts.remove(parts.size() - 1);
+        }
+        if (relative != null && relative.length() > 0) {
+            parts.add(relative);
+        }
+        return StringUtils.join(".", parts);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+import com.python.pydev.analysis.batch.BatchAnalyzer.IBatchAnalysisListener;
+import com.python.pydev.analysis.messages.IMessage;
+
+/**
+ * Writes the messages of the batch analysis as they're found (all the messages of a module are written together).
+ *
+ * In the text format each message is written as: file:line:column: severity: message
+ *
+ * In the json format each message is a json object in a line, with the keys: file, module, line, column, endLine,
+ * endColumn, severity, type and message (failures have the keys file and error).
+ */
+public class BatchAnalysisWriter implements IBatchAnalysisListener {
+
+    public static final String FORMAT_TEXT = "text";
+    public static final String FORMAT_JSON = "json";
+
+    private final Writer writer;
+    private final boolean json;
+    private final boolean reportInfo;
+    private int errors;
+
+    /**
+     * @param reportInfo whether messages with the info severity (which is the severity used when a given kind of
+     * message is ignored in the preferences) should be written.
+     */
+    public BatchAnalysisWriter(Writer writer, String format, boolean reportInfo) {
+        if (!FORMAT_TEXT.equals(format) && !FORMAT_JSON.equals(format)) {
+            throw new IllegalArgumentException("Unexpected format: " + format);
+        }
+        this.writer = writer;
+        this.json = FORMAT_JSON.equals(format);
+        this.reportInfo = reportInfo;
+    }
+
+    /**
+     * @return the number of messages with the error severity written (and failures).
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    public static String getSeverityName(int severity) {
+        switch (severity) {
+            case IMarker.SEVERITY_ERROR:
+                return "error";
+            case IMarker.SEVERITY_WARNING:
+                return "warning";
+            default:
+                return "info";
+        }
+    }
+
+    @Override
+    public void moduleAnalyzed(File file, String moduleName, IDocument document, IMessage[] messages) {
+        if (messages.length == 0) {
+            return;
+        }
+        //Format outside of the lock (the lock is only needed to write).
+        FastStringBuffer buf = new FastStringBuffer(messages.length * 100);
+        String path = file.getPath();
+        int found = 0;
+        for (IMessage message : messages) {
+            int severity = message.getSeverity();
+            if (severity == IMarker.SEVERITY_INFO && !reportInfo) {
+                continue;
+            }
+            if (severity == IMarker.SEVERITY_ERROR) {
+                found++;
+            }
+            if (json) {
+                buf.append('{');
+                StringUtils.appendJson(buf, "file", path).append(',');
+                StringUtils.appendJson(buf, "module", moduleName).append(',');
+                StringUtils.appendJson(buf, "line", message.getStartLine(document)).append(',');
+                StringUtils.appendJson(buf, "column", message.getStartCol(document)).append(',');
+                StringUtils.appendJson(buf, "endLine", message.getEndLine(document)).append(',');
+                StringUtils.appendJson(buf, "endColumn", message.getEndCol(document)).append(',');
+                StringUtils.appendJson(buf, "severity", getSeverityName(severity)).append(',');
+                StringUtils.appendJson(buf, "type", message.getType()).append(',');
+                StringUtils.appendJson(buf, "message", message.getMessage()).append("}\n");
+            } else {
+                buf.append(path).append(':').append(message.getStartLine(document)).append(':')
+                        .append(message.getStartCol(document)).append(": ").append(getSeverityName(severity))
+                        .append(": ").append(message.getMessage()).append('\n');
+            }
+        }
+        write(buf, found);
+    }
+
+    @Override
+    public void moduleFailed(File file, Throwable e) {
+        FastStringBuffer buf = new FastStringBuffer();
+        if (json) {
+            buf.append('{');
+            StringUtils.appendJson(buf, "file", file.getPath()).append(',');
+            StringUtils.appendJson(buf, "error", String.valueOf(e)).append("}\n");
+        } else {
+            buf.append(file.getPath()).append(": failed: ").append(String.valueOf(e)).append('\n');
+        }
+        write(buf, 1);
+    }
+
+    private synchronized void write(FastStringBuffer buf, int errorsFound) {
+        errors += errorsFound;
+        if (buf.length() == 0) {
+            return;
+        }
+        try {
+            writer.write(buf.getInternalCharsArray(), 0, buf.length());
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
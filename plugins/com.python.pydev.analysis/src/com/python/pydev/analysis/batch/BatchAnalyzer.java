@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.IIndentPrefs;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.StringUtils;
+
+import com.python.pydev.analysis.IAnalysisPreferences;
+import com.python.pydev.analysis.OccurrencesAnalyzer;
+import com.python.pydev.analysis.builder.AnalysisRunner;
+import com.python.pydev.analysis.messages.IMessage;
+
+/**
+ * Runs the code-analysis done by the builder (OccurrencesVisitor, TabNanny, pep8) for all the python files in
+ * directory trees, using many threads and without requiring a workbench (see: {@link BatchAnalyzerApplication}).
+ *
+ * The results of each module are passed to the listener as soon as that module is analyzed (so, the listener is
+ * called from the threads doing the analysis).
+ */
+public class BatchAnalyzer {
+
+    public static interface IBatchAnalysisListener {
+
+        void moduleAnalyzed(File file, String moduleName, IDocument document, IMessage[] messages);
+
+        void moduleFailed(File file, Throwable e);
+    }
+
+    public static final class Statistics {
+
+        public final int files;
+        public final int messages;
+        public final int failures;
+        public final long elapsedMillis;
+
+        private Statistics(int files, int messages, int failures, long elapsedMillis) {
+            this.files = files;
+            this.messages = messages;
+            this.failures = failures;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public double getFilesPerSecond() {
+            return elapsedMillis > 0 ? files * 1000.0 / elapsedMillis : files;
+        }
+
+        @Override
+        public String toString() {
+            return StringUtils.format("Analyzed %s files (%s messages, %s failures) in %s secs (%s files/sec).",
+                    files, messages, failures, elapsedMillis / 1000.0, (int) getFilesPerSecond());
+        }
+    }
+
+    private final IPythonNature nature;
+    private final IAnalysisPreferences prefs;
+    private final IIndentPrefs indentPrefs;
+    private final int threads;
+
+    /**
+     * @param nature the nature used to resolve the tokens (its modules manager must already have the folders analyzed
+     * in its pythonpath).
+     */
+    public BatchAnalyzer(IPythonNature nature, IAnalysisPreferences prefs, IIndentPrefs indentPrefs, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expected at least 1 thread. Found: " + threads);
+        }
+        this.nature = nature;
+        this.prefs = prefs;
+        this.indentPrefs = indentPrefs;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the python files in the given directories (or the files themselves if python files are passed). Hidden
+     * directories (i.e.: .git, .hg) are skipped.
+     */
+    public static List<File> collectPythonFiles(Collection<File> roots) {
+        List<File> ret = new ArrayList<File>();
+        for (File root : roots) {
+            if (root.isDirectory()) {
+                collectPythonFiles(root, ret);
+            } else if (PythonPathHelper.isValidSourceFile(root.getName())) {
+                ret.add(root);
+            }
+        }
+        return ret;
+    }
+
+    private static void collectPythonFiles(File dir, List<File> ret) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files); //Always report in the same order.
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (!name.startsWith(".")) {
+                    collectPythonFiles(file, ret);
+                }
+            } else if (PythonPathHelper.isValidSourceFile(name)) {
+                ret.add(file);
+            }
+        }
+    }
+
+    /**
+     * Analyzes the given files (returns only after all are analyzed or the monitor is cancelled).
+     */
+    public Statistics analyze(List<File> files, final IBatchAnalysisListener listener, final IProgressMonitor monitor) {
+        long initialTime = System.currentTimeMillis();
+        final AtomicInteger analyzed = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        prefs.clearCaches();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BatchAnalyzer-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            for (final File file : files) {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        if (monitor.isCanceled()) {
+                            return;
+                        }
+                        try {
+                            IDocument doc = (IDocument) FileUtils.getFileContentsCustom(file,
+                                    FileUtils.getPythonFileEncoding(file), IDocument.class);
+                            String moduleName = getModuleName(file);
+                            IMessage[] found = analyze(file, moduleName, doc, monitor);
+                            analyzed.incrementAndGet();
+                            messages.addAndGet(found.length);
+                            listener.moduleAnalyzed(file, moduleName, doc, found);
+                        } catch (OperationCanceledException e) {
+                            //Just stop.
+                        } catch (Throwable e) {
+                            failures.incrementAndGet();
+                            listener.moduleFailed(file, e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            while (!executor.awaitTermination(200, TimeUnit.MILLISECONDS)) {
+                if (monitor.isCanceled()) {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            monitor.setCanceled(true);
+            executor.shutdownNow();
+        }
+        return new Statistics(analyzed.get(), messages.get(), failures.get(), System.currentTimeMillis()
+                - initialTime);
+    }
+
+    private String getModuleName(File file) throws Exception {
+        String moduleName = nature.resolveModule(file);
+        if (moduleName == null) {
+            //Not in the pythonpath: analyze it as a top-level module.
+            moduleName = StringUtils.stripExtension(file.getName());
+        }
+        return moduleName;
+    }
+
+    /**
+     * @return the messages found in the given document (no messages if the analysis is disabled for it).
+     */
+    /*default*/IMessage[] analyze(File file, String moduleName, IDocument doc, IProgressMonitor monitor)
+            throws Exception {
+        if (!new AnalysisRunner().canDoAnalysis(doc)) {
+            return new IMessage[0];
+        }
+        SourceModule module = AbstractModule.createModuleFromDoc(moduleName, file, doc, nature, false);
+        return new OccurrencesAnalyzer().analyzeDocument(nature, module, prefs, doc, monitor, indentPrefs);
+    }
+}
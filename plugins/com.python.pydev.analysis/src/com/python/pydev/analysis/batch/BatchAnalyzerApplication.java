@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.python.pydev.core.IInterpreterManager;
+import org.python.pydev.core.MisconfigurationException;
+import org.python.pydev.editor.autoedit.DefaultIndentPrefs;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.plugin.nature.SystemPythonNature;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.ui.pythonpathconf.InterpreterInfo;
+
+import com.python.pydev.analysis.AnalysisPreferences;
+import com.python.pydev.analysis.batch.BatchAnalyzer.Statistics;
+
+/**
+ * Headless application which runs the code-analysis in directory trees, so that it can be used in command-line tools
+ * (i.e.: pre-commit hooks, nightly jobs). E.g.:
+ *
+ * eclipse -nosplash -application com.python.pydev.analysis.batchAnalyzer -format json -threads 8 src tests
+ *
+ * The folders passed are added to the pythonpath (as source folders) and all the python files in them are analyzed.
+ * Messages are written to the output (stdout by default) as they're found and a summary is written to stderr.
+ *
+ * Exit codes: 0: no errors found, 1: errors found, 2: invalid arguments.
+ */
+public class BatchAnalyzerApplication implements IApplication {
+
+    public static final Integer EXIT_ERRORS_FOUND = 1;
+    public static final Integer EXIT_INVALID_ARGUMENTS = 2;
+
+    private static final String USAGE = ""
+            + "Usage: -application com.python.pydev.analysis.batchAnalyzer [options] folder_or_file...\n"
+            + "  -interpreter <executable>: the python interpreter (default: the one configured in the workspace).\n"
+            + "  -pythonpath <folder|folder>: additional folders used to resolve imports (not analyzed).\n"
+            + "  -format text|json: the format of the output (default: text).\n"
+            + "  -threads <n>: the number of threads doing the analysis (default: number of processors).\n"
+            + "  -output <file>: where the messages are written (default: stdout).\n"
+            + "  -info: also report the messages with the info severity.\n";
+
+    /**
+     * The options passed in the command line.
+     */
+    /*default*/static final class Options {
+
+        String interpreter;
+        final List<String> pythonpath = new ArrayList<String>();
+        String format = BatchAnalysisWriter.FORMAT_TEXT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output;
+        boolean reportInfo;
+        final List<File> roots = new ArrayList<File>();
+    }
+
+    /**
+     * @return the options or null if the arguments are not valid.
+     */
+    /*default*/static Options parseArguments(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-info")) {
+                options.reportInfo = true;
+                continue;
+            }
+            if (arg.startsWith("-")) {
+                if (i + 1 >= args.length) {
+                    return null;
+                }
+                String value = args[++i];
+                if (arg.equals("-interpreter")) {
+                    options.interpreter = value;
+
+                } else if (arg.equals("-pythonpath")) {
+                    for (String s : StringUtils.split(value, '|')) {
+                        if (s.trim().length() > 0) {
+                            options.pythonpath.add(s.trim());
+                        }
+                    }
+
+                } else if (arg.equals("-format")) {
+                    if (!BatchAnalysisWriter.FORMAT_TEXT.equals(value)
+                            && !BatchAnalysisWriter.FORMAT_JSON.equals(value)) {
+                        return null;
+                    }
+                    options.format = value;
+
+                } else if (arg.equals("-threads")) {
+                    try {
+                        options.threads = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    if (options.threads < 1) {
+                        return null;
+                    }
+
+                } else if (arg.equals("-output")) {
+                    options.output = value;
+
+                } else {
+                    return null;
+                }
+            } else {
+                options.roots.add(new File(arg));
+            }
+        }
+        if (options.roots.size() == 0) {
+            return null;
+        }
+        return options;
+    }
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        Object args = context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+        Options options = parseArguments(args instanceof String[] ? (String[]) args : new String[0]);
+        if (options == null) {
+            System.err.println(USAGE);
+            return EXIT_INVALID_ARGUMENTS;
+        }
+        for (File root : options.roots) {
+            if (!root.exists()) {
+                System.err.println("Not found: " + root);
+                return EXIT_INVALID_ARGUMENTS;
+            }
+        }
+        context.applicationRunning();
+
+        IProgressMonitor monitor = new NullProgressMonitor();
+        IInterpreterManager manager = PydevPlugin.getPythonInterpreterManager();
+        InterpreterInfo info;
+        if (options.interpreter != null) {
+            info = (InterpreterInfo) manager.createInterpreterInfo(options.interpreter, monitor, false);
+        } else {
+            try {
+                //Work in a copy (the modules of the configured interpreter must not be changed).
+                info = ((InterpreterInfo) manager.getDefaultInterpreterInfo(false)).makeCopy();
+            } catch (MisconfigurationException e) {
+                System.err.println("No interpreter configured; pass -interpreter.");
+                System.err.println(USAGE);
+                return EXIT_INVALID_ARGUMENTS;
+            }
+        }
+
+        //The folders analyzed are indexed along with the interpreter libraries.
+        for (File root : options.roots) {
+            File folder = root.isDirectory() ? root : root.getAbsoluteFile().getParentFile();
+            info.libs.add(FileUtils.getFileAbsolutePath(folder));
+        }
+        for (String path : options.pythonpath) {
+            info.libs.add(FileUtils.getFileAbsolutePath(new File(path)));
+        }
+        long initialTime = System.currentTimeMillis();
+        info.restorePythonpath(monitor);
+        System.err.println(StringUtils.format("Indexed %s modules in %s secs.", info.getModulesManager().getSize(false),
+                (System.currentTimeMillis() - initialTime) / 1000.0));
+
+        SystemPythonNature nature = new SystemPythonNature(manager, info);
+        BatchAnalyzer analyzer = new BatchAnalyzer(nature, AnalysisPreferences.getAnalysisPreferences(),
+                DefaultIndentPrefs.get(), options.threads);
+        List<File> files = BatchAnalyzer.collectPythonFiles(options.roots);
+
+        Writer writer = new OutputStreamWriter(options.output != null ? new FileOutputStream(options.output)
+                : System.out, "UTF-8");
+        try {
+            BatchAnalysisWriter analysisWriter = new BatchAnalysisWriter(writer, options.format, options.reportInfo);
+            Statistics statistics = analyzer.analyze(files, analysisWriter, monitor);
+            System.err.println(statistics);
+            return analysisWriter.getErrors() > 0 ? EXIT_ERRORS_FOUND : IApplication.EXIT_OK;
+        } finally {
+            if (options.output != null) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+}
@@ -17,6 +17,7 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jface.text.IDocument;
 import org.python.pydev.builder.PyDevBuilderPrefPage;
 import org.python.pydev.builder.PyDevBuilderVisitor;
+import org.python.pydev.core.IIndentPrefs;
 import org.python.pydev.core.IModule;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.log.Log;
@@ -29,8 +30,11 @@ import org.python.pydev.shared_core.callbacks.ICallback;
 import com.python.pydev.analysis.AnalysisPreferences;
 import com.python.pydev.analysis.IAnalysisPreferences;
 import com.python.pydev.analysis.OccurrencesAnalyzer;
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalDependencyInfo;
 import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
 import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
+import com.python.pydev.analysis.additionalinfo.dependencies.ModuleImportGraph;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
 import com.python.pydev.analysis.messages.IMessage;
 
 /**
@@ -153,7 +157,8 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
                 Log.log("Finished analysis: null nature -- " + moduleName);
                 return;
             }
-            AbstractAdditionalTokensInfo info = AdditionalProjectInterpreterInfo.getAdditionalInfoForProject(nature);
+            AbstractAdditionalDependencyInfo info = AdditionalProjectInterpreterInfo
+                    .getAdditionalInfoForProject(nature);
 
             if (info == null) {
                 Log.log("Unable to get additional info for: " + r + " -- " + moduleName);
@@ -193,6 +198,14 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
             //recreate the ctx insensitive info
             recreateCtxInsensitiveInfo(info, module, nature, r);
 
+            if (!isFullBuild) {
+                //if the public structure of the module changed, the modules importing it must be analyzed again.
+                PyStructuralChange change = info.importGraph.popPendingChange(moduleName);
+                if (change != null) {
+                    DependentModulesReanalyzer.getInstance().structureChanged(nature, change, info.importGraph);
+                }
+            }
+
             if (onlyRecreateCtxInsensitiveInfo) {
                 if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
                     Log.toLogFile(this, "Skipping: !forceAnalysis && analysisCause == ANALYSIS_CAUSE_BUILDER && "
@@ -223,16 +236,44 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
                 //We don't want to check derived resources (but we want to remove any analysis messages that
                 //might be already there)
                 if (r != null) {
-                    runner.setMarkers(r, document, new IMessage[0], this.internalCancelMonitor);
+                    runner.setMarkers(r, document, new IMessage[0], this.internalCancelMonitor,
+                            analysisCause != ANALYSIS_CAUSE_BUILDER);
                 }
                 return;
             }
 
-            //ok, let's do it
-            OccurrencesAnalyzer analyzer = new OccurrencesAnalyzer();
-            checkStop();
-            IMessage[] messages = analyzer.analyzeDocument(nature, module, analysisPreferences, document,
-                    this.internalCancelMonitor, DefaultIndentPrefs.get());
+            //if the same contents were already analyzed (with the same preferences and the same structure in
+            //the imported modules), the results are reused.
+            IIndentPrefs indentPrefs = DefaultIndentPrefs.get();
+            AnalysisResultsCache resultsCache = AnalysisResultsCache.getInstance();
+            List<ModuleImportGraph> referencedGraphs = new ArrayList<ModuleImportGraph>();
+            for (AbstractAdditionalDependencyInfo referencedInfo : AdditionalProjectInterpreterInfo
+                    .getAdditionalInfoForProjectAndReferencing(nature)) {
+                if (referencedInfo != info) {
+                    referencedGraphs.add(referencedInfo.importGraph);
+                }
+            }
+            String cacheKey = AnalysisResultsCache.createKey(moduleName, document,
+                    AnalysisResultsCache.getPreferencesHash(nature, indentPrefs), info.importGraph, referencedGraphs);
+            IMessage[] messages = forceAnalysis || cacheKey == null ? null : resultsCache.get(cacheKey);
+
+            if (messages == null) {
+                //ok, let's do it
+                OccurrencesAnalyzer analyzer = new OccurrencesAnalyzer();
+                checkStop();
+                messages = analyzer.analyzeDocument(nature, module, analysisPreferences, document,
+                        this.internalCancelMonitor, indentPrefs);
+
+                checkStop();
+                if (cacheKey != null) {
+                    resultsCache.put(cacheKey, messages, document);
+                }
+            } else {
+                if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                    Log.toLogFile(this, "Analysis results gotten from cache -- " + moduleName + " -- "
+                            + resultsCache.getStatistics());
+                }
+            }
 
             checkStop();
             if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
@@ -252,7 +293,9 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
                         || !analyzeOnlyActiveEditor
                         || (analyzeOnlyActiveEditor && (!PyDevBuilderPrefPage.getRemoveErrorsWhenEditorIsClosed() || PyEdit
                                 .isEditorOpenForResource(r)))) {
-                    runner.setMarkers(r, document, messages, this.internalCancelMonitor);
+                    //markers from the builder are applied along with the markers of other resources.
+                    runner.setMarkers(r, document, messages, this.internalCancelMonitor,
+                            analysisCause != ANALYSIS_CAUSE_BUILDER);
                 } else {
                     if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
                         Log.toLogFile(this, "Skipped adding markers for module: " + moduleName
@@ -13,6 +13,7 @@ import org.python.pydev.logging.DebugSettings;
 
 import com.python.pydev.analysis.additionalinfo.AbstractAdditionalDependencyInfo;
 import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
 
 /**
  * This class is used to do analysis on a thread, just to remove the actual info.
@@ -41,6 +42,20 @@ public class AnalysisBuilderRunnableForRemove extends AbstractAnalysisBuilderRun
             Log.toLogFile(this, "Removing additional info from: " + moduleName);
         }
         removeInfoForModule(moduleName, nature, isFullBuild);
+
+        if (!isFullBuild && moduleName != null && nature != null) {
+            //the module was removed: the modules importing it must be analyzed again.
+            try {
+                AbstractAdditionalDependencyInfo info = AdditionalProjectInterpreterInfo
+                        .getAdditionalInfoForProject(nature);
+                if (info != null) {
+                    PyStructuralChange change = info.importGraph.removeModule(moduleName);
+                    DependentModulesReanalyzer.getInstance().structureChanged(nature, change, info.importGraph);
+                }
+            } catch (MisconfigurationException e) {
+                Log.log(e);
+            }
+        }
     }
 
     /**
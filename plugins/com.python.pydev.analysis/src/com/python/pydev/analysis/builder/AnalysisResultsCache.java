@@ -0,0 +1,407 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.core.runtime.Preferences;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.IIndentPrefs;
+import org.python.pydev.core.IInterpreterInfo;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.cache.LRUMap;
+import org.python.pydev.shared_core.out_of_memory.IEvictableCache;
+import org.python.pydev.shared_core.out_of_memory.MemoryPressureManager;
+import org.python.pydev.shared_core.string.StringUtils;
+
+import com.python.pydev.analysis.AnalysisPlugin;
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalDependencyInfo;
+import com.python.pydev.analysis.additionalinfo.AdditionalSystemInterpreterInfo;
+import com.python.pydev.analysis.additionalinfo.dependencies.ModuleImportGraph;
+import com.python.pydev.analysis.messages.CachedMessage;
+import com.python.pydev.analysis.messages.IMessage;
+
+/**
+ * Keeps the results of the code analysis (the messages) keyed by the contents of the module, the analysis
+ * preferences and the structure of the modules it imports.
+ *
+ * This way, when a module is touched but its contents are the same (i.e.: git checkout, branch switch), the
+ * messages from the previous analysis can be reused instead of running the OccurrencesAnalyzer again.
+ *
+ * The cache is kept in memory and persisted in the plugin state location when the plugin is stopped.
+ *
+ * @author Fabio
+ */
+public class AnalysisResultsCache implements IEvictableCache {
+
+    /**
+     * Maximum number of analysis results kept.
+     */
+    private static final int MAX_ENTRIES = 3000;
+
+    /**
+     * Change if the format of the file changes.
+     */
+    private static final int FILE_FORMAT_VERSION = 1;
+
+    private static final String CACHE_FILE_NAME = "analysis_results_cache.gz";
+
+    private static AnalysisResultsCache instance;
+
+    /**
+     * @return the cache (restoring the persisted results the first time it's requested).
+     */
+    public static synchronized AnalysisResultsCache getInstance() {
+        if (instance == null) {
+            instance = new AnalysisResultsCache();
+            MemoryPressureManager.getInstance().register(instance);
+            File file = getCacheFile();
+            if (file != null && file.exists()) {
+                try {
+                    instance.load(file);
+                } catch (Exception e) {
+                    Log.log(e);
+                    instance.clear();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Saves the cache (if it was used).
+     */
+    public static synchronized void saveInstance() {
+        if (instance == null) {
+            return;
+        }
+        File file = getCacheFile();
+        if (file != null) {
+            try {
+                instance.save(file);
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    private static File getCacheFile() {
+        AnalysisPlugin plugin = AnalysisPlugin.getDefault();
+        if (plugin == null) {
+            return null;
+        }
+        try {
+            return plugin.getStateLocation().append(CACHE_FILE_NAME).toFile();
+        } catch (Exception e) {
+            //i.e.: no state location available
+            return null;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * key -> messages (access synchronized with lock).
+     */
+    private final LRUMap<String, CachedMessage[]> cache = new LRUMap<String, CachedMessage[]>(MAX_ENTRIES);
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /*default*/AnalysisResultsCache() {
+    }
+
+    /**
+     * The fingerprint is '?' when the module analyzed is not in the import graph (so, its dependencies are
+     * not known).
+     *
+     * @return whether the results for the given fingerprint may be gotten from/added to the cache.
+     */
+    public static boolean isCacheable(String dependenciesFingerprint) {
+        return dependenciesFingerprint.indexOf('?') == -1;
+    }
+
+    /**
+     * @param moduleName the name of the module analyzed.
+     * @param doc the document with the contents analyzed.
+     * @param preferencesHash see: getPreferencesHash
+     * @param dependenciesFingerprint a string which changes when the structure of the modules imported changes.
+     *
+     * @return a key to be used to get/put the results in the cache.
+     */
+    public static String createKey(String moduleName, IDocument doc, String preferencesHash,
+            String dependenciesFingerprint) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            md.update(moduleName.getBytes("UTF-8"));
+            md.update((byte) 0);
+            md.update(doc.get().getBytes("UTF-8"));
+            md.update((byte) 0);
+            md.update(preferencesHash.getBytes("UTF-8"));
+            md.update((byte) 0);
+            md.update(dependenciesFingerprint.getBytes("UTF-8"));
+            return new BigInteger(1, md.digest()).toString(Character.MAX_RADIX);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param graph the import graph of the project of the module.
+     * @param referencedGraphs the import graphs of the referenced projects.
+     *
+     * @return a key to be used to get/put the results in the cache or null if the results may not be cached.
+     */
+    public static String createKey(String moduleName, IDocument doc, String preferencesHash,
+            ModuleImportGraph graph, List<ModuleImportGraph> referencedGraphs) {
+        String dependenciesFingerprint = graph.getDependenciesFingerprint(moduleName, referencedGraphs);
+        if (!isCacheable(dependenciesFingerprint)) {
+            return null;
+        }
+        return createKey(moduleName, doc, preferencesHash, dependenciesFingerprint);
+    }
+
+    /**
+     * @return a string with the preferences which may change the result of the analysis (the analysis
+     * preferences, the indentation and the pythonpath/interpreter of the project). The structure of the
+     * interpreter libraries is also added (as the imports of those are not in the dependencies fingerprint).
+     */
+    public static String getPreferencesHash(IPythonNature nature, IIndentPrefs indentPrefs) {
+        StringBuilder buf = new StringBuilder();
+        AnalysisPlugin plugin = AnalysisPlugin.getDefault();
+        if (plugin != null) {
+            Preferences preferences = plugin.getPluginPreferences();
+            String[] names = preferences.propertyNames();
+            String[] defaultNames = preferences.defaultPropertyNames();
+            List<String> allNames = new ArrayList<String>(names.length + defaultNames.length);
+            allNames.addAll(Arrays.asList(names));
+            allNames.addAll(Arrays.asList(defaultNames));
+            Collections.sort(allNames);
+            for (String name : allNames) {
+                buf.append(name).append('=').append(preferences.getString(name)).append('\n');
+            }
+        }
+        if (indentPrefs != null) {
+            buf.append(indentPrefs.getTabWidth()).append(indentPrefs.getUseSpaces(false)).append('\n');
+        }
+        if (nature != null) {
+            try {
+                buf.append(nature.getVersion()).append('\n');
+                IInterpreterInfo interpreter = nature.getProjectInterpreter();
+                buf.append(interpreter.getExecutableOrJar()).append('\n');
+                buf.append(interpreter.getPythonPath()).append('\n');
+                buf.append(nature.getPythonPathNature().getOnlyProjectPythonPathStr(true)).append('\n');
+                AbstractAdditionalDependencyInfo systemInfo = AdditionalSystemInterpreterInfo
+                        .getAdditionalSystemInfo(nature.getRelatedInterpreterManager(),
+                                interpreter.getExecutableOrJar());
+                if (systemInfo != null) {
+                    buf.append(systemInfo.importGraph.getStructureHash()).append('\n');
+                }
+            } catch (Exception e) {
+                //the nature is not properly configured: make sure we won't find anything in the cache.
+                buf.append(System.nanoTime());
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * @return the messages for the given key or null if not available.
+     */
+    public IMessage[] get(String key) {
+        CachedMessage[] messages;
+        synchronized (lock) {
+            messages = cache.remove(key);
+            if (messages != null) {
+                //put it again so that it's the last one to be removed.
+                cache.put(key, messages);
+            }
+        }
+        if (messages == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return messages;
+    }
+
+    /**
+     * Keeps the messages generated for the given document.
+     */
+    public void put(String key, IMessage[] messages, IDocument doc) {
+        CachedMessage[] cached = new CachedMessage[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            cached[i] = CachedMessage.create(messages[i], doc);
+        }
+        synchronized (lock) {
+            cache.put(key, cached);
+        }
+    }
+
+    public void remove(String key) {
+        synchronized (lock) {
+            cache.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * The modules have to be analyzed again when evicted.
+     */
+    public int getRebuildCost() {
+        return REBUILD_COST_MEDIUM;
+    }
+
+    public int evict(double fraction) {
+        synchronized (lock) {
+            return cache.removeEldest(fraction);
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return cache.size();
+        }
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the percentage of requests found in the cache (0 if there were no requests).
+     */
+    public double getHitRate() {
+        int h = hits.get();
+        int total = h + misses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (h * 100.0) / total;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public String getStatistics() {
+        return StringUtils.format("Analysis results cache: hits: %s misses: %s (hit rate: %s%%) entries: %s",
+                hits.get(), misses.get(), (int) getHitRate(), size());
+    }
+
+    // Persistence ---------------------------------------------------------------------------------------------------
+
+    /*default*/void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                new FileOutputStream(file))));
+        try {
+            synchronized (lock) {
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(cache.size());
+                for (Map.Entry<String, CachedMessage[]> entry : cache.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    CachedMessage[] messages = entry.getValue();
+                    out.writeInt(messages.length);
+                    for (CachedMessage m : messages) {
+                        writeMessage(out, m);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /*default*/void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                new FileInputStream(file))));
+        try {
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                return;
+            }
+            int size = in.readInt();
+            synchronized (lock) {
+                for (int i = 0; i < size; i++) {
+                    String key = in.readUTF();
+                    CachedMessage[] messages = new CachedMessage[in.readInt()];
+                    for (int j = 0; j < messages.length; j++) {
+                        messages[j] = readMessage(in);
+                    }
+                    cache.put(key, messages);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeMessage(DataOutputStream out, CachedMessage m) throws IOException {
+        out.writeInt(m.getSeverity());
+        out.writeInt(m.getType());
+        out.writeUTF(m.getMessage());
+        out.writeInt(m.getStartLine(null));
+        out.writeInt(m.getStartCol(null));
+        out.writeInt(m.getEndLine(null));
+        out.writeInt(m.getEndCol(null));
+        List<String> info = m.getAdditionalInfo();
+        if (info == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(info.size());
+            for (String s : info) {
+                out.writeUTF(s);
+            }
+        }
+    }
+
+    private static CachedMessage readMessage(DataInputStream in) throws IOException {
+        int severity = in.readInt();
+        int type = in.readInt();
+        String message = in.readUTF();
+        int startLine = in.readInt();
+        int startCol = in.readInt();
+        int endLine = in.readInt();
+        int endCol = in.readInt();
+        int infoSize = in.readInt();
+        List<String> info = null;
+        if (infoSize >= 0) {
+            info = new ArrayList<String>(infoSize);
+            for (int i = 0; i < infoSize; i++) {
+                info.add(in.readUTF());
+            }
+        }
+        return new CachedMessage(severity, type, message, startLine, startCol, endLine, endCol, info);
+    }
+}
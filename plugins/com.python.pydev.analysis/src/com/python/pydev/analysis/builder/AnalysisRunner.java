@@ -20,6 +20,7 @@ import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.IMiscConstants;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_ui.utils.PyMarkerSink;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
@@ -79,6 +80,7 @@ public class AnalysisRunner {
         }
 
         try {
+            PyMarkerSink.getInstance().discardPending(resource, PYDEV_ANALYSIS_PROBLEM_MARKER);
             resource.deleteMarkers(PYDEV_ANALYSIS_PROBLEM_MARKER, true, IResource.DEPTH_ZERO);
         } catch (CoreException e) {
             //ok, if it is a resource exception, it may have happened because the resource does not exist anymore
@@ -103,6 +105,20 @@ public class AnalysisRunner {
      * should be removed.
      */
     public void setMarkers(IResource resource, IDocument document, IMessage[] messages, IProgressMonitor monitor) {
+        setMarkers(resource, document, messages, monitor, true);
+    }
+
+    /**
+     * Sets the analysis markers in the resource (removes current markers and adds the new ones)
+     * 
+     * @param applyNow if true, the markers are applied right away in the current thread (i.e.: for the resource in
+     * the editor), otherwise, the markers may be applied later along with the markers of other resources (i.e.:
+     * during a build).
+     * 
+     * @see PyMarkerSink
+     */
+    public void setMarkers(IResource resource, IDocument document, IMessage[] messages, IProgressMonitor monitor,
+            boolean applyNow) {
         if (resource == null) {
             return;
         }
@@ -115,7 +131,13 @@ public class AnalysisRunner {
                 return;
             }
 
-            PyMarkerUtils.replaceMarkers(lst, resource, AnalysisRunner.PYDEV_ANALYSIS_PROBLEM_MARKER, true, monitor);
+            if (applyNow) {
+                PyMarkerSink.getInstance().replaceMarkersNow(lst, resource,
+                        AnalysisRunner.PYDEV_ANALYSIS_PROBLEM_MARKER, true, monitor);
+            } else {
+                PyMarkerSink.getInstance().replaceMarkers(lst, resource,
+                        AnalysisRunner.PYDEV_ANALYSIS_PROBLEM_MARKER, true, false);
+            }
             //timer.printDiff("Time to put markers: "+lst.size());
         } catch (Exception e) {
             Log.log("Error when setting markers on: " + resource, e);
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.builder.PyDevBuilderVisitor;
+import org.python.pydev.builder.VisitorMemo;
+import org.python.pydev.core.FileUtilsFileBuffer;
+import org.python.pydev.core.IModule;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.core.performanceeval.OptimizationRelatedConstants;
+import org.python.pydev.editor.PyEdit;
+import org.python.pydev.editorinput.PySourceLocatorBase;
+import org.python.pydev.logging.DebugSettings;
+
+import com.python.pydev.analysis.additionalinfo.dependencies.ModuleImportGraph;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
+
+/**
+ * When the public structure of a module changes (i.e.: a global token is added or removed), the modules which
+ * import it directly must be analyzed again (as they may now have new errors -- or errors that are gone).
+ *
+ * The changes are collected for a short time and then the importers are re-queued for analysis (the ones with
+ * an open editor first). The number of modules re-analyzed in a run is bounded (to avoid a huge number of
+ * analysis requests at once when a module imported everywhere changes): the remaining ones are re-queued for
+ * a later run.
+ *
+ * @author Fabio
+ */
+public class DependentModulesReanalyzer {
+
+    /**
+     * Time to wait for other changes before re-queueing the dependent modules.
+     */
+    private static final long COLLECT_DELAY_MILLIS = 250;
+
+    private static final DependentModulesReanalyzer instance = new DependentModulesReanalyzer();
+
+    public static DependentModulesReanalyzer getInstance() {
+        return instance;
+    }
+
+    /**
+     * A module which should be analyzed again.
+     */
+    private static final class DependentModule {
+
+        private final String moduleName;
+        private final File file;
+        private final IPythonNature nature;
+
+        private DependentModule(String moduleName, File file, IPythonNature nature) {
+            this.moduleName = moduleName;
+            this.file = file;
+            this.nature = nature;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * file -> module to be analyzed (access synchronized with lock). The file is used as the key as the same
+     * module name may be in different projects.
+     */
+    private Map<File, DependentModule> pending = new LinkedHashMap<File, DependentModule>();
+
+    private final Job reanalyzeJob;
+
+    private DependentModulesReanalyzer() {
+        reanalyzeJob = new Job("PyDev: Analyzing dependent modules") {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                reanalyzePending(monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        reanalyzeJob.setSystem(true);
+        reanalyzeJob.setPriority(Job.BUILD);
+    }
+
+    /**
+     * Adds the modules which directly import the changed module to be analyzed again.
+     */
+    public void structureChanged(IPythonNature nature, PyStructuralChange change, ModuleImportGraph graph) {
+        if (change == null || nature == null) {
+            return;
+        }
+        String changedModule = change.getModule();
+        boolean added = false;
+        synchronized (lock) {
+            for (String importer : graph.getDirectImporters(changedModule)) {
+                File file = graph.getFile(importer);
+                if (file != null && !pending.containsKey(file)) {
+                    pending.put(file, new DependentModule(importer, file, nature));
+                    added = true;
+                }
+            }
+        }
+        if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+            Log.toLogFile(this, "Structure changed: " + changedModule + " tokens: " + change.getChangedTokens());
+        }
+        if (added) {
+            reanalyzeJob.schedule(COLLECT_DELAY_MILLIS);
+        }
+    }
+
+    private void reanalyzePending(IProgressMonitor monitor) {
+        Map<File, DependentModule> toAnalyze;
+        synchronized (lock) {
+            toAnalyze = pending;
+            pending = new LinkedHashMap<File, DependentModule>();
+        }
+
+        //the modules opened in an editor have priority.
+        List<IFile> opened = new ArrayList<IFile>();
+        List<IFile> notOpened = new ArrayList<IFile>();
+        Map<IFile, DependentModule> fileToModule = new LinkedHashMap<IFile, DependentModule>();
+        PySourceLocatorBase locator = new PySourceLocatorBase();
+        for (DependentModule dependent : toAnalyze.values()) {
+            IFile f = locator.getWorkspaceFile(dependent.file, dependent.nature.getProject());
+            if (f == null || !f.exists()) {
+                continue;
+            }
+            fileToModule.put(f, dependent);
+            if (PyEdit.isEditorOpenForResource(f)) {
+                opened.add(f);
+            } else {
+                notOpened.add(f);
+            }
+        }
+        List<IFile> files = new ArrayList<IFile>(opened);
+        files.addAll(notOpened);
+
+        int max = OptimizationRelatedConstants.MAXIMUM_NUMBER_OF_DEPENDENT_MODULES_TO_REANALYZE;
+        if (files.size() > max) {
+            if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                Log.toLogFile(this, "Too many dependent modules to analyze: " + files.size() + ". Analyzing: "
+                        + max + " (the others are re-queued).");
+            }
+            requeue(files.subList(max, files.size()), fileToModule);
+            files = files.subList(0, max);
+        }
+
+        for (IFile f : files) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            DependentModule dependent = fileToModule.get(f);
+            try {
+                reanalyze(f, dependent, PyEdit.isEditorOpenForResource(f));
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    /**
+     * Adds the given files to be analyzed in a later run (unless they were added again in the meanwhile).
+     */
+    private void requeue(List<IFile> files, Map<IFile, DependentModule> fileToModule) {
+        synchronized (lock) {
+            for (IFile f : files) {
+                DependentModule dependent = fileToModule.get(f);
+                if (!pending.containsKey(dependent.file)) {
+                    pending.put(dependent.file, dependent);
+                }
+            }
+        }
+        reanalyzeJob.schedule(COLLECT_DELAY_MILLIS);
+    }
+
+    /**
+     * Asks for a new analysis of the given file (through the AnalysisBuilderRunnableFactory, so, a
+     * pending analysis for the same module is properly handled).
+     */
+    private void reanalyze(IFile f, DependentModule dependent, boolean editorOpened) {
+        IPythonNature nature = dependent.nature;
+        IDocument doc = FileUtilsFileBuffer.getDocFromResource(f);
+        if (doc == null) {
+            return;
+        }
+        IModule module = nature.getAstManager().getModule(dependent.moduleName, nature, true);
+        if (module == null) {
+            return;
+        }
+
+        AnalysisBuilderVisitor visitor = new AnalysisBuilderVisitor();
+        visitor.memo = new VisitorMemo();
+        visitor.memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, false);
+        long documentTime = System.currentTimeMillis();
+        visitor.memo.put(PyDevBuilderVisitor.DOCUMENT_TIME, documentTime);
+        AnalysisBuilderVisitor.setModuleNameInCache(visitor.memo, f, dependent.moduleName);
+        visitor.visitingWillStart(new NullProgressMonitor(), false, null);
+        try {
+            //if the editor is opened, it's analyzed as if it was changed in the editor (so, the markers are
+            //always updated), otherwise, it's treated as a regular build.
+            int analysisCause = editorOpened ? AnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER
+                    : AnalysisBuilderRunnable.ANALYSIS_CAUSE_BUILDER;
+            visitor.doVisitChangedResource(nature, f, doc, null, module, new NullProgressMonitor(), false,
+                    analysisCause, documentTime, false);
+        } finally {
+            visitor.visitingEnded(new NullProgressMonitor());
+        }
+    }
+}
@@ -16,7 +16,7 @@ public class IndexRoot implements ITreeElement {
 
     public Object[] getChildren() {
         if (children == null) {
-            children = new Object[] { new InterpretersGroup(this), new ProjectsGroup(this) };
+            children = new Object[] { new InterpretersGroup(this), new ProjectsGroup(this), new MetricsGroup(this) };
         }
         return children;
     }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.indexview;
+
+import org.python.pydev.shared_core.utils.Metrics;
+import org.python.pydev.shared_core.utils.Metrics.Metric;
+
+/**
+ * Shows the metrics collected so far (the values are the ones when the group was expanded: refresh to update them).
+ */
+public class MetricsGroup extends ElementWithChildren {
+
+    public MetricsGroup(ITreeElement parent) {
+        super(parent);
+    }
+
+    public boolean hasChildren() {
+        return true;
+    }
+
+    @Override
+    protected void calculateChildren() {
+        for (Metric metric : Metrics.getMetrics()) {
+            addChild(new LeafElement(this, metric));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics";
+    }
+}
@@ -6,13 +6,23 @@
  */
 package com.python.pydev.analysis.indexview;
 
+import java.io.File;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.KeyEvent;
 import org.eclipse.swt.events.KeyListener;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.ui.part.ViewPart;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.utils.Metrics;
+import org.python.pydev.shared_ui.SharedUiPlugin;
+import org.python.pydev.shared_ui.UIConstants;
 
 public class PyIndexView extends ViewPart {
 
@@ -30,13 +40,69 @@ public class PyIndexView extends ViewPart {
 
             public void keyReleased(KeyEvent e) {
                 if (e.keyCode == SWT.F5) {
-                    treeViewer.setInput(new IndexRoot());
+                    refresh();
                 }
             }
 
             public void keyPressed(KeyEvent e) {
             }
         });
+        configureToolBar();
+    }
+
+    private void configureToolBar() {
+        IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+
+        Action refresh = new Action() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        };
+        refresh.setImageDescriptor(SharedUiPlugin.getImageCache().getDescriptor(UIConstants.REFRESH));
+        refresh.setToolTipText("Refresh (F5)");
+        toolBar.add(refresh);
+
+        Action resetMetrics = new Action() {
+            @Override
+            public void run() {
+                Metrics.reset();
+                refresh();
+            }
+        };
+        resetMetrics.setImageDescriptor(SharedUiPlugin.getImageCache().getDescriptor(UIConstants.REMOVE_ALL));
+        resetMetrics.setToolTipText("Resets the values of the metrics.");
+        toolBar.add(resetMetrics);
+
+        Action exportMetrics = new Action("Export metrics...") {
+            @Override
+            public void run() {
+                exportMetrics();
+            }
+        };
+        exportMetrics.setToolTipText("Exports the metrics to a file (a json object in each line).");
+        toolBar.add(exportMetrics);
+    }
+
+    private void refresh() {
+        treeViewer.setInput(new IndexRoot());
+    }
+
+    private void exportMetrics() {
+        FileDialog dialog = new FileDialog(tree.getShell(), SWT.SAVE);
+        dialog.setFileName("pydev_metrics.json");
+        dialog.setOverwrite(true);
+        String path = dialog.open();
+        if (path == null) {
+            return;
+        }
+        try {
+            Metrics.export(new File(path));
+        } catch (Exception e) {
+            Log.log(e);
+            MessageDialog.openError(tree.getShell(), "Error exporting metrics", "Unable to write: " + path + "\n"
+                    + e.getMessage());
+        }
     }
 
     @Override
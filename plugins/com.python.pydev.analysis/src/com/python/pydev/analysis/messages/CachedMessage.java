@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.IToken;
+
+/**
+ * A message whose information was already computed (i.e.: restored from the analysis results cache).
+ *
+ * The positions are the ones computed for the document when the message was generated (so, it can only
+ * be used for a document with the same contents).
+ *
+ * @author Fabio
+ */
+public final class CachedMessage implements IMessage {
+
+    private final int severity;
+    private final int type;
+    private final String message;
+    private final int startLine;
+    private final int startCol;
+    private final int endLine;
+    private final int endCol;
+    private List<String> additionalInfo;
+
+    public CachedMessage(int severity, int type, String message, int startLine, int startCol, int endLine,
+            int endCol, List<String> additionalInfo) {
+        this.severity = severity;
+        this.type = type;
+        this.message = message;
+        this.startLine = startLine;
+        this.startCol = startCol;
+        this.endLine = endLine;
+        this.endCol = endCol;
+        this.additionalInfo = additionalInfo;
+    }
+
+    /**
+     * Creates a cached message with the info of the passed message (the positions are computed for the
+     * passed document).
+     */
+    public static CachedMessage create(IMessage m, IDocument doc) {
+        List<String> info = m.getAdditionalInfo();
+        return new CachedMessage(m.getSeverity(), m.getType(), m.getMessage(), m.getStartLine(doc),
+                m.getStartCol(doc), m.getEndLine(doc), m.getEndCol(doc), info != null ? new ArrayList<String>(info)
+                        : null);
+    }
+
+    public int getSeverity() {
+        return severity;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getStartLine(IDocument doc) {
+        return startLine;
+    }
+
+    public int getStartCol(IDocument doc) {
+        return startCol;
+    }
+
+    public int getEndLine(IDocument doc) {
+        return endLine;
+    }
+
+    public int getEndCol(IDocument doc) {
+        return endCol;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<String> getAdditionalInfo() {
+        return additionalInfo;
+    }
+
+    public void addAdditionalInfo(String info) {
+        if (additionalInfo == null) {
+            additionalInfo = new ArrayList<String>();
+        }
+        additionalInfo.add(info);
+    }
+
+    public Object getShortMessage() {
+        return message;
+    }
+
+    /**
+     * The generator is not kept in the cache.
+     */
+    public IToken getGenerator() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TokensSearchIndexTest extends TestCase {
+
+    private TokensSearchIndex index;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(TokensSearchIndexTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new TokensSearchIndex();
+    }
+
+    private static List<String> names(List<IInfo> infos) {
+        List<String> ret = new ArrayList<String>();
+        for (IInfo info : infos) {
+            ret.add(info.getName());
+        }
+        return ret;
+    }
+
+    public void testHumps() throws Exception {
+        assertEquals(Arrays.asList("Globals", "Two", "Panel"), TokensSearchIndex.getHumps("GlobalsTwoPanel"));
+        assertEquals(Arrays.asList("get", "all", "tokens"), TokensSearchIndex.getHumps("_get_all_tokens"));
+        assertEquals(Arrays.asList("HTTP", "Server"), TokensSearchIndex.getHumps("HTTPServer"));
+        assertEquals(Arrays.asList("init"), TokensSearchIndex.getHumps("__init__"));
+        assertEquals(Arrays.asList("Py3", "Grammar"), TokensSearchIndex.getHumps("Py3Grammar"));
+        assertEquals("gtp", TokensSearchIndex.getHumpsInitials("globals_two_panel"));
+    }
+
+    public void testRanking() throws Exception {
+        index.add(new ClassInfo("GlobalsTwoPanel", "mod1", null));
+        index.add(new FuncInfo("globals", "mod1", null));
+        index.add(new FuncInfo("get_globals", "mod2", null));
+        index.add(new ClassInfo("GlobalsBrowser", "mod2", null));
+        index.add(new FuncInfo("method", "mod2", "GlobalsBrowser"));
+
+        assertEquals(Arrays.asList("globals", "GlobalsBrowser", "GlobalsTwoPanel", "get_globals"),
+                names(index.search("glo", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+
+        //Case-sensitive prefix matches come first
+        assertEquals(Arrays.asList("GlobalsBrowser", "GlobalsTwoPanel"),
+                names(index.search("Glo", AbstractAdditionalTokensInfo.TOP_LEVEL, 2)));
+
+        assertEquals(Arrays.asList("GlobalsTwoPanel"),
+                names(index.search("GTP", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+        assertEquals(Arrays.asList("GlobalsTwoPanel"),
+                names(index.search("GloTwP", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+        assertEquals(Arrays.asList("get_globals"),
+                names(index.search("gg", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+
+        assertEquals(Arrays.asList("method"),
+                names(index.search("meth", AbstractAdditionalTokensInfo.INNER, 10)));
+        assertEquals(0, index.search("meth", AbstractAdditionalTokensInfo.TOP_LEVEL, 10).size());
+    }
+
+    public void testRemoveAndSequence() throws Exception {
+        index.add(new ClassInfo("GlobalsTwoPanel", "mod1", null));
+        index.add(new ClassInfo("GlobalsBrowser", "mod2", null));
+
+        List<IInfo> found = new ArrayList<IInfo>();
+        index.getTokensMatchingSequence("G*Pan", AbstractAdditionalTokensInfo.TOP_LEVEL, found);
+        assertEquals(Arrays.asList("GlobalsTwoPanel"), names(found));
+
+        found.clear();
+        index.getTokensMatchingSequence("", AbstractAdditionalTokensInfo.TOP_LEVEL, found);
+        assertEquals(2, found.size());
+
+        index.removeModule("mod1");
+        assertEquals(0, index.search("GTP", AbstractAdditionalTokensInfo.TOP_LEVEL, 10).size());
+        assertEquals(1, index.getNamesCount());
+
+        index.add(new ClassInfo("GlobalsTwoPanel", "mod1", null));
+        assertEquals(1, index.search("GTP", AbstractAdditionalTokensInfo.TOP_LEVEL, 10).size());
+        assertEquals(2, index.getNamesCount());
+    }
+
+    public void testLargeIndex() throws Exception {
+        String[] parts = new String[] { "get", "set", "Panel", "globals", "Http", "server", "token", "Info",
+                "parse", "Module", "request", "handler", "cache", "Index" };
+        Random random = new Random(1);
+        int modules = 2000;
+        for (int m = 0; m < modules; m++) {
+            String module = "pack" + (m % 50) + ".mod" + m;
+            for (int i = 0; i < 100; i++) {
+                StringBuilder name = new StringBuilder();
+                int nParts = 1 + random.nextInt(3);
+                for (int j = 0; j < nParts; j++) {
+                    if (j > 0 && random.nextBoolean()) {
+                        name.append('_');
+                    }
+                    name.append(parts[random.nextInt(parts.length)]);
+                }
+                name.append(i % 10);
+                index.add(new FuncInfo(name.toString(), module, null));
+            }
+        }
+        //no generated name has a 'z'
+        index.add(new ClassInfo("ZlibStreamDecoder", "pack0.last", null));
+
+        //the results are limited and the prefix matches come first.
+        List<String> found = names(index.search("get", AbstractAdditionalTokensInfo.TOP_LEVEL, 50));
+        assertEquals(50, found.size());
+        for (String name : found) {
+            assertTrue(name, name.startsWith("get"));
+        }
+
+        assertEquals(Arrays.asList("ZlibStreamDecoder"),
+                names(index.search("ZSD", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+        assertEquals(Arrays.asList("ZlibStreamDecoder"),
+                names(index.search("ibStreamDec", AbstractAdditionalTokensInfo.TOP_LEVEL, 10)));
+        assertEquals(0, index.search("zzz", AbstractAdditionalTokensInfo.TOP_LEVEL, 50).size());
+        assertEquals(0, index.search("get", AbstractAdditionalTokensInfo.INNER, 50).size());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo.dependencies;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+
+public class ModuleImportGraphTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ModuleImportGraphTest.class);
+    }
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<String>(Arrays.asList(strings));
+    }
+
+    private static SimpleNode parse(String contents) {
+        ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(new Document(contents),
+                IPythonNature.GRAMMAR_PYTHON_VERSION_2_7));
+        return (SimpleNode) obj.ast;
+    }
+
+    public void testImportedModules() throws Exception {
+        SimpleNode ast = parse("" +
+                "import a.b\n" +
+                "from c import d, e as f\n" +
+                "from g import *\n" +
+                "def m():\n" +
+                "    import h\n" +
+                "");
+        assertEquals(set("a", "a.b", "c", "c.d", "c.e", "g", "h"),
+                ModuleImportGraph.getImportedModules(ast, "pack.mod", false));
+    }
+
+    public void testRelativeImports() throws Exception {
+        SimpleNode ast = parse("" +
+                "from . import a\n" +
+                "from .. import b\n" +
+                "from .c import d\n" +
+                "");
+        assertEquals(set("pack", "pack.sub", "pack.sub.a", "pack.b", "pack.sub.c", "pack.sub.c.d"),
+                ModuleImportGraph.getImportedModules(ast, "pack.sub.mod", false));
+        assertEquals(set("pack", "pack.sub", "pack.sub.a", "pack.b", "pack.sub.c", "pack.sub.c.d"),
+                ModuleImportGraph.getImportedModules(ast, "pack.sub", true));
+
+        assertEquals("pack", ModuleImportGraph.resolveRelative("pack.mod", false, 1, ""));
+        assertEquals(null, ModuleImportGraph.resolveRelative("mod", false, 2, ""));
+    }
+
+    public void testStructuralChanges() throws Exception {
+        ModuleImportGraph graph = new ModuleImportGraph();
+        File f1 = new File("mod1.py");
+        File f2 = new File("mod2.py");
+
+        //first time the module is seen: no change is reported (as no one imports it).
+        assertNull(graph.setModuleInfo("mod1", f1, set(), set("A", "A.m")));
+        assertNull(graph.setModuleInfo("mod2", f2, set("mod1", "mod3"), set("B")));
+        assertEquals(set("mod2"), graph.getDirectImporters("mod1"));
+        assertEquals(set(), graph.getDirectImporters("mod2"));
+
+        //a new module which is already imported: its importers must be analyzed again.
+        PyStructuralChange newModule = graph.setModuleInfo("mod3", new File("mod3.py"), set(), set("D"));
+        assertEquals("mod3", newModule.getModule());
+        assertEquals(set("D", "mod3"), newModule.getChangedTokens());
+        assertEquals(set("mod2"), graph.getDirectImporters("mod3"));
+        graph.setModuleInfo("mod2", f2, set("mod1"), set("B"));
+
+        //same structure: no change.
+        graph.removeModuleImports("mod1");
+        assertNull(graph.setModuleInfo("mod1", f1, set(), set("A", "A.m")));
+
+        //token removed and token added
+        graph.removeModuleImports("mod1");
+        PyStructuralChange change = graph.setModuleInfo("mod1", f1, set(), set("A", "C"));
+        assertEquals("mod1", change.getModule());
+        assertEquals(set("A.m", "C"), change.getChangedTokens());
+
+        //mod2 doesn't import mod1 anymore
+        graph.removeModuleImports("mod2");
+        assertNull(graph.setModuleInfo("mod2", f2, set(), set("B")));
+        assertEquals(set(), graph.getDirectImporters("mod1"));
+
+        graph.setModuleInfo("mod2", f2, set("mod1"), set("B"));
+        change = graph.removeModule("mod1");
+        assertEquals(set("A", "C", "mod1"), change.getChangedTokens());
+        assertNull(graph.getFile("mod1"));
+        assertEquals(f2, graph.getFile("mod2"));
+        assertEquals(set("mod2"), graph.getDirectImporters("mod1"));
+    }
+
+    public void testPendingChanges() throws Exception {
+        ModuleImportGraph graph = new ModuleImportGraph();
+        graph.setModuleInfo("mod1", null, set(), set("A"));
+        graph.addPendingChange(graph.setModuleInfo("mod1", null, set(), set("B")));
+        graph.addPendingChange(graph.setModuleInfo("mod1", null, set(), set("C")));
+
+        PyStructuralChange change = graph.popPendingChange("mod1");
+        assertEquals(set("A", "B", "C"), change.getChangedTokens());
+        assertNull(graph.popPendingChange("mod1"));
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.batch;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.editor.autoedit.TestIndentPrefs;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import com.python.pydev.analysis.AnalysisTestsBase;
+import com.python.pydev.analysis.batch.BatchAnalyzer.Statistics;
+
+public class BatchAnalyzerTest extends AnalysisTestsBase {
+
+    private File baseDir;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(BatchAnalyzerTest.class);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_batch_analyzer_test");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        super.tearDown();
+    }
+
+    public void testAnalyzeTree() throws Exception {
+        File pack = new File(baseDir, "pack");
+        pack.mkdir();
+        FileUtils.writeStrToFile("", new File(pack, "__init__.py"));
+        FileUtils.writeStrToFile("import os\nprint(undefined_var)\n", new File(pack, "mod1.py"));
+        FileUtils.writeStrToFile("#@PydevCodeAnalysisIgnore\nprint(undefined_var)\n", new File(pack, "mod2.py"));
+        File hidden = new File(baseDir, ".hidden");
+        hidden.mkdir();
+        FileUtils.writeStrToFile("print(undefined_var)\n", new File(hidden, "mod3.py"));
+        FileUtils.writeStrToFile("print(undefined_var)\n", new File(baseDir, "not_python.txt"));
+
+        List<File> files = BatchAnalyzer.collectPythonFiles(Arrays.asList(baseDir));
+        assertEquals(3, files.size());
+
+        StringWriter out = new StringWriter();
+        BatchAnalysisWriter writer = new BatchAnalysisWriter(out, BatchAnalysisWriter.FORMAT_JSON, false);
+        Statistics statistics = new BatchAnalyzer(nature, prefs, new TestIndentPrefs(true, 4), 2).analyze(files,
+                writer, new NullProgressMonitor());
+
+        assertEquals(3, statistics.files);
+        assertEquals(0, statistics.failures);
+        assertEquals(1, writer.getErrors());
+
+        String output = out.toString();
+        List<String> lines = Arrays.asList(output.trim().split("\n"));
+        assertEquals(output, 2, lines.size());
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("{\"file\":") && line.endsWith("}"));
+            assertTrue(line, line.contains("mod1.py"));
+        }
+        assertTrue(output, output.contains("\"message\":\"Unused import: os\""));
+        assertTrue(output, output.contains("\"severity\":\"error\""));
+        assertTrue(output, output.contains("\"message\":\"Undefined variable: undefined_var\""));
+    }
+
+    public void testParseArguments() throws Exception {
+        assertNull(BatchAnalyzerApplication.parseArguments(new String[0]));
+        assertNull(BatchAnalyzerApplication.parseArguments(new String[] { "-format", "xml", "src" }));
+        assertNull(BatchAnalyzerApplication.parseArguments(new String[] { "-threads", "0", "src" }));
+        assertNull(BatchAnalyzerApplication.parseArguments(new String[] { "src", "-output" }));
+
+        BatchAnalyzerApplication.Options options = BatchAnalyzerApplication.parseArguments(new String[] {
+                "-format", "json", "-threads", "3", "-pythonpath", "lib1|lib2", "-info", "src", "tests" });
+        assertEquals(BatchAnalysisWriter.FORMAT_JSON, options.format);
+        assertEquals(3, options.threads);
+        assertEquals(Arrays.asList("lib1", "lib2"), options.pythonpath);
+        assertTrue(options.reportInfo);
+        assertEquals(Arrays.asList(new File("src"), new File("tests")), options.roots);
+    }
+}
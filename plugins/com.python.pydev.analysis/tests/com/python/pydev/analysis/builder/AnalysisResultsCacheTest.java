@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+import com.python.pydev.analysis.additionalinfo.dependencies.ModuleImportGraph;
+import com.python.pydev.analysis.messages.CachedMessage;
+import com.python.pydev.analysis.messages.IMessage;
+
+public class AnalysisResultsCacheTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(AnalysisResultsCacheTest.class);
+    }
+
+    public void testKeys() throws Exception {
+        Document doc = new Document("import a\n");
+        String key = AnalysisResultsCache.createKey("mod", doc, "prefs", "deps");
+        assertEquals(key, AnalysisResultsCache.createKey("mod", new Document("import a\n"), "prefs", "deps"));
+
+        assertFalse(key.equals(AnalysisResultsCache.createKey("mod2", doc, "prefs", "deps")));
+        assertFalse(key.equals(AnalysisResultsCache.createKey("mod", new Document("import b\n"), "prefs", "deps")));
+        assertFalse(key.equals(AnalysisResultsCache.createKey("mod", doc, "prefs2", "deps")));
+        assertFalse(key.equals(AnalysisResultsCache.createKey("mod", doc, "prefs", "deps2")));
+    }
+
+    public void testHitRateAndPersistence() throws Exception {
+        AnalysisResultsCache cache = new AnalysisResultsCache();
+        Document doc = new Document("import a\n");
+        String key = AnalysisResultsCache.createKey("mod", doc, "prefs", "deps");
+
+        assertNull(cache.get(key));
+        IMessage message = new CachedMessage(2, 1, "Unused import: a", 1, 1, 1, 9, Arrays.asList("a"));
+        cache.put(key, new IMessage[] { message }, doc);
+
+        IMessage[] messages = cache.get(key);
+        assertEquals(1, messages.length);
+        assertEquals("Unused import: a", messages[0].getMessage());
+        assertEquals(9, messages[0].getEndCol(doc));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(50.0, cache.getHitRate(), 0.001);
+
+        File file = File.createTempFile("analysis_results_cache", ".gz");
+        try {
+            cache.save(file);
+            AnalysisResultsCache restored = new AnalysisResultsCache();
+            restored.load(file);
+            assertEquals(1, restored.size());
+            messages = restored.get(key);
+            assertEquals(1, messages.length);
+            assertEquals(2, messages[0].getSeverity());
+            assertEquals(1, messages[0].getType());
+            assertEquals(Arrays.asList("a"), messages[0].getAdditionalInfo());
+        } finally {
+            FileUtils.deleteFile(file);
+        }
+    }
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<String>(Arrays.asList(strings));
+    }
+
+    private static SimpleNode parse(String contents) {
+        ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(new Document(contents),
+                IPythonNature.GRAMMAR_PYTHON_VERSION_2_7));
+        return (SimpleNode) obj.ast;
+    }
+
+    private static void index(ModuleImportGraph graph, String moduleName, String contents, Set<String> tokens) {
+        graph.removeModuleImports(moduleName);
+        graph.setModuleInfo(moduleName, new File(moduleName + ".py"),
+                ModuleImportGraph.getImportedModules(parse(contents), moduleName, false), tokens);
+    }
+
+    private static String createKey(ModuleImportGraph graph, String moduleName, Document doc) {
+        return AnalysisResultsCache.createKey(moduleName, doc, "prefs", graph, new ArrayList<ModuleImportGraph>());
+    }
+
+    public void testImportsResolution() throws Exception {
+        ModuleImportGraph graph = new ModuleImportGraph();
+        assertFalse(AnalysisResultsCache.isCacheable(graph.getDependenciesFingerprint("mod2")));
+
+        //mod1 is not indexed: it's treated as a library module (which is not part of the fingerprint).
+        graph.setModuleInfo("mod2", null, set("mod1", "mod1.A"), set("B"));
+        String unindexed = graph.getDependenciesFingerprint("mod2");
+        assertTrue(AnalysisResultsCache.isCacheable(unindexed));
+        assertEquals("", unindexed);
+
+        //"mod1.A" is a token in mod1 (not a module), so, only mod1 is considered.
+        graph.setModuleInfo("mod1", null, set(), set("A"));
+        String fingerprint = graph.getDependenciesFingerprint("mod2");
+        assertTrue(fingerprint, fingerprint.startsWith("mod1:"));
+        assertEquals(1, StringUtils.count(fingerprint, '\n'));
+
+        graph.setModuleInfo("mod1", null, set(), set("A", "C"));
+        String changed = graph.getDependenciesFingerprint("mod2");
+        assertFalse(fingerprint.equals(changed));
+
+        //when not found in the graph of the project, the graphs of the referenced projects are used.
+        ModuleImportGraph graph2 = new ModuleImportGraph();
+        graph2.setModuleInfo("mod3", null, set("mod1"), set());
+        assertEquals("", graph2.getDependenciesFingerprint("mod3"));
+        assertEquals(changed, graph2.getDependenciesFingerprint("mod3", Arrays.asList(graph)));
+    }
+
+    public void testUnchangedModuleHitsCache() throws Exception {
+        String contents = "" +
+                "import os\n" +
+                "from pkg import name\n" +
+                "print(os.path, name)\n";
+        Document doc = new Document(contents);
+        ModuleImportGraph graph = new ModuleImportGraph();
+        index(graph, "pkg", "name = 1\n", set("name"));
+        index(graph, "mod", contents, set());
+
+        AnalysisResultsCache cache = new AnalysisResultsCache();
+        String key = createKey(graph, "mod", doc);
+        assertNotNull(key);
+        assertNull(cache.get(key));
+        cache.put(key, new IMessage[0], doc);
+
+        //the module is indexed and analyzed again without any change.
+        index(graph, "mod", contents, set());
+        assertNotNull(cache.get(createKey(graph, "mod", doc)));
+        assertEquals(1, cache.getHits());
+
+        //after a restart, the graph is restored with the persisted imports.
+        FastStringBuffer buf = new FastStringBuffer();
+        graph.writeImportsTo(buf);
+        FastBufferedReader reader = new FastBufferedReader(new StringReader(buf.toString()));
+        assertEquals("-- START IMPORTS", reader.readLine().toString());
+        Map<String, Set<String>> restoredImports = ModuleImportGraph.loadImportsFrom(reader);
+        ModuleImportGraph restored = new ModuleImportGraph();
+        restored.setModuleInfo("mod", null, restoredImports.get("mod"), set());
+        restored.setModuleInfo("pkg", null, restoredImports.get("pkg"), set("name"));
+        assertEquals(graph.getStructureHash(), restored.getStructureHash());
+        assertNotNull(cache.get(createKey(restored, "mod", doc)));
+        assertEquals(2, cache.getHits());
+
+        //the structure of pkg changed: the module must be analyzed again.
+        index(graph, "pkg", "name = 1\nother = 2\n", set("name", "other"));
+        assertNull(cache.get(createKey(graph, "mod", doc)));
+    }
+}
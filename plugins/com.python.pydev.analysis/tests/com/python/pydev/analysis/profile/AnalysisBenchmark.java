@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.core.performanceeval.BenchmarkCorpora;
+import org.python.pydev.editor.autoedit.TestIndentPrefs;
+import org.python.pydev.editor.codecompletion.PyCodeCompletion;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.testutils.Benchmark;
+import org.python.pydev.shared_core.testutils.SyntheticPythonCorpus;
+
+import com.python.pydev.analysis.AnalysisTestsBase;
+import com.python.pydev.analysis.OccurrencesAnalyzer;
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalDependencyInfo;
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
+
+/**
+ * Benchmarks the tokens index (AbstractAdditionalTokensInfo.getTokensStartingWith), the code-completion (which goes
+ * through the AbstractASTManager) and the code-analysis (OccurrencesVisitor) in the synthetic and stdlib corpora.
+ *
+ * The synthetic corpus is added to the project pythonpath, so that the completions and the analysis have to resolve
+ * the tokens imported among its modules.
+ *
+ * See {@link Benchmark} for the system properties which control it (the results are reported as json lines).
+ */
+public class AnalysisBenchmark extends AnalysisTestsBase {
+
+    /**
+     * The number of modules used in the completion and analysis benchmarks (which are much slower than the index).
+     */
+    private static final int MAX_MODULES = 50;
+
+    private static File baseDir;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(AnalysisBenchmark.class);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        codeCompletion = new PyCodeCompletion();
+    }
+
+    @Override
+    public String getProjectPythonpath() {
+        if (baseDir == null) {
+            //This will be called only once for the class and we want to use the same path over and over...
+            baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_analysis_benchmark");
+            if (baseDir.exists()) {
+                try {
+                    FileUtils.deleteDirectoryTree(baseDir);
+                } catch (IOException e) {
+                    Log.log(e);
+                }
+            }
+            BenchmarkCorpora.getSyntheticCorpus().writeModules(baseDir);
+        }
+        return super.getProjectPythonpath() + "|" + baseDir.getAbsolutePath();
+    }
+
+    @Override
+    protected String getNameToCacheNature() {
+        return "AnalysisBenchmark.testProjectStub";
+    }
+
+    private static AbstractAdditionalDependencyInfo createInfo() {
+        return new AbstractAdditionalDependencyInfo() {
+
+            @Override
+            protected File getPersistingLocation() {
+                return null;
+            }
+
+            @Override
+            protected File getPersistingFolder() {
+                return null;
+            }
+
+            @Override
+            protected Set<String> getPythonPathFolders() {
+                return new HashSet<String>();
+            }
+
+            @Override
+            protected String getUIRepresentation() {
+                return "Stub for: AnalysisBenchmark";
+            }
+        };
+    }
+
+    /**
+     * @return the qualifiers requested in the index: 1 to 3 chars of the identifiers in the corpus and complete names.
+     */
+    private static List<String> createQualifiers() {
+        Set<String> ret = new HashSet<String>();
+        for (String name : new String[] { "get_value", "set_item", "compute_data", "load_node", "parse_file",
+                "find_name", "create_path", "update_token", "check_result", "Class1", "CONSTANT_1", "_", "__init__" }) {
+            for (int j = 1; j <= name.length(); j++) {
+                ret.add(name.substring(0, j));
+            }
+        }
+        List<String> sorted = new ArrayList<String>(ret);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    public void testIndexBenchmark() throws Exception {
+        Benchmark benchmark = new Benchmark("index");
+        BenchmarkCorpora.addConfig(benchmark);
+
+        for (Entry<String, Map<String, String>> corpus : BenchmarkCorpora.getCorpora().entrySet()) {
+            final AbstractAdditionalDependencyInfo info = createInfo();
+            for (Entry<String, String> module : corpus.getValue().entrySet()) {
+                info.addAstInfo(FastDefinitionsParser.parse(module.getValue(), module.getKey()),
+                        new ModulesKey(module.getKey(), null), false);
+            }
+            final List<String> qualifiers = createQualifiers();
+
+            benchmark.run("AbstractAdditionalTokensInfo.getTokensStartingWith", corpus.getKey(), qualifiers.size(),
+                    new ICallback0<Object>() {
+
+                        @Override
+                        public Object call() {
+                            int found = 0;
+                            for (String qualifier : qualifiers) {
+                                found += info.getTokensStartingWith(qualifier,
+                                        AbstractAdditionalTokensInfo.TOP_LEVEL | AbstractAdditionalTokensInfo.INNER)
+                                        .size();
+                            }
+                            return found;
+                        }
+                    });
+
+            final String[] queries = new String[] { "get", "GV", "sItem", "ompute_d", "load_n", "CN", "Cls", "x" };
+            benchmark.run("AbstractAdditionalTokensInfo.searchTokens", corpus.getKey(), queries.length,
+                    new ICallback0<Object>() {
+
+                        @Override
+                        public Object call() {
+                            int found = 0;
+                            for (String query : queries) {
+                                found += info.searchTokens(query, AbstractAdditionalTokensInfo.TOP_LEVEL, 50).size();
+                            }
+                            return found;
+                        }
+                    });
+        }
+    }
+
+    public void testCompletionBenchmark() throws Exception {
+        Benchmark benchmark = new Benchmark("completion");
+        BenchmarkCorpora.addConfig(benchmark);
+
+        final List<String> docs = new ArrayList<String>();
+        for (int i = 0; i < MAX_MODULES; i++) {
+            String modName = SyntheticPythonCorpus.getModuleName(i);
+            String className = SyntheticPythonCorpus.getClassName(i, 0);
+            docs.add("import " + modName + "\n" + modName + ".");
+            docs.add("from " + modName + " import " + className + "\n" + className + "().");
+        }
+        //Check that the completions are actually resolved in the corpus.
+        requestCompl(docs.get(0), -1, -1, new String[] { SyntheticPythonCorpus.getClassName(0, 0) });
+
+        benchmark.run("AbstractASTManager.completions", BenchmarkCorpora.SYNTHETIC, docs.size(),
+                new ICallback0<Object>() {
+
+                    @Override
+                    public Object call() {
+                        int found = 0;
+                        try {
+                            for (String doc : docs) {
+                                found += requestCompl(doc, -1, -1, new String[0]).length;
+                            }
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                        return found;
+                    }
+                });
+    }
+
+    public void testAnalysisBenchmark() throws Exception {
+        Benchmark benchmark = new Benchmark("analysis");
+        BenchmarkCorpora.addConfig(benchmark);
+
+        for (Entry<String, Map<String, String>> corpus : BenchmarkCorpora.getCorpora().entrySet()) {
+            final List<Document> docs = new ArrayList<Document>();
+            final List<SourceModule> modules = new ArrayList<SourceModule>();
+            for (Entry<String, String> module : corpus.getValue().entrySet()) {
+                if (modules.size() >= MAX_MODULES) {
+                    break;
+                }
+                Document doc = new Document(module.getValue());
+                docs.add(doc);
+                modules.add(AbstractModule.createModuleFromDoc(module.getKey(), null, doc, nature, true));
+            }
+
+            benchmark.run("OccurrencesVisitor", corpus.getKey(), modules.size(), new ICallback0<Object>() {
+
+                @Override
+                public Object call() {
+                    int found = 0;
+                    for (int i = 0; i < modules.size(); i++) {
+                        found += new OccurrencesAnalyzer().analyzeDocument(nature, modules.get(i), prefs,
+                                docs.get(i), new NullProgressMonitor(), new TestIndentPrefs(true, 4)).length;
+                    }
+                    return found;
+                }
+            });
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.python.pydev.core.IToken;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.docutils.PySelection.ActivationTokenAndQual;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.core.performanceeval.OptimizationRelatedConstants;
 import org.python.pydev.core.structure.CompletionRecursionException;
 import org.python.pydev.editor.codecompletion.CompletionRequest;
 import org.python.pydev.editor.codecompletion.IPyDevCompletionParticipant;
@@ -108,8 +109,10 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
             }
         }
 
-        Collection<IInfo> tokensStartingWith = additionalInfoForProject.getTokensStartingWith(qual,
-                AbstractAdditionalTokensInfo.TOP_LEVEL);
+        //the ranked search gives the best matches first (only the ones starting with the qualifier are used).
+        Collection<IInfo> tokensStartingWith = additionalInfoForProject.searchTokens(qual,
+                AbstractAdditionalTokensInfo.TOP_LEVEL,
+                OptimizationRelatedConstants.MAXIMUM_NUMBER_OF_CONTEXT_INSENSITIVE_COMPLETIONS);
 
         FastStringBuffer realImportRep = new FastStringBuffer();
         FastStringBuffer displayString = new FastStringBuffer();
@@ -175,8 +178,10 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
 
             String initialModule = request.resolveModule();
 
-            List<IInfo> tokensStartingWith = AdditionalProjectInterpreterInfo.getTokensStartingWith(qual,
-                    request.nature, AbstractAdditionalTokensInfo.TOP_LEVEL);
+            //the ranked search gives the best matches first (only the ones starting with the qualifier are used).
+            List<IInfo> tokensStartingWith = AdditionalProjectInterpreterInfo.searchTokens(qual, request.nature,
+                    AbstractAdditionalTokensInfo.TOP_LEVEL,
+                    OptimizationRelatedConstants.MAXIMUM_NUMBER_OF_CONTEXT_INSENSITIVE_COMPLETIONS);
 
             FastStringBuffer realImportRep = new FastStringBuffer();
             FastStringBuffer displayString = new FastStringBuffer();
@@ -28,7 +28,7 @@ public class PyDebugTargetServer extends AbstractDebugTarget {
     public PyDebugTargetServer(ILaunch launch, IPath[] file, RemoteDebuggerServer debugger) {
         this.file = file;
         this.debugger = debugger;
-        this.threads = new PyThread[0];
+        setThreads(new PyThread[0]);
         this.launch = launch;
 
         if (launch != null) {
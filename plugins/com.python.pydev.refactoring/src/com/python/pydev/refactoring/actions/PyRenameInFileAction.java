@@ -49,6 +49,7 @@ import org.python.pydev.shared_core.parsing.IParserObserver;
 import org.python.pydev.shared_core.structure.Tuple;
 
 import com.python.pydev.refactoring.markoccurrences.MarkOccurrencesJob;
+import com.python.pydev.refactoring.markoccurrences.OccurrencesIndex;
 import com.python.pydev.refactoring.wizards.rename.PyRenameEntryPoint;
 
 /**
@@ -170,15 +171,24 @@ public class PyRenameInFileAction extends Action {
             return false;
         }
 
-        PyRenameEntryPoint processor = new PyRenameEntryPoint(req);
+        //the local variables are answered from the index built when the parse finished.
+        HashSet<ASTEntry> occurrences = null;
+        OccurrencesIndex index = OccurrencesIndex.getIndex(pyEdit, document);
+        if (index != null && req.initialName.length() > 0) {
+            occurrences = index.getOccurrences(req.initialName, ps.getCurrToken().o2, document);
+        }
 
-        //process it to get what we need
-        processor.checkInitialConditions(monitor);
-        processor.checkFinalConditions(monitor, null);
-        HashSet<ASTEntry> occurrences = processor.getOccurrences();
+        if (occurrences == null) {
+            PyRenameEntryPoint processor = new PyRenameEntryPoint(req);
 
-        if (monitor.isCanceled()) {
-            return false;
+            //process it to get what we need
+            processor.checkInitialConditions(monitor);
+            processor.checkFinalConditions(monitor, null);
+            occurrences = processor.getOccurrences();
+
+            if (monitor.isCanceled()) {
+                return false;
+            }
         }
 
         //used so that we don't add duplicates
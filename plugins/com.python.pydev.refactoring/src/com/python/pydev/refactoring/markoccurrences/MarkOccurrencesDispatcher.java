@@ -17,6 +17,9 @@ import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
 import org.python.pydev.editor.PyEdit;
+import org.python.pydev.shared_core.model.ErrorDescription;
+import org.python.pydev.shared_core.model.IModelListener;
+import org.python.pydev.shared_core.model.ISimpleNode;
 import org.python.pydev.shared_core.string.TextSelectionUtils;
 import org.python.pydev.shared_ui.editor.BaseEditor;
 import org.python.pydev.shared_ui.editor.IPyEditListener;
@@ -35,6 +38,17 @@ public class MarkOccurrencesDispatcher implements IPyEditListener, IDocumentList
     }
 
     public void onCreateActions(ListResourceBundle resources, BaseEditor baseEditor, IProgressMonitor monitor) {
+        final PyEdit edit = (PyEdit) baseEditor;
+        //the occurrences index is created when the parse finishes (and not when the occurrences are requested).
+        edit.addModelListener(new IModelListener() {
+
+            public void modelChanged(ISimpleNode root) {
+                OccurrencesIndex.updateIndex(edit);
+            }
+
+            public void errorChanged(ErrorDescription errorDesc) {
+            }
+        });
     }
 
     public void onDispose(BaseEditor baseEditor, IProgressMonitor monitor) {
@@ -17,9 +17,11 @@ import java.util.Map;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.source.Annotation;
@@ -36,6 +38,7 @@ import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.parser.jython.ast.Name;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
 import org.python.pydev.shared_core.string.TextSelectionUtils;
+import org.python.pydev.shared_core.utils.Metrics;
 import org.python.pydev.shared_ui.editor.BaseEditor;
 import org.python.pydev.shared_ui.mark_occurrences.BaseMarkOccurrencesJob;
 
@@ -54,23 +57,29 @@ public class MarkOccurrencesJob extends BaseMarkOccurrencesJob {
 
     protected final static class PyMarkOccurrencesRequest extends MarkOccurrencesRequest {
         public final RefactoringRequest refactoringRequest;
-        public final PyRenameEntryPoint pyRenameEntryPoint;
+        public final HashSet<ASTEntry> occurrences;
 
-        protected PyMarkOccurrencesRequest(RefactoringRequest refactoringRequest,
-                PyRenameEntryPoint pyRenameEntryPoint,
+        protected PyMarkOccurrencesRequest(RefactoringRequest refactoringRequest, HashSet<ASTEntry> occurrences,
                 boolean proceedWithMarkOccurrences) {
             super(proceedWithMarkOccurrences);
             this.refactoringRequest = refactoringRequest;
-            this.pyRenameEntryPoint = pyRenameEntryPoint;
+            this.occurrences = occurrences;
         }
     }
 
+    /**
+     * Time from the start of the job until the occurrences to be marked are available (for the requests which
+     * were not cancelled).
+     */
+    private static final Metrics.Timer REQUEST_TIMER = Metrics.timer("MarkOccurrencesJob.request");
+
     public MarkOccurrencesJob(WeakReference<BaseEditor> editor, TextSelectionUtils ps) {
         super(editor, ps);
     }
 
     /**
-     * @return a tuple with the refactoring request, the processor and a boolean indicating if all pre-conditions succedded.
+     * @return a tuple with the refactoring request, the occurrences found and a boolean indicating if all 
+     * pre-conditions succedded.
      * @throws MisconfigurationException 
      */
     @Override
@@ -80,7 +89,18 @@ public class MarkOccurrencesJob extends BaseMarkOccurrencesJob {
         if (!MarkOccurrencesPreferencesPage.useMarkOccurrences()) {
             return new PyMarkOccurrencesRequest(null, null, false);
         }
+        long initialTime = REQUEST_TIMER.start();
         PyEdit pyEdit = (PyEdit) baseEditor;
+        final IDocument doc = this.ps.getDoc();
+        final long initialStamp = ((IDocumentExtension4) doc).getModificationStamp();
+
+        //the request is stale if the document changed (a new request will be done for the new contents).
+        monitor = new ProgressMonitorWrapper(monitor) {
+            @Override
+            public boolean isCanceled() {
+                return super.isCanceled() || ((IDocumentExtension4) doc).getModificationStamp() != initialStamp;
+            }
+        };
 
         //ok, the editor is still there wit ha document... move on
         PyRefactorAction pyRefactorAction = getRefactorAction(pyEdit);
@@ -92,6 +112,17 @@ public class MarkOccurrencesJob extends BaseMarkOccurrencesJob {
             return new PyMarkOccurrencesRequest(null, null, false);
         }
 
+        //the local variables are answered from the index built when the parse finished (for other names, such as
+        //globals or attributes, the complete find-occurrences process is still needed).
+        OccurrencesIndex index = OccurrencesIndex.getIndex(pyEdit, doc);
+        if (index != null && req.initialName.length() > 0 && index.getModificationStamp() == initialStamp) {
+            HashSet<ASTEntry> occurrences = index.getOccurrences(req.initialName, req.ps.getCurrToken().o2, doc);
+            if (occurrences != null) {
+                REQUEST_TIMER.stop(initialTime);
+                return new PyMarkOccurrencesRequest(req, occurrences, true);
+            }
+        }
+
         PyRenameEntryPoint processor = new PyRenameEntryPoint(req);
         //to see if a new request was not created in the meantime (in which case this one will be cancelled)
         if (monitor.isCanceled()) {
@@ -109,8 +140,11 @@ public class MarkOccurrencesJob extends BaseMarkOccurrencesJob {
                 return new PyMarkOccurrencesRequest(null, null, false);
             }
 
+            HashSet<ASTEntry> occurrences = processor.getOccurrences();
+
             //ok, pre-conditions suceeded
-            return new PyMarkOccurrencesRequest(req, processor, true);
+            REQUEST_TIMER.stop(initialTime);
+            return new PyMarkOccurrencesRequest(req, occurrences, true);
         } catch (Throwable e) {
             throw new RuntimeException("Error in occurrences while analyzing modName:" + req.moduleName
                     + " initialName:" + req.initialName + " line (start at 0):" + req.ps.getCursorLine(), e);
@@ -136,8 +170,7 @@ public class MarkOccurrencesJob extends BaseMarkOccurrencesJob {
 
         PyMarkOccurrencesRequest pyMarkOccurrencesRequest = (PyMarkOccurrencesRequest) markOccurrencesRequest;
         RefactoringRequest req = pyMarkOccurrencesRequest.refactoringRequest;
-        PyRenameEntryPoint processor = pyMarkOccurrencesRequest.pyRenameEntryPoint;
-        HashSet<ASTEntry> occurrences = processor.getOccurrences();
+        HashSet<ASTEntry> occurrences = pyMarkOccurrencesRequest.occurrences;
         if (occurrences == null) {
             if (DEBUG) {
                 System.out.println("Occurrences == null");
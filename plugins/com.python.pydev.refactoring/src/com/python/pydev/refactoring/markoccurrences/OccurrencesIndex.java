@@ -0,0 +1,462 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.refactoring.markoccurrences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.python.pydev.editor.PyEdit;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Attribute;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.Name;
+import org.python.pydev.parser.jython.ast.NameTok;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.argumentsType;
+import org.python.pydev.parser.jython.ast.decoratorsType;
+import org.python.pydev.parser.jython.ast.exprType;
+import org.python.pydev.parser.jython.ast.keywordType;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.parser.visitors.NodeUtils;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.shared_core.structure.FastStack;
+import org.python.pydev.shared_core.utils.Metrics;
+
+import com.python.pydev.analysis.scopeanalysis.AbstractScopeAnalyzerVisitor;
+import com.python.pydev.analysis.scopeanalysis.ScopeAnalysis;
+
+/**
+ * Index of the names in the ast of an editor (name -> scope -> positions), built in a single pass when a parse
+ * finishes, so that the mark occurrences and the rename in file don't need a find-occurrences process for each
+ * position.
+ *
+ * The index answers for the local variables of functions (the same occurrences the PyRenameLocalProcess finds: the
+ * names in the function -- including inner scopes -- plus the matches in its comments and strings). For anything
+ * else (parameters, globals, class attributes, imports, attribute accesses) it returns null and the clients should
+ * go on with the PyRenameEntryPoint.
+ */
+public final class OccurrencesIndex {
+
+    private static final String INDEX_CACHE_KEY = "OccurrencesIndex";
+
+    private static final Metrics.Timer BUILD_TIMER = Metrics.timer("OccurrencesIndex.build");
+
+    /**
+     * The name is only assigned in the scope (i.e.: a local variable if the scope is a function).
+     */
+    private static final int BINDING_ASSIGN = 1;
+
+    /**
+     * The name is a parameter, import, definition or is declared global/nonlocal in the scope.
+     */
+    private static final int BINDING_OTHER = 2;
+
+    private static final class NameInfo {
+
+        private final ASTEntry entry;
+
+        /**
+         * The innermost function or class where the name was found (null for the module).
+         */
+        private final SimpleNode scope;
+
+        private NameInfo(ASTEntry entry, SimpleNode scope) {
+            this.entry = entry;
+            this.scope = scope;
+        }
+    }
+
+    /**
+     * Visits the ast once, keeping the names (with their scope), the names bound in each scope and the occurrences
+     * of each name in each function.
+     */
+    private static final class IndexBuilder extends VisitorBase {
+
+        private final OccurrencesIndex index;
+
+        /**
+         * Functions and classes being visited.
+         */
+        private final FastStack<SimpleNode> scopes = new FastStack<SimpleNode>(10);
+
+        private IndexBuilder(OccurrencesIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        protected Object unhandled_node(SimpleNode node) throws Exception {
+            return null;
+        }
+
+        @Override
+        public void traverse(SimpleNode node) throws Exception {
+            node.traverse(this);
+        }
+
+        private void pushScope(SimpleNode node) {
+            SimpleNode parent = currentScope();
+            if (parent != null) {
+                index.parentScopes.put(node, parent);
+            }
+            scopes.push(node);
+        }
+
+        private SimpleNode currentScope() {
+            return scopes.size() > 0 ? scopes.peek() : null;
+        }
+
+        private void bind(String name, int binding) {
+            SimpleNode scope = currentScope();
+            Map<String, Integer> bound = index.bindings.get(scope);
+            if (bound == null) {
+                bound = new HashMap<String, Integer>();
+                index.bindings.put(scope, bound);
+            }
+            Integer current = bound.get(name);
+            if (current == null || current < binding) {
+                bound.put(name, binding);
+            }
+        }
+
+        private void addName(SimpleNode node, String name) {
+            ASTEntry entry = new ASTEntry(null, node);
+            for (SimpleNode scope : scopes) {
+                if (scope instanceof FunctionDef) {
+                    Map<String, List<ASTEntry>> names = index.functionNames.get(scope);
+                    if (names == null) {
+                        names = new HashMap<String, List<ASTEntry>>();
+                        index.functionNames.put(scope, names);
+                    }
+                    List<ASTEntry> entries = names.get(name);
+                    if (entries == null) {
+                        entries = new ArrayList<ASTEntry>();
+                        names.put(name, entries);
+                    }
+                    entries.add(entry);
+                }
+            }
+            if (node instanceof Name) {
+                index.names.put(getKey(node.beginLine, node.beginColumn), new NameInfo(entry, currentScope()));
+            }
+        }
+
+        @Override
+        public Object visitName(Name node) throws Exception {
+            addName(node, node.id);
+            switch (node.ctx) {
+                case Name.Store:
+                case Name.AugStore:
+                case Name.Del:
+                    bind(node.id, BINDING_ASSIGN);
+                    break;
+                case Name.Param:
+                case Name.KwOnlyParam:
+                    bind(node.id, BINDING_OTHER);
+                    break;
+            }
+            return null;
+        }
+
+        @Override
+        public Object visitNameTok(NameTok node) throws Exception {
+            addName(node, node.id);
+            switch (node.ctx) {
+                case NameTok.ImportModule:
+                    //import a.b binds a
+                    int i = node.id.indexOf('.');
+                    bind(i == -1 ? node.id : node.id.substring(0, i), BINDING_OTHER);
+                    break;
+                case NameTok.ClassName:
+                case NameTok.FunctionName:
+                case NameTok.ImportName:
+                case NameTok.VarArg:
+                case NameTok.KwArg:
+                case NameTok.GlobalName:
+                case NameTok.NonLocalName:
+                    bind(node.id, BINDING_OTHER);
+                    break;
+            }
+            return null;
+        }
+
+        @Override
+        public Object visitAttribute(Attribute node) throws Exception {
+            //only the first part of an attribute is a name in the scope (as in ScopeAnalysis.getLocalOccurrences).
+            AbstractScopeAnalyzerVisitor.visitNeededAttributeParts(node, this);
+            SimpleNode first = NodeUtils.getAttributeParts(node).get(0);
+            if (first instanceof Name) {
+                addName(first, ((Name) first).id);
+            } else if (first instanceof NameTok) {
+                addName(first, ((NameTok) first).id);
+            }
+            first.traverse(this);
+            return null;
+        }
+
+        @Override
+        public Object visitFunctionDef(FunctionDef node) throws Exception {
+            //the name, defaults and annotations belong to the enclosing scope.
+            accept(node.name);
+            argumentsType args = node.args;
+            if (args != null) {
+                accept(args.defaults);
+                accept(args.kw_defaults);
+                accept(args.annotation);
+                accept(args.varargannotation);
+                accept(args.kwargannotation);
+                accept(args.kwonlyargannotation);
+            }
+            accept(node.returns);
+
+            //the decorators are considered in the function (as in ScopeAnalysis.getLocalOccurrences).
+            pushScope(node);
+            if (node.decs != null) {
+                for (decoratorsType dec : node.decs) {
+                    accept(dec);
+                }
+            }
+            if (args != null) {
+                accept(args.args);
+                accept(args.vararg);
+                accept(args.kwarg);
+                accept(args.kwonlyargs);
+            }
+            accept(node.body);
+            scopes.pop();
+            return null;
+        }
+
+        @Override
+        public Object visitClassDef(ClassDef node) throws Exception {
+            accept(node.name);
+            if (node.decs != null) {
+                for (decoratorsType dec : node.decs) {
+                    accept(dec);
+                }
+            }
+            accept(node.bases);
+            if (node.keywords != null) {
+                for (keywordType keyword : node.keywords) {
+                    accept(keyword);
+                }
+            }
+            accept(node.starargs);
+            accept(node.kwargs);
+
+            pushScope(node);
+            accept(node.body);
+            scopes.pop();
+            return null;
+        }
+
+        private void accept(SimpleNode node) throws Exception {
+            if (node != null) {
+                node.accept(this);
+            }
+        }
+
+        private void accept(exprType[] nodes) throws Exception {
+            if (nodes != null) {
+                for (exprType node : nodes) {
+                    accept(node);
+                }
+            }
+        }
+
+        private void accept(stmtType[] nodes) throws Exception {
+            if (nodes != null) {
+                for (stmtType node : nodes) {
+                    accept(node);
+                }
+            }
+        }
+    }
+
+    private final long modificationStamp;
+
+    /**
+     * (line, column) -> name found there (only Name nodes: attribute parts, keywords, etc. are not answered)
+     */
+    private final Map<Long, NameInfo> names = new HashMap<Long, NameInfo>();
+
+    /**
+     * scope (null for the module) -> name -> how it's bound in that scope
+     */
+    private final Map<SimpleNode, Map<String, Integer>> bindings = new HashMap<SimpleNode, Map<String, Integer>>();
+
+    /**
+     * function or class -> enclosing function or class (not available for the ones in the module level)
+     */
+    private final Map<SimpleNode, SimpleNode> parentScopes = new HashMap<SimpleNode, SimpleNode>();
+
+    /**
+     * function -> name -> occurrences of the name in the function (including inner scopes)
+     */
+    private final Map<SimpleNode, Map<String, List<ASTEntry>>> functionNames =
+            new HashMap<SimpleNode, Map<String, List<ASTEntry>>>();
+
+    /**
+     * function -> name -> occurrences already given (which also have the matches in comments and strings).
+     */
+    private final Map<SimpleNode, Map<String, HashSet<ASTEntry>>> occurrences =
+            new HashMap<SimpleNode, Map<String, HashSet<ASTEntry>>>();
+
+    /**
+     * Creates the index for the given ast (visiting it once).
+     *
+     * @param ast the ast of the document.
+     * @param modificationStamp the modification stamp of the document from which the ast was generated.
+     */
+    public OccurrencesIndex(SimpleNode ast, long modificationStamp) {
+        this.modificationStamp = modificationStamp;
+        long initialTime = BUILD_TIMER.start();
+        try {
+            ast.accept(new IndexBuilder(this));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        BUILD_TIMER.stop(initialTime);
+    }
+
+    public long getModificationStamp() {
+        return modificationStamp;
+    }
+
+    private static Long getKey(int line, int col) {
+        return (((long) line) << 32) | col;
+    }
+
+    /**
+     * Creates the index for the last ast of the editor (called when a parse finishes).
+     */
+    public static void updateIndex(PyEdit pyEdit) {
+        Map<String, Object> cache = pyEdit.cache;
+        SimpleNode ast = pyEdit.getAST();
+        long stamp = pyEdit.getAstModificationTimeStamp();
+        if (cache == null || ast == null || stamp == -1) {
+            return;
+        }
+        OccurrencesIndex index = new OccurrencesIndex(ast, stamp);
+        synchronized (OccurrencesIndex.class) {
+            Object o = cache.get(INDEX_CACHE_KEY);
+            if (o instanceof OccurrencesIndex && ((OccurrencesIndex) o).modificationStamp == stamp) {
+                return;
+            }
+            cache.put(INDEX_CACHE_KEY, index);
+        }
+    }
+
+    /**
+     * @return the index for the current version of the document or null if the ast of the editor is not synchronized
+     * with the document (i.e.: the parse of the current version still didn't finish).
+     */
+    public static OccurrencesIndex getIndex(PyEdit pyEdit, IDocument doc) {
+        Map<String, Object> cache = pyEdit.cache;
+        if (cache == null) {
+            return null;
+        }
+        long stamp = ((IDocumentExtension4) doc).getModificationStamp();
+        synchronized (OccurrencesIndex.class) {
+            Object o = cache.get(INDEX_CACHE_KEY);
+            if (o instanceof OccurrencesIndex && ((OccurrencesIndex) o).modificationStamp == stamp) {
+                return (OccurrencesIndex) o;
+            }
+        }
+        //the parse may have finished before the editor listener was registered.
+        if (pyEdit.getAstModificationTimeStamp() == stamp) {
+            updateIndex(pyEdit);
+            synchronized (OccurrencesIndex.class) {
+                Object o = cache.get(INDEX_CACHE_KEY);
+                if (o instanceof OccurrencesIndex && ((OccurrencesIndex) o).modificationStamp == stamp) {
+                    return (OccurrencesIndex) o;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name the name for which we want the occurrences.
+     * @param offset the offset where the name starts.
+     * @param doc the document (in the version of this index) used to get the line and column of the offset.
+     * @return the occurrences or null if the name at the given offset is not a local variable of a function (in which
+     * case the occurrences must be computed by the rename processes).
+     */
+    public HashSet<ASTEntry> getOccurrences(String name, int offset, IDocument doc) {
+        int line;
+        int col;
+        try {
+            line = doc.getLineOfOffset(offset);
+            col = offset - doc.getLineOffset(line);
+        } catch (BadLocationException e) {
+            return null;
+        }
+        return getOccurrences(name, line + 1, col + 1);
+    }
+
+    /**
+     * @param line the line where the name starts (starting at 1).
+     * @param col the column where the name starts (starting at 1).
+     * @see #getOccurrences(String, int, IDocument)
+     */
+    public synchronized HashSet<ASTEntry> getOccurrences(String name, int line, int col) {
+        NameInfo info = names.get(getKey(line, col));
+        if (info == null || !name.equals(info.entry.getName())) {
+            return null;
+        }
+        SimpleNode function = getDefinitionFunction(name, info.scope);
+        if (function == null) {
+            return null;
+        }
+
+        Map<String, HashSet<ASTEntry>> functionOccurrences = occurrences.get(function);
+        if (functionOccurrences == null) {
+            functionOccurrences = new HashMap<String, HashSet<ASTEntry>>();
+            occurrences.put(function, functionOccurrences);
+        }
+        HashSet<ASTEntry> ret = functionOccurrences.get(name);
+        if (ret == null) {
+            ret = new HashSet<ASTEntry>(functionNames.get(function).get(name));
+            //the matches in comments and strings are also added (as in PyRenameLocalProcess)
+            ret.addAll(ScopeAnalysis.getCommentOccurrences(name, function));
+            ret.addAll(ScopeAnalysis.getStringOccurrences(name, function));
+            functionOccurrences.put(name, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the function where the name (found in the given scope) is a local variable or null if it's not a local
+     * variable (i.e.: it's a parameter, global, import, class attribute, etc).
+     */
+    private SimpleNode getDefinitionFunction(String name, SimpleNode scope) {
+        if (scope instanceof ClassDef) {
+            Map<String, Integer> bound = bindings.get(scope);
+            if (bound != null && bound.containsKey(name)) {
+                return null; //class attribute
+            }
+        }
+        for (SimpleNode s = scope; s != null; s = parentScopes.get(s)) {
+            if (!(s instanceof FunctionDef)) {
+                continue; //names in the class body are not seen by inner scopes
+            }
+            Map<String, Integer> bound = bindings.get(s);
+            Integer binding = bound != null ? bound.get(name) : null;
+            if (binding != null) {
+                return binding == BINDING_ASSIGN ? s : null;
+            }
+        }
+        return null; //global or builtin
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.refactoring.markoccurrences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.parser.PyParserTestBase;
+import org.python.pydev.parser.jython.ast.Name;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+
+public class OccurrencesIndexTest extends PyParserTestBase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(OccurrencesIndexTest.class);
+    }
+
+    /**
+     * @return the positions (line:col) of the occurrences which are not in comments or strings.
+     */
+    private List<String> getPositions(HashSet<ASTEntry> occurrences) {
+        List<String> ret = new ArrayList<String>();
+        for (ASTEntry entry : occurrences) {
+            if (entry.node instanceof Name && ((Name) entry.node).ctx == Name.Artificial) {
+                continue;
+            }
+            ret.add(entry.node.beginLine + ":" + entry.node.beginColumn);
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    public void testLocals() throws Exception {
+        String s = "" +
+                "def m1():\n" +
+                "    a = 10 # a\n" +
+                "    def m2():\n" +
+                "        print a\n" +
+                "    print a\n" +
+                "print a\n" +
+                "";
+        Document doc = new Document(s);
+        OccurrencesIndex index = new OccurrencesIndex(parseLegalDocStr(s), 0);
+
+        HashSet<ASTEntry> occurrences = index.getOccurrences("a", s.indexOf("a = 10"), doc);
+        assertEquals("[2:5, 4:15, 5:11]", getPositions(occurrences).toString());
+        assertTrue(occurrences.size() > 3); //the comment
+
+        //the same occurrences from the uses (even in the inner scope)
+        assertSame(occurrences, index.getOccurrences("a", s.indexOf("print a") + 6, doc));
+        assertSame(occurrences, index.getOccurrences("a", s.indexOf("print a\nprint") + 6, doc));
+
+        //global: not in the index
+        assertNull(index.getOccurrences("a", s.lastIndexOf("a"), doc));
+
+        //not at the position of the name
+        assertNull(index.getOccurrences("b", s.indexOf("a = 10"), doc));
+        assertNull(index.getOccurrences("a", s.indexOf("= 10"), doc));
+    }
+
+    public void testInnerScopeAssign() throws Exception {
+        String s = "" +
+                "def m1():\n" +
+                "    a = 10\n" +
+                "    def m2():\n" +
+                "        a = 20\n" +
+                "        print a\n" +
+                "";
+        Document doc = new Document(s);
+        OccurrencesIndex index = new OccurrencesIndex(parseLegalDocStr(s), 0);
+
+        //from the inner scope only the inner assign is seen.
+        HashSet<ASTEntry> occurrences = index.getOccurrences("a", s.indexOf("a = 20"), doc);
+        assertEquals("[4:9, 5:15]", getPositions(occurrences).toString());
+
+        //from the outer scope the inner scope is also renamed (as in PyRenameLocalProcess).
+        occurrences = index.getOccurrences("a", s.indexOf("a = 10"), doc);
+        assertEquals("[2:5, 4:9, 5:15]", getPositions(occurrences).toString());
+    }
+
+    public void testNotLocals() throws Exception {
+        String s = "" +
+                "import os\n" +
+                "class C:\n" +
+                "    b = 1\n" +
+                "    def m(self, p):\n" +
+                "        global g\n" +
+                "        g = p\n" +
+                "        self.b = b\n" +
+                "        os = os\n" +
+                "";
+        Document doc = new Document(s);
+        OccurrencesIndex index = new OccurrencesIndex(parseLegalDocStr(s), 0);
+
+        //class attribute
+        assertNull(index.getOccurrences("b", s.indexOf("b = 1"), doc));
+        //parameter
+        assertNull(index.getOccurrences("p", s.indexOf("p):"), doc));
+        assertNull(index.getOccurrences("self", s.indexOf("self.b"), doc));
+        //global
+        assertNull(index.getOccurrences("g", s.indexOf("g = p"), doc));
+        //attribute
+        assertNull(index.getOccurrences("b", s.indexOf("b = b"), doc));
+        //in the method, b is a global (the class body is not seen)
+        assertNull(index.getOccurrences("b", s.indexOf("b\n        os"), doc));
+
+        //a local which shadows an import
+        HashSet<ASTEntry> occurrences = index.getOccurrences("os", s.indexOf("os = os"), doc);
+        assertEquals("[8:14, 8:9]", getPositions(occurrences).toString());
+    }
+}
@@ -20,6 +20,7 @@ import org.python.pydev.core.ObjectsPool.ObjectsPoolMap;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.utils.Metrics;
 
 /**
  * This is a cache that will put its values in the disk for low-memory consumption, so that its size never passes
@@ -40,6 +41,9 @@ public final class DiskCache implements Serializable {
 
     private static final boolean DEBUG = false;
 
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("DiskCache.load");
+    private static final Metrics.Histogram LOADED_KEYS = Metrics.histogram("DiskCache.loadedKeys");
+
     private transient Object lock;
 
     /**
@@ -92,6 +96,18 @@ public final class DiskCache implements Serializable {
      * @param objectsPoolMap 
      */
     public static DiskCache loadFrom(FastBufferedReader reader, ObjectsPoolMap objectsPoolMap) throws IOException {
+        long start = LOAD_TIMER.start();
+        try {
+            DiskCache diskCache = internalLoadFrom(reader, objectsPoolMap);
+            LOADED_KEYS.record(diskCache.keys.size());
+            return diskCache;
+        } finally {
+            LOAD_TIMER.stop(start);
+        }
+    }
+
+    private static DiskCache internalLoadFrom(FastBufferedReader reader, ObjectsPoolMap objectsPoolMap)
+            throws IOException {
         DiskCache diskCache = new DiskCache();
 
         FastStringBuffer line = reader.readLine();
@@ -11,25 +11,18 @@
 
 package org.python.pydev.core.docutils;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension3;
 import org.eclipse.jface.text.IDocumentPartitioner;
-import org.eclipse.jface.text.rules.EndOfLineRule;
-import org.eclipse.jface.text.rules.IPredicateRule;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
 import org.eclipse.jface.text.rules.IToken;
-import org.eclipse.jface.text.rules.MultiLineRule;
-import org.eclipse.jface.text.rules.PatternRule;
-import org.eclipse.jface.text.rules.RuleBasedPartitionScanner;
-import org.eclipse.jface.text.rules.SingleLineRule;
 import org.eclipse.jface.text.rules.Token;
 import org.python.pydev.core.IPythonPartitions;
 import org.python.pydev.core.log.Log;
 
 /**
- * Rule-based partition scanner
+ * Hand-written partition scanner
  * 
  * Simple, fast parsing of the document into partitions.<p>
  * This is like a rough 1st pass at parsing. We only parse
@@ -39,74 +32,378 @@ import org.python.pydev.core.log.Log;
  * 
  * "An IPartitionTokenScanner can also start in the middle of a partition,
  * if it knows the type of the partition."
+ * 
+ * It gives the same partitions that the previous RuleBasedPartitionScanner gave with the rules below (in that order),
+ * but does it in a single pass over the document (and returns the default content between partitions as a single
+ * token instead of one token for each char):
+ * 
+ * MultiLineRule("'''", "'''", PY_MULTILINE_STRING1, '\\', breaksOnEOF=true)
+ * MultiLineRule("\"\"\"", "\"\"\"", PY_MULTILINE_STRING2, '\\', breaksOnEOF=true)
+ * PatternRule("'", "'", PY_SINGLELINE_STRING1, '\\', breaksOnEOL=true, breaksOnEOF=false, escapeContinuesLine=true)
+ * PatternRule("\"", "\"", PY_SINGLELINE_STRING2, '\\', breaksOnEOL=true, breaksOnEOF=false, escapeContinuesLine=true)
+ * SingleLineRule("`", "`", PY_BACKQUOTES)
+ * EndOfLineRule("#", PY_COMMENT)
+ * 
+ * Note that string prefixes (u, b, r, ur, br) are kept in the default partition (the code scanner is the one that
+ * colors them) and don't change the partition boundaries: even in raw strings a backslash escapes the quote. Also,
+ * a single-line string which is not closed until the end of the document is not a string (i.e.: its quote is just
+ * default content and the scanning goes on right after it).
  */
-public class PyPartitionScanner extends RuleBasedPartitionScanner implements IPythonPartitions {
+public class PyPartitionScanner implements IPartitionTokenScanner, IPythonPartitions {
+
+    private static final int BUFFER_SIZE = 2048;
+
+    private final IToken multiLineString1 = new Token(IPythonPartitions.PY_MULTILINE_STRING1);
+    private final IToken multiLineString2 = new Token(IPythonPartitions.PY_MULTILINE_STRING2);
+    private final IToken singleLineString1 = new Token(IPythonPartitions.PY_SINGLELINE_STRING1);
+    private final IToken singleLineString2 = new Token(IPythonPartitions.PY_SINGLELINE_STRING2);
+    private final IToken backquotes = new Token(IPythonPartitions.PY_BACKQUOTES);
+    private final IToken comment = new Token(IPythonPartitions.PY_COMMENT);
+    private final IToken defaultToken = new Token(null);
+
+    private IDocument document;
+    private int offset;
+    private int rangeEnd;
+
+    private int tokenOffset;
+    private int tokenLength;
+
+    /**
+     * Set in setPartialRange (used only for the 1st token).
+     */
+    private String contentType;
+    private int partitionOffset;
+
+    /**
+     * When scanning the default content we have to find the next partition to know where it ends: it's kept
+     * so that it's not computed again in the next call.
+     */
+    private IToken nextToken;
+    private int nextTokenOffset;
+    private int nextTokenEnd;
+
+    /**
+     * Token found in the last call to match().
+     */
+    private IToken matchedToken;
+
+    /**
+     * The chars from [bufferStart, bufferEnd) of the document.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferStart;
+    private int bufferEnd;
+
     public PyPartitionScanner() {
-        super();
-        List<IPredicateRule> rules = new ArrayList<IPredicateRule>();
-
-        addMultilineStringRule(rules);
-        addSinglelineStringRule(rules);
-        addReprRule(rules);
-        addCommentRule(rules);
-
-        setPredicateRules(rules.toArray(new IPredicateRule[0]));
-    }
-
-    private void addReprRule(List<IPredicateRule> rules) {
-        rules.add(new SingleLineRule("`", "`", new Token(IPythonPartitions.PY_BACKQUOTES)));
-    }
-
-    private void addSinglelineStringRule(List<IPredicateRule> rules) {
-        //        IToken singleLineString = new Token(PY_SINGLELINE_STRING);
-        //        rules.add(new SingleLineRule("\"", "\"", singleLineString, '\\'));
-        //        rules.add(new SingleLineRule("'", "'", singleLineString, '\\')); -- changed to the construct below because we need to continue on escape
-
-        IToken singleLineString1 = new Token(IPythonPartitions.PY_SINGLELINE_STRING1);
-        IToken singleLineString2 = new Token(IPythonPartitions.PY_SINGLELINE_STRING2);
-        // deal with "" and '' strings
-        boolean breaksOnEOL = true;
-        boolean breaksOnEOF = false;
-        boolean escapeContinuesLine = true;
-        rules.add(new PatternRule("'", "'", singleLineString1, '\\', breaksOnEOL, breaksOnEOF, escapeContinuesLine));
-        rules.add(new PatternRule("\"", "\"", singleLineString2, '\\', breaksOnEOL, breaksOnEOF, escapeContinuesLine));
-    }
-
-    private void addMultilineStringRule(List<IPredicateRule> rules) {
-        IToken multiLineString1 = new Token(IPythonPartitions.PY_MULTILINE_STRING1);
-        IToken multiLineString2 = new Token(IPythonPartitions.PY_MULTILINE_STRING2);
-        // deal with ''' and """ strings
-
-        boolean breaksOnEOF = true;
-        //If we don't add breaksOnEOF = true it won't properly recognize the rule while typing
-        //in the following case:
-        ///'''<new line>
-        //text
-        //''' <-- it's already lost at this point and the 'text' will not be in a multiline string partition.
-
-        rules.add(new MultiLineRule("'''", "'''", multiLineString1, '\\', breaksOnEOF));
-        rules.add(new MultiLineRule("\"\"\"", "\"\"\"", multiLineString2, '\\', breaksOnEOF));
-
-        //there is a bug in this construct: When parsing a simple document such as:
-        //
-        //"""ttt"""
-        //print 'a'
-        //
-        //if lines are feed after 'ttt', it ends up considering the whole document as a multiline string.
-        //the bug is reported at: http://sourceforge.net/tracker/index.php?func=detail&aid=1402165&group_id=85796&atid=577329
-        //
-        //some regards on the bug:
-        //- it does not happen if the multiline has ''' instead of """
-        //- also, if we first add the """ rule and after the ''' rule, the bug happens with ''' and not """
-        //- if the user later changes the first line of that multiline or a line above it, it ends up parsing correctly again
-        //- if we let just one of the constructs, no problem happens
-        //
-        //I also tried creating a new token for it, but it had problems too (not the same ones, but had other problems).
-    }
-
-    private void addCommentRule(List<IPredicateRule> rules) {
-        IToken comment = new Token(IPythonPartitions.PY_COMMENT);
-        rules.add(new EndOfLineRule("#", comment));
+    }
+
+    public void setRange(IDocument document, int offset, int length) {
+        this.document = document;
+        this.offset = offset;
+        this.rangeEnd = offset + length;
+        this.tokenOffset = offset;
+        this.tokenLength = 0;
+        this.contentType = null;
+        this.partitionOffset = -1;
+        this.nextToken = null;
+
+        //the document may have changed since the last time: clear the buffer
+        this.bufferStart = 0;
+        this.bufferEnd = 0;
+    }
+
+    public void setPartialRange(IDocument document, int offset, int length, String contentType, int partitionOffset) {
+        setRange(document, offset, length);
+        this.contentType = contentType;
+        this.partitionOffset = partitionOffset;
+    }
+
+    public int getTokenOffset() {
+        return tokenOffset;
+    }
+
+    public int getTokenLength() {
+        return tokenLength;
+    }
+
+    public IToken nextToken() {
+        if (contentType != null) {
+            String type = contentType;
+            contentType = null;
+
+            if (partitionOffset > -1 && partitionOffset < offset) {
+                //resume: we're in the middle of the partition: just find its end.
+                int end = findEnd(type, offset);
+                if (end != -1) {
+                    return createToken(matchedToken, partitionOffset, end);
+                }
+                //not found: start from the partition start
+                offset = partitionOffset;
+
+            } else if (offset < rangeEnd) {
+                //at the start of the partition: the rule for the partition type has precedence.
+                int end = matchType(type, offset);
+                if (end != -1) {
+                    return createToken(matchedToken, offset, end);
+                }
+            }
+        }
+
+        if (nextToken != null) {
+            IToken token = nextToken;
+            nextToken = null;
+            if (nextTokenOffset == offset) {
+                return createToken(token, nextTokenOffset, nextTokenEnd);
+            }
+        }
+
+        if (offset >= rangeEnd) {
+            tokenOffset = offset;
+            tokenLength = 0;
+            return Token.EOF;
+        }
+
+        int end = match(offset);
+        if (end != -1) {
+            return createToken(matchedToken, offset, end);
+        }
+
+        //default content: goes on until some partition is found.
+        int i = offset + 1;
+        for (; i < rangeEnd; i++) {
+            char c = charAt(i);
+            if (c == '\'' || c == '"' || c == '`' || c == '#') {
+                end = match(i);
+                if (end != -1) {
+                    nextToken = matchedToken;
+                    nextTokenOffset = i;
+                    nextTokenEnd = end;
+                    break;
+                }
+            }
+        }
+        return createToken(defaultToken, offset, i);
+    }
+
+    private IToken createToken(IToken token, int start, int end) {
+        if (end > rangeEnd) {
+            end = rangeEnd;
+        }
+        tokenOffset = start;
+        tokenLength = end - start;
+        offset = end;
+        return token;
+    }
+
+    /**
+     * Checks if some partition starts at the given offset.
+     * 
+     * @return the end of the partition found (and sets the matchedToken) or -1 if no partition starts at the offset.
+     */
+    private int match(int i) {
+        char c = charAt(i);
+        switch (c) {
+            case '\'':
+            case '"':
+                if (i + 2 < rangeEnd && charAt(i + 1) == c && charAt(i + 2) == c) {
+                    matchedToken = c == '\'' ? multiLineString1 : multiLineString2;
+                    return findMultiLineStringEnd(c, i + 3);
+                }
+                matchedToken = c == '\'' ? singleLineString1 : singleLineString2;
+                return findSingleLineStringEnd(c, i + 1);
+
+            case '`':
+                matchedToken = backquotes;
+                return findBackquotesEnd(i + 1);
+
+            case '#':
+                matchedToken = comment;
+                return findCommentEnd(i + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a partition of the given type starts at the given offset.
+     * 
+     * @return the end of the partition found (and sets the matchedToken) or -1 if it's not there.
+     */
+    private int matchType(String type, int i) {
+        char c = charAt(i);
+        if (IPythonPartitions.PY_MULTILINE_STRING1.equals(type) || IPythonPartitions.PY_MULTILINE_STRING2.equals(type)) {
+            char quote = IPythonPartitions.PY_MULTILINE_STRING1.equals(type) ? '\'' : '"';
+            if (c == quote && i + 2 < rangeEnd && charAt(i + 1) == quote && charAt(i + 2) == quote) {
+                return findEnd(type, i + 3);
+            }
+            return -1;
+        }
+        if (IPythonPartitions.PY_SINGLELINE_STRING1.equals(type)) {
+            return c == '\'' ? findEnd(type, i + 1) : -1;
+        }
+        if (IPythonPartitions.PY_SINGLELINE_STRING2.equals(type)) {
+            return c == '"' ? findEnd(type, i + 1) : -1;
+        }
+        if (IPythonPartitions.PY_BACKQUOTES.equals(type)) {
+            return c == '`' ? findEnd(type, i + 1) : -1;
+        }
+        if (IPythonPartitions.PY_COMMENT.equals(type)) {
+            return c == '#' ? findEnd(type, i + 1) : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the end of a partition of the given type which has contents starting at the given offset (and sets the
+     * matchedToken) or -1 if it's not properly finished.
+     */
+    private int findEnd(String type, int i) {
+        if (IPythonPartitions.PY_MULTILINE_STRING1.equals(type)) {
+            matchedToken = multiLineString1;
+            return findMultiLineStringEnd('\'', i);
+        }
+        if (IPythonPartitions.PY_MULTILINE_STRING2.equals(type)) {
+            matchedToken = multiLineString2;
+            return findMultiLineStringEnd('"', i);
+        }
+        if (IPythonPartitions.PY_SINGLELINE_STRING1.equals(type)) {
+            matchedToken = singleLineString1;
+            return findSingleLineStringEnd('\'', i);
+        }
+        if (IPythonPartitions.PY_SINGLELINE_STRING2.equals(type)) {
+            matchedToken = singleLineString2;
+            return findSingleLineStringEnd('"', i);
+        }
+        if (IPythonPartitions.PY_BACKQUOTES.equals(type)) {
+            matchedToken = backquotes;
+            return findBackquotesEnd(i);
+        }
+        if (IPythonPartitions.PY_COMMENT.equals(type)) {
+            matchedToken = comment;
+            return findCommentEnd(i);
+        }
+        return -1;
+    }
+
+    /**
+     * A multi-line string goes on until the closing quotes or the end of the document.
+     */
+    private int findMultiLineStringEnd(char quote, int i) {
+        while (i < rangeEnd) {
+            char c = charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 >= rangeEnd) {
+                    return rangeEnd;
+                }
+                if (charAt(i + 1) == quote) {
+                    if (i + 2 >= rangeEnd || charAt(i + 2) == quote) {
+                        return i + 3;
+                    }
+                }
+            }
+            i++;
+        }
+        return rangeEnd;
+    }
+
+    /**
+     * A single-line string goes on until the closing quote or the end of the line (a backslash escapes the next char,
+     * which may be a new line). If the end of the document is found it's not a string.
+     */
+    private int findSingleLineStringEnd(char quote, int i) {
+        while (i < rangeEnd) {
+            char c = charAt(i);
+            if (c == '\\') {
+                i++;
+                if (i + 1 < rangeEnd && charAt(i) == '\r' && charAt(i + 1) == '\n') {
+                    i += 2;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            }
+            if (c == '\r' || c == '\n') {
+                return getEndOfLine(c, i);
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Backquotes go on until the closing backquote or the end of the line. If the end of the document is found
+     * it's not a backquotes partition.
+     */
+    private int findBackquotesEnd(int i) {
+        while (i < rangeEnd) {
+            char c = charAt(i);
+            if (c == '\0') {
+                //the rule used char 0 as the escape char
+                i += 2;
+                continue;
+            }
+            if (c == '`') {
+                return i + 1;
+            }
+            if (c == '\r' || c == '\n') {
+                return getEndOfLine(c, i);
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * A comment goes on until the end of the line (including the new line) or the end of the document.
+     */
+    private int findCommentEnd(int i) {
+        while (i < rangeEnd) {
+            char c = charAt(i);
+            if (c == '\0') {
+                //the rule used char 0 as the escape char
+                i += 2;
+                continue;
+            }
+            if (c == '\r' || c == '\n') {
+                return getEndOfLine(c, i);
+            }
+            i++;
+        }
+        return rangeEnd;
+    }
+
+    /**
+     * @return the offset after the new line char(s) at the given offset.
+     */
+    private int getEndOfLine(char c, int i) {
+        if (c == '\r' && i + 1 < rangeEnd && charAt(i + 1) == '\n') {
+            return i + 2;
+        }
+        return i + 1;
+    }
+
+    /**
+     * Note: the offset must be < rangeEnd.
+     */
+    private char charAt(int i) {
+        if (i < bufferStart || i >= bufferEnd) {
+            int len = Math.min(BUFFER_SIZE, rangeEnd - i);
+            try {
+                document.get(i, len).getChars(0, len, buffer, 0);
+            } catch (BadLocationException e) {
+                Log.log(e);
+                return '\0';
+            }
+            bufferStart = i;
+            bufferEnd = i + len;
+        }
+        return buffer[i - bufferStart];
     }
 
     /**
@@ -9,12 +9,15 @@ package org.python.pydev.core.performanceeval;
 public class OptimizationRelatedConstants {
 
     /**
-     * This is the maximum number of code folding marks that an editor can have.
-     * 
-     * If the user would have more than that, no code-folding marks are shown (because
-     * the UI responsiveness gets awful at that point, as eclipse suffers to keep that
-     * updated).
+     * This is the maximum number of modules that are analyzed again when the public structure of the modules they
+     * import changes (the ones opened in editors are analyzed first).
      */
-    public static final int MAXIMUM_NUMBER_OF_CODE_FOLDING_MARKS = 4000;
+    public static final int MAXIMUM_NUMBER_OF_DEPENDENT_MODULES_TO_REANALYZE = 50;
+
+    /**
+     * This is the maximum number of tokens gotten from each additional info for the context-insensitive
+     * completions (the best matches are gotten first).
+     */
+    public static final int MAXIMUM_NUMBER_OF_CONTEXT_INSENSITIVE_COMPLETIONS = 500;
 
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.core.performanceeval;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.python.pydev.core.TestDependent;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.testutils.Benchmark;
+import org.python.pydev.shared_core.testutils.SyntheticPythonCorpus;
+
+/**
+ * The corpora used in the benchmarks: a synthetic one (always available and always the same) and the python standard
+ * library vendored in the jython plugin.
+ */
+public class BenchmarkCorpora {
+
+    public static final String SYNTHETIC = "synthetic";
+    public static final String STDLIB = "stdlib";
+
+    private static final long SEED = 20131021;
+
+    public static SyntheticPythonCorpus getSyntheticCorpus() {
+        return new SyntheticPythonCorpus(SEED, 200, 3, 8, 5);
+    }
+
+    /**
+     * @return module name -> contents for the synthetic corpus.
+     */
+    public static Map<String, String> getSynthetic() {
+        return getSyntheticCorpus().createModules();
+    }
+
+    /**
+     * @return module name -> contents for the modules of the standard library vendored in the jython plugin (empty if
+     * it's not available).
+     */
+    public static Map<String, String> getVendoredStdlib() {
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        if (TestDependent.TEST_PYDEV_JYTHON_PLUGIN_LOC != null) {
+            collect(new File(TestDependent.TEST_PYDEV_JYTHON_PLUGIN_LOC + "Lib"), "", ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @return corpus name -> (module name -> contents) for all the corpora available.
+     */
+    public static Map<String, Map<String, String>> getCorpora() {
+        Map<String, Map<String, String>> ret = new LinkedHashMap<String, Map<String, String>>();
+        ret.put(SYNTHETIC, getSynthetic());
+        Map<String, String> stdlib = getVendoredStdlib();
+        if (stdlib.size() > 0) {
+            ret.put(STDLIB, stdlib);
+        }
+        return ret;
+    }
+
+    private static void collect(File dir, String prefix, Map<String, String> ret) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files); //Always in the same order.
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (new File(file, "__init__.py").exists()) {
+                    collect(file, prefix + name + ".", ret);
+                }
+            } else if (name.endsWith(".py")) {
+                String modName = name.substring(0, name.length() - 3);
+                if (modName.equals("__init__")) {
+                    modName = prefix.length() > 0 ? prefix.substring(0, prefix.length() - 1) : modName;
+                } else {
+                    modName = prefix + modName;
+                }
+                ret.put(modName, FileUtils.getFileContents(file));
+            }
+        }
+    }
+
+    /**
+     * Adds the constants in {@link OptimizationRelatedConstants} to the configuration reported by the benchmark.
+     */
+    public static void addConfig(Benchmark benchmark) {
+        for (Field field : OptimizationRelatedConstants.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                try {
+                    benchmark.addConfig("OptimizationRelatedConstants." + field.getName(), field.get(null));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+}
@@ -87,16 +87,9 @@ public class CoverageCache {
      * @return
      */
     private ICoverageNode getIt(File obj, Map<File, ICoverageNode> m) {
-        ICoverageNode object = m.get(obj);
-        if (object == null) {
-            for (Iterator<File> iter = m.keySet().iterator(); iter.hasNext();) {
-                Object element = iter.next();
-                if (element.equals(obj)) {
-                    return m.get(element);
-                }
-            }
-        }
-        return object;
+        //Note: no need to iterate the keys if it's not found (the map lookup already uses equals()), which
+        //would make filling the cache quadratic on the number of files.
+        return m.get(obj);
     }
 
     /**
@@ -147,6 +140,24 @@ public class CoverageCache {
         files.put(node, fileNode);
     }
 
+    /**
+     * Adds a file node which was previously gotten (i.e.: when its info is restored from a previous analysis).
+     * 
+     * @param node
+     * @param parent
+     * @param fileNode
+     */
+    public void addFile(File node, File parent, ICoverageNode fileNode) {
+        FolderNode folderNode = (FolderNode) getFolder(parent);
+
+        if (folderNode == null) {
+            throw new RuntimeException("A file node (" + node.toString() + ")MUST have a related folder node.");
+        }
+
+        folderNode.files.put(node, (ICoverageLeafNode) fileNode);
+        files.put(node, fileNode);
+    }
+
     public List<ICoverageNode> getFiles(File node) throws NodeNotFoudException {
         FolderNode folderNode = (FolderNode) getFolder(node);
         if (folderNode == null) {
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.codecoverage;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the information on what was analyzed in the last coverage refresh, so that a new refresh only
+ * needs to ask the coverage module about the files whose coverage information may have changed.
+ *
+ * The coverage data is kept by the coverage module in a single (consolidated) file, so, if that file
+ * changed, all the files have to be analyzed again. Otherwise, only the files whose contents changed
+ * (or which weren't analyzed before) must be analyzed.
+ *
+ * Note: not thread-safe (the coverage refresh is done in a single job).
+ */
+public class CoverageIncrementalInfo {
+
+    /**
+     * Stamp of the consolidated coverage data when the files were analyzed.
+     */
+    private long coverageDataStamp = -1;
+
+    /**
+     * File analyzed -> modification time of the file when it was analyzed.
+     */
+    private final Map<File, Long> analyzedStamps = new HashMap<File, Long>();
+
+    /**
+     * File analyzed -> node gotten in the analysis (files not reported by the coverage module don't have an entry).
+     */
+    private final Map<File, ICoverageNode> analyzedNodes = new HashMap<File, ICoverageNode>();
+
+    /**
+     * Must be called before a new refresh is done (if the coverage data changed, all the info we have is discarded).
+     */
+    public void startRefresh(long currentCoverageDataStamp) {
+        if (currentCoverageDataStamp != coverageDataStamp || currentCoverageDataStamp == -1) {
+            clear();
+            coverageDataStamp = currentCoverageDataStamp;
+        }
+    }
+
+    /**
+     * @return true if the info for the given file could be restored from the last analysis (in which case
+     * it's added to the passed cache) and false if it must be analyzed again.
+     */
+    public boolean restore(File file, long fileStamp, CoverageCache cache) {
+        Long stamp = analyzedStamps.get(file);
+        if (stamp == null || stamp.longValue() != fileStamp) {
+            return false;
+        }
+        ICoverageNode node = analyzedNodes.get(file);
+        if (node != null) {
+            cache.addFile(file, file.getParentFile(), node);
+        }
+        return true;
+    }
+
+    /**
+     * Marks that the given file was analyzed (the node for it is gotten from the cache, if available).
+     */
+    public void markAnalyzed(File file, long fileStamp, CoverageCache cache) {
+        analyzedStamps.put(file, fileStamp);
+        ICoverageNode node = cache.getFile(file);
+        if (node != null) {
+            analyzedNodes.put(file, node);
+        } else {
+            analyzedNodes.remove(file);
+        }
+    }
+
+    /**
+     * Marks the files whose results were reported by the coverage module as analyzed (the others are analyzed
+     * again in the next refresh).
+     *
+     * @param filesToAnalyze file -> stamp of the file when the analysis started.
+     * @param filesReported the files which had their results parsed from the coverage module output.
+     * @return the number of files marked as analyzed.
+     */
+    public int markAnalyzed(Map<File, Long> filesToAnalyze, Set<File> filesReported, CoverageCache cache) {
+        int marked = 0;
+        for (Map.Entry<File, Long> entry : filesToAnalyze.entrySet()) {
+            File file = entry.getKey();
+            if (filesReported.contains(file)) {
+                markAnalyzed(file, entry.getValue(), cache);
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    public int getAnalyzedFilesCount() {
+        return analyzedStamps.size();
+    }
+
+    public void clear() {
+        coverageDataStamp = -1;
+        analyzedStamps.clear();
+        analyzedNodes.clear();
+    }
+
+    /**
+     * @return a stamp for the given file which changes when its contents change (or -1 if it doesn't exist).
+     */
+    public static long getStamp(File file) {
+        if (!file.exists()) {
+            return -1;
+        }
+        return file.lastModified() * 31 + file.length();
+    }
+}
@@ -11,10 +11,18 @@
  */
 package org.python.pydev.debug.codecoverage;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.OutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.runtime.IPath;
@@ -51,10 +59,18 @@ public class PyCoverage {
 
     public CoverageCache cache = new CoverageCache();
 
+    /**
+     * Information on what was analyzed in the last refresh (so that we only analyze what may have changed).
+     */
+    private final CoverageIncrementalInfo incrementalInfo = new CoverageIncrementalInfo();
+
     /**
      * This method contacts the python server so that we get the information on the files that are below the directory passed as a parameter
      * and stores the information needed on the cache.
      * 
+     * Note that only the files whose coverage info may have changed since the last refresh are actually analyzed (the
+     * info for the others is restored from the last analysis).
+     * 
      * @param file
      *            should be the root folder from where we want cache info.
      */
@@ -98,21 +114,41 @@ public class PyCoverage {
             }
             AbstractRunner runner = UniversalRunner.getRunner(nature);
 
-            //First, combine the results of the many runs we may have.
-            Tuple<String, String> output = runner.runScriptAndGetOutput(PythonRunnerConfig.getCoverageScript(),
-                    new String[] { "combine" }, getCoverageDirLocation(), monitor);
+            File coverageDir = getCoverageDirLocation();
+
+            //First, combine the results of the many runs we may have (if there's nothing to combine, skip it).
+            if (hasCoverageFilesToCombine(coverageDir)) {
+                monitor.setTaskName("Combining coverage results...");
+                Tuple<String, String> output = runner.runScriptAndGetOutput(PythonRunnerConfig.getCoverageScript(),
+                        new String[] { "combine" }, coverageDir, monitor);
+
+                if (output.o1 != null && output.o1.length() > 0) {
+                    Log.logInfo(output.o1);
+                }
+                if (output.o2 != null && output.o2.length() > 0) {
+                    if (output.o2.startsWith("Coverage.py warning:")) {
+                        Log.logInfo(output.o2);
 
-            if (output.o1 != null && output.o1.length() > 0) {
-                Log.logInfo(output.o1);
+                    } else {
+                        Log.log(output.o2);
+                    }
+                }
             }
-            if (output.o2 != null && output.o2.length() > 0) {
-                if (output.o2.startsWith("Coverage.py warning:")) {
-                    Log.logInfo(output.o2);
 
-                } else {
-                    Log.log(output.o2);
+            //Only the files which weren't analyzed with the current coverage data (or which changed) are analyzed.
+            incrementalInfo.startRefresh(CoverageIncrementalInfo.getStamp(new File(coverageDir, ".coverage")));
+            Map<File, Long> filesToAnalyze = new LinkedHashMap<File, Long>();
+            for (Iterator<PyFileInfo> iter = pyFilesBelow.getFoundPyFileInfos().iterator(); iter.hasNext();) {
+                File f = iter.next().getFile();
+                long stamp = CoverageIncrementalInfo.getStamp(f);
+                if (!incrementalInfo.restore(f, stamp, cache)) {
+                    filesToAnalyze.put(f, stamp);
                 }
             }
+            if (filesToAnalyze.size() == 0) {
+                monitor.setTaskName("Finished (coverage info unchanged)");
+                return;
+            }
 
             //we have to make a process to execute the script. it should look
             // like:
@@ -132,7 +168,7 @@ public class PyCoverage {
                 //                        PythonRunnerConfig.getCoverageScript(), new String[]{
                 //                            "-r", "-m", "--include", ".*"}, getCoverageDirLocation(), monitor);
                 Tuple<Process, String> tup = runner.createProcess(PythonRunnerConfig.getCoverageScript(),
-                        new String[] { "--pydev-analyze" }, getCoverageDirLocation(), monitor);
+                        new String[] { "--pydev-analyze" }, coverageDir, monitor);
                 p = tup.o1;
                 try {
                     p.exitValue();
@@ -141,25 +177,23 @@ public class PyCoverage {
                     //that's ok
                 }
 
-                String files = "";
-
-                for (Iterator<PyFileInfo> iter = pyFilesBelow.getFoundPyFileInfos().iterator(); iter.hasNext();) {
-                    String fStr = iter.next().getFile().toString();
-                    files += fStr + "|";
-                }
-                files += "\r";
-                monitor.setTaskName("Writing to shell...");
-
                 //No need to synchronize as we'll waitFor() the process before getting the contents.
-                ThreadStreamReader inputStream = new ThreadStreamReader(p.getInputStream(), false);
-                inputStream.start();
                 ThreadStreamReader errorStream = new ThreadStreamReader(p.getErrorStream(), false);
                 errorStream.start();
 
+                //Stream the files to the shell (there may be too many files to build a single string in memory).
+                monitor.setTaskName("Writing to shell...");
                 monitor.worked(1);
-                OutputStream outputStream = p.getOutputStream();
-                outputStream.write(files.getBytes());
-                outputStream.close();
+                Writer writer = new BufferedWriter(new OutputStreamWriter(p.getOutputStream()));
+                try {
+                    for (File f : filesToAnalyze.keySet()) {
+                        writer.write(f.toString());
+                        writer.write('|');
+                    }
+                    writer.write('\r');
+                } finally {
+                    writer.close();
+                }
 
                 //We'll read something in the format below:
                 //Name                                                                      Stmts   Miss  Cover   Missing
@@ -171,46 +205,48 @@ public class PyCoverage {
                 //D:\workspaces\temp\test_workspace\pytesting1\src\mod1\mod2\hello2            33     33     0%   1-43
                 //-------------------------------------------------------------------------------------------------------
                 //TOTAL                                                                        57     50    12% 
-
-                monitor.setTaskName("Waiting for process to finish...");
-                monitor.worked(1);
-
-                while (true) {
-                    try {
-                        p.exitValue();
-                        break; //process finished
-                    } catch (IllegalThreadStateException e) {
-                        //not finished
-                    }
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException e) {
-                        //ignore
-                    }
-                    monitor.worked(1);
-                    if (monitor.isCanceled()) {
-                        try {
-                            p.destroy();
-                        } catch (Exception e) {
-                            Log.log(e);
+                //
+                //The lines are analyzed as they arrive (so, the cache is filled while the process is still running).
+                int total = filesToAnalyze.size();
+                int[] analyzed = new int[] { 0 };
+                Set<File> reported = new HashSet<File>();
+                monitor.setTaskName("Getting coverage info...(please wait, this could take a while)");
+                BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+                try {
+                    FastStringBuffer tempBuf = new FastStringBuffer();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (monitor.isCanceled()) {
+                            try {
+                                p.destroy();
+                            } catch (Exception e) {
+                                Log.log(e);
+                            }
+                            break;
                         }
-                        break;
+                        analyzeReadLine(monitor, line.trim(), tempBuf, analyzed, total, reported);
+                    }
+                } finally {
+                    reader.close();
+                }
+
+                if (!monitor.isCanceled()) {
+                    int exitCode = p.waitFor();
+                    //Only mark as analyzed if we weren't cancelled and the process finished properly (otherwise, we
+                    //may not have gotten all the info) and only the files we actually got results for.
+                    if (exitCode == 0) {
+                        incrementalInfo.markAnalyzed(filesToAnalyze, reported, cache);
+                    } else {
+                        Log.log("Code-coverage: process finished with exit code: " + exitCode
+                                + " (the files will be analyzed again in the next refresh).");
                     }
                 }
 
-                String stdOut = inputStream.getAndClearContents();
                 String stdErr = errorStream.getAndClearContents().trim();
                 if (stdErr.length() > 0) {
                     Log.log(stdErr);
                 }
 
-                monitor.setTaskName("Getting coverage info...(please wait, this could take a while)");
-                monitor.worked(1);
-                FastStringBuffer tempBuf = new FastStringBuffer();
-                for (String str : StringUtils.splitInLines(stdOut)) {
-                    analyzeReadLine(monitor, str.trim(), tempBuf);
-                }
-
                 monitor.setTaskName("Finished");
             } catch (Exception e) {
                 if (p != null) {
@@ -225,12 +261,31 @@ public class PyCoverage {
         }
     }
 
+    /**
+     * @return whether there are .coverage.XXX files (from the runs done) that must be combined into the .coverage file.
+     */
+    private boolean hasCoverageFilesToCombine(File coverageDir) {
+        String[] list = coverageDir.list();
+        if (list != null) {
+            for (String string : list) {
+                if (string.startsWith(".coverage.")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * @param monitor
      * @param str
      * @param tempBuf 
+     * @param analyzed the number of files analyzed so far (updated in this method).
+     * @param total the total number of files being analyzed.
+     * @param reported the files which had their results added to the cache (updated in this method).
      */
-    private void analyzeReadLine(IProgressMonitor monitor, String str, FastStringBuffer tempBuf) {
+    private void analyzeReadLine(IProgressMonitor monitor, String str, FastStringBuffer tempBuf, int[] analyzed,
+            int total, Set<File> reported) {
         //The line we're interested in is something as 
         //D:\workspaces\temp\test_workspace\pytesting1\src\mod1\a   10      3    70%   4-6, 18, 19
         //with the last part (missing) optional.
@@ -250,6 +305,7 @@ public class PyCoverage {
                     boolean found = false;
                     for (String ext : dottedValidSourceFiles) {
                         if (fileStr.endsWith(ext)) {
+                            f = new File(fileStr);
                             found = true;
                             break;
                         }
@@ -282,12 +338,10 @@ public class PyCoverage {
                         cache.addFile(f, f.getParentFile(), stmts, miss, missing);
                         added = true;
                     }
-                    String[] strs = f.toString().replaceAll("/", " ").replaceAll("\\\\", " ").split(" ");
-                    if (strs.length > 1) {
-                        monitor.setTaskName("Getting coverage info..." + strs[strs.length - 1]);
-                    } else {
-                        monitor.setTaskName("Getting coverage info..." + f.toString());
-                    }
+                    reported.add(f);
+                    analyzed[0] += 1;
+                    monitor.setTaskName(StringUtils.format("Getting coverage info (%s of %s)... %s", analyzed[0],
+                            total, f.getName()));
                     monitor.worked(1);
                 }
             } catch (RuntimeException e2) {
@@ -308,6 +362,7 @@ public class PyCoverage {
                     if (!f.getName().startsWith(".coverage")) {
                         //System.out.println("Adding file:"+f);
                         cache.addFile(f, f.getParentFile(), getError(strings));
+                        reported.add(f);
                     }
                 }
 
@@ -336,6 +391,7 @@ public class PyCoverage {
      */
     public void clearInfo() {
         cache.clear();
+        incrementalInfo.clear();
         File dir = getCoverageDirLocation();
         try {
             //Clear the files we created when running the coverages.
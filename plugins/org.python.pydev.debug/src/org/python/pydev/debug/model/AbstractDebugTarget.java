@@ -8,8 +8,11 @@ package org.python.pydev.debug.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IMarker;
@@ -85,10 +88,25 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
      */
     protected IPath[] file;
 
+    private final Object threadsLock = new Object();
+
+    /**
+     * thread id -> thread for the threads found in the debugger, in the order they were created (access
+     * synchronized with threadsLock). It's updated as threads are created/killed, so, handling the events for a
+     * thread doesn't need to go through all the threads.
+     */
+    private Map<String, PyThread> threadsById = new LinkedHashMap<String, PyThread>();
+
     /**
-     * The threads found in the debugger.
+     * Whether the threads were already gotten from the debugger (access synchronized with threadsLock).
      */
-    protected PyThread[] threads;
+    private boolean threadsListed = false;
+
+    /**
+     * The threads in threadsById: only created when requested after a change (access synchronized with
+     * threadsLock).
+     */
+    private PyThread[] threads;
 
     /**
      * Indicates whether we've already disconnected from the debugger.
@@ -112,6 +130,12 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
 
     private PyRunToLineTarget runToLineTarget;
 
+    /**
+     * breakpoint id -> command last sent to set it in the debugger (used so that only the breakpoints which actually
+     * changed are sent again).
+     */
+    private final Map<Integer, SetBreakpointCommand> sentBreakpoints = new HashMap<Integer, SetBreakpointCommand>();
+
     public AbstractDebugTarget() {
         modificationChecker = new ValueModificationChecker();
     }
@@ -165,7 +189,7 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             System.out.println("TERMINATE");
         }
 
-        threads = new PyThread[0];
+        setThreads(new PyThread[0]);
         fireEvent(new DebugEvent(this, DebugEvent.TERMINATE));
 
     }
@@ -201,8 +225,9 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
     }
 
     public boolean canResume() {
-        for (int i = 0; i < threads.length; i++) {
-            if (threads[i].canResume()) {
+        PyThread[] knownThreads = getKnownThreads();
+        for (int i = 0; i < knownThreads.length; i++) {
+            if (knownThreads[i].canResume()) {
                 return true;
             }
         }
@@ -210,8 +235,9 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
     }
 
     public boolean canSuspend() {
-        for (int i = 0; i < threads.length; i++) {
-            if (threads[i].canSuspend()) {
+        PyThread[] knownThreads = getKnownThreads();
+        for (int i = 0; i < knownThreads.length; i++) {
+            if (knownThreads[i].canSuspend()) {
                 return true;
             }
         }
@@ -223,14 +249,16 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
     }
 
     public void resume() throws DebugException {
-        for (int i = 0; i < threads.length; i++) {
-            threads[i].resume();
+        PyThread[] knownThreads = getKnownThreads();
+        for (int i = 0; i < knownThreads.length; i++) {
+            knownThreads[i].resume();
         }
     }
 
     public void suspend() throws DebugException {
-        for (int i = 0; i < threads.length; i++) {
-            threads[i].suspend();
+        PyThread[] knownThreads = getKnownThreads();
+        for (int i = 0; i < knownThreads.length; i++) {
+            knownThreads[i].suspend();
         }
     }
 
@@ -239,17 +267,51 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             return null;
         }
 
-        if (threads == null) {
+        boolean listed;
+        synchronized (threadsLock) {
+            listed = threadsListed;
+        }
+        if (!listed) {
             ThreadListCommand cmd = new ThreadListCommand(this);
             this.postCommand(cmd);
+            PyThread[] found;
             try {
                 cmd.waitUntilDone(1000);
-                threads = cmd.getThreads();
+                found = cmd.getThreads();
             } catch (InterruptedException e) {
-                threads = new PyThread[0];
+                found = new PyThread[0];
+            }
+            setThreads(found);
+        }
+        return getKnownThreads();
+    }
+
+    /**
+     * Sets the threads found in the debugger (a new index is created and swapped in, so, concurrent calls to
+     * findThreadByID never see a partially filled index).
+     */
+    protected void setThreads(PyThread[] found) {
+        Map<String, PyThread> newThreadsById = new LinkedHashMap<String, PyThread>();
+        for (PyThread thread : found) {
+            newThreadsById.put(thread.getId(), thread);
+        }
+        synchronized (threadsLock) {
+            threadsById = newThreadsById;
+            threadsListed = true;
+            threads = null;
+        }
+    }
+
+    /**
+     * @return the threads known so far (without asking the debugger for them).
+     */
+    private PyThread[] getKnownThreads() {
+        synchronized (threadsLock) {
+            if (threads == null) {
+                threads = threadsById.values().toArray(new PyThread[threadsById.size()]);
             }
+            return threads;
         }
-        return threads;
     }
 
     public boolean hasThreads() throws DebugException {
@@ -312,34 +374,64 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
      * Adds a breakpoint if it's enabled.
      */
     public void breakpointAdded(IBreakpoint breakpoint) {
+        if (breakpoint instanceof PyBreakpoint) {
+            PyBreakpoint b = (PyBreakpoint) breakpoint;
+            syncBreakpoint(b.breakpointId, createSetBreakpointCommand(b));
+        }
+    }
+
+    /**
+     * @return the command to set the passed breakpoint in the debugger or null if it shouldn't be set (i.e.: it's
+     * disabled).
+     */
+    private SetBreakpointCommand createSetBreakpointCommand(PyBreakpoint b) {
         try {
-            if (breakpoint instanceof PyBreakpoint) {
-                PyBreakpoint b = (PyBreakpoint) breakpoint;
-                if (b.isEnabled() && !shouldSkipBreakpoints()) {
-                    String condition = null;
-                    if (b.isConditionEnabled()) {
-                        condition = b.getCondition();
-                        if (condition != null) {
-                            condition = StringUtils.replaceAll(condition, "\n",
-                                    "@_@NEW_LINE_CHAR@_@");
-                            condition = StringUtils.replaceAll(condition, "\t",
-                                    "@_@TAB_CHAR@_@");
-                        }
-                    }
-                    String file2 = b.getFile();
-                    Object line = b.getLine();
-                    if (file2 == null || line == null) {
-                        Log.log("Trying to add breakpoint with invalid file: " + file2 + " or line: " + line);
-                    } else {
-                        SetBreakpointCommand cmd = new SetBreakpointCommand(this, b.breakpointId, file2, line,
-                                condition, b.getFunctionName());
-                        this.postCommand(cmd);
+            if (b.isEnabled() && !shouldSkipBreakpoints()) {
+                String condition = null;
+                if (b.isConditionEnabled()) {
+                    condition = b.getCondition();
+                    if (condition != null) {
+                        condition = StringUtils.replaceAll(condition, "\n",
+                                "@_@NEW_LINE_CHAR@_@");
+                        condition = StringUtils.replaceAll(condition, "\t",
+                                "@_@TAB_CHAR@_@");
                     }
                 }
+                String file2 = b.getFile();
+                Object line = b.getLine();
+                if (file2 == null || line == null) {
+                    Log.log("Trying to add breakpoint with invalid file: " + file2 + " or line: " + line);
+                } else {
+                    return new SetBreakpointCommand(this, b.breakpointId, file2, line, condition,
+                            b.getFunctionName());
+                }
             }
         } catch (CoreException e) {
             Log.log(e);
         }
+        return null;
+    }
+
+    /**
+     * Sends to the debugger only what's needed so that the breakpoint set there matches the passed command.
+     * 
+     * @param cmd the command to set the breakpoint or null if it should not be set in the debugger.
+     */
+    /*default*/void syncBreakpoint(int breakpointId, SetBreakpointCommand cmd) {
+        synchronized (sentBreakpoints) {
+            SetBreakpointCommand sent = sentBreakpoints.get(breakpointId);
+            if (sent != null) {
+                if (cmd != null && sent.getPayload().equals(cmd.getPayload())) {
+                    return; //the debugger already has it as needed.
+                }
+                sentBreakpoints.remove(breakpointId);
+                this.postCommand(new RemoveBreakpointCommand(this, breakpointId, sent.file));
+            }
+            if (cmd != null) {
+                sentBreakpoints.put(breakpointId, cmd);
+                this.postCommand(cmd);
+            }
+        }
     }
 
     /**
@@ -347,9 +439,7 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
      */
     public void breakpointRemoved(IBreakpoint breakpoint, IMarkerDelta delta) {
         if (breakpoint instanceof PyBreakpoint) {
-            PyBreakpoint b = (PyBreakpoint) breakpoint;
-            RemoveBreakpointCommand cmd = new RemoveBreakpointCommand(this, b.breakpointId, b.getFile());
-            this.postCommand(cmd);
+            syncBreakpoint(((PyBreakpoint) breakpoint).breakpointId, null);
         }
     }
 
@@ -359,12 +449,11 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
      *  - When line numbers change in the file
      *  - When the manager decides to enable/disable all existing markers
      *  - When the breakpoint properties (hit condition) are edited
+     *  
+     * Only sent to the debugger if what's set there actually changed.
      */
     public void breakpointChanged(IBreakpoint breakpoint, IMarkerDelta delta) {
-        if (breakpoint instanceof PyBreakpoint) {
-            breakpointRemoved(breakpoint, null);
-            breakpointAdded(breakpoint);
-        }
+        breakpointAdded(breakpoint);
     }
 
     //End Breakpoints --------------------------------------------------------------------------------------------------
@@ -438,12 +527,9 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
      * @return an existing thread with a given id (null if none)
      */
     protected PyThread findThreadByID(String thread_id) {
-        for (IThread thread : threads) {
-            if (thread_id.equals(((PyThread) thread).getId())) {
-                return (PyThread) thread;
-            }
+        synchronized (threadsLock) {
+            return threadsById.get(thread_id);
         }
-        return null;
     }
 
     /**
@@ -495,20 +581,12 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
         }
 
         // add threads to the thread list, and fire event
-        if (threads == null) {
-            threads = newThreads;
-
-        } else {
-            PyThread[] combined = new PyThread[threads.length + newThreads.length];
-            int i = 0;
-            for (i = 0; i < threads.length; i++) {
-                combined[i] = threads[i];
+        synchronized (threadsLock) {
+            for (PyThread thread : newThreads) {
+                threadsById.put(thread.getId(), thread);
             }
-
-            for (int j = 0; j < newThreads.length; i++, j++) {
-                combined[i] = newThreads[j];
-            }
-            threads = combined;
+            threadsListed = true;
+            threads = null;
         }
         // Now notify debugger that new threads were added
         for (int i = 0; i < newThreads.length; i++) {
@@ -517,17 +595,16 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
     }
 
     // Remote this from our thread list
-    private void processThreadKilled(String thread_id) {
-        PyThread threadToDelete = findThreadByID(thread_id);
-        if (threadToDelete != null) {
-            int j = 0;
-            PyThread[] newThreads = new PyThread[threads.length - 1];
-            for (int i = 0; i < threads.length; i++) {
-                if (threads[i] != threadToDelete) {
-                    newThreads[j++] = threads[i];
-                }
+    /*default*/void processThreadKilled(String thread_id) {
+        PyThread threadToDelete;
+        synchronized (threadsLock) {
+            threadToDelete = threadsById.remove(thread_id);
+            if (threadToDelete != null) {
+                threads = null;
             }
-            threads = newThreads;
+        }
+        if (threadToDelete != null) {
+            modificationChecker.removeThread(thread_id);
             fireEvent(new DebugEvent(threadToDelete, DebugEvent.TERMINATE));
         }
     }
@@ -586,8 +663,6 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             }
         }
         if (t != null) {
-            modificationChecker.onlyLeaveThreads(this.threads);
-
             IStackFrame stackFrame[] = threadNstack.stack;
             t.setSuspended(true, stackFrame);
             fireEvent(new DebugEvent(t, DebugEvent.SUSPEND, reason));
@@ -650,7 +725,7 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
 
             } else {
                 FastStringBuffer buf = new FastStringBuffer();
-                for (PyThread thread : threads) {
+                for (PyThread thread : getKnownThreads()) {
                     if (buf.length() > 0) {
                         buf.append(", ");
                     }
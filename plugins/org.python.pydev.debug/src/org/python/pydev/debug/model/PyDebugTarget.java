@@ -45,7 +45,7 @@ public class PyDebugTarget extends AbstractDebugTarget {
         this.process = process;
         this.file = file;
         this.debugger = debugger;
-        this.threads = new PyThread[0];
+        setThreads(new PyThread[0]);
         this.project = project;
         launch.addDebugTarget(this);
         debugger.addTarget(this);
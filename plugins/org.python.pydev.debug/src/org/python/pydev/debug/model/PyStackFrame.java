@@ -145,6 +145,19 @@ public class PyStackFrame extends PlatformObject implements IStackFrame, IVariab
         return path;
     }
 
+    /**
+     * @return whether this frame has the given name, path and line.
+     */
+    public boolean isSameFrame(String name, IPath path, int line) {
+        if (this.line != line) {
+            return false;
+        }
+        if (this.name == null ? name != null : !this.name.equals(name)) {
+            return false;
+        }
+        return this.path == null ? path == null : this.path.equals(path);
+    }
+
     public IThread getThread() {
         return thread;
     }
@@ -201,6 +214,14 @@ public class PyStackFrame extends PlatformObject implements IStackFrame, IVariab
         return this.variables;
     }
 
+    /**
+     * Called when this frame is reused in a new stack gotten for the current suspension of its thread (the variables
+     * must be requested again, but the previous ones are kept to check which were modified).
+     */
+    public void onReusedInNewSuspension() {
+        this.onAskGetNewVars = true;
+    }
+
     public void forceGetNewVariables() {
         this.onAskGetNewVars = true;
         AbstractDebugTarget target = getTarget();
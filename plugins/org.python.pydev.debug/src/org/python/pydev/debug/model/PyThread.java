@@ -10,7 +10,11 @@
  */
 package org.python.pydev.debug.model;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.ILaunch;
@@ -51,6 +55,12 @@ public class PyThread extends PlatformObject implements IThread {
     private boolean isStepping = false;
     private IStackFrame[] stack;
 
+    /**
+     * frame id -> frame for the frames of the current suspension (cleared when the thread is resumed, as pydevd
+     * uses id(frame) as the frame id, which may be reused by another frame afterwards).
+     */
+    private volatile Map<String, PyStackFrame> framesById = new HashMap<String, PyStackFrame>();
+
     public PyThread(AbstractDebugTarget target, String name, String id) {
         this.target = target;
         this.name = name;
@@ -65,6 +75,19 @@ public class PyThread extends PlatformObject implements IThread {
     public void setSuspended(boolean state, IStackFrame[] stack) {
         isSuspended = state;
         this.stack = stack;
+        if (!state) {
+            framesById = new HashMap<String, PyStackFrame>();
+
+        } else if (stack != null) {
+            Map<String, PyStackFrame> newFramesById = new HashMap<String, PyStackFrame>();
+            for (IStackFrame frame : stack) {
+                if (frame instanceof PyStackFrame) {
+                    PyStackFrame pyStackFrame = (PyStackFrame) frame;
+                    newFramesById.put(pyStackFrame.getId(), pyStackFrame);
+                }
+            }
+            framesById = newFramesById;
+        }
     }
 
     public String getName() throws DebugException {
@@ -197,16 +220,21 @@ public class PyThread extends PlatformObject implements IThread {
         return (stack == null || stack.length == 0) ? null : stack[0];
     }
 
+    /**
+     * @return the frame with the given id in the current stack (null if not suspended).
+     */
     public PyStackFrame findStackFrameByID(String id) {
-        if (stack != null) {
-
-            for (int i = 0; i < stack.length; i++) {
-
-                if (id.equals(((PyStackFrame) stack[i]).getId())) {
+        return framesById.get(id);
+    }
 
-                    return (PyStackFrame) stack[i];
-                }
-            }
+    /**
+     * @return the frame with the given id in the current stack if it's still the same frame (i.e.: same name, file
+     * and line) or null otherwise.
+     */
+    public PyStackFrame findReusableStackFrame(String id, String name, IPath path, int line) {
+        PyStackFrame frame = framesById.get(id);
+        if (frame != null && frame.isSameFrame(name, path, line)) {
+            return frame;
         }
         return null;
     }
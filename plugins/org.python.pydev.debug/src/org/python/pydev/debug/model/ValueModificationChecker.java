@@ -104,6 +104,15 @@ public class ValueModificationChecker {
         }
     }
 
+    /**
+     * Removes the given thread from the cache.
+     */
+    public void removeThread(String threadId) {
+        synchronized (lock) {
+            cache.remove(threadId);
+        }
+    }
+
     /**
      * Removes from the cache all the threads that are not present in the threads passed.
      */
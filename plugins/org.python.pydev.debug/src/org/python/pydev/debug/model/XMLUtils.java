@@ -178,16 +178,14 @@ public class XMLUtils {
                 throw new RuntimeException(e);
             }
 
-            String line = attributes.getValue("line");
+            int line = Integer.parseInt(attributes.getValue("line"));
             IPath filePath = new Path(file);
-            // Try to recycle old stack objects
-            currentFrame = thread.findStackFrameByID(id);
+            // Try to recycle old stack objects (only if it's still the same frame of the current suspension)
+            currentFrame = thread.findReusableStackFrame(id, name, filePath, line);
             if (currentFrame == null) {
-                currentFrame = new PyStackFrame(thread, id, name, filePath, Integer.parseInt(line), target);
+                currentFrame = new PyStackFrame(thread, id, name, filePath, line, target);
             } else {
-                currentFrame.setName(name);
-                currentFrame.setPath(filePath);
-                currentFrame.setLine(Integer.parseInt(line));
+                currentFrame.onReusedInNewSuspension();
             }
             stack.add(currentFrame);
         }
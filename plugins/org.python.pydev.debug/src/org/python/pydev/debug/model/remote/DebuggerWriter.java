@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 
 /**
  * Writer writes debugger commands to the network. Use postCommand to put new
@@ -54,6 +55,9 @@ public class DebuggerWriter implements Runnable {
         synchronized (cmdQueue) {
             cmdQueue.add(cmd);
         }
+        synchronized (lock) {
+            lock.notify();
+        }
     }
 
     public void done() {
@@ -61,36 +65,47 @@ public class DebuggerWriter implements Runnable {
     }
 
     /**
-     * Loops and writes commands to the output
+     * Loops and writes commands to the output.
+     * 
+     * All the commands pending are written at once (so, posting many commands at the same time -- such as the
+     * breakpoints when a debug session starts -- goes through the network in a few big writes).
      */
     public void run() {
+        FastStringBuffer buf = new FastStringBuffer();
         while (!done) {
-            AbstractDebuggerCommand cmd = null;
+            List<AbstractDebuggerCommand> cmds = null;
             synchronized (cmdQueue) {
                 if (cmdQueue.size() > 0) {
-                    cmd = cmdQueue.remove(0);
+                    cmds = new ArrayList<AbstractDebuggerCommand>(cmdQueue);
+                    cmdQueue.clear();
                 }
             }
             try {
-                if (cmd != null) {
-                    String outgoing;
-                    try {
-                        outgoing = cmd.getOutgoing();
-                        if (outgoing == null) {
+                if (cmds != null) {
+                    buf.clear();
+                    for (AbstractDebuggerCommand cmd : cmds) {
+                        String outgoing;
+                        try {
+                            outgoing = cmd.getOutgoing();
+                            if (outgoing == null) {
+                                continue;
+                            }
+                        } catch (Throwable e) {
+                            Log.log(e);
                             continue;
                         }
-                    } catch (Throwable e) {
-                        Log.log(e);
-                        continue;
-                    }
 
-                    cmd.aboutToSend();
-                    out.write(outgoing);
-                    out.write("\n");
-                    out.flush();
-                }
-                synchronized (lock) {
-                    Thread.sleep(100);
+                        cmd.aboutToSend();
+                        buf.append(outgoing).append('\n');
+                    }
+                    if (buf.length() > 0) {
+                        out.write(buf.toString());
+                        out.flush();
+                    }
+                } else {
+                    synchronized (lock) {
+                        lock.wait(100);
+                    }
                 }
             } catch (InterruptedException | IOException e) {
                 done = true;
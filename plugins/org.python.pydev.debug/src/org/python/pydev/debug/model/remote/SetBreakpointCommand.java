@@ -47,6 +47,17 @@ public class SetBreakpointCommand extends AbstractDebuggerCommand {
 
     @Override
     public String getOutgoing() {
+        String payload = getPayload();
+        if (payload == null) {
+            return null;
+        }
+        return makeCommand(CMD_SET_BREAK, sequence, payload);
+    }
+
+    /**
+     * @return the contents sent to set the breakpoint (commands with the same payload set the same breakpoint).
+     */
+    public String getPayload() {
         if (file == null || line == null) {
             return null;
         }
@@ -59,7 +70,7 @@ public class SetBreakpointCommand extends AbstractDebuggerCommand {
 
         cmd.append('\t').append(condition);
 
-        return makeCommand(CMD_SET_BREAK, sequence, cmd.toString());
+        return cmd.toString();
     }
 
 }
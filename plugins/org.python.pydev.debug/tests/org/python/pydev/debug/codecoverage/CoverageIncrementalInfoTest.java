@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.codecoverage;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CoverageIncrementalInfoTest extends TestCase {
+
+    private CoverageCache cache;
+    private CoverageIncrementalInfo info;
+    private File folder;
+    private File file1;
+    private File file2;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(CoverageIncrementalInfoTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cache = new CoverageCache();
+        info = new CoverageIncrementalInfo();
+        folder = new File("a");
+        file1 = new File(folder, "b");
+        file2 = new File(folder, "c");
+    }
+
+    private void fillFolders() {
+        cache.clear();
+        cache.addFolder(folder);
+    }
+
+    public void testRestoreUnchanged() throws Exception {
+        fillFolders();
+        info.startRefresh(10);
+        assertFalse(info.restore(file1, 1, cache));
+        assertFalse(info.restore(file2, 1, cache));
+
+        //only file1 is reported by the coverage module.
+        cache.addFile(file1, folder, 20, 10, "6-10");
+        info.markAnalyzed(file1, 1, cache);
+        info.markAnalyzed(file2, 1, cache);
+        assertEquals(2, info.getAnalyzedFilesCount());
+
+        //Same coverage data: everything is restored (and file2 is still not there).
+        fillFolders();
+        info.startRefresh(10);
+        assertTrue(info.restore(file1, 1, cache));
+        assertTrue(info.restore(file2, 1, cache));
+        assertEquals(1, cache.getFiles(folder).size());
+        assertNotNull(cache.getFile(file1));
+        assertNull(cache.getFile(file2));
+
+        //file1 changed: must be analyzed again.
+        fillFolders();
+        info.startRefresh(10);
+        assertFalse(info.restore(file1, 2, cache));
+        assertTrue(info.restore(file2, 1, cache));
+        assertEquals(0, cache.getFiles(folder).size());
+    }
+
+    public void testCoverageDataChanged() throws Exception {
+        fillFolders();
+        info.startRefresh(10);
+        cache.addFile(file1, folder, 20, 10, "6-10");
+        info.markAnalyzed(file1, 1, cache);
+
+        fillFolders();
+        info.startRefresh(11);
+        assertEquals(0, info.getAnalyzedFilesCount());
+        assertFalse(info.restore(file1, 1, cache));
+        assertNull(cache.getFile(file1));
+    }
+
+    public void testOnlyReportedFilesMarked() throws Exception {
+        fillFolders();
+        info.startRefresh(10);
+        Map<File, Long> filesToAnalyze = new LinkedHashMap<File, Long>();
+        filesToAnalyze.put(file1, 1L);
+        filesToAnalyze.put(file2, 1L);
+
+        //only file1 had its results gotten from the coverage module.
+        cache.addFile(file1, folder, 20, 10, "6-10");
+        Set<File> reported = new HashSet<File>();
+        reported.add(file1);
+        assertEquals(1, info.markAnalyzed(filesToAnalyze, reported, cache));
+        assertEquals(1, info.getAnalyzedFilesCount());
+
+        fillFolders();
+        info.startRefresh(10);
+        assertTrue(info.restore(file1, 1, cache));
+        assertFalse(info.restore(file2, 1, cache));
+        assertNotNull(cache.getFile(file1));
+    }
+}
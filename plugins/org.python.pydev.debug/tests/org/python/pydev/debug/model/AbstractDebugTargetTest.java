@@ -6,13 +6,102 @@
  */
 package org.python.pydev.debug.model;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.model.IProcess;
+import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
+import org.python.pydev.debug.model.remote.DebuggerWriter;
+import org.python.pydev.debug.model.remote.RemoveBreakpointCommand;
+import org.python.pydev.debug.model.remote.SetBreakpointCommand;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.structure.Tuple;
 
 public class AbstractDebugTargetTest extends TestCase {
 
+    /**
+     * Keeps the commands posted (instead of sending them to the debugger).
+     */
+    private static class DummyDebugTarget extends AbstractDebugTarget {
+
+        private final List<String> posted = new ArrayList<String>();
+
+        @Override
+        public void postCommand(AbstractDebuggerCommand cmd) {
+            if (cmd instanceof SetBreakpointCommand) {
+                posted.add("set:" + ((SetBreakpointCommand) cmd).getPayload());
+            } else if (cmd instanceof RemoveBreakpointCommand) {
+                RemoveBreakpointCommand remove = (RemoveBreakpointCommand) cmd;
+                posted.add("remove:" + remove.breakpointId + ":" + remove.file);
+            } else {
+                posted.add(cmd.getOutgoing());
+            }
+        }
+
+        @Override
+        public void processCommand(String sCmdCode, String sSeqCode, String payload) {
+        }
+
+        public IProcess getProcess() {
+            return null;
+        }
+
+        public void launchRemoved(ILaunch launch) {
+        }
+
+        @Override
+        public boolean canTerminate() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+    }
+
+    /**
+     * Keeps what's written and the number of flushes.
+     */
+    private static class RecordingSocket extends Socket {
+
+        private final FastStringBuffer written = new FastStringBuffer();
+        private int flushes;
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return new OutputStream() {
+
+                @Override
+                public void write(int b) throws IOException {
+                    synchronized (written) {
+                        written.append((char) b);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    synchronized (written) {
+                        flushes++;
+                        written.notifyAll();
+                    }
+                }
+            };
+        }
+    }
+
+    private SetBreakpointCommand createSet(AbstractDebugTarget target, int id, String file, int line,
+            String condition) {
+        return new SetBreakpointCommand(target, id, file, line, condition, null);
+    }
+
     public void testMatcher() throws Exception {
         Tuple<String, String> idAndReason = AbstractDebugTarget.getThreadIdAndReason("pid333_seq23\t108");
         assertTrue(idAndReason != null);
@@ -31,4 +120,90 @@ public class AbstractDebugTargetTest extends TestCase {
             assertEquals("Unexpected threadRun payload pid333_seq23\n108(unable to match)", e.getMessage());
         }
     }
+
+    public void testBreakpointsOnlySentWhenChanged() throws Exception {
+        DummyDebugTarget target = new DummyDebugTarget();
+        target.syncBreakpoint(1, createSet(target, 1, "/a.py", 10, null));
+        assertEquals("[set:1\t/a.py\t10\tNone]", target.posted.toString());
+
+        //no difference in the payload: nothing sent.
+        target.posted.clear();
+        target.syncBreakpoint(1, createSet(target, 1, "/a.py", 10, null));
+        assertEquals(0, target.posted.size());
+
+        //only the payload (condition) changed: removed and set again.
+        target.syncBreakpoint(1, createSet(target, 1, "/a.py", 10, "a == 1"));
+        assertEquals("[remove:1:/a.py, set:1\t/a.py\t10\ta == 1]", target.posted.toString());
+
+        //the remove uses the file that was sent.
+        target.posted.clear();
+        target.syncBreakpoint(1, createSet(target, 1, "/b.py", 10, "a == 1"));
+        target.syncBreakpoint(1, null);
+        assertEquals("[remove:1:/a.py, set:1\t/b.py\t10\ta == 1, remove:1:/b.py]", target.posted.toString());
+    }
+
+    public void testRemoveBreakpointNeverSent() throws Exception {
+        DummyDebugTarget target = new DummyDebugTarget();
+        target.syncBreakpoint(1, null);
+        assertEquals(0, target.posted.size());
+
+        target.syncBreakpoint(2, createSet(target, 2, "/a.py", 10, null));
+        target.posted.clear();
+        target.syncBreakpoint(1, null);
+        target.syncBreakpoint(2, null);
+        target.syncBreakpoint(2, null);
+        assertEquals("[remove:2:/a.py]", target.posted.toString());
+    }
+
+    public void testWriterDrainsCommandsInOneWrite() throws Exception {
+        DummyDebugTarget target = new DummyDebugTarget();
+        RecordingSocket socket = new RecordingSocket();
+        DebuggerWriter writer = new DebuggerWriter(socket);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            SetBreakpointCommand cmd = createSet(target, i, "/a.py", i, null);
+            expected.add(cmd.getOutgoing());
+            writer.postCommand(cmd);
+        }
+
+        Thread thread = new Thread(writer, "pydevd.writer");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            long timeout = System.currentTimeMillis() + 5000;
+            synchronized (socket.written) {
+                while (socket.flushes == 0) {
+                    long wait = timeout - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        fail("Commands not written.");
+                    }
+                    socket.written.wait(wait);
+                }
+                assertEquals(1, socket.flushes);
+                assertEquals(expected.get(0) + "\n" + expected.get(1) + "\n" + expected.get(2) + "\n",
+                        socket.written.toString());
+            }
+        } finally {
+            writer.done();
+        }
+    }
+
+    public void testThreadsIndex() throws Exception {
+        DummyDebugTarget target = new DummyDebugTarget();
+        PyThread t1 = new PyThread(target, "MainThread", "pid1_seq1");
+        PyThread t2 = new PyThread(target, "Thread-1", "pid1_seq2");
+        PyThread t3 = new PyThread(target, "Thread-2", "pid1_seq3");
+        target.setThreads(new PyThread[] { t1, t2, t3 });
+        assertSame(t2, target.findThreadByID("pid1_seq2"));
+        assertNull(target.findThreadByID("pid1_seq4"));
+
+        target.processThreadKilled("pid1_seq2");
+        assertNull(target.findThreadByID("pid1_seq2"));
+        assertSame(t3, target.findThreadByID("pid1_seq3"));
+        assertFalse(target.canResume());
+
+        //killing an unknown thread does nothing.
+        target.processThreadKilled("pid1_seq2");
+        assertSame(t1, target.findThreadByID("pid1_seq1"));
+    }
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.debug.core.model.IStackFrame;
+
+public class PyThreadTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PyThreadTest.class);
+    }
+
+    public void testFramesOfCurrentSuspension() throws Exception {
+        PyThread thread = new PyThread(null, "MainThread", "pid1_seq1");
+        assertNull(thread.findStackFrameByID("10"));
+
+        Path path = new Path("/tmp/a.py");
+        PyStackFrame f1 = new PyStackFrame(thread, "10", "method", path, 10, null);
+        PyStackFrame f2 = new PyStackFrame(thread, "20", "<module>", path, 20, null);
+        thread.setSuspended(true, new IStackFrame[] { f1, f2 });
+        assertSame(f1, thread.findStackFrameByID("10"));
+        assertSame(f2, thread.findStackFrameByID("20"));
+
+        //only reused if it's still the same frame.
+        assertSame(f1, thread.findReusableStackFrame("10", "method", path, 10));
+        assertNull(thread.findReusableStackFrame("10", "method", path, 11));
+        assertNull(thread.findReusableStackFrame("10", "other", path, 10));
+        assertNull(thread.findReusableStackFrame("10", "method", new Path("/tmp/b.py"), 10));
+
+        //the ids may be reused by other frames after the thread is resumed.
+        thread.setSuspended(false, null);
+        assertNull(thread.findStackFrameByID("10"));
+        assertNull(thread.findReusableStackFrame("10", "method", path, 10));
+
+        PyStackFrame f3 = new PyStackFrame(thread, "30", "other", path, 5, null);
+        thread.setSuspended(true, new IStackFrame[] { f3 });
+        assertNull(thread.findStackFrameByID("20"));
+        assertSame(f3, thread.findStackFrameByID("30"));
+    }
+}
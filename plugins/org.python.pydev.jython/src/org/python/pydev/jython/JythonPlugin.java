@@ -266,6 +266,7 @@ public class JythonPlugin extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        SharedScriptingRuntime.disposeInstance();
         super.stop(context);
         plugin = null;
     }
@@ -519,36 +520,44 @@ public class JythonPlugin extends AbstractUIPlugin {
 
             interpreter.exec(StringUtils.format("exec(%s)", codeObjName));
         } catch (Throwable e) {
-            if (!IN_TESTS && JythonPlugin.getDefault() == null) {
-                //it is already disposed
-                return null;
-            }
-            //the user requested it to exit
-            if (e instanceof ExitScriptException) {
-                return null;
-            }
-            //actually, this is more likely to happen when raising an exception in jython
-            if (e instanceof PyException) {
-                PyException pE = (PyException) e;
-                if (pE.type instanceof PyJavaClass) {
-                    PyJavaClass t = (PyJavaClass) pE.type;
-                    if (t.__name__ != null && t.__name__.equals("org.python.pydev.jython.ExitScriptException")) {
-                        return null;
-                    }
-                } else if (pE.type instanceof PyClass) {
-                    PyClass t = (PyClass) pE.type;
-                    if (t.__name__ != null && t.__name__.equals("SystemExit")) {
-                        return null;
-                    }
+            return handleScriptError(e, fileToExec);
+        }
+        return null;
+    }
+
+    /**
+     * @return the error to be reported for an error that happened while executing some script (or null if the error
+     * should not be reported -- i.e.: the script was exited or the plugin is already disposed).
+     */
+    /*default*/static Throwable handleScriptError(Throwable e, File fileToExec) {
+        if (!IN_TESTS && JythonPlugin.getDefault() == null) {
+            //it is already disposed
+            return null;
+        }
+        //the user requested it to exit
+        if (e instanceof ExitScriptException) {
+            return null;
+        }
+        //actually, this is more likely to happen when raising an exception in jython
+        if (e instanceof PyException) {
+            PyException pE = (PyException) e;
+            if (pE.type instanceof PyJavaClass) {
+                PyJavaClass t = (PyJavaClass) pE.type;
+                if (t.__name__ != null && t.__name__.equals("org.python.pydev.jython.ExitScriptException")) {
+                    return null;
+                }
+            } else if (pE.type instanceof PyClass) {
+                PyClass t = (PyClass) pE.type;
+                if (t.__name__ != null && t.__name__.equals("SystemExit")) {
+                    return null;
                 }
             }
+        }
 
-            if (JyScriptingPreferencesPage.getShowScriptingOutput()) {
-                Log.log(IStatus.ERROR, "Error while executing:" + fileToExec, e);
-            }
-            return e;
+        if (JyScriptingPreferencesPage.getShowScriptingOutput()) {
+            Log.log(IStatus.ERROR, "Error while executing:" + fileToExec, e);
         }
-        return null;
+        return e;
     }
 
     // -------------- static things
@@ -0,0 +1,451 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.jython;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.jython.ui.JyScriptingPreferencesPage;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.path_watch.IFilesystemChangesListener;
+import org.python.pydev.shared_core.path_watch.PathWatch;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * A scripting runtime shared among clients which execute the same scripts many times with different globals
+ * (i.e.: the pyedit_*.py scripts, which are executed for each editor).
+ *
+ * Instead of creating a new interpreter for each client, a small pool of interpreters is shared and each client
+ * has its own namespace (a dict where the scripts are executed).
+ *
+ * The scripts are compiled only once and the compiled code is kept until a file watcher notifies that the
+ * script (or the folder with the scripts) changed.
+ *
+ * @author Fabio
+ */
+public class SharedScriptingRuntime {
+
+    /**
+     * Maximum number of interpreters kept in the pool (more may be created when they're used concurrently, but
+     * those are disposed when released).
+     */
+    private static final int MAX_INTERPRETERS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors()));
+
+    private static SharedScriptingRuntime instance;
+
+    public static synchronized SharedScriptingRuntime getInstance() {
+        if (instance == null) {
+            instance = new SharedScriptingRuntime();
+        }
+        return instance;
+    }
+
+    /**
+     * Disposes of the shared runtime (if it was created).
+     */
+    public static synchronized void disposeInstance() {
+        if (instance != null) {
+            instance.dispose();
+            instance = null;
+        }
+    }
+
+    private static final class Holder {
+
+        private final IPythonInterpreter interpreter;
+
+        /**
+         * How many times the interpreter was acquired (and not released) by the thread.
+         */
+        private int depth = 1;
+
+        private Holder(IPythonInterpreter interpreter) {
+            this.interpreter = interpreter;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * The interpreter being used by the current thread.
+     */
+    private final ThreadLocal<Holder> holders = new ThreadLocal<Holder>();
+
+    /**
+     * Interpreters available to be used (access synchronized with lock).
+     */
+    private final LinkedList<IPythonInterpreter> available = new LinkedList<IPythonInterpreter>();
+
+    /**
+     * All the interpreters created (access synchronized with lock).
+     */
+    private final List<IPythonInterpreter> created = new ArrayList<IPythonInterpreter>();
+
+    /**
+     * file -> compiled code for the file (access synchronized with lock).
+     */
+    private final Map<File, PyObject> codeCache = new HashMap<File, PyObject>();
+
+    /**
+     * folder + prefix -> scripts found (access synchronized with lock).
+     */
+    private final Map<String, File[]> scriptsCache = new HashMap<String, File[]>();
+
+    /**
+     * The folders being watched (access synchronized with lock).
+     */
+    private final List<File> watchedFolders = new ArrayList<File>();
+
+    /**
+     * The folders added to the sys.path (access synchronized with lock).
+     */
+    private String pythonpathSet;
+
+    private PyObject systemGlobals;
+
+    private PathWatch pathWatch;
+
+    /**
+     * cmd -> [number of execs, total nanos, max nanos] (access synchronized with lock).
+     *
+     * The cmd is the 'cmd' passed in the locals (i.e.: onCreateActions, onSetDocument are the ones which
+     * are related to the time to open an editor).
+     */
+    private final Map<String, long[]> execStats = new HashMap<String, long[]>();
+
+    private int compilations;
+
+    private final IFilesystemChangesListener scriptsChangesListener = new IFilesystemChangesListener() {
+
+        @Override
+        public void added(File file) {
+            invalidate(file);
+        }
+
+        @Override
+        public void removed(File file) {
+            invalidate(file);
+        }
+    };
+
+    /*default*/SharedScriptingRuntime() {
+    }
+
+    /**
+     * The compiled code for the file (or for all the files in a folder) is discarded.
+     */
+    public void invalidate(File file) {
+        synchronized (lock) {
+            if (codeCache.remove(file) == null) {
+                //it may be a folder (or an overflow): discard everything.
+                codeCache.clear();
+            }
+            scriptsCache.clear();
+        }
+    }
+
+    /**
+     * @return a new namespace to be used to execute the scripts for some client (note that the namespace
+     * may be used with any interpreter of the pool).
+     */
+    public Object createNamespace() {
+        IPythonInterpreter interpreter = acquire();
+        try {
+            //sys is always available in the namespace (as it was when each client had its own interpreter).
+            interpreter.exec("import sys\n_pydev_ns = {'False': 0, 'True': 1, 'sys': sys}");
+            PyObject ns = interpreter.get("_pydev_ns");
+            interpreter.set("_pydev_ns", null);
+            if (systemGlobals == null) {
+                interpreter.exec("_pydev_system_globals = {}");
+                systemGlobals = interpreter.get("_pydev_system_globals");
+            }
+            ns.__setitem__("systemGlobals", systemGlobals);
+            return ns;
+        } finally {
+            release(interpreter);
+        }
+    }
+
+    /**
+     * Executes all the scripts starting with the given prefix in the jysrc folder and in the user scripting
+     * location in the given namespace.
+     *
+     * @param namespace the namespace (created with createNamespace).
+     * @param locals variables that'll be set in the namespace before executing the scripts.
+     * @return the errors that happened while executing the scripts.
+     */
+    public List<Throwable> execAll(Object namespace, Map<String, Object> locals, String startingWith) {
+        File jySrc = JythonPlugin.getJySrcDirFile();
+        File additionalScriptingLocation = JyScriptingPreferencesPage.getAdditionalScriptingLocation();
+        return execAll(namespace, locals, startingWith, new File[] { jySrc, additionalScriptingLocation });
+    }
+
+    public List<Throwable> execAll(Object namespace, Map<String, Object> locals, String startingWith,
+            File[] beneathFolders) {
+        List<Throwable> errors = new ArrayList<Throwable>();
+        if (namespace == null) {
+            return errors; //already disposed
+        }
+        PyObject ns = (PyObject) namespace;
+        long initial = System.nanoTime();
+
+        IPythonInterpreter interpreter = acquire();
+        try {
+            setupPythonpath(interpreter, beneathFolders);
+            for (Map.Entry<String, Object> entry : locals.entrySet()) {
+                ns.__setitem__(entry.getKey(), Py.java2py(entry.getValue()));
+            }
+
+            for (File folder : beneathFolders) {
+                if (folder == null) {
+                    continue;
+                }
+                for (File f : getScripts(folder, startingWith)) {
+                    try {
+                        ns.__setitem__("__file__", Py.java2py(f.toString()));
+                        PyObject code = getCode(interpreter, f);
+                        interpreter.set("_pydev_code", code);
+                        interpreter.set("_pydev_ns", ns);
+                        interpreter.exec("exec _pydev_code in _pydev_ns");
+                    } catch (Throwable e) {
+                        Throwable error = JythonPlugin.handleScriptError(e, f);
+                        if (error != null) {
+                            errors.add(error);
+                        }
+                    } finally {
+                        interpreter.set("_pydev_code", null);
+                        interpreter.set("_pydev_ns", null);
+                    }
+                }
+            }
+        } finally {
+            release(interpreter);
+        }
+
+        long elapsed = System.nanoTime() - initial;
+        Object cmd = locals.get("cmd");
+        String statsKey = cmd != null ? startingWith + ":" + cmd : startingWith;
+        synchronized (lock) {
+            long[] stats = execStats.get(statsKey);
+            if (stats == null) {
+                stats = new long[3];
+                execStats.put(statsKey, stats);
+            }
+            stats[0]++;
+            stats[1] += elapsed;
+            if (elapsed > stats[2]) {
+                stats[2] = elapsed;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return the scripts in the given folder (cached until the folder changes).
+     */
+    private File[] getScripts(File folder, String startingWith) {
+        String key = FileUtils.getFileAbsolutePath(folder) + "|" + startingWith;
+        synchronized (lock) {
+            File[] files = scriptsCache.get(key);
+            if (files == null) {
+                if (!folder.exists()) {
+                    Log.log("The folder:" + folder + " does not exist and therefore cannot be used to "
+                            + "find scripts to run starting with:" + startingWith);
+                }
+                files = JythonPlugin.getFilesBeneathFolder(startingWith, folder);
+                Arrays.sort(files);
+                scriptsCache.put(key, files);
+                watch(folder);
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void watch(File folder) {
+        if (watchedFolders.contains(folder) || !folder.exists()) {
+            return;
+        }
+        try {
+            if (pathWatch == null) {
+                pathWatch = new PathWatch();
+            }
+            pathWatch.track(folder, scriptsChangesListener);
+            watchedFolders.add(folder);
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    /**
+     * @return the compiled code for the given file (compiled only if it's still not in the cache).
+     */
+    private PyObject getCode(IPythonInterpreter interpreter, File f) {
+        synchronized (lock) {
+            PyObject code = codeCache.get(f);
+            if (code == null) {
+                String path = FileUtils.getFileAbsolutePath(f);
+                if (JythonPlugin.DEBUG_RELOAD) {
+                    interpreter.exec(StringUtils.format("print '--->  reloading', r'%s'", path));
+                }
+                interpreter.set("_pydev_src", FileUtils.getFileContents(f));
+                interpreter.set("_pydev_path", path);
+                interpreter.exec("_pydev_code = compile(_pydev_src, _pydev_path, 'exec')");
+                code = interpreter.get("_pydev_code");
+                interpreter.set("_pydev_src", null);
+                interpreter.set("_pydev_code", null);
+                codeCache.put(f, code);
+                compilations++;
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Adds the folders to the sys.path (the sys is shared among the interpreters).
+     */
+    private void setupPythonpath(IPythonInterpreter interpreter, File[] folders) {
+        FastStringBuffer strPythonPathFolders = new FastStringBuffer();
+        strPythonPathFolders.append("[");
+        for (File file : folders) {
+            if (file != null) {
+                strPythonPathFolders.append("r'");
+                strPythonPathFolders.append(FileUtils.getFileAbsolutePath(file));
+                strPythonPathFolders.append("',");
+            }
+        }
+        strPythonPathFolders.append("]");
+        String str = strPythonPathFolders.toString();
+
+        synchronized (lock) {
+            if (str.equals(pythonpathSet)) {
+                return;
+            }
+            pythonpathSet = str;
+        }
+        //same as done in JythonPlugin.exec (it'll never remove the ones added before).
+        interpreter.exec("import sys\n"
+                + "if not hasattr(sys, 'PYDEV_PYTHONPATH_SET') or sys.PYDEV_PYTHONPATH_SET != " + str + ":\n"
+                + "    sys.PYDEV_PYTHONPATH_SET = " + str + "\n"
+                + "    sys.path += " + str + "\n");
+    }
+
+    /**
+     * @return an interpreter to be used (must be released later on).
+     *
+     * A thread which already holds an interpreter gets the same one again (i.e.: a script which ends up running
+     * the scripts of another editor) and a new interpreter is created when none is available, so, this never
+     * blocks waiting for another client.
+     */
+    private IPythonInterpreter acquire() {
+        Holder holder = holders.get();
+        if (holder != null) {
+            holder.depth++;
+            return holder.interpreter;
+        }
+        IPythonInterpreter interpreter = null;
+        synchronized (lock) {
+            if (available.size() > 0) {
+                interpreter = available.removeFirst();
+            }
+        }
+        if (interpreter == null) {
+            //created without the lock held (it may take some time and the other clients shouldn't wait for it).
+            interpreter = JythonPlugin.newPythonInterpreter();
+            synchronized (lock) {
+                created.add(interpreter);
+            }
+        }
+        holders.set(new Holder(interpreter));
+        return interpreter;
+    }
+
+    private void release(IPythonInterpreter interpreter) {
+        Holder holder = holders.get();
+        holder.depth--;
+        if (holder.depth > 0) {
+            return;
+        }
+        holders.remove();
+
+        synchronized (lock) {
+            if (created.contains(interpreter) && available.size() < MAX_INTERPRETERS) {
+                available.addFirst(interpreter);
+                return;
+            }
+            //disposed in the meanwhile or we already have enough interpreters in the pool.
+            created.remove(interpreter);
+        }
+        try {
+            interpreter.cleanup();
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    private void dispose() {
+        List<IPythonInterpreter> toCleanup;
+        synchronized (lock) {
+            //the ones being used are cleaned up when released.
+            toCleanup = new ArrayList<IPythonInterpreter>(available);
+            created.clear();
+            available.clear();
+            codeCache.clear();
+            scriptsCache.clear();
+            watchedFolders.clear();
+            if (pathWatch != null) {
+                pathWatch.dispose();
+                pathWatch = null;
+            }
+        }
+        for (IPythonInterpreter interpreter : toCleanup) {
+            try {
+                interpreter.cleanup();
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    /**
+     * @return a string with the times spent executing scripts (for each cmd).
+     */
+    public String getStatistics() {
+        synchronized (lock) {
+            FastStringBuffer buf = new FastStringBuffer();
+            buf.append("Scripting runtime: compilations: ").append(compilations).append(" interpreters: ")
+                    .append(created.size()).append('\n');
+            ArrayList<String> keys = new ArrayList<String>(execStats.keySet());
+            Collections.sort(keys);
+            for (String key : keys) {
+                long[] stats = execStats.get(key);
+                buf.append(StringUtils.format("    %s: execs: %s (avg: %sms max: %sms)\n", key, stats[0],
+                        stats[1] / stats[0] / 1000000, stats[2] / 1000000));
+            }
+            return buf.toString();
+        }
+    }
+
+    public void resetStatistics() {
+        synchronized (lock) {
+            execStats.clear();
+            compilations = 0;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.jython.FastCharStream;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.Expr;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Str;
+import org.python.pydev.parser.jython.ast.VisitorIF;
+import org.python.pydev.parser.jython.ast.stmtType;
+
+/**
+ * Drops the statements in the body of the functions of a module (keeping only the docstring and a placeholder for
+ * the other statements), so that modules which are kept in a cache and are mostly used for the definitions they
+ * provide (i.e.: modules from the interpreter libraries) don't keep the AST for all the code in memory.
+ *
+ * The statements are restored from a new parse of the source the first time one of the placeholders is visited
+ * (all the functions of the module are restored at that point, so, the source is parsed at most once more). Clients
+ * traversing the tree with a visitor (i.e.: body[i].accept(visitor)) see the same nodes they'd see in the complete
+ * tree. Clients accessing FunctionDef.body directly should use {@link #getBody(FunctionDef)}.
+ *
+ * Only the functions in the module/class level are handled (nested functions are part of the body of the function
+ * which contains them).
+ */
+public final class LazyFunctionBodies {
+
+    /**
+     * The source parsed (null after the bodies are restored).
+     */
+    private char[] charArray;
+
+    private final int grammarVersion;
+
+    /**
+     * line of the function -> column of the function -> placeholder with its body.
+     */
+    private final Map<Integer, Map<Integer, LazyBody>> placeholders = new HashMap<Integer, Map<Integer, LazyBody>>();
+
+    private LazyFunctionBodies(char[] charArray, int grammarVersion) {
+        this.charArray = charArray;
+        this.grammarVersion = grammarVersion;
+    }
+
+    /**
+     * Placeholder for the statements of a function body (after its docstring).
+     */
+    public static final class LazyBody extends stmtType {
+
+        private final LazyFunctionBodies bodies;
+
+        private volatile stmtType[] statements;
+
+        private LazyBody(LazyFunctionBodies bodies, stmtType[] statements) {
+            this.bodies = bodies;
+            this.statements = statements;
+        }
+
+        /**
+         * @return the statements this placeholder represents (parsing the source if they're still not available).
+         */
+        public stmtType[] getStatements() {
+            stmtType[] ret = statements;
+            if (ret == null) {
+                bodies.restoreBodies();
+                ret = statements;
+            }
+            return ret;
+        }
+
+        public boolean isRestored() {
+            return statements != null;
+        }
+
+        @Override
+        public Object accept(VisitorIF visitor) throws Exception {
+            traverse(visitor);
+            return null;
+        }
+
+        @Override
+        public void traverse(VisitorIF visitor) throws Exception {
+            stmtType[] stmts = getStatements();
+            for (int i = 0; i < stmts.length; i++) {
+                if (stmts[i] != null) {
+                    stmts[i].accept(visitor);
+                }
+            }
+        }
+
+        @Override
+        public SimpleNode createCopy() {
+            return createCopy(true);
+        }
+
+        @Override
+        public SimpleNode createCopy(boolean copyComments) {
+            stmtType[] stmts = getStatements();
+            stmtType[] copy = new stmtType[stmts.length];
+            for (int i = 0; i < stmts.length; i++) {
+                copy[i] = stmts[i] != null ? (stmtType) stmts[i].createCopy(copyComments) : null;
+            }
+            LazyBody temp = new LazyBody(bodies, copy);
+            temp.beginLine = this.beginLine;
+            temp.beginColumn = this.beginColumn;
+            return temp;
+        }
+
+        @Override
+        public String toString() {
+            stmtType[] stmts = statements;
+            return "LazyBody[" + (stmts != null ? stmts.length + " statements" : "not restored") + "]";
+        }
+    }
+
+    /**
+     * Replaces the body of the module/class level functions in the passed module for placeholders.
+     *
+     * @param charArray the contents which were parsed to generate the module (must not be changed afterwards).
+     * @return the object which will restore the bodies or null if no function had its body deferred.
+     */
+    public static LazyFunctionBodies deferBodies(Module module, char[] charArray, int grammarVersion) {
+        LazyFunctionBodies bodies = new LazyFunctionBodies(charArray, grammarVersion);
+        List<FunctionDef> functions = new ArrayList<FunctionDef>();
+        collectFunctions(module.body, functions);
+
+        for (FunctionDef def : functions) {
+            stmtType[] body = def.body;
+            int firstDeferred = hasDocString(body) ? 1 : 0;
+            if (body == null || body.length <= firstDeferred) {
+                continue;
+            }
+            stmtType first = body[firstDeferred];
+            if (first == null) {
+                continue;
+            }
+            LazyBody placeholder = new LazyBody(bodies, null);
+            placeholder.beginLine = first.beginLine;
+            placeholder.beginColumn = first.beginColumn;
+            bodies.addPlaceholder(def, placeholder);
+
+            stmtType[] newBody = new stmtType[firstDeferred + 1];
+            if (firstDeferred == 1) {
+                newBody[0] = body[0];
+            }
+            newBody[firstDeferred] = placeholder;
+            def.body = newBody;
+        }
+        if (bodies.placeholders.size() == 0) {
+            return null;
+        }
+        return bodies;
+    }
+
+    /**
+     * @return the complete body of the function (restoring it if it was deferred). Note that the body of the
+     * function itself is not changed (it still has the placeholder).
+     */
+    public static stmtType[] getBody(FunctionDef def) {
+        stmtType[] body = def.body;
+        if (body == null || body.length == 0 || !(body[body.length - 1] instanceof LazyBody)) {
+            return body;
+        }
+        stmtType[] stmts = ((LazyBody) body[body.length - 1]).getStatements();
+        stmtType[] ret = new stmtType[body.length - 1 + stmts.length];
+        System.arraycopy(body, 0, ret, 0, body.length - 1);
+        System.arraycopy(stmts, 0, ret, body.length - 1, stmts.length);
+        return ret;
+    }
+
+    private void addPlaceholder(FunctionDef def, LazyBody placeholder) {
+        Map<Integer, LazyBody> cols = placeholders.get(def.beginLine);
+        if (cols == null) {
+            cols = new HashMap<Integer, LazyBody>();
+            placeholders.put(def.beginLine, cols);
+        }
+        cols.put(def.beginColumn, placeholder);
+    }
+
+    private static void collectFunctions(stmtType[] body, List<FunctionDef> functions) {
+        if (body == null) {
+            return;
+        }
+        for (stmtType stmt : body) {
+            if (stmt instanceof FunctionDef) {
+                functions.add((FunctionDef) stmt);
+
+            } else if (stmt instanceof ClassDef) {
+                collectFunctions(((ClassDef) stmt).body, functions);
+            }
+        }
+    }
+
+    private static boolean hasDocString(stmtType[] body) {
+        return body != null && body.length > 0 && body[0] instanceof Expr && ((Expr) body[0]).value instanceof Str;
+    }
+
+    /**
+     * Parses the source again and sets the statements of all the placeholders.
+     */
+    private synchronized void restoreBodies() {
+        if (charArray == null) {
+            return; //already restored
+        }
+        List<FunctionDef> functions = new ArrayList<FunctionDef>();
+        FastCharStream in = PyParser.acquireCharStream(charArray);
+        try {
+            IGrammar grammar = PyParser.createGrammar(true, grammarVersion, in);
+            SimpleNode root = grammar.file_input();
+            if (root instanceof Module) {
+                collectFunctions(((Module) root).body, functions);
+            }
+        } catch (Throwable e) {
+            Log.log(e);
+        } finally {
+            PyParser.releaseCharStream(in);
+        }
+
+        for (FunctionDef def : functions) {
+            Map<Integer, LazyBody> cols = placeholders.get(def.beginLine);
+            if (cols == null) {
+                continue;
+            }
+            LazyBody placeholder = cols.get(def.beginColumn);
+            if (placeholder == null || placeholder.statements != null) {
+                continue;
+            }
+            stmtType[] body = def.body;
+            int firstDeferred = hasDocString(body) ? 1 : 0;
+            stmtType[] stmts = new stmtType[body.length - firstDeferred];
+            System.arraycopy(body, firstDeferred, stmts, 0, stmts.length);
+            placeholder.statements = stmts;
+        }
+
+        //Anything not found (should not happen as the same contents are parsed) is restored as an empty body.
+        for (Map<Integer, LazyBody> cols : placeholders.values()) {
+            for (LazyBody placeholder : cols.values()) {
+                if (placeholder.statements == null) {
+                    Log.log("Unable to restore the function body at line: " + placeholder.beginLine);
+                    placeholder.statements = new stmtType[0];
+                }
+            }
+        }
+        placeholders.clear();
+        charArray = null;
+    }
+}
@@ -11,6 +11,7 @@
 package org.python.pydev.parser;
 
 import java.io.File;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -66,12 +67,13 @@ import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.LowMemoryArrayList;
 import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_core.structure.Tuple3;
+import org.python.pydev.shared_core.utils.Metrics;
 
 /**
  * PyParser uses org.python.parser to parse the document (lexical analysis) It
  * is attached to PyEdit (a view), and it listens to document changes On every
  * document change, the syntax tree is regenerated The reparsing of the document
- * is done on a ParsingThread
+ * is done on the threads of a ParsingQueue (shared by all the parsers)
  *
  * Clients that need to know when new parse tree has been generated should
  * register as parseListeners.
@@ -95,6 +97,9 @@ public class PyParser extends BaseParser implements IPyParser {
      */
     public static boolean ENABLE_TRACING = false;
 
+    private static final Metrics.Timer PARSE_TIMER = Metrics.timer("PyParser.parse");
+    private static final Metrics.Histogram PARSED_CHARS = Metrics.histogram("PyParser.parsedChars");
+
     /**
      * This is the version of the grammar that should be used for this parser
      */
@@ -374,6 +379,12 @@ public class PyParser extends BaseParser implements IPyParser {
          */
         public final boolean generateTree;
 
+        /**
+         * Whether the statements in the body of the module/class level functions should only be kept in the tree
+         * when actually needed (see: LazyFunctionBodies).
+         */
+        public boolean deferFunctionBodies;
+
         /**
          * @param grammarVersion: see IPythonNature.GRAMMAR_XXX constants
          */
@@ -453,13 +464,74 @@ public class PyParser extends BaseParser implements IPyParser {
         return charArray;
     }
 
+    /**
+     * Whether the buffers with the line/column info of the FastCharStream should be reused among the parses done in
+     * the same thread (bulk parsing, such as indexing, would otherwise allocate 2 int arrays with the size of each
+     * document parsed).
+     */
+    public static boolean REUSE_CHAR_STREAM_BUFFERS = true;
+
+    /**
+     * Buffers for documents bigger than this are not kept for reuse (each char needs 8 bytes in those buffers).
+     */
+    private static final int MAX_REUSED_BUFFER_LEN = 512 * 1024;
+
+    private static final int MIN_REUSED_BUFFER_LEN = 4 * 1024;
+
+    /**
+     * The line/column buffers available for reuse in the current thread (removed while in use, so that a parse
+     * started while another parse is in progress in the same thread gets new buffers).
+     */
+    private static final ThreadLocal<SoftReference<int[][]>> charStreamBuffers =
+            new ThreadLocal<SoftReference<int[][]>>();
+
+    /**
+     * @return a stream to parse the passed contents (which should be passed to releaseCharStream after the parse
+     * finishes).
+     */
+    /*default*/static FastCharStream acquireCharStream(char[] charArray) {
+        if (!REUSE_CHAR_STREAM_BUFFERS || charArray.length > MAX_REUSED_BUFFER_LEN) {
+            return new FastCharStream(charArray);
+        }
+        int[][] buffers = null;
+        SoftReference<int[][]> ref = charStreamBuffers.get();
+        if (ref != null) {
+            buffers = ref.get();
+            charStreamBuffers.set(null);
+        }
+        if (buffers == null || buffers[0].length < charArray.length) {
+            int len = Math.max(MIN_REUSED_BUFFER_LEN, Integer.highestOneBit(charArray.length) << 1);
+            len = Math.min(MAX_REUSED_BUFFER_LEN, len);
+            buffers = new int[][] { new int[len], new int[len] };
+        }
+        return new FastCharStream(charArray, buffers[0], buffers[1]);
+    }
+
+    /**
+     * Makes the buffers of the passed stream available for the next parse in this thread (the stream must not be
+     * used afterwards).
+     */
+    /*default*/static void releaseCharStream(FastCharStream in) {
+        if (REUSE_CHAR_STREAM_BUFFERS && in.bufline.length <= MAX_REUSED_BUFFER_LEN) {
+            charStreamBuffers.set(new SoftReference<int[][]>(new int[][] { in.bufline, in.bufcolumn }));
+        }
+    }
+
     /**
      * Actually creates the grammar.
      * @param generateTree whether we should generate the AST or not.
      */
     private static IGrammar createGrammar(boolean generateTree, int grammarVersion, char[] charArray) {
+        return createGrammar(generateTree, grammarVersion, new FastCharStream(charArray));
+    }
+
+    /**
+     * Actually creates the grammar.
+     * @param generateTree whether we should generate the AST or not.
+     * @param in the stream with the contents to be parsed.
+     */
+    /*default*/static IGrammar createGrammar(boolean generateTree, int grammarVersion, FastCharStream in) {
         IGrammar grammar;
-        FastCharStream in = new FastCharStream(charArray);
         switch (grammarVersion) {
             case IPythonNature.GRAMMAR_PYTHON_VERSION_2_4:
                 grammar = new PythonGrammar24(generateTree, in);
@@ -531,11 +603,14 @@ public class PyParser extends BaseParser implements IPyParser {
         }
 
         startDoc = null; //it can be garbage-collected now.
+        PARSED_CHARS.record(charArray.length);
+        long start = PARSE_TIMER.start();
 
         Tuple<ISimpleNode, Throwable> returnVar = new Tuple<ISimpleNode, Throwable>(null, null);
         IGrammar grammar = null;
+        FastCharStream in = acquireCharStream(charArray);
         try {
-            grammar = createGrammar(info.generateTree, info.grammarVersion, charArray);
+            grammar = createGrammar(info.generateTree, info.grammarVersion, in);
             SimpleNode newRoot;
             try {
                 newRoot = grammar.file_input();
@@ -557,6 +632,10 @@ public class PyParser extends BaseParser implements IPyParser {
 
             returnVar.o2 = grammar.getErrorOnParsing();
 
+            if (info.deferFunctionBodies && info.generateTree && returnVar.o2 == null && newRoot instanceof Module) {
+                LazyFunctionBodies.deferBodies((Module) newRoot, charArray, info.grammarVersion);
+            }
+
         } catch (Throwable e) {
             //ok, some error happened when trying the parse... let's go and clear the local info before doing
             //another parse.
@@ -589,6 +668,9 @@ public class PyParser extends BaseParser implements IPyParser {
                 Log.log(e);
             }
 
+        } finally {
+            releaseCharStream(in);
+            PARSE_TIMER.stop(start);
         }
 
         if (DEBUG_SHOW_PARSE_ERRORS) {
@@ -54,6 +54,22 @@ public final class FastCharStream {
         this.bufcolumn = new int[cs.length];
     }
 
+    /**
+     * Creates a stream reusing the buffers with the line/column info of a previous stream (their contents don't
+     * need to be cleared: only the positions already read in this stream are accessed).
+     * 
+     * @param bufline buffer for the lines (its length must be >= the length of cs).
+     * @param bufcolumn buffer for the columns (its length must be >= the length of cs).
+     */
+    public FastCharStream(char cs[], int bufline[], int bufcolumn[]) {
+        if (bufline.length < cs.length || bufcolumn.length < cs.length) {
+            throw new IllegalArgumentException("Buffers for line/column info smaller than the contents.");
+        }
+        this.buffer = cs;
+        this.bufline = bufline;
+        this.bufcolumn = bufcolumn;
+    }
+
     public int getCurrentPos() {
         return bufpos;
     }
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.LazyFunctionBodies.LazyBody;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.If;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Return;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.parser.visitors.NodeUtils;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.parser.visitors.scope.ReturnVisitor;
+import org.python.pydev.parser.visitors.scope.SequencialASTIteratorVisitor;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+public class LazyFunctionBodiesTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(LazyFunctionBodiesTest.class);
+    }
+
+    private static final String CONTENTS = "" +
+            "import os\n" +
+            "def func(a, b=10):\n" +
+            "    '''Docstring for func'''\n" +
+            "    c = a + b\n" +
+            "    def inner():\n" +
+            "        return c\n" +
+            "    return inner\n" +
+            "\n" +
+            "class Foo(object):\n" +
+            "    attr = 10\n" +
+            "    def __init__(self):\n" +
+            "        self.x = 20 #comment\n" +
+            "    @property\n" +
+            "    def prop(self):\n" +
+            "        '''Only the docstring'''\n" +
+            "    class Inner:\n" +
+            "        def method(self, *args, **kwargs):\n" +
+            "            for a in args:\n" +
+            "                if a:\n" +
+            "                    return a\n" +
+            "if True:\n" +
+            "    def not_deferred():\n" +
+            "        pass\n" +
+            "";
+
+    private static Module parse(String contents, boolean deferFunctionBodies) {
+        PyParser.ParserInfo info = new PyParser.ParserInfo(new Document(contents),
+                IPythonNature.LATEST_GRAMMAR_VERSION);
+        info.deferFunctionBodies = deferFunctionBodies;
+        return (Module) PyParser.reparseDocument(info).ast;
+    }
+
+    private static String dump(SimpleNode ast) {
+        FastStringBuffer buf = new FastStringBuffer();
+        SequencialASTIteratorVisitor visitor = SequencialASTIteratorVisitor.create(ast);
+        Iterator<ASTEntry> it = visitor.getIterator();
+        while (it.hasNext()) {
+            SimpleNode node = it.next().node;
+            buf.append(node.getClass().getSimpleName()).append(':').append(node.beginLine).append(':')
+                    .append(node.beginColumn).append('\n');
+        }
+        return buf.toString();
+    }
+
+    public void testVisitorsSeeSameTree() throws Exception {
+        Module lazy = parse(CONTENTS, true);
+        Module full = parse(CONTENTS, false);
+
+        FunctionDef func = (FunctionDef) lazy.body[1];
+        assertEquals(2, func.body.length);
+        assertEquals("Docstring for func", NodeUtils.getNodeDocString(func));
+        LazyBody placeholder = (LazyBody) func.body[1];
+        assertFalse(placeholder.isRestored());
+        assertEquals(4, placeholder.beginLine);
+
+        //a function with only the docstring is kept as is
+        ClassDef foo = (ClassDef) lazy.body[2];
+        FunctionDef prop = (FunctionDef) foo.body[2];
+        assertEquals(1, prop.body.length);
+        assertEquals("Only the docstring", NodeUtils.getNodeDocString(prop));
+
+        //functions not in the module/class level are not deferred
+        FunctionDef notDeferred = (FunctionDef) ((If) lazy.body[3]).body[0];
+        assertFalse(notDeferred.body[0] instanceof LazyBody);
+
+        assertEquals(dump(full), dump(lazy));
+        assertTrue(placeholder.isRestored());
+        assertEquals(dump(full), dump(lazy));
+    }
+
+    public void testGetBody() throws Exception {
+        Module lazy = parse(CONTENTS, true);
+        Module full = parse(CONTENTS, false);
+
+        FunctionDef lazyFunc = (FunctionDef) lazy.body[1];
+        FunctionDef fullFunc = (FunctionDef) full.body[1];
+        stmtType[] body = LazyFunctionBodies.getBody(lazyFunc);
+        assertEquals(fullFunc.body.length, body.length);
+        for (int i = 0; i < body.length; i++) {
+            assertEquals(fullFunc.body[i].toString(), body[i].toString());
+        }
+        assertEquals(2, lazyFunc.body.length); //the function still has the placeholder
+
+        assertEquals(1, ReturnVisitor.findReturns(lazyFunc).size());
+
+        //all the bodies were restored in the same parse
+        ClassDef foo = (ClassDef) lazy.body[2];
+        FunctionDef init = (FunctionDef) foo.body[1];
+        assertTrue(((LazyBody) init.body[0]).isRestored());
+        assertEquals(((FunctionDef) ((ClassDef) full.body[2]).body[1]).body[0].toString(),
+                LazyFunctionBodies.getBody(init)[0].toString());
+    }
+
+    public void testCopy() throws Exception {
+        Module lazy = parse(CONTENTS, true);
+        Module full = parse(CONTENTS, false);
+        assertEquals(dump(full), dump(lazy.createCopy()));
+
+        FunctionDef copy = (FunctionDef) lazy.body[1].createCopy();
+        Return ret = ReturnVisitor.findReturns(copy).get(0);
+        assertNotSame(ReturnVisitor.findReturns((FunctionDef) lazy.body[1]).get(0), ret);
+    }
+
+    public void testNotDeferredOnError() throws Exception {
+        Module lazy = parse("def func():\n    a = 10\n    b = (\n", true);
+        if (lazy != null) {
+            for (stmtType stmt : lazy.body) {
+                if (stmt instanceof FunctionDef) {
+                    FunctionDef def = (FunctionDef) stmt;
+                    for (stmtType s : def.body) {
+                        assertFalse(s instanceof LazyBody);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser.profile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.TestDependent;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.testutils.Benchmark;
+
+/**
+ * Parses the files in the site-packages (as the indexing does) with and without reusing the line/column buffers of
+ * the char stream (run through main).
+ *
+ * See {@link Benchmark} for the system properties which control it (the results, including the bytes allocated, are
+ * reported as json lines).
+ */
+public class ParseAllocationBenchmark extends TestCase {
+
+    private static final int MAX_FILES = 3000;
+
+    public static void main(String[] args) {
+        benchmarkParseWhenIndexing();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        PyParser.REUSE_CHAR_STREAM_BUFFERS = true;
+        super.tearDown();
+    }
+
+    private static ParseOutput parse(String contents) {
+        return PyParser.reparseDocument(new PyParser.ParserInfo(new Document(contents),
+                IPythonNature.LATEST_GRAMMAR_VERSION));
+    }
+
+    public void testSameResultsWhenReusingBuffers() throws Exception {
+        String small = "class A(object):\n    def m(self):\n        return 1\n";
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            big.append("def f").append(i).append("(a, b):\r\n    '''doc'''\r\n    return a + b\r\n\r\n");
+        }
+        String[] contents = new String[] { big.toString(), small, "a = (\n", small, big.toString() };
+
+        List<String> expected = new ArrayList<String>();
+        PyParser.REUSE_CHAR_STREAM_BUFFERS = false;
+        for (String s : contents) {
+            expected.add(String.valueOf(parse(s).ast));
+        }
+
+        PyParser.REUSE_CHAR_STREAM_BUFFERS = true;
+        for (int i = 0; i < contents.length; i++) {
+            ParseOutput output = parse(contents[i]);
+            assertEquals(expected.get(i), String.valueOf(output.ast));
+        }
+    }
+
+    private static void collectFiles(File dir, List<String> contents) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (contents.size() >= MAX_FILES) {
+                return;
+            }
+            if (file.isDirectory()) {
+                collectFiles(file, contents);
+            } else if (file.getName().endsWith(".py")) {
+                contents.add(FileUtils.getFileContents(file));
+            }
+        }
+    }
+
+    private static void runParse(Benchmark benchmark, String name, String corpus, final List<String> contents,
+            final boolean reuseBuffers) {
+        benchmark.run(name, corpus, contents.size(), new ICallback0<Object>() {
+
+            @Override
+            public Object call() {
+                PyParser.REUSE_CHAR_STREAM_BUFFERS = reuseBuffers;
+                List<Object> asts = new ArrayList<Object>(contents.size());
+                for (String s : contents) {
+                    asts.add(parse(s).ast);
+                }
+                return asts;
+            }
+        });
+    }
+
+    public static void benchmarkParseWhenIndexing() {
+        if (TestDependent.PYTHON_SITE_PACKAGES == null) {
+            System.out.println("TestDependent.PYTHON_SITE_PACKAGES not configured: benchmark not run.");
+            return;
+        }
+        List<String> contents = new ArrayList<String>();
+        collectFiles(new File(TestDependent.PYTHON_SITE_PACKAGES), contents);
+        if (contents.size() == 0) {
+            System.out.println("No files found in: " + TestDependent.PYTHON_SITE_PACKAGES);
+            return;
+        }
+
+        Benchmark benchmark = new Benchmark("parseAllocation");
+        benchmark.addConfig("maxFiles", MAX_FILES);
+        String corpus = "site-packages";
+        try {
+            runParse(benchmark, "parse.withoutBufferReuse", corpus, contents, false);
+            runParse(benchmark, "parse.withBufferReuse", corpus, contents, true);
+        } finally {
+            PyParser.REUSE_CHAR_STREAM_BUFFERS = true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser.profile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.performanceeval.BenchmarkCorpora;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.testutils.Benchmark;
+
+/**
+ * Benchmarks the full parser and the fast definitions parser in the synthetic and stdlib corpora.
+ *
+ * See {@link Benchmark} for the system properties which control it (the results are reported as json lines).
+ */
+public class ParserBenchmark extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ParserBenchmark.class);
+    }
+
+    private static ParseOutput parse(String contents) {
+        return PyParser.reparseDocument(new PyParser.ParserInfo(new Document(contents),
+                IPythonNature.LATEST_GRAMMAR_VERSION));
+    }
+
+    public void testSyntheticCorpusIsValid() throws Exception {
+        Map<String, String> modules = BenchmarkCorpora.getSynthetic();
+        assertEquals(modules, BenchmarkCorpora.getSynthetic()); //always the same contents
+        for (Entry<String, String> entry : modules.entrySet()) {
+            ParseOutput output = parse(entry.getValue());
+            assertNull("Error parsing: " + entry.getKey() + ": " + output.error, output.error);
+        }
+    }
+
+    public void testParserBenchmark() throws Exception {
+        Benchmark benchmark = new Benchmark("parser");
+        BenchmarkCorpora.addConfig(benchmark);
+
+        for (Entry<String, Map<String, String>> corpus : BenchmarkCorpora.getCorpora().entrySet()) {
+            final List<String> contents = new ArrayList<String>(corpus.getValue().values());
+            final List<String> names = new ArrayList<String>(corpus.getValue().keySet());
+
+            benchmark.run("PyParser.reparseDocument", corpus.getKey(), contents.size(), new ICallback0<Object>() {
+
+                @Override
+                public Object call() {
+                    List<Object> asts = new ArrayList<Object>(contents.size());
+                    for (String s : contents) {
+                        asts.add(parse(s).ast);
+                    }
+                    return asts;
+                }
+            });
+
+            benchmark.run("FastDefinitionsParser.parse", corpus.getKey(), contents.size(), new ICallback0<Object>() {
+
+                @Override
+                public Object call() {
+                    List<Object> asts = new ArrayList<Object>(contents.size());
+                    for (int i = 0; i < contents.size(); i++) {
+                        asts.add(FastDefinitionsParser.parse(contents.get(i), names.get(i)));
+                    }
+                    return asts;
+                }
+            });
+        }
+        assertTrue(benchmark.getResults().size() >= 2);
+    }
+}
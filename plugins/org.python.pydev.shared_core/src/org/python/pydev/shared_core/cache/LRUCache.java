@@ -23,4 +23,11 @@ public final class LRUCache<Key, Val> extends CacheMapWrapper<Key, Val> implemen
         super(new LRUMap<Key, Val>(maxSize));
     }
 
+    /**
+     * @see LRUMap#removeEldest(double)
+     */
+    public int removeEldest(double fraction) {
+        return ((LRUMap<Key, Val>) cache).removeEldest(fraction);
+    }
+
 }
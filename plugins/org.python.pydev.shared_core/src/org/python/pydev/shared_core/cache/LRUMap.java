@@ -6,6 +6,7 @@
  */
 package org.python.pydev.shared_core.cache;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -32,4 +33,25 @@ public final class LRUMap<Key, Val> extends LinkedHashMap<Key, Val> {
         return size() > this.maxSize;
     }
 
+    /**
+     * Removes the given fraction of the entries (the eldest ones first).
+     *
+     * @param fraction a number from 0 to 1.
+     * @return the number of entries removed.
+     */
+    public int removeEldest(double fraction) {
+        int toRemove = (int) Math.ceil(size() * Math.min(1.0, fraction));
+        if (toRemove >= size()) {
+            toRemove = size();
+            clear();
+            return toRemove;
+        }
+        Iterator<Key> it = keySet().iterator();
+        for (int i = 0; i < toRemove; i++) {
+            it.next();
+            it.remove();
+        }
+        return toRemove;
+    }
+
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.out_of_memory;
+
+/**
+ * A cache which may have entries evicted when the memory is low (see: MemoryPressureManager).
+ */
+public interface IEvictableCache {
+
+    /**
+     * The entries are cheap to compute again (evicted first).
+     */
+    public static final int REBUILD_COST_LOW = 0;
+
+    public static final int REBUILD_COST_MEDIUM = 1;
+
+    /**
+     * The entries are expensive to compute again (i.e.: parsing modules). Evicted only under high memory pressure.
+     */
+    public static final int REBUILD_COST_HIGH = 2;
+
+    /**
+     * @return one of the REBUILD_COST_* constants.
+     */
+    int getRebuildCost();
+
+    /**
+     * Removes the given fraction of the entries in the cache (the ones used less recently should be removed first).
+     *
+     * @param fraction a number from 0 to 1 (1 means that all the entries should be removed).
+     * @return the number of entries removed.
+     */
+    int evict(double fraction);
+}
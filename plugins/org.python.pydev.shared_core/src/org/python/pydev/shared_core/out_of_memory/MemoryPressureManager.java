@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.out_of_memory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Watches the heap usage after garbage collections (through the MemoryPoolMXBean collection usage threshold) and
+ * evicts entries from the registered caches before the memory is really over, so that the caches don't have to be
+ * cleared all at once when an OutOfMemoryError is expected (see: OnExpectedOutOfMemory).
+ *
+ * The higher the memory pressure, the more is evicted: caches whose entries are cheap to rebuild lose their entries
+ * first and caches with entries which are expensive to rebuild only lose them under high pressure.
+ *
+ * Caches are kept with weak references (so, registering doesn't prevent them from being collected).
+ */
+public final class MemoryPressureManager {
+
+    public static final int PRESSURE_NONE = 0;
+    public static final int PRESSURE_LOW = 1;
+    public static final int PRESSURE_HIGH = 2;
+    public static final int PRESSURE_CRITICAL = 3;
+
+    /**
+     * The heap usage (after a garbage collection) for each pressure level.
+     */
+    private static final double LOW_PRESSURE_USAGE = 0.70;
+    private static final double HIGH_PRESSURE_USAGE = 0.85;
+    private static final double CRITICAL_PRESSURE_USAGE = 0.95;
+
+    /**
+     * The fraction of the entries evicted for each [pressure level][rebuild cost].
+     */
+    private static final double[][] EVICTION_FRACTIONS = new double[][] {
+            { 0, 0, 0 }, //none
+            { 0.5, 0.25, 0 }, //low
+            { 1, 0.5, 0.25 }, //high
+            { 1, 1, 1 }, //critical
+    };
+
+    /**
+     * If the pressure doesn't get higher, we don't evict more than once in this time.
+     */
+    private static final long MIN_MILLIS_BETWEEN_EVICTIONS = 2000;
+
+    private static final MemoryPressureManager instance = new MemoryPressureManager();
+
+    public static MemoryPressureManager getInstance() {
+        return instance;
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * Access synchronized with lock.
+     */
+    private final List<WeakReference<IEvictableCache>> caches = new ArrayList<WeakReference<IEvictableCache>>();
+
+    /**
+     * Access synchronized with lock.
+     */
+    private boolean listening;
+
+    /**
+     * Access synchronized with lock.
+     */
+    private int lastLevel = PRESSURE_NONE;
+
+    /**
+     * Access synchronized with lock.
+     */
+    private long lastEvictionTime;
+
+    private final AtomicInteger evictions = new AtomicInteger();
+    private final AtomicInteger entriesEvicted = new AtomicInteger();
+
+    /*default*/MemoryPressureManager() {
+    }
+
+    /**
+     * Registers a cache to have its entries evicted when the memory is low (the first registration starts
+     * watching the heap usage).
+     */
+    public void register(IEvictableCache cache) {
+        synchronized (lock) {
+            for (Iterator<WeakReference<IEvictableCache>> it = caches.iterator(); it.hasNext();) {
+                if (it.next().get() == null) {
+                    it.remove();
+                }
+            }
+            caches.add(new WeakReference<IEvictableCache>(cache));
+            if (!listening) {
+                listening = true;
+                try {
+                    startListening();
+                } catch (Throwable e) {
+                    Log.log(e);
+                }
+            }
+        }
+    }
+
+    public void unregister(IEvictableCache cache) {
+        synchronized (lock) {
+            for (Iterator<WeakReference<IEvictableCache>> it = caches.iterator(); it.hasNext();) {
+                IEvictableCache c = it.next().get();
+                if (c == null || c == cache) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the collection usage threshold in the heap pools which support it (unless someone else already set it) and
+     * starts listening for the notifications that the threshold was exceeded.
+     */
+    private void startListening() {
+        boolean thresholdSet = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            long max = pool.getUsage().getMax();
+            if (max <= 0) {
+                continue;
+            }
+            if (pool.getCollectionUsageThreshold() == 0) {
+                pool.setCollectionUsageThreshold((long) (max * LOW_PRESSURE_USAGE));
+            }
+            thresholdSet = true;
+        }
+        if (!thresholdSet) {
+            return;
+        }
+        NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener(new NotificationListener() {
+
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                    try {
+                        onMemoryPressure(getCurrentPressure());
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    }
+                }
+            }
+        }, null, null);
+    }
+
+    /**
+     * @return the pressure level given the usage of the heap pools after the last garbage collection.
+     */
+    private static int getCurrentPressure() {
+        double usage = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            long max = pool.getUsage().getMax();
+            if (collectionUsage != null && max > 0) {
+                usage = Math.max(usage, collectionUsage.getUsed() / (double) max);
+            }
+        }
+        return getPressure(usage);
+    }
+
+    /*default*/static int getPressure(double usage) {
+        if (usage >= CRITICAL_PRESSURE_USAGE) {
+            return PRESSURE_CRITICAL;
+        }
+        if (usage >= HIGH_PRESSURE_USAGE) {
+            return PRESSURE_HIGH;
+        }
+        if (usage >= LOW_PRESSURE_USAGE) {
+            return PRESSURE_LOW;
+        }
+        return PRESSURE_NONE;
+    }
+
+    /**
+     * Evicts the entries in the registered caches as needed for the given pressure (the same pressure level only
+     * evicts entries again after MIN_MILLIS_BETWEEN_EVICTIONS).
+     *
+     * @return the number of entries evicted.
+     */
+    public int onMemoryPressure(int level) {
+        List<IEvictableCache> currentCaches = new ArrayList<IEvictableCache>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            if (level == PRESSURE_NONE) {
+                lastLevel = level;
+                return 0;
+            }
+            if (level <= lastLevel && now - lastEvictionTime < MIN_MILLIS_BETWEEN_EVICTIONS) {
+                return 0;
+            }
+            lastLevel = level;
+            lastEvictionTime = now;
+
+            for (Iterator<WeakReference<IEvictableCache>> it = caches.iterator(); it.hasNext();) {
+                IEvictableCache c = it.next().get();
+                if (c == null) {
+                    it.remove();
+                } else {
+                    currentCaches.add(c);
+                }
+            }
+        }
+
+        //Caches cheaper to rebuild first.
+        int evicted = 0;
+        for (int cost = IEvictableCache.REBUILD_COST_LOW; cost <= IEvictableCache.REBUILD_COST_HIGH; cost++) {
+            double fraction = EVICTION_FRACTIONS[level][cost];
+            if (fraction <= 0) {
+                continue;
+            }
+            for (IEvictableCache cache : currentCaches) {
+                int rebuildCost = Math.max(IEvictableCache.REBUILD_COST_LOW,
+                        Math.min(IEvictableCache.REBUILD_COST_HIGH, cache.getRebuildCost()));
+                if (rebuildCost == cost) {
+                    try {
+                        evicted += cache.evict(fraction);
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    }
+                }
+            }
+        }
+        evictions.incrementAndGet();
+        entriesEvicted.addAndGet(evicted);
+        if (level >= PRESSURE_HIGH) {
+            Log.logInfo(StringUtils.format("High memory usage detected on JVM: %s cache entries evicted "
+                    + "(consider raising -Xmx setting on .ini)", evicted));
+        }
+        return evicted;
+    }
+
+    /**
+     * @return a string with the evictions done.
+     */
+    public String getStatistics() {
+        return StringUtils.format("Evictions: %s (entries evicted: %s)", evictions.get(), entriesEvicted.get());
+    }
+}
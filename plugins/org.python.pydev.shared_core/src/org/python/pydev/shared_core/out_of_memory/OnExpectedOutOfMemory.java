@@ -14,6 +14,7 @@ public class OnExpectedOutOfMemory {
             @Override
             public Object call(Object obj) {
                 Log.logWarning("Low memory detected on JVM: Clearing caches (consider raising -Xmx setting on .ini)");
+                MemoryPressureManager.getInstance().onMemoryPressure(MemoryPressureManager.PRESSURE_CRITICAL);
                 return null;
             }
         });
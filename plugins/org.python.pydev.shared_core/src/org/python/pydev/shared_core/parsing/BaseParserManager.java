@@ -159,6 +159,18 @@ public abstract class BaseParserManager {
         }
     }
 
+    /**
+     * Makes the parses of the given editor be done before the parses of the other editors.
+     */
+    public synchronized void notifyEditorActivated(IBaseEditor edit) {
+        synchronized (lock) {
+            IParser parser = getParser(edit);
+            if (parser instanceof BaseParser) {
+                ((BaseParser) parser).scheduler.setActive();
+            }
+        }
+    }
+
     public synchronized void notifyEditorDisposed(IBaseEditor edit) {
         synchronized (lock) {
             //remove the listener from the parser
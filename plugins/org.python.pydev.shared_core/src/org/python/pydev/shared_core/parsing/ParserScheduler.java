@@ -6,18 +6,17 @@
  */
 /*
  * Created on Sep 14, 2005
- * 
+ *
  * @author Fabio Zadrozny
  */
 package org.python.pydev.shared_core.parsing;
 
+/**
+ * Decides when the document of a parser should be reparsed (the parses are done in the threads of the ParsingQueue,
+ * which is shared by all the editors).
+ */
 public class ParserScheduler {
 
-    /**
-     * used to do parsings in a thread - is null when not doing parsings
-     */
-    public volatile ParsingThread parsingThread;
-
     /**
      * indicates that currently nothing is happening
      */
@@ -29,7 +28,7 @@ public class ParserScheduler {
     public static final int STATE_PARSE_LATER = 1;
 
     /**
-     * indicates if a thread is currently waiting for an elapse cycle to end
+     * indicates if a parse is waiting for an elapse cycle to end
      */
     public static final int STATE_WAITING_FOR_ELAPSE = 2;
 
@@ -39,28 +38,25 @@ public class ParserScheduler {
     public static final int STATE_DOING_PARSE = 3;
 
     /**
-     * initially we're waiting
+     * initially we're waiting (updated by the queue)
      */
     volatile int state = STATE_WAITING;
 
-    /**
-     * this is the exact time a parse later was requested
-     */
-    private volatile long timeParseLaterRequested = 0;
-
-    /**
-     * this is the exact time the last parse was requested
-     */
-    private volatile long timeLastParse = 0;
-
     private volatile IParser parser;
 
-    private BaseParserManager parserManager;
+    private final BaseParserManager parserManager;
+
+    private final ParsingQueue queue;
 
     public ParserScheduler(IParser parser, BaseParserManager parserManager) {
+        this(parser, parserManager, ParsingQueue.getDefault());
+    }
+
+    /*default*/ParserScheduler(IParser parser, BaseParserManager parserManager, ParsingQueue queue) {
         super();
         this.parser = parser;
         this.parserManager = parserManager;
+        this.queue = queue;
     }
 
     public void parseNow() {
@@ -69,91 +65,36 @@ public class ParserScheduler {
 
     /**
      * The arguments passed in argsToReparse will be passed to the reparseDocument, and then on to fireParserChanged / fireParserError
-     * 
+     *
      * @return false if we asked a forced reparse and it will not be scheduled because a reparse is already in action.
      */
     public boolean parseNow(boolean force, Object... argsToReparse) {
         if (!force) {
-            if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_DOING_PARSE) {
-                //waiting or parse later
-                state = STATE_WAITING_FOR_ELAPSE; // the parser will reset it later
-                timeLastParse = System.currentTimeMillis();
-                checkCreateAndStartParsingThread();
-            } else {
-                //another request... we keep waiting until the user stops adding requests
-                boolean created = checkCreateAndStartParsingThread();
-                if (!created) {
-                    parsingThread.okToGo = false;
-                }
-            }
-        } else {
-            ParsingThread parserThreadLocal = parsingThread; //if it dies suddenly, we don't want to get it as null...
-            if (state == ParserScheduler.STATE_DOING_PARSE) {
-                //a parse is already in action
-                return false;
-            } else {
-                if (parserThreadLocal == null) {
-                    parserThreadLocal = new ParsingThread(parserManager, this, argsToReparse);
-                    parsingThread = parserThreadLocal;
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
-                    parserThreadLocal.start();
-                } else {
-                    //force it to run
-                    if (argsToReparse.length > 0) {
-                        parserThreadLocal.updateArgsToReparse(argsToReparse);
-                    }
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.interrupt();
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * @return whether we really created the thread (returns false if the thread already exists)
-     */
-    private boolean checkCreateAndStartParsingThread() {
-        ParsingThread p = parsingThread;
-        if (p == null) {
-            p = new ParsingThread(parserManager, this);
-            p.setPriority(Thread.MIN_PRIORITY); //parsing is low priority
-            p.start();
-            parsingThread = p;
+            //we keep waiting until the user stops adding requests
+            queue.scheduleDebounced(this, parserManager.getElapseMillisBeforeAnalysis());
             return true;
         }
-        return false;
+        return queue.scheduleNow(this, argsToReparse);
     }
 
     public void parseLater() {
-        if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_PARSE_LATER) {
-            state = STATE_PARSE_LATER;
-            //ok, the time for this request is:
-            timeParseLaterRequested = System.currentTimeMillis();
-            Thread thread = new Thread() {
-                @Override
-                public void run() {
-                    try {
-                        sleep(parserManager.getElapseMillisBeforeAnalysis());
-                    } catch (Exception e) {
-                        //that's ok
-                    }
-                    //ok, no parse happened while we were sleeping
-                    if (state == STATE_PARSE_LATER && timeLastParse < timeParseLaterRequested) {
-                        parseNow();
-                    }
-                }
-            };
-            thread.setName("ParserScheduler");
-            thread.start();
-        }
+        //The parse happens when the user stops for the elapse time after that (unless some parse is requested in the
+        //meanwhile).
+        queue.scheduleLater(this, parserManager.getElapseMillisBeforeAnalysis() * 2L);
+    }
 
+    /**
+     * Makes the parses of this scheduler be done before the parses of the other editors.
+     */
+    public void setActive() {
+        if (parser != null) {
+            queue.setActive(this);
+        }
     }
 
     /**
      * this should call back to the parser itself for doing a parse
-     * 
+     *
      * The argsToReparse will be passed to the IParserObserver2
      */
     public void reparseDocument(Object... argsToReparse) {
@@ -164,11 +105,8 @@ public class ParserScheduler {
     }
 
     public void dispose() {
-        ParsingThread p = this.parsingThread;
-        if (p != null) {
-            p.dispose();
-        }
         this.parser = null;
+        queue.cancel(this);
     }
 
 }
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.parsing;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.python.pydev.shared_core.log.Log;
+
+/**
+ * Runs the parses requested by the ParserSchedulers of all the editors in a bounded number of threads (which are
+ * reused across the editors and finish after some time idle).
+ *
+ * There's at most one parse pending for each scheduler (a new request supersedes the pending one, which is how the
+ * parse requests are debounced) and the parse of a given scheduler is never done by more than one thread at the same
+ * time (a request made while its parse is running waits for it to finish).
+ *
+ * When more than one parse is due, the one from the active editor is done first, then the forced ones and then the
+ * ones which are due for a longer time (or were requested first).
+ */
+/*default*/final class ParsingQueue {
+
+    /**
+     * Time after which a thread without anything to parse finishes.
+     */
+    private static final long KEEP_ALIVE_MILLIS = 30 * 1000;
+
+    private static final class Request {
+
+        private long dueTime;
+        private final long sequence;
+        private boolean force;
+        private Object[] argsToReparse;
+
+        /**
+         * The state of the scheduler while this request is pending.
+         */
+        private int state;
+
+        private Request(long dueTime, long sequence, boolean force, Object[] argsToReparse, int state) {
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+            this.force = force;
+            this.argsToReparse = argsToReparse;
+            this.state = state;
+        }
+    }
+
+    private static ParsingQueue singleton;
+
+    /**
+     * @return the queue shared by all the editors.
+     */
+    /*default*/static synchronized ParsingQueue getDefault() {
+        if (singleton == null) {
+            //Parsing is cpu-bound, but we don't want the reparses to take over the machine (and the active editor
+            //is parsed first anyways).
+            int availableProcessors = Runtime.getRuntime().availableProcessors();
+            singleton = new ParsingQueue(Math.max(1, Math.min(4, availableProcessors / 2)));
+        }
+        return singleton;
+    }
+
+    private final int maxThreads;
+
+    /**
+     * Lock for all the fields below (the threads wait on it for new requests).
+     */
+    private final Object lock = new Object();
+    private final Map<ParserScheduler, Request> pending = new HashMap<ParserScheduler, Request>();
+    private final Set<ParserScheduler> parsing = new HashSet<ParserScheduler>();
+    private ParserScheduler active;
+    private int threads;
+    private int idleThreads;
+    private int createdThreads;
+    private long requests;
+
+    /*default*/ParsingQueue(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Expected at least 1 thread. Found: " + maxThreads);
+        }
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Requests a parse after the given delay (if a parse is already pending, its time is kept).
+     */
+    /*default*/void scheduleLater(ParserScheduler scheduler, long delayMillis) {
+        synchronized (lock) {
+            if (pending.get(scheduler) == null) {
+                long dueTime = System.currentTimeMillis() + delayMillis;
+                addPending(scheduler, new Request(dueTime, ++requests, false, new Object[0],
+                        ParserScheduler.STATE_PARSE_LATER));
+            }
+        }
+    }
+
+    /**
+     * Requests a parse after the given delay (postponing the parse already pending, unless it was forced).
+     */
+    /*default*/void scheduleDebounced(ParserScheduler scheduler, long delayMillis) {
+        synchronized (lock) {
+            Request request = pending.get(scheduler);
+            long dueTime = System.currentTimeMillis() + delayMillis;
+            if (request == null) {
+                addPending(scheduler, new Request(dueTime, ++requests, false, new Object[0],
+                        ParserScheduler.STATE_WAITING_FOR_ELAPSE));
+
+            } else if (!request.force) {
+                request.dueTime = dueTime;
+                request.state = ParserScheduler.STATE_WAITING_FOR_ELAPSE;
+                updateState(scheduler, request);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Requests a parse as soon as possible.
+     *
+     * @param argsToReparse if empty, the arguments of the parse already pending are kept.
+     * @return false if the scheduler is already parsing (in which case nothing is scheduled).
+     */
+    /*default*/boolean scheduleNow(ParserScheduler scheduler, Object[] argsToReparse) {
+        synchronized (lock) {
+            if (parsing.contains(scheduler)) {
+                return false;
+            }
+            Request request = pending.get(scheduler);
+            if (request == null) {
+                addPending(scheduler, new Request(System.currentTimeMillis(), ++requests, true, argsToReparse,
+                        ParserScheduler.STATE_WAITING_FOR_ELAPSE));
+            } else {
+                request.dueTime = System.currentTimeMillis();
+                request.force = true;
+                if (argsToReparse.length > 0) {
+                    request.argsToReparse = argsToReparse;
+                }
+                request.state = ParserScheduler.STATE_WAITING_FOR_ELAPSE;
+                updateState(scheduler, request);
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Makes the parses of the given scheduler be done before the others.
+     */
+    /*default*/void setActive(ParserScheduler scheduler) {
+        synchronized (lock) {
+            active = scheduler;
+        }
+    }
+
+    /**
+     * Removes the parse pending for the given scheduler (a parse already running is not stopped).
+     */
+    /*default*/void cancel(ParserScheduler scheduler) {
+        synchronized (lock) {
+            pending.remove(scheduler);
+            if (active == scheduler) {
+                active = null;
+            }
+            if (!parsing.contains(scheduler)) {
+                scheduler.state = ParserScheduler.STATE_WAITING;
+            }
+        }
+    }
+
+    /**
+     * @return the number of threads currently available to parse (for tests).
+     */
+    /*default*/int getThreads() {
+        synchronized (lock) {
+            return threads;
+        }
+    }
+
+    private void addPending(ParserScheduler scheduler, Request request) {
+        pending.put(scheduler, request);
+        updateState(scheduler, request);
+        if (idleThreads == 0 && threads < maxThreads) {
+            startThread();
+        } else {
+            lock.notifyAll();
+        }
+    }
+
+    private void updateState(ParserScheduler scheduler, Request request) {
+        if (!parsing.contains(scheduler)) { //otherwise it's updated when the parse finishes.
+            scheduler.state = request.state;
+        }
+    }
+
+    private void startThread() {
+        threads++;
+        idleThreads++;
+        createdThreads++;
+        Thread thread = new Thread("ParsingQueue-" + createdThreads) {
+            @Override
+            public void run() {
+                parseLoop();
+            }
+        };
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
+        thread.start();
+    }
+
+    private void parseLoop() {
+        while (true) {
+            ParserScheduler scheduler;
+            Request request;
+            synchronized (lock) {
+                long idleSince = System.currentTimeMillis();
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    long waitMillis = idleSince + KEEP_ALIVE_MILLIS - now;
+                    boolean waitingDueTime = false;
+                    scheduler = null;
+                    request = null;
+                    for (Entry<ParserScheduler, Request> entry : pending.entrySet()) {
+                        ParserScheduler s = entry.getKey();
+                        if (parsing.contains(s)) {
+                            continue; //the thread parsing it will get it afterwards.
+                        }
+                        Request r = entry.getValue();
+                        if (r.dueTime > now) {
+                            waitMillis = waitingDueTime ? Math.min(waitMillis, r.dueTime - now) : r.dueTime - now;
+                            waitingDueTime = true;
+                        } else if (request == null || isBefore(s, r, scheduler, request)) {
+                            scheduler = s;
+                            request = r;
+                        }
+                    }
+                    if (scheduler != null) {
+                        break;
+                    }
+                    if (waitMillis <= 0) {
+                        //Idle for too long (and nothing to wait for).
+                        threads--;
+                        idleThreads--;
+                        return;
+                    }
+                    try {
+                        lock.wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        //ignore
+                    }
+                }
+                pending.remove(scheduler);
+                parsing.add(scheduler);
+                scheduler.state = ParserScheduler.STATE_DOING_PARSE;
+                idleThreads--;
+                if (idleThreads == 0 && threads < maxThreads && pending.size() > 0) {
+                    startThread();
+                }
+            }
+
+            try {
+                scheduler.reparseDocument(request.argsToReparse);
+            } catch (Throwable e) {
+                Log.log(e);
+            } finally {
+                synchronized (lock) {
+                    parsing.remove(scheduler);
+                    Request next = pending.get(scheduler);
+                    scheduler.state = next != null ? next.state : ParserScheduler.STATE_WAITING;
+                    idleThreads++;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private boolean isBefore(ParserScheduler s1, Request r1, ParserScheduler s2, Request r2) {
+        if (s1 == active || s2 == active) {
+            return s1 == active;
+        }
+        if (r1.force != r2.force) {
+            return r1.force;
+        }
+        if (r1.dueTime != r2.dueTime) {
+            return r1.dueTime < r2.dueTime;
+        }
+        return r1.sequence < r2.sequence;
+    }
+}
@@ -10,7 +10,9 @@ import java.io.File;
 import java.io.FileFilter;
 import java.nio.file.Path;
 import java.nio.file.WatchKey;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -28,6 +30,9 @@ import org.python.pydev.shared_core.structure.OrderedMap;
  * a notification that the base path was removed and then added again is issued (listener clients must take care
  * of properly dealing with this notification, as no events of added/removed children will be issued in this case).
  *
+ * When many directories inside a watched directory change at once (i.e.: a git checkout), instead of checking each
+ * one for interesting changes, a single change in the watched directory is reported.
+ *
  * @author fabioz
  */
 public class EventsStackerRunnable implements Runnable {
@@ -41,6 +46,12 @@ public class EventsStackerRunnable implements Runnable {
      */
     public final static int LEVELS_TO_GET_MODIFIED_TIME = 2;
 
+    /**
+     * If more than this number of directories have to be checked for changes in a run, the directory being watched is
+     * reported as changed instead.
+     */
+    public final static int MAX_DIRS_TO_CHECK = 10;
+
     /**
      * May be null!
      */
@@ -153,6 +164,13 @@ public class EventsStackerRunnable implements Runnable {
      * or removals of a file were issued, only the last one will actually be seen by clients).
      */
     public void run() {
+        notifyChanges();
+    }
+
+    /**
+     * Same as run, but returns the number of files reported to the listeners.
+     */
+    /*default*/int notifyChanges() {
         while (!initializationFinished) {
             synchronized (lockInitialization) {
                 try {
@@ -174,38 +192,36 @@ public class EventsStackerRunnable implements Runnable {
 
         IFilesystemChangesListener[] listeners = list.getListeners();
         if (listeners.length == 0) {
-            return;
+            return 0;
         }
 
+        //The changes to be reported (in the order they should be reported).
+        Map<File, Integer> toNotify = new OrderedMap<File, Integer>();
         if (isDir) {
             dirExists = file.exists();
             if (!dirExists) {
                 //Special case if we were watching a directory and it no longer exists...
-                for (IFilesystemChangesListener iFilesystemChangesListener : listeners) {
-                    try {
-                        iFilesystemChangesListener.removed(file);
-                    } catch (Exception e) {
-                        Log.log(e);
-                    }
-                }
-
-                //Directory no longer exists: just bail out!
-                return;
+                //Directory no longer exists: just notify it and bail out!
+                toNotify.put(file, REMOVED);
+                return notifyListeners(listeners, toNotify);
             }
         }
 
         if (currentOverflow != null) {
-            for (IFilesystemChangesListener iFilesystemChangesListener : listeners) {
-                //Say that the dir was removed...
-                File watched = file;
-                iFilesystemChangesListener.removed(watched);
-                if (watched.exists()) {
-                    //And later added again (without notifying about inner contents!!)
-                    iFilesystemChangesListener.added(watched);
-                }
+            //Say that the dir was removed...
+            toNotify.put(file, REMOVED);
+            if (file.exists()) {
+                //And later added again (without notifying about inner contents!!)
+                return notifyListeners(listeners, toNotify, file);
             }
-            return;
+            return notifyListeners(listeners, toNotify);
         }
+
+        if (isDir && collapseIfTooManyDirs(currentFileToEvent)) {
+            toNotify.put(file, ADDED);
+            return notifyListeners(listeners, toNotify);
+        }
+
         Set<Entry<File, Integer>> entrySet = currentFileToEvent.entrySet();
         for (Entry<File, Integer> entry : entrySet) {
             Integer value = entry.getValue();
@@ -252,29 +268,97 @@ public class EventsStackerRunnable implements Runnable {
                     }
                 }
             }
+            toNotify.put(currKey, value);
+        }
+        return notifyListeners(listeners, toNotify);
+    }
 
-            switch (value) {
-                case ADDED:
-                    for (IFilesystemChangesListener iFilesystemChangesListener : listeners) {
-                        try {
-                            iFilesystemChangesListener.added(currKey);
-                        } catch (Exception e) {
-                            Log.log(e);
+    /**
+     * Checks if there are too many directories to be checked for changes. If there are, they're not checked (they'll
+     * be checked again if some other change is reported in them later on).
+     *
+     * @return true if the changes should be reported as a single change in the watched directory.
+     */
+    private boolean collapseIfTooManyDirs(Map<File, Integer> currentFileToEvent) {
+        if (currentFileToEvent.size() <= MAX_DIRS_TO_CHECK) {
+            return false;
+        }
+        List<File> dirs = new ArrayList<File>();
+        for (File f : currentFileToEvent.keySet()) {
+            if (internalDirToLastModifiedTime.containsKey(f) || f.isDirectory()) {
+                dirs.add(f);
+            }
+        }
+        if (dirs.size() <= MAX_DIRS_TO_CHECK) {
+            return false;
+        }
+        for (File f : dirs) {
+            internalDirToLastModifiedTime.remove(f);
+        }
+        return true;
+    }
+
+    private int notifyListeners(IFilesystemChangesListener[] listeners, Map<File, Integer> toNotify) {
+        return notifyListeners(listeners, toNotify, null);
+    }
+
+    /**
+     * @param addedAfter if not null, this file is reported as added after the other changes (used to report a
+     * directory as removed and then added again).
+     * @return the number of changes reported.
+     */
+    private int notifyListeners(IFilesystemChangesListener[] listeners, Map<File, Integer> toNotify,
+            File addedAfter) {
+        if (toNotify.size() == 0 && addedAfter == null) {
+            return 0;
+        }
+        List<File> added = null;
+        List<File> removed = null;
+
+        for (IFilesystemChangesListener iFilesystemChangesListener : listeners) {
+            try {
+                if (iFilesystemChangesListener instanceof IFilesystemChangesListener2) {
+                    if (added == null) {
+                        added = new ArrayList<File>();
+                        removed = new ArrayList<File>();
+                        for (Entry<File, Integer> entry : toNotify.entrySet()) {
+                            if (entry.getValue() == ADDED) {
+                                added.add(entry.getKey());
+                            } else {
+                                removed.add(entry.getKey());
+                            }
+                        }
+                        if (addedAfter != null) {
+                            added.add(addedAfter);
                         }
                     }
-                    break;
+                    ((IFilesystemChangesListener2) iFilesystemChangesListener).filesChanged(added, removed);
 
-                case REMOVED:
-                    for (IFilesystemChangesListener iFilesystemChangesListener : listeners) {
+                } else {
+                    for (Entry<File, Integer> entry : toNotify.entrySet()) {
                         try {
-                            iFilesystemChangesListener.removed(currKey);
+                            switch (entry.getValue()) {
+                                case ADDED:
+                                    iFilesystemChangesListener.added(entry.getKey());
+                                    break;
+
+                                case REMOVED:
+                                    iFilesystemChangesListener.removed(entry.getKey());
+                                    break;
+                            }
                         } catch (Exception e) {
                             Log.log(e);
                         }
                     }
-                    break;
+                    if (addedAfter != null) {
+                        iFilesystemChangesListener.added(addedAfter);
+                    }
+                }
+            } catch (Exception e) {
+                Log.log(e);
             }
         }
+        return toNotify.size() + (addedAfter != null ? 1 : 0);
     }
 
     /**
@@ -0,0 +1,26 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.path_watch;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Extension to receive all the changes found in a path at once (when a listener implements it, added/removed
+ * are not called for the files, only this method).
+ */
+public interface IFilesystemChangesListener2 extends IFilesystemChangesListener {
+
+    /**
+     * @param added the files added (or changed) -- see: IFilesystemChangesListener.added(File)
+     * @param removed the files removed -- see: IFilesystemChangesListener.removed(File)
+     *
+     * Note: a file is only in both lists when the watched directory is reported as removed and added again (on an
+     * overflow), in which case the removal must be considered first.
+     */
+    void filesChanged(List<File> added, List<File> removed);
+}
@@ -20,21 +20,28 @@ import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.Assert;
 import org.python.pydev.shared_core.callbacks.ListenerList;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.log.Log;
 import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
 
 /**
  * @author fabioz
  *
  * Service to watch filesystem changes at a given path. Works with the default watch service from JDK 1.7.
  *
- * Multiple events are stacked and reported as soon as it happens (from a non-main thread).
+ * Multiple events are stacked and reported (from a non-main thread) when no new events arrive for some millis, so that
+ * a burst of changes (i.e.: a git checkout) is reported at once for all the paths being watched.
  *
  * Note that if a directory being watched is removed, it should notify that the given path was removed
  * (and will remove all the listeners for the path afterwards).
@@ -86,6 +93,22 @@ public class PathWatch {
 
     private boolean registeredTracker;
 
+    /**
+     * After an event arrives, we wait this time for other events before reporting the changes.
+     */
+    private static final long COALESCE_QUIET_MILLIS = 50;
+
+    /**
+     * Max time to wait before reporting the changes (even if events are still arriving).
+     */
+    private static final long COALESCE_MAX_MILLIS = 500;
+
+    private final AtomicInteger eventsReceived = new AtomicInteger();
+    private final AtomicInteger batches = new AtomicInteger();
+    private final AtomicInteger changesReported = new AtomicInteger();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
     public PathWatch() {
         try {
             watchService = FileSystems.getDefault().newWatchService();
@@ -120,86 +143,125 @@ public class PathWatch {
                         // System.out.println("watch service closed, terminating.");
                         break;
                     }
+                    long initialTime = System.nanoTime();
 
-                    List<WatchEvent<?>> list;
-                    Path watchedPath;
-                    EventsStackerRunnable stacker;
-
-                    synchronized (lock) {
-                        watchedPath = keyToPath.get(signalledKey);
-                        if (watchedPath == null) {
-                            continue;
-                        }
-
-                        // get list of events from key
-                        list = signalledKey.pollEvents();
-
-                        stacker = pathToStacker.get(watchedPath);
-                        if (stacker == null) {
-                            //if the stacker does not exist, go on without rescheduling the key!
-                            if (log != null) {
-                                log.append("Stacker for: ").appendObject(watchedPath).append("is null\n");
-                            }
-                            continue;
-                        }
+                    //Stack the events of all the keys signalled until no new events arrive for some time.
+                    Set<EventsStackerRunnable> changed = new LinkedHashSet<EventsStackerRunnable>();
+                    while (signalledKey != null) {
+                        stackEvents(signalledKey, changed);
 
-                        // VERY IMPORTANT! call reset() AFTER pollEvents() to allow the
-                        // key to be reported again by the watch service.
-                        if (new File(watchedPath.toString()).exists()) {
-                            signalledKey.reset();
+                        long remaining = COALESCE_MAX_MILLIS - ((System.nanoTime() - initialTime) / 1000000);
+                        if (remaining <= 0) {
+                            break;
                         }
-
-                        for (WatchEvent<?> e : list) {
-                            Path context = (Path) e.context();
-                            Path resolve = watchedPath.resolve(context);
-                            File file = new File(resolve.toString());
-                            Kind<?> kind = e.kind();
-                            if (log != null) {
-                                log.append("Event: ").appendObject(e).append('\n');
-                            }
-
-                            if (kind == StandardWatchEventKinds.OVERFLOW) {
-                                if (!file.exists()) {
-                                    //It may be that it became invalid...
-                                    keyToPath.remove(signalledKey);
-                                    stacker.key = null;
-                                    stacker.removed(file);
-                                } else {
-                                }
-                                //On an overflow, wait a bit and signal that all files being watched were removed,
-                                //do a list and say that the current files were added again.
-                                stacker.overflow(file);
-
-                            } else {
-                                if (kind == StandardWatchEventKinds.ENTRY_CREATE
-                                        || kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-                                    stacker.added(file);
-
-                                } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-                                    stacker.removed(file);
-
-                                    //Only available on jpath watch
-                                    //} else if (kind == ExtendedWatchEventKind.KEY_INVALID) {
-                                    //    //Invalidated means it was removed... (so, no need to reschedule to listen again)
-                                    //    keyToPath.remove(signalledKey);
-                                    //    stacker.key = null;
-                                    //    stacker.removed(file);
-                                    //    pathToStacker.remove(watchedPath);
-                                }
-                            }
+                        try {
+                            signalledKey = watchService.poll(Math.min(remaining, COALESCE_QUIET_MILLIS),
+                                    TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException ix) {
+                            break;
+                        } catch (ClosedWatchServiceException cwse) {
+                            return;
                         }
+                    }
 
+                    //Notify without holding the lock (so, tracking isn't blocked by the listeners).
+                    int reported = 0;
+                    for (EventsStackerRunnable stacker : changed) {
                         try {
-                            stacker.run();
+                            reported += stacker.notifyChanges();
                         } catch (Exception e1) {
                             Log.log(e1);
                         }
                     }
+                    long latency = System.nanoTime() - initialTime;
+                    batches.incrementAndGet();
+                    changesReported.addAndGet(reported);
+                    totalLatencyNanos.addAndGet(latency);
+                    long max = maxLatencyNanos.get();
+                    while (latency > max && !maxLatencyNanos.compareAndSet(max, latency)) {
+                        max = maxLatencyNanos.get();
+                    }
                 } catch (Exception e) {
                     Log.log(e);
                 }
             }
         }
+
+        /**
+         * Stacks the events of the given key in the related stacker (which is added to the changed stackers).
+         */
+        private void stackEvents(WatchKey signalledKey, Set<EventsStackerRunnable> changed) {
+            List<WatchEvent<?>> list;
+            Path watchedPath;
+            EventsStackerRunnable stacker;
+
+            synchronized (lock) {
+                watchedPath = keyToPath.get(signalledKey);
+                if (watchedPath == null) {
+                    return;
+                }
+
+                // get list of events from key
+                list = signalledKey.pollEvents();
+
+                stacker = pathToStacker.get(watchedPath);
+                if (stacker == null) {
+                    //if the stacker does not exist, go on without rescheduling the key!
+                    if (log != null) {
+                        log.append("Stacker for: ").appendObject(watchedPath).append("is null\n");
+                    }
+                    return;
+                }
+
+                // VERY IMPORTANT! call reset() AFTER pollEvents() to allow the
+                // key to be reported again by the watch service.
+                if (new File(watchedPath.toString()).exists()) {
+                    signalledKey.reset();
+                }
+
+                eventsReceived.addAndGet(list.size());
+                for (WatchEvent<?> e : list) {
+                    Path context = (Path) e.context();
+                    Path resolve = watchedPath.resolve(context);
+                    File file = new File(resolve.toString());
+                    Kind<?> kind = e.kind();
+                    if (log != null) {
+                        log.append("Event: ").appendObject(e).append('\n');
+                    }
+
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        if (!file.exists()) {
+                            //It may be that it became invalid...
+                            keyToPath.remove(signalledKey);
+                            stacker.key = null;
+                            stacker.removed(file);
+                        } else {
+                        }
+                        //On an overflow, wait a bit and signal that all files being watched were removed,
+                        //do a list and say that the current files were added again.
+                        stacker.overflow(file);
+
+                    } else {
+                        if (kind == StandardWatchEventKinds.ENTRY_CREATE
+                                || kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                            stacker.added(file);
+
+                        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                            stacker.removed(file);
+
+                            //Only available on jpath watch
+                            //} else if (kind == ExtendedWatchEventKind.KEY_INVALID) {
+                            //    //Invalidated means it was removed... (so, no need to reschedule to listen again)
+                            //    keyToPath.remove(signalledKey);
+                            //    stacker.key = null;
+                            //    stacker.removed(file);
+                            //    pathToStacker.remove(watchedPath);
+                        }
+                    }
+                }
+                changed.add(stacker);
+            }
+        }
     }
 
     public void stopTrack(File path, IFilesystemChangesListener listener) {
@@ -313,6 +375,30 @@ public class PathWatch {
         }
     }
 
+    /**
+     * Resets the counters with the events received and changes reported.
+     */
+    public void resetCounters() {
+        eventsReceived.set(0);
+        batches.set(0);
+        changesReported.set(0);
+        totalLatencyNanos.set(0);
+        maxLatencyNanos.set(0);
+    }
+
+    /**
+     * @return a string with the counters since the last reset (the latency is the time from the first event of a
+     * batch until all its changes are reported to the listeners).
+     */
+    public String getStatistics() {
+        int batchesCount = batches.get();
+        long avgLatency = batchesCount > 0 ? totalLatencyNanos.get() / batchesCount : 0;
+        return StringUtils.format(
+                "Events received: %s changes reported: %s (in %s batches). Latency avg: %sms max: %sms",
+                eventsReceived.get(), changesReported.get(), batchesCount, avgLatency / 1000000,
+                maxLatencyNanos.get() / 1000000);
+    }
+
     public void setDirectoryFileFilter(FileFilter fileFilter, FileFilter dirsFilter) {
         if (registeredTracker) {
             throw new AssertionError("After registering a tracker, the file filter can no longer be changed.");
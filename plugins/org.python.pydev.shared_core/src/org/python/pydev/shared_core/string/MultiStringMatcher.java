@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.string;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Finds the occurrences of many strings in a text in a single pass (an Aho-Corasick automaton), so, the time to
+ * search doesn't grow with the number of strings searched.
+ *
+ * Instances are immutable after created (and may be shared among threads).
+ */
+public final class MultiStringMatcher {
+
+    /**
+     * An occurrence of one of the strings searched.
+     */
+    public static final class Match {
+
+        /**
+         * Offset where the match starts (inclusive).
+         */
+        public final int start;
+
+        /**
+         * Offset where the match ends (exclusive).
+         */
+        public final int end;
+
+        /**
+         * The index of the string matched in the strings passed to the matcher.
+         */
+        public final int patternIndex;
+
+        public Match(int start, int end, int patternIndex) {
+            this.start = start;
+            this.end = end;
+            this.patternIndex = patternIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "Match[" + start + ":" + end + " pattern: " + patternIndex + "]";
+        }
+    }
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final String[] patterns;
+
+    /**
+     * The chars which have a transition in each state (sorted).
+     */
+    private final char[][] transitionChars;
+
+    /**
+     * The state we go to for each char in transitionChars.
+     */
+    private final int[][] transitionStates;
+
+    /**
+     * The state to go to when there's no transition for a char.
+     */
+    private final int[] failure;
+
+    /**
+     * The indexes of the patterns which end at each state (sorted).
+     */
+    private final int[][] outputs;
+
+    /**
+     * @param patterns the strings to be searched (empty strings are ignored and if the same string appears more than
+     * once, only its first index is reported).
+     */
+    public MultiStringMatcher(List<String> patterns) {
+        this.patterns = patterns.toArray(new String[patterns.size()]);
+
+        //Build the trie
+        List<StringBuilder> chars = new ArrayList<StringBuilder>();
+        List<List<Integer>> states = new ArrayList<List<Integer>>();
+        List<LinkedHashSet<Integer>> outs = new ArrayList<LinkedHashSet<Integer>>();
+        chars.add(new StringBuilder());
+        states.add(new ArrayList<Integer>());
+        outs.add(new LinkedHashSet<Integer>());
+
+        for (int i = 0; i < this.patterns.length; i++) {
+            String pattern = this.patterns[i];
+            if (pattern == null || pattern.length() == 0) {
+                continue;
+            }
+            int state = 0;
+            for (int j = 0; j < pattern.length(); j++) {
+                char c = pattern.charAt(j);
+                int index = chars.get(state).indexOf(String.valueOf(c));
+                if (index == -1) {
+                    int newState = chars.size();
+                    chars.add(new StringBuilder());
+                    states.add(new ArrayList<Integer>());
+                    outs.add(new LinkedHashSet<Integer>());
+                    chars.get(state).append(c);
+                    states.get(state).add(newState);
+                    state = newState;
+                } else {
+                    state = states.get(state).get(index);
+                }
+            }
+            LinkedHashSet<Integer> out = outs.get(state);
+            if (out.size() == 0) {
+                out.add(i); //If the same string appears more than once, only the first is reported.
+            }
+        }
+
+        int size = chars.size();
+        transitionChars = new char[size][];
+        transitionStates = new int[size][];
+        for (int state = 0; state < size; state++) {
+            //Sort the transitions by char (for the binary search).
+            String c = chars.get(state).toString();
+            List<Integer> s = states.get(state);
+            char[] sortedChars = c.toCharArray();
+            Arrays.sort(sortedChars);
+            int[] sortedStates = new int[sortedChars.length];
+            for (int j = 0; j < sortedChars.length; j++) {
+                sortedStates[j] = s.get(c.indexOf(sortedChars[j]));
+            }
+            transitionChars[state] = sortedChars;
+            transitionStates[state] = sortedStates;
+        }
+
+        //Compute the failure of each state (breadth first, so, the failure of the parent is always available).
+        failure = new int[size];
+        int[] queue = new int[size];
+        int queueStart = 0;
+        int queueEnd = 0;
+        for (int child : transitionStates[0]) {
+            failure[child] = 0;
+            queue[queueEnd++] = child;
+        }
+        while (queueStart < queueEnd) {
+            int state = queue[queueStart++];
+            char[] stateChars = transitionChars[state];
+            int[] stateStates = transitionStates[state];
+            for (int j = 0; j < stateChars.length; j++) {
+                int child = stateStates[j];
+                int f = failure[state];
+                int next;
+                while ((next = getTransition(f, stateChars[j])) == -1 && f != 0) {
+                    f = failure[f];
+                }
+                failure[child] = next == -1 ? 0 : next;
+                //A state also outputs what its failure outputs.
+                outs.get(child).addAll(outs.get(failure[child]));
+                queue[queueEnd++] = child;
+            }
+        }
+
+        outputs = new int[size][];
+        for (int state = 0; state < size; state++) {
+            LinkedHashSet<Integer> out = outs.get(state);
+            if (out.size() == 0) {
+                outputs[state] = NO_OUTPUTS;
+            } else {
+                int[] o = new int[out.size()];
+                int j = 0;
+                for (Integer i : out) {
+                    o[j++] = i;
+                }
+                Arrays.sort(o);
+                outputs[state] = o;
+            }
+        }
+    }
+
+    private int getTransition(int state, char c) {
+        char[] stateChars = transitionChars[state];
+        int len = stateChars.length;
+        if (len == 0) {
+            return -1;
+        }
+        if (len == 1) {
+            return stateChars[0] == c ? transitionStates[state][0] : -1;
+        }
+        int i = Arrays.binarySearch(stateChars, c);
+        return i >= 0 ? transitionStates[state][i] : -1;
+    }
+
+    public String getPattern(int patternIndex) {
+        return patterns[patternIndex];
+    }
+
+    /**
+     * @return whether there's no string to be searched (so, nothing will ever be found).
+     */
+    public boolean isEmpty() {
+        return transitionChars[0].length == 0;
+    }
+
+    /**
+     * @return all the occurrences (including overlapping ones) of the strings in the given text, ordered by the
+     * end offset and then by the index of the string.
+     */
+    public List<Match> findAll(CharSequence text) {
+        return findAll(text, 0, text.length());
+    }
+
+    /**
+     * @param start the offset where the search should start (inclusive).
+     * @param end the offset where the search should end (exclusive).
+     * @return all the occurrences (including overlapping ones) of the strings in the given part of the text, ordered
+     * by the end offset and then by the index of the string.
+     */
+    public List<Match> findAll(CharSequence text, int start, int end) {
+        List<Match> ret = new ArrayList<Match>();
+        if (isEmpty()) {
+            return ret;
+        }
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = getTransition(state, c)) == -1 && state != 0) {
+                state = failure[state];
+            }
+            state = next == -1 ? 0 : next;
+
+            int[] out = outputs[state];
+            for (int j = 0; j < out.length; j++) {
+                int patternIndex = out[j];
+                ret.add(new Match(i + 1 - patterns[patternIndex].length(), i + 1, patternIndex));
+            }
+        }
+        return ret;
+    }
+}
@@ -1118,6 +1118,60 @@ public final class StringUtils {
         return j;
     }
 
+    /**
+     * Appends a json key/value pair (i.e.: "key":10) to the buffer.
+     */
+    public static FastStringBuffer appendJson(FastStringBuffer buf, String key, long value) {
+        return appendJsonString(buf, key).append(':').append(value);
+    }
+
+    /**
+     * Appends a json key/value pair (i.e.: "key":"value") to the buffer.
+     */
+    public static FastStringBuffer appendJson(FastStringBuffer buf, String key, String value) {
+        return appendJsonString(appendJsonString(buf, key).append(':'), value);
+    }
+
+    /**
+     * Appends the given string to the buffer as a json string (quoted and escaped).
+     */
+    public static FastStringBuffer appendJsonString(FastStringBuffer buf, String s) {
+        buf.append('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        String hex = Integer.toHexString(c);
+                        buf.append("\\u");
+                        for (int j = hex.length(); j < 4; j++) {
+                            buf.append('0');
+                        }
+                        buf.append(hex);
+                    } else {
+                        buf.append(c);
+                    }
+            }
+        }
+        return buf.append('"');
+    }
+
     /**
      * Given a string remove all from the rightmost '.' onwards.
      * 
@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Registry of the metrics collected in the hot paths of a running workspace (builder visitors, caches, parser, shell,
+ * tokens search, mark occurrences, minimap), so that slow builds and editors can be diagnosed on user machines without
+ * a profiler (they're shown in the index view and may be exported to a file).
+ *
+ * Metrics are created on the first access and live until the vm exits, so, the users should keep them in static
+ * fields. Updating a metric only does atomic operations (no locks or allocations).
+ */
+public final class Metrics {
+
+    private Metrics() {
+    }
+
+    public static abstract class Metric {
+
+        public final String name;
+
+        protected Metric(String name) {
+            this.name = name;
+        }
+
+        public abstract void reset();
+
+        /**
+         * @return a human-readable description of the current values.
+         */
+        public abstract String getSummary();
+
+        protected abstract void appendJsonValues(FastStringBuffer buf);
+
+        @Override
+        public String toString() {
+            return name + ": " + getSummary();
+        }
+    }
+
+    public static final class Counter extends Metric {
+
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name) {
+            super(name);
+        }
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public void reset() {
+            value.set(0);
+        }
+
+        @Override
+        public String getSummary() {
+            return Long.toString(value.get());
+        }
+
+        @Override
+        protected void appendJsonValues(FastStringBuffer buf) {
+            StringUtils.appendJson(buf, "type", "counter").append(',');
+            StringUtils.appendJson(buf, "value", value.get());
+        }
+    }
+
+    /**
+     * Hits and misses of a cache.
+     */
+    public static final class HitRate extends Metric {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        private HitRate(String name) {
+            super(name);
+        }
+
+        public void hit() {
+            hits.incrementAndGet();
+        }
+
+        public void miss() {
+            misses.incrementAndGet();
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * @return the fraction of the requests which were hits (0 if there were no requests).
+         */
+        public double getRate() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : (double) h / total;
+        }
+
+        @Override
+        public void reset() {
+            hits.set(0);
+            misses.set(0);
+        }
+
+        @Override
+        public String getSummary() {
+            return StringUtils.format("hits=%s misses=%s rate=%s%%", hits.get(), misses.get(),
+                    Math.round(getRate() * 1000) / 10.0);
+        }
+
+        @Override
+        protected void appendJsonValues(FastStringBuffer buf) {
+            StringUtils.appendJson(buf, "type", "hitRate").append(',');
+            StringUtils.appendJson(buf, "hits", hits.get()).append(',');
+            StringUtils.appendJson(buf, "misses", misses.get());
+        }
+    }
+
+    /**
+     * Distribution of non-negative values in power of 2 buckets (so, the percentiles are approximate: they're the
+     * upper bound of the bucket where the percentile is).
+     */
+    public static class Histogram extends Metric {
+
+        /**
+         * Bucket 0 holds the value 0 and bucket i holds the values in [2^(i-1), 2^i).
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String name) {
+            super(name);
+        }
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get())) {
+                if (max.compareAndSet(current, value)) {
+                    break;
+                }
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getMean() {
+            long c = count.get();
+            return c == 0 ? 0 : sum.get() / c;
+        }
+
+        /**
+         * @param percentile a value from 0 to 100.
+         * @return the upper bound of the values in the given percentile (never more than the max recorded).
+         */
+        public long getPercentile(double percentile) {
+            long c = count.get();
+            if (c == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(c * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    long upperBound = i == 0 ? 0 : (i == 64 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upperBound, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        @Override
+        public String getSummary() {
+            return StringUtils.format("count=%s mean=%s p50=%s p99=%s max=%s", getCount(), getMean(),
+                    getPercentile(50), getPercentile(99), getMax());
+        }
+
+        protected String getType() {
+            return "histogram";
+        }
+
+        @Override
+        protected void appendJsonValues(FastStringBuffer buf) {
+            StringUtils.appendJson(buf, "type", getType()).append(',');
+            StringUtils.appendJson(buf, "count", getCount()).append(',');
+            StringUtils.appendJson(buf, "sum", getSum()).append(',');
+            StringUtils.appendJson(buf, "mean", getMean()).append(',');
+            StringUtils.appendJson(buf, "p50", getPercentile(50)).append(',');
+            StringUtils.appendJson(buf, "p90", getPercentile(90)).append(',');
+            StringUtils.appendJson(buf, "p99", getPercentile(99)).append(',');
+            StringUtils.appendJson(buf, "max", getMax());
+        }
+    }
+
+    /**
+     * Histogram of durations (in nanos). Usage:
+     *
+     * long start = TIMER.start();
+     * try {
+     *     ...
+     * } finally {
+     *     TIMER.stop(start);
+     * }
+     */
+    public static final class Timer extends Histogram {
+
+        private Timer(String name) {
+            super(name);
+        }
+
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        @Override
+        public String getSummary() {
+            return StringUtils.format("count=%s total=%sms mean=%sms p50=%sms p99=%sms max=%sms", getCount(),
+                    toMillis(getSum()), toMillis(getMean()), toMillis(getPercentile(50)),
+                    toMillis(getPercentile(99)), toMillis(getMax()));
+        }
+
+        private static double toMillis(long nanos) {
+            return Math.round(nanos / 10000.0) / 100.0;
+        }
+
+        @Override
+        protected String getType() {
+            return "timer";
+        }
+    }
+
+    private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+    public static Counter counter(String name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = register(new Counter(name));
+        }
+        return (Counter) metric;
+    }
+
+    public static HitRate hitRate(String name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = register(new HitRate(name));
+        }
+        return (HitRate) metric;
+    }
+
+    public static Histogram histogram(String name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = register(new Histogram(name));
+        }
+        return (Histogram) metric;
+    }
+
+    public static Timer timer(String name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = register(new Timer(name));
+        }
+        return (Timer) metric;
+    }
+
+    private static Metric register(Metric metric) {
+        Metric existing = metrics.putIfAbsent(metric.name, metric);
+        return existing != null ? existing : metric;
+    }
+
+    /**
+     * @return the metrics registered (sorted by name).
+     */
+    public static List<Metric> getMetrics() {
+        List<Metric> ret = new ArrayList<Metric>(metrics.values());
+        Collections.sort(ret, new Comparator<Metric>() {
+
+            @Override
+            public int compare(Metric o1, Metric o2) {
+                return o1.name.compareTo(o2.name);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Resets the values of all the metrics (the metrics themselves are kept).
+     */
+    public static void reset() {
+        for (Metric metric : metrics.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * @return the metrics as lines with json objects (with the name, type and values of each metric).
+     */
+    public static String toJson() {
+        FastStringBuffer buf = new FastStringBuffer(metrics.size() * 150);
+        for (Metric metric : getMetrics()) {
+            buf.append('{');
+            StringUtils.appendJson(buf, "name", metric.name).append(',');
+            metric.appendJsonValues(buf);
+            buf.append("}\n");
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Writes the metrics (as returned by {@link #toJson()}) to the given file.
+     */
+    public static void export(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(toJson());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.out_of_memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.shared_core.cache.LRUMap;
+
+public class MemoryPressureManagerTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MemoryPressureManagerTest.class);
+    }
+
+    private static final class Cache implements IEvictableCache {
+
+        private final int rebuildCost;
+        private final LRUMap<Integer, String> map = new LRUMap<Integer, String>(100);
+        private final List<String> log;
+
+        private Cache(int rebuildCost, List<String> log) {
+            this.rebuildCost = rebuildCost;
+            this.log = log;
+            for (int i = 0; i < 8; i++) {
+                map.put(i, String.valueOf(i));
+            }
+        }
+
+        public int getRebuildCost() {
+            return rebuildCost;
+        }
+
+        public int evict(double fraction) {
+            log.add(rebuildCost + ":" + fraction);
+            return map.removeEldest(fraction);
+        }
+    }
+
+    public void testGradedEviction() throws Exception {
+        List<String> log = new ArrayList<String>();
+        MemoryPressureManager manager = new MemoryPressureManager();
+        Cache high = new Cache(IEvictableCache.REBUILD_COST_HIGH, log);
+        Cache low = new Cache(IEvictableCache.REBUILD_COST_LOW, log);
+        Cache medium = new Cache(IEvictableCache.REBUILD_COST_MEDIUM, log);
+        manager.register(high);
+        manager.register(low);
+        manager.register(medium);
+
+        assertEquals(0, manager.onMemoryPressure(MemoryPressureManager.PRESSURE_NONE));
+        assertEquals(0, log.size());
+
+        assertEquals(6, manager.onMemoryPressure(MemoryPressureManager.PRESSURE_LOW));
+        assertEquals("[0:0.5, 1:0.25]", log.toString());
+        assertEquals(4, low.map.size());
+        assertEquals(6, medium.map.size());
+        assertEquals(8, high.map.size());
+        assertFalse(low.map.containsKey(0)); //the eldest entries are evicted
+        assertTrue(low.map.containsKey(7));
+        log.clear();
+
+        //Same pressure right afterwards: nothing evicted.
+        assertEquals(0, manager.onMemoryPressure(MemoryPressureManager.PRESSURE_LOW));
+        assertEquals(0, log.size());
+
+        //Higher pressure: evicts right away.
+        assertEquals(9, manager.onMemoryPressure(MemoryPressureManager.PRESSURE_HIGH));
+        assertEquals("[0:1.0, 1:0.5, 2:0.25]", log.toString());
+        assertEquals(0, low.map.size());
+        assertEquals(3, medium.map.size());
+        assertEquals(6, high.map.size());
+        log.clear();
+
+        manager.unregister(medium);
+        assertEquals(6, manager.onMemoryPressure(MemoryPressureManager.PRESSURE_CRITICAL));
+        assertEquals("[0:1.0, 2:1.0]", log.toString());
+        assertEquals(0, high.map.size());
+        assertEquals(3, medium.map.size());
+    }
+
+    public void testPressure() throws Exception {
+        assertEquals(MemoryPressureManager.PRESSURE_NONE, MemoryPressureManager.getPressure(0.5));
+        assertEquals(MemoryPressureManager.PRESSURE_LOW, MemoryPressureManager.getPressure(0.7));
+        assertEquals(MemoryPressureManager.PRESSURE_HIGH, MemoryPressureManager.getPressure(0.9));
+        assertEquals(MemoryPressureManager.PRESSURE_CRITICAL, MemoryPressureManager.getPressure(0.99));
+    }
+}
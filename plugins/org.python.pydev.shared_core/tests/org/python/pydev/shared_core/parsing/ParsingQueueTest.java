@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.shared_core.editor.IBaseEditor;
+
+public class ParsingQueueTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ParsingQueueTest.class);
+    }
+
+    private static final class Manager extends BaseParserManager {
+
+        private Manager(int millisBeforeAnalysis) {
+            this.millisBeforeAnalysis = millisBeforeAnalysis;
+        }
+
+        @Override
+        protected IParser createParser(IBaseEditor edit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final List<String> log = new ArrayList<String>();
+    private final AtomicInteger parsing = new AtomicInteger();
+    private volatile int maxParsing;
+
+    private final class Parser implements IParser {
+
+        private final String name;
+        private volatile CountDownLatch block;
+
+        private Parser(String name) {
+            this.name = name;
+        }
+
+        public Object reparseDocument(Object... argsToReparse) {
+            int current = parsing.incrementAndGet();
+            maxParsing = Math.max(maxParsing, current);
+            try {
+                if (block != null) {
+                    block.await();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                parsing.decrementAndGet();
+            }
+            synchronized (log) {
+                log.add(name + Arrays.asList(argsToReparse));
+                log.notifyAll();
+            }
+            return null;
+        }
+
+        public void setDocument(IDocument document, Object input) {
+        }
+
+        public void notifySaved() {
+        }
+
+        public void removeParseListener(IParserObserver parserObserver) {
+        }
+
+        public void addParseListener(IParserObserver parserObserver) {
+        }
+
+        public void dispose() {
+        }
+
+        public void resetTimeoutPreferences(boolean useAnalysisOnlyOnDocSave) {
+        }
+
+        public boolean forceReparse(Object... argsToReparse) {
+            return true;
+        }
+    }
+
+    private void waitForParses(int expected) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        synchronized (log) {
+            while (log.size() < expected) {
+                long wait = timeout - System.currentTimeMillis();
+                if (wait <= 0) {
+                    fail("Expected " + expected + " parses. Found: " + log);
+                }
+                log.wait(wait);
+            }
+        }
+    }
+
+    private void waitForState(ParserScheduler scheduler, int state) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (scheduler.state != state) {
+            if (System.currentTimeMillis() > timeout) {
+                fail("State not reached: " + state + ". Found: " + scheduler.state);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    public void testDebounce() throws Exception {
+        ParsingQueue queue = new ParsingQueue(2);
+        ParserScheduler scheduler = new ParserScheduler(new Parser("p"), new Manager(200), queue);
+        long lastRequest = 0;
+        for (int i = 0; i < 5; i++) {
+            lastRequest = System.currentTimeMillis();
+            scheduler.parseNow();
+            assertEquals(ParserScheduler.STATE_WAITING_FOR_ELAPSE, scheduler.state);
+            Thread.sleep(50);
+        }
+        waitForParses(1);
+        assertTrue(System.currentTimeMillis() - lastRequest >= 200);
+        Thread.sleep(400);
+        assertEquals("[p[]]", log.toString());
+        assertEquals(ParserScheduler.STATE_WAITING, scheduler.state);
+    }
+
+    public void testActiveAndForcedParsedFirst() throws Exception {
+        ParsingQueue queue = new ParsingQueue(1);
+        Parser blocked = new Parser("blocked");
+        blocked.block = new CountDownLatch(1);
+        ParserScheduler blockedScheduler = new ParserScheduler(blocked, new Manager(0), queue);
+        assertTrue(blockedScheduler.parseNow(true));
+        waitForState(blockedScheduler, ParserScheduler.STATE_DOING_PARSE);
+
+        new ParserScheduler(new Parser("debounced"), new Manager(0), queue).parseNow();
+        new ParserScheduler(new Parser("forced1"), new Manager(0), queue).parseNow(true, 1);
+        new ParserScheduler(new Parser("forced2"), new Manager(0), queue).parseNow(true, 2);
+        ParserScheduler active = new ParserScheduler(new Parser("active"), new Manager(0), queue);
+        active.parseNow();
+        active.setActive();
+
+        blocked.block.countDown();
+        waitForParses(5);
+        assertEquals("[blocked[], active[], forced1[1], forced2[2], debounced[]]", log.toString());
+        assertEquals(1, queue.getThreads());
+    }
+
+    public void testSameDocumentNotParsedConcurrently() throws Exception {
+        ParsingQueue queue = new ParsingQueue(2);
+        Parser parser = new Parser("p");
+        CountDownLatch latch = new CountDownLatch(1);
+        parser.block = latch;
+        ParserScheduler scheduler = new ParserScheduler(parser, new Manager(0), queue);
+        assertTrue(scheduler.parseNow(true, "a"));
+        waitForState(scheduler, ParserScheduler.STATE_DOING_PARSE);
+
+        //a forced parse is not accepted while parsing, but the other requests are kept (superseding each other).
+        assertFalse(scheduler.parseNow(true, "b"));
+        scheduler.parseNow();
+        scheduler.parseLater();
+        scheduler.parseNow();
+        Thread.sleep(100);
+        assertEquals(1, maxParsing);
+        assertEquals(ParserScheduler.STATE_DOING_PARSE, scheduler.state);
+
+        parser.block = null;
+        latch.countDown();
+        waitForParses(2);
+        Thread.sleep(200);
+        assertEquals("[p[a], p[]]", log.toString());
+        assertEquals(1, maxParsing);
+    }
+
+    public void testDispose() throws Exception {
+        ParsingQueue queue = new ParsingQueue(2);
+        ParserScheduler scheduler = new ParserScheduler(new Parser("p"), new Manager(100), queue);
+        scheduler.parseNow();
+        scheduler.setActive();
+        scheduler.dispose();
+        assertEquals(ParserScheduler.STATE_WAITING, scheduler.state);
+        Thread.sleep(300);
+        assertEquals(0, log.size());
+    }
+
+    public void testThreadsBounded() throws Exception {
+        ParsingQueue queue = new ParsingQueue(2);
+        for (int i = 0; i < 20; i++) {
+            new ParserScheduler(new Parser("p" + i), new Manager(0), queue).parseNow(true);
+            assertTrue(queue.getThreads() <= 2);
+        }
+        waitForParses(20);
+        assertTrue(queue.getThreads() <= 2);
+        assertTrue(maxParsing <= 2);
+    }
+}
@@ -182,6 +182,75 @@ public class PathWatchTest extends TestCase {
         changes.clear();
     }
 
+    public void testEventsStackerBatchesAndCollapses() throws Exception {
+        baseDir.mkdir();
+        List<File> dirs = new ArrayList<File>();
+        for (int i = 0; i < EventsStackerRunnable.MAX_DIRS_TO_CHECK + 1; i++) {
+            File dir = new File(baseDir, "dir" + i);
+            dir.mkdir();
+            FileUtils.writeStrToFile("test", new File(dir, "t.py"));
+            dirs.add(dir);
+        }
+
+        final List<Tuple<List<File>, List<File>>> batches = new ArrayList<Tuple<List<File>, List<File>>>();
+        ListenerList<IFilesystemChangesListener> list = new ListenerList<IFilesystemChangesListener>(
+                IFilesystemChangesListener.class);
+        list.add(new IFilesystemChangesListener2() {
+
+            public void removed(File file) {
+                fail("Should receive only batches.");
+            }
+
+            public void added(File file) {
+                fail("Should receive only batches.");
+            }
+
+            public void filesChanged(List<File> added, List<File> removed) {
+                batches.add(new Tuple<List<File>, List<File>>(new ArrayList<File>(added), new ArrayList<File>(
+                        removed)));
+            }
+        });
+
+        EventsStackerRunnable stack = new EventsStackerRunnable(null, Paths.get(FileUtils.getFileAbsolutePath(baseDir)),
+                list, baseDir, pyFilesFilter, acceptAllFilter);
+
+        File f1 = new File(baseDir, "f1.py");
+        File f2 = new File(baseDir, "f2.py");
+        stack.added(f1);
+        stack.added(f1);
+        stack.removed(f2);
+        stack.added(new File(baseDir, "f3.txt")); //not accepted in the filter
+        assertEquals(2, stack.notifyChanges());
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(f1), batches.get(0).o1);
+        assertEquals(Arrays.asList(f2), batches.get(0).o2);
+        batches.clear();
+
+        //Many directories changed at once: reported as a single change in the watched directory.
+        for (File dir : dirs) {
+            stack.added(dir);
+        }
+        assertEquals(1, stack.notifyChanges());
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(baseDir), batches.get(0).o1);
+        assertEquals(0, batches.get(0).o2.size());
+        batches.clear();
+
+        //Few directories: each one is checked (and as the info on them was discarded in the collapse, they're
+        //reported again).
+        File dir0 = dirs.get(0);
+        stack.added(dir0);
+        stack.added(dirs.get(1));
+        stack.notifyChanges();
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(dir0, dirs.get(1)), batches.get(0).o1);
+        batches.clear();
+
+        stack.added(dir0);
+        assertEquals(0, stack.notifyChanges()); //nothing changed in it since the last check
+        assertEquals(0, batches.size());
+    }
+
     private FileFilter pyFilesFilter = new FileFilter() {
 
         @Override
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.string;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.shared_core.string.MultiStringMatcher.Match;
+
+public class MultiStringMatcherTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MultiStringMatcherTest.class);
+    }
+
+    private static String toStr(List<Match> matches) {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (Match match : matches) {
+            buf.append(match.start).append('-').append(match.end).append(':').append(match.patternIndex).append(' ');
+        }
+        return buf.toString().trim();
+    }
+
+    public void testMatches() throws Exception {
+        MultiStringMatcher matcher = new MultiStringMatcher(Arrays.asList("TODO", "FIXME", "XXX", "", "TODO"));
+        assertFalse(matcher.isEmpty());
+        assertEquals("", toStr(matcher.findAll("nothing here")));
+        assertEquals("2-6:0 11-16:1", toStr(matcher.findAll("# TODO and FIXME")));
+        assertEquals("0-4:0 4-8:0", toStr(matcher.findAll("TODOTODO")));
+        assertEquals("0-3:2 1-4:2", toStr(matcher.findAll("XXXX")));
+        assertEquals("4-8:0", toStr(matcher.findAll("TODOTODO", 1, 8)));
+        assertEquals("", toStr(matcher.findAll("TODOTODO", 1, 7)));
+    }
+
+    public void testOverlappingPatterns() throws Exception {
+        MultiStringMatcher matcher = new MultiStringMatcher(Arrays.asList("he", "she", "his", "hers"));
+        assertEquals("2-4:0 1-4:1 2-6:3", toStr(matcher.findAll("ushers")));
+        assertEquals("0-3:2", toStr(matcher.findAll("hishe", 0, 3)));
+        assertEquals("0-3:2 3-5:0 2-5:1", toStr(matcher.findAll("hishe")));
+    }
+
+    public void testEmpty() throws Exception {
+        MultiStringMatcher matcher = new MultiStringMatcher(new ArrayList<String>());
+        assertTrue(matcher.isEmpty());
+        assertEquals(0, matcher.findAll("TODO").size());
+
+        matcher = new MultiStringMatcher(Arrays.asList(""));
+        assertTrue(matcher.isEmpty());
+    }
+
+    public void testSameAsIndexOf() throws Exception {
+        List<String> patterns = Arrays.asList("TODO:", "TODO", "FIXME", "XXX", "HACK", "TO", "ODO", "\u00e7\u00e3o");
+        MultiStringMatcher matcher = new MultiStringMatcher(patterns);
+        String text = "#TODO: fix\n'''TODO FIXME XXX HACK a\u00e7\u00e3o TOD TODODO'''\n# HACKXXXTO";
+        List<Match> matches = matcher.findAll(text);
+
+        int found = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            int index = -1;
+            while ((index = text.indexOf(pattern, index + 1)) != -1) {
+                boolean inMatches = false;
+                for (Match match : matches) {
+                    if (match.patternIndex == i && match.start == index && match.end == index + pattern.length()) {
+                        inMatches = true;
+                    }
+                }
+                assertTrue("Did not find: " + pattern + " at: " + index, inMatches);
+                found++;
+            }
+        }
+        assertEquals(found, matches.size());
+    }
+}
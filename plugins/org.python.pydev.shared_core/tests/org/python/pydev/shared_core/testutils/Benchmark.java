@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.testutils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Runs the tasks of a benchmark suite (warming up and then measuring a fixed number of iterations) and reports each
+ * result as a line with a json object, so that the results of different commits can be compared by tools.
+ *
+ * Only plain java is used here (no workbench is needed), and the following system properties are available:
+ *
+ * pydev.benchmark.output: file where the results are appended (if not given, they're printed to stdout).
+ * pydev.benchmark.commit: identifies what's being measured (i.e.: the commit hash) in the results.
+ * pydev.benchmark.warmup: number of iterations run before measuring (default: 3).
+ * pydev.benchmark.iterations: number of iterations measured (default: 10).
+ */
+public class Benchmark {
+
+    public static final String OUTPUT_PROPERTY = "pydev.benchmark.output";
+    public static final String COMMIT_PROPERTY = "pydev.benchmark.commit";
+    public static final String WARMUP_PROPERTY = "pydev.benchmark.warmup";
+    public static final String ITERATIONS_PROPERTY = "pydev.benchmark.iterations";
+
+    /**
+     * The measures of a task.
+     */
+    public static final class Result {
+
+        public final String name;
+        public final String corpus;
+
+        /**
+         * The number of units (i.e.: files, requests) handled in each iteration.
+         */
+        public final int units;
+
+        /**
+         * The time of each iteration (sorted).
+         */
+        private final long[] nanos;
+
+        /**
+         * The bytes allocated in each iteration (on average) or -1 if the vm can't measure it.
+         */
+        public final long allocatedBytes;
+
+        private Result(String name, String corpus, int units, long[] nanos, long allocatedBytes) {
+            this.name = name;
+            this.corpus = corpus;
+            this.units = units;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public long getMinNanos() {
+            return nanos[0];
+        }
+
+        public long getMaxNanos() {
+            return nanos[nanos.length - 1];
+        }
+
+        public long getMedianNanos() {
+            int len = nanos.length;
+            if (len % 2 == 1) {
+                return nanos[len / 2];
+            }
+            return (nanos[len / 2 - 1] + nanos[len / 2]) / 2;
+        }
+
+        public long getMeanNanos() {
+            long total = 0;
+            for (long n : nanos) {
+                total += n;
+            }
+            return total / nanos.length;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + corpus + ", " + units + " units): median: " + getMedianNanos() / 1000000 + "ms";
+        }
+    }
+
+    private final String suite;
+    private final int warmup;
+    private final int iterations;
+    private final Map<String, String> config = new TreeMap<String, String>();
+    private final List<Result> results = new ArrayList<Result>();
+
+    /**
+     * Keeps the last value returned by a task reachable, so that the jit can't discard the work done.
+     */
+    private volatile Object sink;
+
+    public Benchmark(String suite) {
+        this(suite, Integer.getInteger(WARMUP_PROPERTY, 3), Integer.getInteger(ITERATIONS_PROPERTY, 10));
+    }
+
+    public Benchmark(String suite, int warmup, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Expected at least 1 iteration. Found: " + iterations);
+        }
+        this.suite = suite;
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Adds a setting which affects the results (reported along with each result).
+     */
+    public void addConfig(String key, Object value) {
+        config.put(key, String.valueOf(value));
+    }
+
+    public List<Result> getResults() {
+        return new ArrayList<Result>(results);
+    }
+
+    /**
+     * Runs the given task (which should return what it computed) and reports its result.
+     *
+     * @param units the number of units (i.e.: files, requests) handled in each call to the task.
+     */
+    public Result run(String name, String corpus, int units, ICallback0<Object> task) {
+        for (int i = 0; i < warmup; i++) {
+            sink = task.call();
+        }
+        System.gc();
+
+        long[] nanos = new long[iterations];
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long initialBytes = getAllocatedBytes();
+            long initialTime = System.nanoTime();
+            sink = task.call();
+            nanos[i] = System.nanoTime() - initialTime;
+            if (initialBytes >= 0) {
+                totalBytes += getAllocatedBytes() - initialBytes;
+            }
+        }
+        sink = null;
+        Arrays.sort(nanos);
+
+        Result result = new Result(name, corpus, units, nanos, getAllocatedBytes() >= 0 ? totalBytes / iterations
+                : -1);
+        results.add(result);
+        report(toJson(result));
+        return result;
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /*default*/String toJson(Result result) {
+        FastStringBuffer buf = new FastStringBuffer(256);
+        buf.append('{');
+        StringUtils.appendJson(buf, "suite", suite).append(',');
+        StringUtils.appendJson(buf, "name", result.name).append(',');
+        StringUtils.appendJson(buf, "corpus", result.corpus).append(',');
+        StringUtils.appendJson(buf, "commit", System.getProperty(COMMIT_PROPERTY, "")).append(',');
+        StringUtils.appendJson(buf, "java", System.getProperty("java.version", "")).append(',');
+        StringUtils.appendJson(buf, "units", result.units).append(',');
+        StringUtils.appendJson(buf, "warmup", warmup).append(',');
+        StringUtils.appendJson(buf, "iterations", iterations).append(',');
+        StringUtils.appendJson(buf, "minNanos", result.getMinNanos()).append(',');
+        StringUtils.appendJson(buf, "medianNanos", result.getMedianNanos()).append(',');
+        StringUtils.appendJson(buf, "meanNanos", result.getMeanNanos()).append(',');
+        StringUtils.appendJson(buf, "maxNanos", result.getMaxNanos()).append(',');
+        StringUtils.appendJson(buf, "allocatedBytes", result.allocatedBytes).append(',');
+        StringUtils.appendJsonString(buf, "config").append(":{");
+        boolean first = true;
+        for (Entry<String, String> entry : config.entrySet()) {
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            StringUtils.appendJson(buf, entry.getKey(), entry.getValue());
+        }
+        buf.append("}}");
+        return buf.toString();
+    }
+
+    private static void report(String line) {
+        String output = System.getProperty(OUTPUT_PROPERTY);
+        if (output == null || output.length() == 0) {
+            System.out.println(line);
+            return;
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(output), true), "UTF-8")) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.testutils;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Generates python modules with imports, classes, methods, docstrings, comments and the usual statements found in
+ * real code. The same parameters always generate the same contents (so, it can be used to compare benchmarks).
+ *
+ * Each module imports some of the modules created before it (so that code-completion and code-analysis have to
+ * resolve tokens in other modules).
+ */
+public class SyntheticPythonCorpus {
+
+    private static final String[] VERBS = new String[] { "get", "set", "compute", "load", "save", "parse", "find",
+            "create", "update", "check", "read", "write", "process", "handle", "build" };
+
+    private static final String[] NOUNS = new String[] { "value", "item", "data", "node", "file", "name", "path",
+            "token", "result", "config", "entry", "buffer" };
+
+    public static final String MODULE_PREFIX = "synthetic_mod";
+
+    private final long seed;
+    private final int modules;
+    private final int classesPerModule;
+    private final int methodsPerClass;
+    private final int functionsPerModule;
+
+    public SyntheticPythonCorpus(long seed, int modules, int classesPerModule, int methodsPerClass,
+            int functionsPerModule) {
+        this.seed = seed;
+        this.modules = modules;
+        this.classesPerModule = classesPerModule;
+        this.methodsPerClass = methodsPerClass;
+        this.functionsPerModule = functionsPerModule;
+    }
+
+    public static String getModuleName(int i) {
+        return MODULE_PREFIX + i;
+    }
+
+    public static String getClassName(int module, int i) {
+        return "Class" + module + "_" + i;
+    }
+
+    /**
+     * @return module name -> module contents (in the order they were created).
+     */
+    public Map<String, String> createModules() {
+        Random random = new Random(seed);
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        for (int i = 0; i < modules; i++) {
+            ret.put(getModuleName(i), createModule(random, i));
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the modules as .py files in the given directory.
+     */
+    public void writeModules(File dir) {
+        dir.mkdirs();
+        for (Entry<String, String> entry : createModules().entrySet()) {
+            FileUtils.writeStrToFile(entry.getValue(), new File(dir, entry.getKey() + ".py"));
+        }
+    }
+
+    private String createIdentifier(Random random) {
+        return VERBS[random.nextInt(VERBS.length)] + "_" + NOUNS[random.nextInt(NOUNS.length)];
+    }
+
+    private String createModule(Random random, int moduleIndex) {
+        FastStringBuffer buf = new FastStringBuffer(4096);
+        buf.append("'''\nSynthetic module ").append(moduleIndex).append(" (generated for benchmarks).\n'''\n");
+        buf.append("import os\nimport sys\n");
+        Set<Integer> imported = new TreeSet<Integer>();
+        for (int i = 1; i <= 3 && moduleIndex - i >= 0; i++) {
+            imported.add(random.nextInt(moduleIndex));
+        }
+        for (int i : imported) {
+            buf.append("from ").append(getModuleName(i)).append(" import ").append(getClassName(i, 0)).append('\n');
+        }
+        buf.append('\n');
+        buf.append("CONSTANT_").append(moduleIndex).append(" = ").append(random.nextInt(1000)).append('\n');
+        buf.append("NAMES_").append(moduleIndex).append(" = ['a', 'b', \"c\"]\n\n");
+
+        for (int i = 0; i < functionsPerModule; i++) {
+            String name = createIdentifier(random) + "_" + i;
+            buf.append("def ").append(name).append("(param, other=None, *args, **kwargs):\n");
+            buf.append("    '''Docstring for ").append(name).append(".'''\n");
+            appendBody(random, buf, "    ", "param");
+            buf.append('\n');
+        }
+
+        for (int i = 0; i < classesPerModule; i++) {
+            String className = getClassName(moduleIndex, i);
+            buf.append("class ").append(className).append("(object):\n");
+            buf.append("    '''Docstring for ").append(className).append(".'''\n\n");
+            buf.append("    attr_").append(i).append(" = ").append(i).append("\n\n");
+            buf.append("    def __init__(self, value=None):\n");
+            buf.append("        self.value = value\n");
+            buf.append("        self.items = []\n\n");
+            for (int j = 0; j < methodsPerClass; j++) {
+                String name = createIdentifier(random) + "_" + j;
+                if (random.nextInt(5) == 0) {
+                    buf.append("    @property\n");
+                    buf.append("    def ").append(name).append("(self):\n");
+                    buf.append("        return self.value # TODO: check the value\n\n");
+                    continue;
+                }
+                buf.append("    def ").append(name).append("(self, param, key='default'):\n");
+                buf.append("        '''\n        Docstring for ").append(name).append(".\n\n");
+                buf.append("        @param param: the param.\n        '''\n");
+                appendBody(random, buf, "        ", "param");
+                buf.append('\n');
+            }
+            buf.append('\n');
+        }
+
+        buf.append("if __name__ == '__main__':\n");
+        buf.append("    print(").append(getClassName(moduleIndex, 0)).append("().value)\n");
+        return buf.toString();
+    }
+
+    private void appendBody(Random random, FastStringBuffer buf, String indent, String param) {
+        int statements = 2 + random.nextInt(6);
+        String last = param;
+        for (int i = 0; i < statements; i++) {
+            String local = NOUNS[random.nextInt(NOUNS.length)] + i;
+            switch (random.nextInt(6)) {
+                case 0:
+                    buf.append(indent).append(local).append(" = [x * 2 for x in range(").append(random.nextInt(50))
+                            .append(") if x % 3]\n");
+                    break;
+                case 1:
+                    buf.append(indent).append("for ").append(local).append(" in os.listdir('.'):\n");
+                    buf.append(indent).append("    if ").append(local).append(".endswith('.py'):\n");
+                    buf.append(indent).append("        sys.stdout.write(").append(local).append(")\n");
+                    buf.append(indent).append("        break\n");
+                    break;
+                case 2:
+                    buf.append(indent).append("try:\n");
+                    buf.append(indent).append("    ").append(local).append(" = {'key': ").append(last)
+                            .append(", 'other': None}\n");
+                    buf.append(indent).append("except (KeyError, ValueError) as e:\n");
+                    buf.append(indent).append("    raise RuntimeError(str(e))\n");
+                    break;
+                case 3:
+                    buf.append(indent).append("# Comment: ").append(createIdentifier(random)).append('\n');
+                    buf.append(indent).append(local).append(" = ").append(last).append(" + ")
+                            .append(random.nextInt(100)).append('\n');
+                    break;
+                case 4:
+                    buf.append(indent).append("with open(os.path.join('dir', 'f.txt')) as ").append(local)
+                            .append(":\n");
+                    buf.append(indent).append("    ").append(local).append(".read()\n");
+                    break;
+                default:
+                    buf.append(indent).append(local).append(" = lambda a, b=").append(random.nextInt(10))
+                            .append(": (a, b, ").append(last).append(")\n");
+                    break;
+            }
+            last = local;
+        }
+        buf.append(indent).append("return ").append(last).append('\n');
+    }
+}
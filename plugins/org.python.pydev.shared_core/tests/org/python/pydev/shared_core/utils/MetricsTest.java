@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.utils;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.shared_core.utils.Metrics.Counter;
+import org.python.pydev.shared_core.utils.Metrics.Histogram;
+import org.python.pydev.shared_core.utils.Metrics.HitRate;
+import org.python.pydev.shared_core.utils.Metrics.Metric;
+import org.python.pydev.shared_core.utils.Metrics.Timer;
+
+public class MetricsTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MetricsTest.class);
+    }
+
+    public void testCounterAndHitRate() throws Exception {
+        Counter counter = Metrics.counter("MetricsTest.counter");
+        assertSame(counter, Metrics.counter("MetricsTest.counter"));
+        counter.reset();
+        counter.inc();
+        counter.add(4);
+        assertEquals(5, counter.get());
+
+        HitRate hitRate = Metrics.hitRate("MetricsTest.hitRate");
+        hitRate.reset();
+        assertEquals(0.0, hitRate.getRate());
+        hitRate.hit();
+        hitRate.hit();
+        hitRate.hit();
+        hitRate.miss();
+        assertEquals(0.75, hitRate.getRate());
+        assertEquals("hits=3 misses=1 rate=75.0%", hitRate.getSummary());
+    }
+
+    public void testHistogram() throws Exception {
+        Histogram histogram = Metrics.histogram("MetricsTest.histogram");
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(50, histogram.getMean());
+        assertEquals(100, histogram.getMax());
+        //50 is in the bucket [32, 64) and 99 in the bucket [64, 128) (which is bounded by the max).
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        assertEquals(1, histogram.getPercentile(0));
+
+        histogram.reset();
+        histogram.record(0);
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    public void testTimerAndExport() throws Exception {
+        Timer timer = Metrics.timer("MetricsTest.timer");
+        timer.reset();
+        long start = timer.start();
+        timer.stop(start);
+        assertEquals(1, timer.getCount());
+
+        Metrics.counter("MetricsTest.counter").reset();
+        Metrics.reset();
+        assertEquals(0, timer.getCount());
+
+        List<Metric> metrics = Metrics.getMetrics();
+        for (int i = 1; i < metrics.size(); i++) {
+            assertTrue(metrics.get(i - 1).name.compareTo(metrics.get(i).name) < 0);
+        }
+
+        String json = Metrics.toJson();
+        assertTrue(json, json.contains("{\"name\":\"MetricsTest.counter\",\"type\":\"counter\",\"value\":0}\n"));
+        assertTrue(json, json.contains("{\"name\":\"MetricsTest.timer\",\"type\":\"timer\",\"count\":0,"));
+    }
+}
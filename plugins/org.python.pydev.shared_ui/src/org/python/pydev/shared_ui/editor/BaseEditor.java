@@ -187,6 +187,17 @@ public abstract class BaseEditor extends TextEditor implements IBaseEditor {
         super.doSetInput(input);
     }
 
+    @Override
+    public void setFocus() {
+        super.setFocus();
+        try {
+            //the active editor is parsed before the others.
+            getParserManager().notifyEditorActivated(this);
+        } catch (Throwable e) {
+            Log.log(e);
+        }
+    }
+
     @Override
     protected void performSave(boolean overwrite, IProgressMonitor progressMonitor) {
         super.performSave(overwrite, progressMonitor);
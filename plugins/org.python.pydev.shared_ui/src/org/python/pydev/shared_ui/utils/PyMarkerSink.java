@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_ui.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
+
+/**
+ * Collects marker replacements for many resources and applies them in a single workspace operation (so that
+ * a build generates a few resource deltas instead of one for each resource).
+ *
+ * When applied, the new markers are compared with the existing ones and only the markers that actually changed
+ * are removed/created.
+ *
+ * All the changes are applied in a single job (so, replacements requested for the same resource are always
+ * applied in the order they were requested -- and a pending replacement is overridden by a newer one).
+ *
+ * The markers of the resource being edited should be applied with replaceMarkersNow (so that they don't wait for
+ * the markers of other resources).
+ *
+ * @author Fabio
+ */
+public class PyMarkerSink {
+
+    /**
+     * Time to wait for other requests before applying the markers.
+     */
+    private static final long FLUSH_DELAY_MILLIS = 100;
+
+    /**
+     * If we have more than this number of resources pending, the markers are applied right away.
+     */
+    private static final int MAX_PENDING_RESOURCES = 200;
+
+    private static final PyMarkerSink instance = new PyMarkerSink();
+
+    public static PyMarkerSink getInstance() {
+        return instance;
+    }
+
+    /**
+     * Key for the pending replacements.
+     */
+    private static final class ResourceAndType {
+
+        private final IResource resource;
+        private final String markerType;
+
+        private ResourceAndType(IResource resource, String markerType) {
+            this.resource = resource;
+            this.markerType = markerType;
+        }
+
+        @Override
+        public int hashCode() {
+            return resource.hashCode() * 31 + markerType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResourceAndType)) {
+                return false;
+            }
+            ResourceAndType other = (ResourceAndType) obj;
+            return resource.equals(other.resource) && markerType.equals(other.markerType);
+        }
+    }
+
+    /**
+     * A replacement to be applied.
+     */
+    private static final class PendingReplace {
+
+        private final List<Map<String, Object>> markers;
+        private final boolean removeUserEditable;
+
+        private PendingReplace(List<Map<String, Object>> markers, boolean removeUserEditable) {
+            this.markers = markers;
+            this.removeUserEditable = removeUserEditable;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * Held while markers are applied (so that a replacement applied right away is never overridden by an older one
+     * which was already being applied by the flush job).
+     */
+    private final Object applyLock = new Object();
+
+    /**
+     * Access synchronized with lock.
+     */
+    private LinkedHashMap<ResourceAndType, PendingReplace> pending =
+            new LinkedHashMap<ResourceAndType, PendingReplace>();
+
+    private final AtomicInteger markersCreated = new AtomicInteger();
+    private final AtomicInteger markersDeleted = new AtomicInteger();
+    private final AtomicInteger markersKept = new AtomicInteger();
+    private final AtomicInteger resourcesUpdated = new AtomicInteger();
+    private final AtomicInteger workspaceOperations = new AtomicInteger();
+
+    private final Job flushJob;
+
+    /*default*/PyMarkerSink() {
+        flushJob = new Job("Updating markers") {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                flush(monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        flushJob.setSystem(true);
+    }
+
+    /**
+     * Replaces the existing markers of some type in a given resource for other markers (note that the positions of
+     * the markers are computed right away, but they're only applied later on).
+     *
+     * @param lst the new markers to be set in the resource
+     * @param resource the resource were the markers should be replaced
+     * @param markerType the type of the marker that'll be replaced
+     * @param removeUserEditable if true, will remove the user-editable markers too (otherwise, will leave the user-editable markers)
+     * @param applyNow if true, the markers are applied as soon as possible (otherwise, we'll wait a bit to
+     * gather more resources to be applied at once).
+     */
+    public void replaceMarkers(List<MarkerInfo> lst, IResource resource, String markerType,
+            boolean removeUserEditable, boolean applyNow) {
+        if (resource == null) {
+            return;
+        }
+        List<Map<String, Object>> lMap = PyMarkerUtils.getAsMaps(lst);
+
+        int size;
+        synchronized (lock) {
+            pending.put(new ResourceAndType(resource, markerType), new PendingReplace(lMap, removeUserEditable));
+            size = pending.size();
+        }
+        if (applyNow || size >= MAX_PENDING_RESOURCES) {
+            scheduleFlush(0);
+        } else {
+            scheduleFlush(FLUSH_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Replaces the markers in the resource right away in the current thread (discarding any pending replacement for
+     * it). Should be used for the resource in the active editor, so that the user doesn't wait for the markers
+     * gathered from other resources.
+     *
+     * @param monitor used to check whether this process should be canceled.
+     * @see #replaceMarkers(List, IResource, String, boolean, boolean)
+     */
+    public void replaceMarkersNow(List<MarkerInfo> lst, final IResource resource, final String markerType,
+            final boolean removeUserEditable, IProgressMonitor monitor) {
+        if (resource == null) {
+            return;
+        }
+        final List<Map<String, Object>> lMap = PyMarkerUtils.getAsMaps(lst);
+
+        IWorkspaceRunnable r = new IWorkspaceRunnable() {
+
+            public void run(IProgressMonitor monitor) throws CoreException {
+                applyDiff(resource, markerType, lMap, removeUserEditable);
+            }
+        };
+        synchronized (applyLock) {
+            discardPending(resource, markerType);
+            try {
+                workspaceOperations.incrementAndGet();
+                resource.getWorkspace().run(r, resource.getWorkspace().getRuleFactory().markerRule(resource),
+                        IWorkspace.AVOID_UPDATE, monitor);
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    /**
+     * Schedules the job which applies the pending replacements.
+     */
+    /*default*/void scheduleFlush(long delay) {
+        flushJob.schedule(delay);
+    }
+
+    /**
+     * Discards a pending replacement for the given resource (should be called when the markers are removed
+     * directly from the resource, so that a pending replacement doesn't add them back later on).
+     */
+    public void discardPending(IResource resource, String markerType) {
+        if (resource == null) {
+            return;
+        }
+        synchronized (lock) {
+            pending.remove(new ResourceAndType(resource, markerType));
+        }
+    }
+
+    /**
+     * Asks for the pending markers to be applied as soon as possible.
+     */
+    public void flushLater() {
+        scheduleFlush(0);
+    }
+
+    /**
+     * Applies all the pending replacements in a single workspace operation.
+     */
+    private void flush(IProgressMonitor monitor) {
+        synchronized (lock) {
+            if (pending.size() == 0) {
+                return;
+            }
+        }
+
+        IWorkspaceRunnable r = new IWorkspaceRunnable() {
+
+            public void run(IProgressMonitor monitor) throws CoreException {
+                applyPending();
+            }
+        };
+        synchronized (applyLock) {
+            try {
+                workspaceOperations.incrementAndGet();
+                ResourcesPlugin.getWorkspace().run(r, null, IWorkspace.AVOID_UPDATE, monitor);
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    /**
+     * Applies the pending replacements (should be called inside a workspace operation).
+     */
+    /*default*/void applyPending() {
+        final LinkedHashMap<ResourceAndType, PendingReplace> toApply;
+        synchronized (lock) {
+            toApply = pending;
+            pending = new LinkedHashMap<ResourceAndType, PendingReplace>();
+        }
+        for (Map.Entry<ResourceAndType, PendingReplace> entry : toApply.entrySet()) {
+            ResourceAndType key = entry.getKey();
+            PendingReplace replace = entry.getValue();
+            try {
+                applyDiff(key.resource, key.markerType, replace.markers, replace.removeUserEditable);
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    /**
+     * Makes the markers of the given type in the resource match the passed markers (only removing the markers which
+     * are not in the new list and only creating the markers which don't exist yet).
+     *
+     * Should be called inside a workspace operation.
+     */
+    /*default*/void applyDiff(IResource resource, String markerType, List<Map<String, Object>> newMarkers,
+            boolean removeUserEditable) throws CoreException {
+        if (!resource.exists()) {
+            return;
+        }
+        resourcesUpdated.incrementAndGet();
+
+        //Note: when removing the user-editable, the subtypes are also removed.
+        IMarker[] existingMarkers = resource.findMarkers(markerType, removeUserEditable, IResource.DEPTH_ZERO);
+
+        //attributes -> markers with those attributes
+        Map<Map<String, Object>, List<IMarker>> existingByAttributes =
+                new HashMap<Map<String, Object>, List<IMarker>>(existingMarkers.length);
+        for (IMarker marker : existingMarkers) {
+            //we don't want to remove the user-editable markers, so, let's filter them out!
+            if (!removeUserEditable && marker.getAttribute(IMarker.USER_EDITABLE, true)) { //default for user-editable is true.
+                continue;
+            }
+            Map<String, Object> attributes = marker.getAttributes();
+            List<IMarker> lst = existingByAttributes.get(attributes);
+            if (lst == null) {
+                lst = new ArrayList<IMarker>(1);
+                existingByAttributes.put(attributes, lst);
+            }
+            lst.add(marker);
+        }
+
+        List<Map<String, Object>> toCreate = new ArrayList<Map<String, Object>>();
+        for (Map<String, Object> attributes : newMarkers) {
+            List<IMarker> lst = existingByAttributes.get(attributes);
+            if (lst != null && lst.size() > 0) {
+                lst.remove(lst.size() - 1); //it's already there: keep it.
+                markersKept.incrementAndGet();
+            } else {
+                toCreate.add(attributes);
+            }
+        }
+
+        List<IMarker> toDelete = new ArrayList<IMarker>();
+        for (List<IMarker> lst : existingByAttributes.values()) {
+            toDelete.addAll(lst);
+        }
+
+        try {
+            if (toDelete.size() > 0) {
+                resource.getWorkspace().deleteMarkers(toDelete.toArray(new IMarker[toDelete.size()]));
+                markersDeleted.addAndGet(toDelete.size());
+            }
+        } catch (Exception e) {
+            Log.log(e);
+        }
+
+        try {
+            for (Map<String, Object> attributes : toCreate) {
+                IMarker marker = resource.createMarker(markerType);
+                marker.setAttributes(attributes);
+                markersCreated.incrementAndGet();
+            }
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    public int getMarkersCreated() {
+        return markersCreated.get();
+    }
+
+    public int getMarkersDeleted() {
+        return markersDeleted.get();
+    }
+
+    public int getMarkersKept() {
+        return markersKept.get();
+    }
+
+    /**
+     * Resets the counters (i.e.: should be called when a new build starts).
+     */
+    public void resetCounters() {
+        markersCreated.set(0);
+        markersDeleted.set(0);
+        markersKept.set(0);
+        resourcesUpdated.set(0);
+        workspaceOperations.set(0);
+    }
+
+    /**
+     * @return a string with the counters since the last reset.
+     */
+    public String getStatistics() {
+        return StringUtils.format(
+                "Markers created: %s deleted: %s kept: %s (resources updated: %s in %s workspace operations)",
+                markersCreated.get(), markersDeleted.get(), markersKept.get(), resourcesUpdated.get(),
+                workspaceOperations.get());
+    }
+}
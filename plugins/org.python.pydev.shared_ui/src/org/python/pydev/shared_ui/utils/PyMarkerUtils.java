@@ -10,6 +10,7 @@
 package org.python.pydev.shared_ui.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,10 +33,8 @@ import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.texteditor.AbstractMarkerAnnotationModel;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.eclipse.ui.texteditor.MarkerUtilities;
-import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.log.Log;
 import org.python.pydev.shared_core.string.FastStringBuffer;
-import org.python.pydev.shared_core.utils.ArrayUtils;
 
 /**
  * Helper class to deal with markers.
@@ -109,7 +108,7 @@ public class PyMarkerUtils {
          * @return a map with the properties to be set in the marker or null if some error happened while doing it.
          * @throws BadLocationException 
          */
-        private HashMap<String, Object> getAsMap() {
+        /*default*/HashMap<String, Object> getAsMap() {
 
             if (lineStart < 0) {
                 lineStart = 0;
@@ -212,10 +211,22 @@ public class PyMarkerUtils {
      * @param markerType the type of the marker that'll be replaced
      * @param removeUserEditable if true, will remove the user-editable markers too (otherwise, will leave the user-editable markers)
      * @param monitor used to check whether this process should be canceled.
+     * 
+     * @see PyMarkerSink to apply the markers of many resources at once.
      */
     @SuppressWarnings("unchecked")
     public static void replaceMarkers(final List<MarkerInfo> lst, final IResource resource, final String markerType,
             final boolean removeUserEditable, IProgressMonitor monitor) {
+        List<Map<String, Object>> lMap = getAsMaps(lst);
+        replaceMarkers((Map<String, Object>[]) lMap.toArray(new Map[lMap.size()]), resource, markerType,
+                removeUserEditable, monitor);
+    }
+
+    /**
+     * @return the maps with the attributes to create the passed markers (markers which couldn't be converted
+     * -- i.e.: because the document changed -- are not added).
+     */
+    public static List<Map<String, Object>> getAsMaps(List<MarkerInfo> lst) {
         List<Map<String, Object>> lMap = new ArrayList<Map<String, Object>>(lst.size());
         for (MarkerInfo markerInfo : lst) {
             try {
@@ -227,13 +238,14 @@ public class PyMarkerUtils {
                 Log.log(e);
             }
         }
-        replaceMarkers((Map<String, Object>[]) lMap.toArray(new Map[lMap.size()]), resource, markerType,
-                removeUserEditable, monitor);
+        return lMap;
     }
 
     /**
      * This method allows clients to replace the existing markers of some type in a given resource for other markers.
      * 
+     * Only the markers which actually changed are removed/created.
+     * 
      * @param lst the new markers to be set in the resource
      * @param resource the resource were the markers should be replaced
      * @param markerType the type of the marker that'll be replaced
@@ -246,39 +258,12 @@ public class PyMarkerUtils {
         IWorkspaceRunnable r = new IWorkspaceRunnable() {
 
             public void run(IProgressMonitor monitor) throws CoreException {
-                if (!resource.exists()) {
-                    return;
-                }
-                try {
-                    if (removeUserEditable) {
-                        resource.deleteMarkers(markerType, true, IResource.DEPTH_ZERO);
-
-                    } else {
-                        IMarker[] existingMarkers;
-                        existingMarkers = resource.findMarkers(markerType, false, IResource.DEPTH_ZERO);
-                        //we don't want to remove the user-editable markers, so, let's filter them out!
-                        existingMarkers = ArrayUtils.filter(existingMarkers, new ICallback<Boolean, IMarker>() {
-
-                            public Boolean call(IMarker marker) {
-                                //if it's user-editable, it should not be included in the list
-                                return !marker.getAttribute(IMarker.USER_EDITABLE, true); //default for user-editable is true.
-                            }
-                        }).toArray(new IMarker[0]);
-                        ResourcesPlugin.getWorkspace().deleteMarkers(existingMarkers);
-                    }
-                } catch (Exception e1) {
-                    Log.log(e1);
-                }
-
                 try {
-                    for (Map<String, Object> asMap : lst) {
-                        IMarker marker = resource.createMarker(markerType);
-                        marker.setAttributes(asMap);
-                    }
+                    PyMarkerSink.getInstance().applyDiff(resource, markerType, Arrays.asList(lst),
+                            removeUserEditable);
                 } catch (Exception e) {
                     Log.log(e);
                 }
-
             }
         };
         try {
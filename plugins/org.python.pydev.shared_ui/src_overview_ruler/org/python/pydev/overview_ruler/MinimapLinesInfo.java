@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2013 by Brainwy Software Ltda, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.overview_ruler;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps what's needed to draw each line in the minimap (the first char and the length of the right-trimmed line),
+ * updated incrementally as the text changes, and which blocks of lines have to be rendered again.
+ *
+ * Should only be accessed in the UI thread (the redraw job gets copies of the contents).
+ */
+public class MinimapLinesInfo {
+
+    public static final int LINES_PER_BLOCK = 64;
+
+    private int[] firstChars = new int[16];
+    private int[] lengths = new int[16];
+    private int count;
+
+    /**
+     * Blocks changed since the contents of the last image rendered.
+     */
+    private final BitSet dirtySinceBase = new BitSet();
+
+    /**
+     * Blocks changed since the last redraw was scheduled.
+     */
+    private final BitSet dirtySinceLastSchedule = new BitSet();
+
+    public int getLineCount() {
+        return count;
+    }
+
+    public int getFirstChar(int line) {
+        return firstChars[line];
+    }
+
+    public int getLength(int line) {
+        return lengths[line];
+    }
+
+    /**
+     * @return copies of the first chars and lengths of the lines (to be used in the redraw job).
+     */
+    public int[][] createSnapshot() {
+        int[] f = new int[count];
+        int[] l = new int[count];
+        System.arraycopy(firstChars, 0, f, 0, count);
+        System.arraycopy(lengths, 0, l, 0, count);
+        return new int[][] { f, l };
+    }
+
+    /**
+     * Sets all the lines (everything becomes dirty).
+     */
+    public void setLines(List<String> lines) {
+        count = 0;
+        ensureCapacity(lines.size());
+        for (String line : lines) {
+            setLine(count, line);
+            count++;
+        }
+        markDirty(0, Math.max(1, count));
+    }
+
+    /**
+     * Replaces replacedCount lines starting at startLine with the passed lines.
+     */
+    public void replaceLines(int startLine, int replacedCount, List<String> newLines) {
+        if (startLine > count) {
+            startLine = count;
+        }
+        if (startLine + replacedCount > count) {
+            replacedCount = count - startLine;
+        }
+        int newCount = newLines.size();
+        int diff = newCount - replacedCount;
+        if (diff != 0) {
+            ensureCapacity(count + diff);
+            int tail = count - (startLine + replacedCount);
+            System.arraycopy(firstChars, startLine + replacedCount, firstChars, startLine + newCount, tail);
+            System.arraycopy(lengths, startLine + replacedCount, lengths, startLine + newCount, tail);
+        }
+        for (int i = 0; i < newCount; i++) {
+            setLine(startLine + i, newLines.get(i));
+        }
+        int oldCount = count;
+        count += diff;
+
+        if (diff != 0) {
+            //all the lines below have a new position
+            markDirty(startLine, Math.max(count, oldCount));
+        } else {
+            markDirty(startLine, startLine + Math.max(1, newCount));
+        }
+    }
+
+    private void setLine(int i, String line) {
+        String trimmed = MinimapOverviewRuler.rightTrim(line);
+        firstChars[i] = MinimapOverviewRuler.getFirstCharPosition(trimmed);
+        lengths[i] = trimmed.length();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > firstChars.length) {
+            int newCapacity = Math.max(capacity, firstChars.length * 2);
+            int[] f = new int[newCapacity];
+            int[] l = new int[newCapacity];
+            System.arraycopy(firstChars, 0, f, 0, count);
+            System.arraycopy(lengths, 0, l, 0, count);
+            firstChars = f;
+            lengths = l;
+        }
+    }
+
+    /**
+     * Marks the blocks with the lines from start to end (exclusive) as dirty.
+     */
+    public void markDirty(int startLine, int endLine) {
+        if (endLine <= startLine) {
+            return;
+        }
+        int fromBlock = startLine / LINES_PER_BLOCK;
+        int toBlock = (endLine - 1) / LINES_PER_BLOCK + 1;
+        dirtySinceBase.set(fromBlock, toBlock);
+        dirtySinceLastSchedule.set(fromBlock, toBlock);
+    }
+
+    public boolean hasChangesSinceLastSchedule() {
+        return !dirtySinceLastSchedule.isEmpty();
+    }
+
+    /**
+     * Should be called when a redraw is scheduled.
+     *
+     * @return the blocks which have to be rendered again in the last image rendered.
+     */
+    public BitSet onRedrawScheduled() {
+        dirtySinceLastSchedule.clear();
+        return (BitSet) dirtySinceBase.clone();
+    }
+
+    /**
+     * Should be called when the image from the last redraw scheduled becomes the base image (only what changed
+     * after it was scheduled is still dirty).
+     */
+    public void onBaseImageReplaced() {
+        dirtySinceBase.clear();
+        dirtySinceBase.or(dirtySinceLastSchedule);
+    }
+}
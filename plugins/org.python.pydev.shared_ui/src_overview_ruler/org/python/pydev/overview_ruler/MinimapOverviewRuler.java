@@ -9,6 +9,7 @@ package org.python.pydev.overview_ruler;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -30,6 +31,9 @@ import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.MouseEvent;
@@ -51,6 +55,7 @@ import org.eclipse.ui.editors.text.EditorsUI;
 import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
 import org.python.pydev.shared_core.log.Log;
 import org.python.pydev.shared_core.structure.FastStack;
+import org.python.pydev.shared_core.utils.Metrics;
 import org.python.pydev.shared_ui.SharedUiPlugin;
 import org.python.pydev.shared_ui.utils.RunInUiThread;
 
@@ -95,6 +100,60 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
      */
     private final static Object lockStackedParameters = new Object();
 
+    /**
+     * Time to wait before redrawing the minimap after the editor is painted (so that many paints while typing or
+     * scrolling result in a single redraw).
+     */
+    private static final int REDRAW_THROTTLE_MILLIS = 40;
+
+    /**
+     * Time to paint the minimap in the UI thread (frame time).
+     */
+    private static final Metrics.Timer PAINT_TIMER = Metrics.timer("MinimapOverviewRuler.paint");
+
+    /**
+     * Time to render the base image in the redraw job.
+     */
+    private static final Metrics.Timer RENDER_TIMER = Metrics.timer("MinimapOverviewRuler.render");
+
+    /**
+     * The parameters to redraw the base image.
+     *
+     * Note: the gc, marginColor and transform need to be disposed after they're used.
+     */
+    private static final class RedrawParameters {
+
+        private GC gc;
+        private Color styledTextForeground;
+        private Color background;
+        private Point size;
+        private int[] firstChars;
+        private int[] lengths;
+        private int lineCount;
+        private Color marginColor;
+        private int spacing;
+        private int imageHeight;
+        private Transform transform;
+        private Image tmpImage;
+        private Object[] cacheKey;
+
+        /**
+         * The blocks to be rendered again (null means that the whole image must be rendered).
+         */
+        private BitSet dirtyBlocks;
+
+        /**
+         * Identifies the redraw (only the last one scheduled may become the base image).
+         */
+        private int redrawId;
+
+        private void dispose() {
+            gc.dispose();
+            marginColor.dispose();
+            transform.dispose();
+        }
+    }
+
     /**
      * Redraws a temporary image in the background and after that's finished, replaces the new base image and asks
      * for a new redraw.
@@ -107,90 +166,135 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
             this.setSystem(true);
         }
 
-        private FastStack<Object[]> stackedParameters = new FastStack<Object[]>(20);
+        private FastStack<RedrawParameters> stackedParameters = new FastStack<RedrawParameters>(20);
 
-        /**
-         * Note: the GC and marginColor need to be disposed after they're used.
-         */
-        private void setParameters(GC gc, Color styledTextForeground, Point size, List<String> content,
-                int lineCount, int marginCols, Color marginColor, int spacing, int imageHeight, Transform transform,
-                Image tmpImage) {
+        private void setParameters(RedrawParameters parameters) {
             synchronized (lockStackedParameters) {
-                stackedParameters.push(new Object[] { gc, styledTextForeground, size, content, lineCount, marginCols,
-                        marginColor, spacing, imageHeight, transform, tmpImage });
+                stackedParameters.push(parameters);
             }
         }
 
         /**
          * Redraws the base image based on the StyledText contents. 
          * 
-         * (i.e.: draw the lines)
+         * (i.e.: draw the lines -- all of them or only the ones in the dirty blocks)
          */
-        private void redrawBaseImage(GC gc, Color styledTextForeground, Point size, List<String> content,
-                int lineCount, int marginCols, Color marginColor, int spacing, int imageHeight, Transform transform,
-                IProgressMonitor monitor) {
+        private void redrawBaseImage(RedrawParameters p, IProgressMonitor monitor) {
             if (MinimapOverviewRulerPreferencesPage.getShowMinimapContents()) {
-                gc.setForeground(styledTextForeground);
-                gc.setAlpha(200);
-                gc.setTransform(transform);
-                int x1 = 0, y1 = 0, x2 = 0, y2 = 0;
-
-                int mergeLevels = (int) (lineCount / 200.0);
-                int nextDrawMax = -1;
-                int nextDrawMin = Integer.MAX_VALUE;
-                for (int i = 0; i < lineCount; i++) {
+                GC gc = p.gc;
+                if (p.dirtyBlocks == null) {
+                    gc.setForeground(p.styledTextForeground);
+                    gc.setAlpha(200);
+                    gc.setTransform(p.transform);
+                    drawLines(p, 0, p.lineCount, monitor);
+                    return;
+                }
+
+                double pixelsPerLine = (p.size.y / (double) p.imageHeight) * p.spacing;
+                int pad = (int) Math.ceil(pixelsPerLine) + 2;
+                int blocks = (p.lineCount - 1) / MinimapLinesInfo.LINES_PER_BLOCK + 1;
+
+                for (int block = p.dirtyBlocks.nextSetBit(0); block >= 0 && block < blocks; block = p.dirtyBlocks
+                        .nextSetBit(block + 1)) {
                     if (monitor.isCanceled()) {
                         return;
                     }
-
-                    String line;
-                    try {
-                        line = rightTrim(content.get(i));
-                    } catch (Exception e) {
-                        break;
+                    //Join contiguous dirty blocks
+                    int lastBlock = block;
+                    while (lastBlock + 1 < blocks && p.dirtyBlocks.get(lastBlock + 1)) {
+                        lastBlock++;
                     }
+                    int startLine = block * MinimapLinesInfo.LINES_PER_BLOCK;
+                    int endLine = Math.min((lastBlock + 1) * MinimapLinesInfo.LINES_PER_BLOCK, p.lineCount);
+                    block = lastBlock;
+
+                    //The pixels 'owned' by those lines are cleared and everything that could be drawn in them is
+                    //drawn again (clipped to them).
+                    int y0 = Math.max(0, (int) Math.floor(startLine * pixelsPerLine));
+                    int y1 = Math.min(p.size.y, (int) Math.ceil(endLine * pixelsPerLine));
+                    if (y1 <= y0) {
+                        y1 = y0 + 1;
+                    }
+                    int drawFrom = Math.max(0, (int) Math.floor((y0 - pad) / pixelsPerLine));
+                    int drawTo = Math.min(p.lineCount, (int) Math.ceil((y1 + pad) / pixelsPerLine) + 1);
+
+                    gc.setTransform(null);
+                    gc.setClipping(0, y0, p.size.x, y1 - y0);
+                    gc.setAlpha(255);
+                    gc.setBackground(p.background);
+                    gc.fillRectangle(0, y0, p.size.x, y1 - y0);
+
+                    gc.setForeground(p.styledTextForeground);
+                    gc.setAlpha(200);
+                    gc.setTransform(p.transform);
+                    drawLines(p, drawFrom, drawTo, monitor);
+                    gc.setClipping((Rectangle) null);
+                }
+            }
+        }
 
-                    //if(lineCount > 5000){
-                    //    if(!PySelection.matchesClassLine(line) && !PySelection.matchesFunctionLine(line)){
-                    //        y1 = y2 = y1 + spacing;
-                    //        continue; //Only print lines related to classes/functions
-                    //    }
-                    //}
+        /**
+         * Draws the lines from the start to the end line (exclusive).
+         * 
+         * When lines are merged, the range is extended so that only whole groups of lines are drawn.
+         */
+        private void drawLines(RedrawParameters p, int startLine, int endLine, IProgressMonitor monitor) {
+            GC gc = p.gc;
+            int lineCount = p.lineCount;
+            int mergeLevels = (int) (lineCount / 200.0);
+            if (mergeLevels > 0) {
+                //A group is drawn at a line multiple of mergeLevels (with the lines after the previous group).
+                if (startLine > 0) {
+                    startLine = ((startLine - 1) / mergeLevels) * mergeLevels + 1;
+                }
+                if (endLine > 1) {
+                    endLine = ((endLine - 2) / mergeLevels + 1) * mergeLevels + 1;
+                }
+                endLine = Math.min(endLine, lineCount);
+            }
+            int spacing = p.spacing;
+            int x1 = 0, y1 = startLine * spacing, x2 = 0, y2 = y1;
 
-                    x1 = getFirstCharPosition(line);
-                    x2 = line.length();
+            int nextDrawMax = -1;
+            int nextDrawMin = Integer.MAX_VALUE;
+            for (int i = startLine; i < endLine; i++) {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                if (i >= p.firstChars.length) {
+                    break;
+                }
 
-                    if (mergeLevels > 0) {
-                        if (x2 > nextDrawMax) {
-                            nextDrawMax = x2;
-                        }
-                        if (x1 < nextDrawMax) {
-                            nextDrawMin = x1;
-                        }
+                x1 = p.firstChars[i];
+                x2 = p.lengths[i];
 
-                        if (i % mergeLevels == 0) {
-                            if (nextDrawMax > 0 && nextDrawMin < nextDrawMax) {
-                                gc.drawLine(nextDrawMin, y1, nextDrawMax, y2);
-                            }
-                            nextDrawMax = -1;
-                            nextDrawMin = Integer.MAX_VALUE;
-                        }
-                    } else {
-                        if (x2 > 0) {
-                            gc.drawLine(x1, y1, x2, y2);
-                        }
+                if (mergeLevels > 0) {
+                    if (x2 > nextDrawMax) {
+                        nextDrawMax = x2;
+                    }
+                    if (x1 < nextDrawMax) {
+                        nextDrawMin = x1;
                     }
 
-                    y1 = y2 = y1 + spacing;
-                }
-                if (monitor.isCanceled()) {
-                    return;
+                    if (i % mergeLevels == 0) {
+                        if (nextDrawMax > 0 && nextDrawMin < nextDrawMax) {
+                            gc.drawLine(nextDrawMin, y1, nextDrawMax, y2);
+                        }
+                        nextDrawMax = -1;
+                        nextDrawMin = Integer.MAX_VALUE;
+                    }
+                } else {
+                    if (x2 > 0) {
+                        gc.drawLine(x1, y1, x2, y2);
+                    }
                 }
-                //This would draw the margin.
-                //gc.setForeground(marginColor);
-                //gc.setBackground(marginColor);
-                //gc.drawLine(marginCols, 0, marginCols, imageHeight);
+
+                y1 = y2 = y1 + spacing;
             }
+            //This would draw the margin.
+            //gc.setForeground(marginColor);
+            //gc.setBackground(marginColor);
+            //gc.drawLine(marginCols, 0, marginCols, imageHeight);
         }
 
         /**
@@ -198,45 +302,32 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
          */
         @Override
         protected IStatus run(IProgressMonitor monitor) {
-            Object[] parameters;
+            final RedrawParameters parameters;
             synchronized (lockStackedParameters) {
+                if (stackedParameters.size() == 0) {
+                    return Status.OK_STATUS;
+                }
                 parameters = stackedParameters.pop();
                 disposeStackedParameters();
             }
 
-            GC gc = (GC) parameters[0];
-            if (gc.isDisposed()) {
-                return Status.OK_STATUS;
-            }
-            Color styledTextForeground = (Color) parameters[1];
-            Point size = (Point) parameters[2];
-            List<String> content = (List<String>) parameters[3];
-            int lineCount = (Integer) parameters[4];
-            int marginCols = (Integer) parameters[5];
-            Color marginColor = (Color) parameters[6];
-            if (marginColor.isDisposed()) {
-                return Status.OK_STATUS;
-            }
-            int spacing = (Integer) parameters[7];
-            int imageHeight = (Integer) parameters[8];
-            Transform transform = (Transform) parameters[9];
-            final Image image = (Image) parameters[10];
-            if (image.isDisposed()) {
-                return Status.OK_STATUS;
-            }
-
-            try {
-                redrawBaseImage(gc, styledTextForeground, size, content, lineCount, marginCols, marginColor, spacing,
-                        imageHeight, transform, monitor);
-            } catch (Throwable e) {
-                Log.log(e);
-            } finally {
-                gc.dispose();
-                marginColor.dispose();
-            }
+            long initialTime = RENDER_TIMER.start();
+            final Image image = parameters.tmpImage;
             boolean disposeOfImage = true;
             try {
+                if (parameters.gc.isDisposed() || image.isDisposed()) {
+                    parameters.dispose();
+                    return Status.OK_STATUS;
+                }
+                try {
+                    redrawBaseImage(parameters, monitor);
+                } catch (Throwable e) {
+                    Log.log(e);
+                } finally {
+                    parameters.dispose();
+                }
                 if (!monitor.isCanceled()) {
+                    RENDER_TIMER.stop(initialTime);
                     final Canvas c = fCanvas;
                     if (c != null && !c.isDisposed()) {
                         disposeOfImage = false;
@@ -245,16 +336,19 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
                             public void run() {
                                 //The baseImage should only be disposed in the UI thread (so, no locks are needed to 
                                 //replace/dispose the image)
+                                if (c.isDisposed() || parameters.redrawId != lastRedrawId) {
+                                    //Disposed or some other redraw was scheduled after this one (based on the
+                                    //current base image): the image from this one is no longer needed.
+                                    image.dispose();
+                                    return;
+                                }
                                 if (baseImage != null && !baseImage.isDisposed()) {
                                     baseImage.dispose();
                                 }
-
-                                if (c != null && !c.isDisposed()) {
-                                    baseImage = image;
-                                    MinimapOverviewRuler.this.redraw();
-                                } else {
-                                    image.dispose();
-                                }
+                                baseImage = image;
+                                baseCacheKey = parameters.cacheKey;
+                                linesInfo.onBaseImageReplaced();
+                                MinimapOverviewRuler.this.redraw();
                             }
                         });
                     }
@@ -274,13 +368,9 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
         public void disposeStackedParameters() {
             synchronized (lockStackedParameters) {
                 while (stackedParameters.size() > 0) {
-                    Object[] disposeOfParameters = stackedParameters.pop();
-                    GC gc = (GC) disposeOfParameters[0];
-                    Color marginColor = (Color) disposeOfParameters[6];
-                    Transform transform = (Transform) disposeOfParameters[9];
-                    gc.dispose();
-                    marginColor.dispose();
-                    transform.dispose();
+                    RedrawParameters disposeOfParameters = stackedParameters.pop();
+                    disposeOfParameters.dispose();
+                    disposeOfParameters.tmpImage.dispose();
                 }
             }
         }
@@ -305,15 +395,93 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
 
     private WeakReference<StyledText> styledText;
 
+    /**
+     * Whether a (throttled) redraw is already scheduled (only accessed in the UI thread).
+     */
+    private boolean throttledRedrawScheduled;
+
+    private final Runnable throttledRedraw = new Runnable() {
+
+        public void run() {
+            throttledRedrawScheduled = false;
+            if (fCanvas != null && !fCanvas.isDisposed()) {
+                MinimapOverviewRuler.this.redraw();
+            }
+        }
+    };
+
     private final PaintListener paintListener = new PaintListener() {
 
         public void paintControl(PaintEvent e) {
-            if (!fCanvas.isDisposed()) {
-                MinimapOverviewRuler.this.redraw();
+            if (!fCanvas.isDisposed() && !throttledRedrawScheduled) {
+                throttledRedrawScheduled = true;
+                e.display.timerExec(REDRAW_THROTTLE_MILLIS, throttledRedraw);
             }
         }
     };
 
+    /**
+     * The lines of the StyledTextContent we're tracking (updated as the content changes).
+     */
+    private final MinimapLinesInfo linesInfo = new MinimapLinesInfo();
+    private StyledTextContent trackedContent;
+    private int changingStartLine;
+    private int changingReplaceLineCount;
+    private int changingNewLineCount;
+
+    private final TextChangeListener textChangeListener = new TextChangeListener() {
+
+        public void textChanging(TextChangingEvent event) {
+            StyledTextContent content = (StyledTextContent) event.getSource();
+            changingStartLine = content.getLineAtOffset(event.start);
+            changingReplaceLineCount = event.replaceLineCount;
+            changingNewLineCount = event.newLineCount;
+        }
+
+        public void textChanged(TextChangedEvent event) {
+            StyledTextContent content = (StyledTextContent) event.getSource();
+            int lineCount = content.getLineCount();
+            //The line where the change started is also replaced (its contents may have changed).
+            List<String> newLines = new ArrayList<String>(changingNewLineCount + 1);
+            for (int i = changingStartLine; i <= changingStartLine + changingNewLineCount && i < lineCount; i++) {
+                newLines.add(content.getLine(i));
+            }
+            linesInfo.replaceLines(changingStartLine, changingReplaceLineCount + 1, newLines);
+        }
+
+        public void textSet(TextChangedEvent event) {
+            setAllLines((StyledTextContent) event.getSource());
+        }
+    };
+
+    private void setAllLines(StyledTextContent content) {
+        int styledLineCount = content.getLineCount();
+        List<String> lines = new ArrayList<String>(styledLineCount);
+        for (int i = 0; i < styledLineCount; i++) {
+            try {
+                lines.add(content.getLine(i));
+            } catch (Exception e) {
+                break;
+            }
+        }
+        linesInfo.setLines(lines);
+    }
+
+    /**
+     * Makes sure that we're tracking the current content of the StyledText (it's changed when the document
+     * of the viewer changes).
+     */
+    private void trackContent(StyledTextContent content) {
+        if (content != trackedContent) {
+            if (trackedContent != null) {
+                trackedContent.removeTextChangeListener(textChangeListener);
+            }
+            trackedContent = content;
+            content.addTextChangeListener(textChangeListener);
+            setAllLines(content);
+        }
+    }
+
     @Override
     protected void doubleBufferPaint(GC dest) {
         if (fTextViewer != null) {
@@ -368,9 +536,14 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
                 StyledText textWidget = styledText.get();
                 if (textWidget != null && !textWidget.isDisposed()) {
                     textWidget.removePaintListener(paintListener);
+                    textWidget.getDisplay().timerExec(-1, throttledRedraw);
                 }
 
             }
+            if (trackedContent != null) {
+                trackedContent.removeTextChangeListener(textChangeListener);
+                trackedContent = null;
+            }
         } catch (Throwable e) {
             Log.log(e);
         }
@@ -384,11 +557,22 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
 
     private volatile Image baseImage;
     private volatile Image lastImage;
-    private Object[] cacheKey;
+
+    /**
+     * The cache key of the base image (only accessed in the UI thread).
+     */
+    private Object[] baseCacheKey;
+
+    /**
+     * The cache key of the last redraw scheduled (only accessed in the UI thread).
+     */
+    private Object[] scheduledCacheKey;
+    private volatile int lastRedrawId;
     private final RedrawJob redrawJob = new RedrawJob("Redraw overview ruler");
 
     @Override
     protected void doPaint1(GC paintGc) {
+        long initialTime = PAINT_TIMER.start();
         //Draw the minimap
         if (fTextViewer != null) {
             IDocumentExtension4 document = (IDocumentExtension4) fTextViewer.getDocument();
@@ -397,16 +581,7 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
                 final Point size = fCanvas.getSize();
                 if (size.x != 0 && size.y != 0) {
 
-                    final StyledTextContent styledTextContent = styledText.getContent();
-                    int styledLineCount = styledTextContent.getLineCount();
-                    List<String> content = new ArrayList<String>(styledLineCount);
-                    for (int i = 0; i < styledLineCount; i++) {
-                        try {
-                            content.add(styledTextContent.getLine(i));
-                        } catch (Exception e) {
-                            break;
-                        }
-                    }
+                    trackContent(styledText.getContent());
 
                     final int lineCount = super.getLineCount(styledText);
                     IPreferenceStore preferenceStore = EditorsUI.getPreferenceStore();
@@ -426,31 +601,58 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
                     Color background = styledText.getBackground();
                     boolean isDark = (background.getRed() * 0.21) + (background.getGreen() * 0.71)
                             + (background.getBlue() * 0.07) <= 128;
-                    Object[] currCacheKey = new Object[] { document.getModificationStamp(), size.x, size.y,
-                            styledText.getForeground(), background, marginCols, marginRgb };
+                    //Note: the contents are not in the key (only the dirty blocks are rendered again on a change).
+                    Object[] currCacheKey = new Object[] { size.x, size.y, styledText.getForeground(), background,
+                            marginCols, marginRgb, lineCount,
+                            MinimapOverviewRulerPreferencesPage.getShowMinimapContents() };
 
                     double scaleX = size.x / (double) imageWidth;
                     double scaleY = size.y / (double) imageHeight;
                     Transform transform = new Transform(Display.getCurrent());
                     transform.scale((float) scaleX, (float) scaleY);
 
-                    if (baseImage == null || !Arrays.equals(this.cacheKey, currCacheKey)) {
-                        this.cacheKey = currCacheKey;
+                    if (!Arrays.equals(this.scheduledCacheKey, currCacheKey)
+                            || linesInfo.hasChangesSinceLastSchedule()) {
+                        this.scheduledCacheKey = currCacheKey;
+
+                        //If the base image has the same key, only the blocks changed have to be rendered again.
+                        boolean partial = baseImage != null && !baseImage.isDisposed()
+                                && Arrays.equals(this.baseCacheKey, currCacheKey);
+                        BitSet dirtyBlocks = linesInfo.onRedrawScheduled();
 
                         Image tmpImage = new Image(Display.getCurrent(), size.x, size.y);
                         final GC gc = new GC(tmpImage);
                         gc.setAdvanced(true);
                         gc.setAntialias(SWT.ON);
-                        gc.setBackground(background);
-                        gc.setForeground(background);
-                        gc.fillRectangle(0, 0, size.x, size.y);
+                        if (partial) {
+                            gc.drawImage(baseImage, 0, 0);
+                        } else {
+                            gc.setBackground(background);
+                            gc.setForeground(background);
+                            gc.fillRectangle(0, 0, size.x, size.y);
+                        }
 
-                        final Color styledTextForeground = styledText.getForeground();
-                        final Color marginColor2 = new Color(Display.getCurrent(), marginRgb);
-                        redrawJob.cancel();
-                        redrawJob.setParameters(gc, styledTextForeground, size, content, lineCount, marginCols,
-                                marginColor2, spacing, imageHeight, transform, tmpImage);
+                        int[][] snapshot = linesInfo.createSnapshot();
+                        RedrawParameters parameters = new RedrawParameters();
+                        parameters.gc = gc;
+                        parameters.styledTextForeground = styledText.getForeground();
+                        parameters.background = background;
+                        parameters.size = size;
+                        parameters.firstChars = snapshot[0];
+                        parameters.lengths = snapshot[1];
+                        parameters.lineCount = lineCount;
+                        parameters.marginColor = new Color(Display.getCurrent(), marginRgb);
+                        parameters.spacing = spacing;
+                        parameters.imageHeight = imageHeight;
+                        parameters.transform = new Transform(Display.getCurrent());
+                        parameters.transform.scale((float) scaleX, (float) scaleY);
+                        parameters.tmpImage = tmpImage;
+                        parameters.cacheKey = currCacheKey;
+                        parameters.dirtyBlocks = partial ? dirtyBlocks : null;
+                        parameters.redrawId = ++lastRedrawId;
 
+                        redrawJob.cancel();
+                        redrawJob.setParameters(parameters);
                         redrawJob.schedule();
                     }
 
@@ -509,12 +711,14 @@ public class MinimapOverviewRuler extends CopiedOverviewRuler {
                     } finally {
                         marginColor.dispose();
                         gray.dispose();
+                        transform.dispose();
                     }
 
                 }
             }
         }
         super.doPaint1(paintGc);
+        PAINT_TIMER.stop(initialTime);
     }
 
     MouseEvent lastMouseDown = null;
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_ui.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
+
+public class PyMarkerSinkTest extends TestCase {
+
+    private static final String MARKER_TYPE = "test.marker";
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PyMarkerSinkTest.class);
+    }
+
+    /**
+     * The markers of the resource stub (the marker stubs just keep their attributes).
+     */
+    private final List<IMarker> markers = new ArrayList<IMarker>();
+
+    private final List<Long> scheduledDelays = new ArrayList<Long>();
+
+    private PyMarkerSink sink;
+
+    private IResource resource;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        sink = new PyMarkerSink() {
+            @Override
+            void scheduleFlush(long delay) {
+                scheduledDelays.add(delay);
+            }
+        };
+        final IWorkspace workspace = (IWorkspace) createStub(IWorkspace.class, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("deleteMarkers")) {
+                    markers.removeAll(Arrays.asList((IMarker[]) args[0]));
+                    return null;
+                }
+                return handleObjectMethod(proxy, method, args);
+            }
+        });
+        resource = (IResource) createStub(IResource.class, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("exists")) {
+                    return true;
+                }
+                if (name.equals("getWorkspace")) {
+                    return workspace;
+                }
+                if (name.equals("findMarkers")) {
+                    return markers.toArray(new IMarker[markers.size()]);
+                }
+                if (name.equals("createMarker")) {
+                    IMarker marker = createMarker(new HashMap<String, Object>());
+                    markers.add(marker);
+                    return marker;
+                }
+                return handleObjectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    private static Object createStub(Class<?> c, InvocationHandler handler) {
+        return Proxy.newProxyInstance(PyMarkerSinkTest.class.getClassLoader(), new Class[] { c }, handler);
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        }
+        if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        if (name.equals("toString")) {
+            return "stub";
+        }
+        throw new UnsupportedOperationException(name);
+    }
+
+    private static IMarker createMarker(final Map<String, Object> attributes) {
+        return (IMarker) createStub(IMarker.class, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getAttributes")) {
+                    return new HashMap<String, Object>(attributes);
+                }
+                if (name.equals("getAttribute") && args.length == 2) {
+                    Object value = attributes.get(args[0]);
+                    return value != null ? value : args[1];
+                }
+                if (name.equals("setAttributes") && args.length == 1) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> newAttributes = (Map<String, Object>) args[0];
+                    attributes.clear();
+                    attributes.putAll(newAttributes);
+                    return null;
+                }
+                return handleObjectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    private static MarkerInfo createMarkerInfo(String message, int line) {
+        return new MarkerInfo(null, message, MARKER_TYPE, IMarker.SEVERITY_ERROR, false, false, line, line * 10,
+                line * 10 + 5, null);
+    }
+
+    private List<String> getMessages() {
+        List<String> ret = new ArrayList<String>();
+        for (IMarker marker : markers) {
+            ret.add((String) marker.getAttribute(IMarker.MESSAGE, ""));
+        }
+        return ret;
+    }
+
+    public void testNewerReplacementOverridesPending() throws Exception {
+        sink.replaceMarkers(Arrays.asList(createMarkerInfo("old", 1)), resource, MARKER_TYPE, true, false);
+        sink.replaceMarkers(Arrays.asList(createMarkerInfo("new", 2)), resource, MARKER_TYPE, true, false);
+        sink.applyPending();
+
+        assertEquals(Arrays.asList("new"), getMessages());
+        assertEquals(1, sink.getMarkersCreated());
+    }
+
+    public void testDiscardPending() throws Exception {
+        sink.replaceMarkers(Arrays.asList(createMarkerInfo("m1", 1)), resource, MARKER_TYPE, true, false);
+        sink.discardPending(resource, MARKER_TYPE);
+        sink.applyPending();
+
+        assertEquals(0, markers.size());
+        assertEquals(0, sink.getMarkersCreated());
+    }
+
+    public void testFlushThreshold() throws Exception {
+        sink.replaceMarkers(Arrays.asList(createMarkerInfo("m1", 1)), resource, MARKER_TYPE, true, false);
+        assertTrue(scheduledDelays.get(0) > 0);
+
+        sink.replaceMarkers(Arrays.asList(createMarkerInfo("m1", 1)), resource, MARKER_TYPE, true, true);
+        assertEquals(0L, (long) scheduledDelays.get(1));
+
+        //many resources pending: flushed right away (even if not requested).
+        scheduledDelays.clear();
+        for (int i = 0; i < 300; i++) {
+            IResource r = (IResource) createStub(IResource.class, new InvocationHandler() {
+
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    return handleObjectMethod(proxy, method, args);
+                }
+            });
+            sink.replaceMarkers(new ArrayList<MarkerInfo>(), r, MARKER_TYPE, true, false);
+        }
+        assertTrue(scheduledDelays.get(0) > 0);
+        assertEquals(0L, (long) scheduledDelays.get(scheduledDelays.size() - 1));
+    }
+
+    public void testApplyDiffKeepsUnchangedMarkers() throws Exception {
+        List<Map<String, Object>> maps = PyMarkerUtils.getAsMaps(Arrays.asList(createMarkerInfo("m1", 1),
+                createMarkerInfo("m2", 2)));
+        sink.applyDiff(resource, MARKER_TYPE, maps, true);
+        assertEquals(Arrays.asList("m1", "m2"), getMessages());
+        IMarker kept = markers.get(0);
+
+        maps = PyMarkerUtils.getAsMaps(Arrays.asList(createMarkerInfo("m1", 1), createMarkerInfo("m3", 3)));
+        sink.applyDiff(resource, MARKER_TYPE, maps, true);
+        assertEquals(Arrays.asList("m1", "m3"), getMessages());
+        assertSame(kept, markers.get(0));
+
+        assertEquals(3, sink.getMarkersCreated());
+        assertEquals(1, sink.getMarkersDeleted());
+        assertEquals(1, sink.getMarkersKept());
+    }
+}
@@ -41,6 +41,7 @@ import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_ui.utils.PyMarkerSink;
 import org.python.pydev.utils.PyFileListing;
 
 /**
@@ -219,6 +220,8 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
     private AutoCloseable withStartEndVisitingNotifications(final List<PyDevBuilderVisitor> visitors,
             final IProgressMonitor monitor,
             boolean isFullBuild, IPythonNature nature) {
+        //markers created/deleted are counted per build.
+        PyMarkerSink.getInstance().resetCounters();
         for (PyDevBuilderVisitor visitor : visitors) {
             try {
                 visitor.visitingWillStart(monitor, isFullBuild, nature);
@@ -236,6 +239,13 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
                         Log.log(e);
                     }
                 }
+                //Apply the markers still pending (note: the analysis may still add markers later on as it's
+                //done in other threads, so, the statistics may not be complete at this point).
+                PyMarkerSink markerSink = PyMarkerSink.getInstance();
+                markerSink.flushLater();
+                if (DEBUG) {
+                    System.out.println(markerSink.getStatistics());
+                }
             }
         };
     }
@@ -339,7 +349,12 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
                         }
 
                         //on a full build, all visits are as some add...
-                        visitor.visitAddedResource(r, doc, monitor);
+                        long start = visitor.getVisitTimer().start();
+                        try {
+                            visitor.visitAddedResource(r, doc, monitor);
+                        } finally {
+                            visitor.getVisitTimer().stop(start);
+                        }
                     } catch (Exception e) {
                         Log.log(e);
                     }
@@ -33,6 +33,7 @@ import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.utils.Metrics;
 
 /**
  * Visitors within pydev should be subclasses of this class.
@@ -109,6 +110,22 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      */
     public VisitorMemo memo;
 
+    private Metrics.Timer visitTimer;
+
+    /**
+     * @return the timer with the time spent in the visits of this kind of visitor.
+     */
+    /*default*/Metrics.Timer getVisitTimer() {
+        if (visitTimer == null) {
+            String name = getClass().getSimpleName();
+            if (name.length() == 0) {
+                name = getClass().getName(); //anonymous class
+            }
+            visitTimer = Metrics.timer("PyDevBuilderVisitor." + name);
+        }
+        return visitTimer;
+    }
+
     /**
      * Constant indicating value in memory to represent a full build.
      */
@@ -83,21 +83,26 @@ public class PydevGrouperVisitor extends PydevInternalResourceDeltaVisitor {
                         //communicate progress for each visitor
                         PyDevBuilder.communicateProgress(monitor, totalResources, currentResourcesVisited, resource,
                                 visitor, bufferToCommunicateProgress);
-                        switch (visitType) {
-                            case VISIT_ADD:
-                                visitor.visitAddedResource(resource, document, monitor);
-                                break;
-
-                            case VISIT_CHANGE:
-                                visitor.visitChangedResource(resource, document, monitor);
-                                break;
-
-                            case VISIT_REMOVE:
-                                visitor.visitRemovedResource(resource, document, monitor);
-                                break;
-
-                            default:
-                                throw new RuntimeException("Error: visit type not properly given!"); //$NON-NLS-1$
+                        long start = visitor.getVisitTimer().start();
+                        try {
+                            switch (visitType) {
+                                case VISIT_ADD:
+                                    visitor.visitAddedResource(resource, document, monitor);
+                                    break;
+
+                                case VISIT_CHANGE:
+                                    visitor.visitChangedResource(resource, document, monitor);
+                                    break;
+
+                                case VISIT_REMOVE:
+                                    visitor.visitRemovedResource(resource, document, monitor);
+                                    break;
+
+                                default:
+                                    throw new RuntimeException("Error: visit type not properly given!"); //$NON-NLS-1$
+                            }
+                        } finally {
+                            visitor.getVisitTimer().stop(start);
                         }
                     } catch (Exception e) {
                         Log.log(e);
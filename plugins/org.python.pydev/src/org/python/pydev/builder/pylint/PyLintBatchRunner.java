@@ -0,0 +1,342 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_ui.utils.PyMarkerSink;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
+
+/**
+ * Runs PyLint passing many files in each invocation (as the pylint startup is usually much more expensive than
+ * the actual analysis of a single file).
+ *
+ * The requests are collected for a short time and then split in batches, which are run by a fixed number of
+ * workers (one per available core). The output of each process is parsed as it arrives and the markers
+ * for all the files in a batch are applied at once (through the PyMarkerSink).
+ */
+public class PyLintBatchRunner {
+
+    /**
+     * Time to wait for new requests before creating the batches.
+     */
+    private static final long COLLECT_DELAY_MILLIS = 300;
+
+    private static PyLintBatchRunner instance;
+
+    public static synchronized PyLintBatchRunner getInstance() {
+        if (instance == null) {
+            instance = new PyLintBatchRunner();
+        }
+        return instance;
+    }
+
+    /**
+     * A file which should be linted.
+     */
+    private static class PyLintRequest {
+
+        private final IResource resource;
+        private final ICallback0<IDocument> document;
+        private final IPath location;
+        private final List<MarkerInfo> markers = new ArrayList<MarkerInfo>();
+        private IDocument doc;
+
+        private PyLintRequest(IResource resource, ICallback0<IDocument> document, IPath location) {
+            this.resource = resource;
+            this.document = document;
+            this.location = location;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * Requests waiting to be put in a batch (access synchronized with lock).
+     */
+    private final Map<IResource, PyLintRequest> pending = new LinkedHashMap<IResource, PyLintRequest>();
+
+    /**
+     * Batches waiting to be run (access synchronized with lock).
+     */
+    private final LinkedList<List<PyLintRequest>> batches = new LinkedList<List<PyLintRequest>>();
+
+    private final Job collectJob;
+
+    private final PyLintWorkerJob[] workers;
+
+    private PyLintBatchRunner() {
+        collectJob = new Job("PyLint: collecting files") {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                createBatches();
+                return Status.OK_STATUS;
+            }
+        };
+        collectJob.setSystem(true);
+
+        int poolSize = Math.max(1, Runtime.getRuntime().availableProcessors());
+        workers = new PyLintWorkerJob[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            workers[i] = new PyLintWorkerJob(i);
+        }
+    }
+
+    /**
+     * Adds a file to be linted (it'll be run in a batch with other files added in a short interval).
+     */
+    public void addToRun(IResource resource, ICallback0<IDocument> document, IPath location) {
+        synchronized (lock) {
+            //if it's already pending, the new request overrides the previous one.
+            pending.put(resource, new PyLintRequest(resource, document, location));
+        }
+        collectJob.schedule(COLLECT_DELAY_MILLIS);
+    }
+
+    /**
+     * Puts the pending requests in batches (grouped by project) and wakes the workers.
+     */
+    private void createBatches() {
+        int batchSize = Math.max(1, PyLintPrefPage.getBatchSize());
+
+        synchronized (lock) {
+            if (pending.size() == 0) {
+                return;
+            }
+            Map<IProject, List<Tuple<String, PyLintRequest>>> byProject =
+                    new LinkedHashMap<IProject, List<Tuple<String, PyLintRequest>>>();
+            for (PyLintRequest request : pending.values()) {
+                IProject project = request.resource.getProject();
+                List<Tuple<String, PyLintRequest>> lst = byProject.get(project);
+                if (lst == null) {
+                    lst = new ArrayList<Tuple<String, PyLintRequest>>();
+                    byProject.put(project, lst);
+                }
+                lst.add(new Tuple<String, PyLintRequest>(getModuleName(request.location.lastSegment(),
+                        request.location.removeLastSegments(1).lastSegment()), request));
+            }
+            pending.clear();
+
+            for (List<Tuple<String, PyLintRequest>> lst : byProject.values()) {
+                batches.addAll(splitInBatches(lst, batchSize));
+            }
+        }
+
+        for (PyLintWorkerJob worker : workers) {
+            worker.schedule();
+        }
+    }
+
+    /**
+     * Splits the passed items in batches with at most batchSize elements where the same name doesn't appear twice
+     * (as the pylint output only has the module name, files with the same name must be run in different processes
+     * so that we can know to which file a message belongs).
+     *
+     * @param items tuples with the name of the module and the related item (order is kept).
+     */
+    public static <T> List<List<T>> splitInBatches(List<Tuple<String, T>> items, int batchSize) {
+        List<List<T>> ret = new ArrayList<List<T>>();
+        List<Set<String>> namesInBatch = new ArrayList<Set<String>>();
+
+        //All the batches before this one are already full.
+        int firstNotFull = 0;
+        for (Tuple<String, T> item : items) {
+            int i = firstNotFull;
+            for (; i < ret.size(); i++) {
+                if (ret.get(i).size() < batchSize && !namesInBatch.get(i).contains(item.o1)) {
+                    break;
+                }
+            }
+            if (i == ret.size()) {
+                ret.add(new ArrayList<T>(batchSize));
+                namesInBatch.add(new HashSet<String>());
+            }
+            ret.get(i).add(item.o2);
+            namesInBatch.get(i).add(item.o1);
+
+            while (firstNotFull < ret.size() && ret.get(firstNotFull).size() >= batchSize) {
+                firstNotFull++;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param fileName the name of the file (i.e.: mod.py)
+     * @param parentName the name of the folder containing the file (used for __init__ files)
+     * @return the last part of the module name for the given file (the same shown in the pylint output).
+     */
+    public static String getModuleName(String fileName, String parentName) {
+        String name = StringUtils.stripExtension(fileName);
+        if ("__init__".equals(name) && parentName != null) {
+            return parentName;
+        }
+        return name;
+    }
+
+    /**
+     * @param module the module shown in the pylint output (i.e.: pack.mod or /path/to/mod.py when pylint
+     * can't resolve it to a module).
+     * @return the last part of the module name.
+     */
+    public static String getLastPartOfModule(String module) {
+        if (module.endsWith(".py") || module.endsWith(".pyw") || module.indexOf('/') != -1
+                || module.indexOf('\\') != -1) {
+            File file = new File(module);
+            return getModuleName(file.getName(),
+                    file.getParentFile() != null ? file.getParentFile().getName() : null);
+        }
+        int i = module.lastIndexOf('.');
+        if (i != -1) {
+            return module.substring(i + 1);
+        }
+        return module;
+    }
+
+    /**
+     * Worker which keeps on running batches while they're available.
+     */
+    private class PyLintWorkerJob extends Job {
+
+        public PyLintWorkerJob(int i) {
+            super("PyLint (worker " + (i + 1) + ")");
+            setPriority(Job.BUILD);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            while (!monitor.isCanceled()) {
+                List<PyLintRequest> batch;
+                synchronized (lock) {
+                    batch = batches.poll();
+                }
+                if (batch == null) {
+                    break;
+                }
+                try {
+                    runBatch(batch, monitor);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
+            return PydevPlugin.makeStatus(Status.OK, "", null);
+        }
+    }
+
+    /**
+     * Runs pylint for all the files in the batch (which must all be in the same project).
+     */
+    private void runBatch(List<PyLintRequest> batch, IProgressMonitor monitor) throws Exception {
+        IProject project = batch.get(0).resource.getProject();
+        IOConsoleOutputStream out = PyLintVisitor.getConsoleOutputStream();
+
+        Map<String, PyLintRequest> moduleToRequest = new HashMap<String, PyLintRequest>();
+        List<String> targets = new ArrayList<String>(batch.size());
+        for (PyLintRequest request : batch) {
+            request.doc = request.document.call();
+            moduleToRequest.put(
+                    getModuleName(request.location.lastSegment(), request.location.removeLastSegments(1)
+                            .lastSegment()), request);
+            targets.add(FileUtils.getFileAbsolutePath(new File(request.location.toOSString())));
+        }
+
+        Tuple<Process, String> processTup = PyLintVisitor.createPyLintProcess(project, targets, out);
+        if (processTup == null) {
+            return;
+        }
+        Process process = processTup.o1;
+        process.getOutputStream().close(); //we won't write to it.
+
+        ThreadStreamReader errorStream = new ThreadStreamReader(process.getErrorStream());
+        errorStream.start();
+
+        //Parse the output as it arrives (the current module is changed when a module header is found).
+        PyLintOutputParser parser = new PyLintOutputParser();
+        FastStringBuffer output = new FastStringBuffer();
+        boolean foundTraceback = false;
+        PyLintRequest current = null;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (monitor.isCanceled()) {
+                    process.destroy();
+                    return;
+                }
+                output.append(line).append('\n');
+                if (foundTraceback) {
+                    continue;
+                }
+                if (PyLintOutputParser.hasTraceback(line)) {
+                    foundTraceback = true;
+                    continue;
+                }
+                String module = PyLintOutputParser.getModuleFromHeader(line);
+                if (module != null) {
+                    current = moduleToRequest.get(getLastPartOfModule(module));
+                    continue;
+                }
+                if (current != null && current.doc != null) {
+                    parser.parseLine(line, current.doc, current.markers);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        process.waitFor();
+        String errors = errorStream.getAndClearContents();
+
+        PyLintVisitor.write("PyLint: The stdout of the command line is:", out, output.toString());
+        PyLintVisitor.write("PyLint: The stderr of the command line is:", out, errors);
+
+        if (foundTraceback) {
+            Log.log(new RuntimeException("PyLint ERROR: \n" + output));
+            return;
+        }
+        if (PyLintOutputParser.hasTraceback(errors)) {
+            Log.log(new RuntimeException("PyLint ERROR: \n" + errors));
+            return;
+        }
+
+        //All the markers for the batch are applied in a single operation.
+        PyMarkerSink sink = PyMarkerSink.getInstance();
+        for (int i = 0; i < batch.size(); i++) {
+            PyLintRequest request = batch.get(i);
+            sink.replaceMarkers(request.markers, request.resource, PyLintVisitor.PYLINT_PROBLEM_MARKER, true,
+                    i == batch.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
+
+/**
+ * Parses the output of PyLint line by line (so, it can be used while the output is still arriving) and
+ * creates the related markers.
+ *
+ * The preferences are gotten when it's created (so, a new instance should be created for each run).
+ */
+public class PyLintOutputParser {
+
+    private static final String MODULE_HEADER = "************* Module ";
+
+    private static final String TRACEBACK = "Traceback (most recent call last):";
+
+    private static Pattern PYLINT_MATCH_PATTERN = Pattern
+            .compile("\\A[CRWEF]:\\s*(\\d+)(,\\s*\\d+)?:(.*)\\((.*)\\)\\s*\\Z");
+
+    private final boolean useW = PyLintPrefPage.useWarnings();
+    private final boolean useE = PyLintPrefPage.useErrors();
+    private final boolean useF = PyLintPrefPage.useFatal();
+    private final boolean useC = PyLintPrefPage.useCodingStandard();
+    private final boolean useR = PyLintPrefPage.useRefactorTips();
+
+    //Set up local values for severity
+    private final int wSeverity = PyLintPrefPage.wSeverity();
+    private final int eSeverity = PyLintPrefPage.eSeverity();
+    private final int fSeverity = PyLintPrefPage.fSeverity();
+    private final int cSeverity = PyLintPrefPage.cSeverity();
+    private final int rSeverity = PyLintPrefPage.rSeverity();
+
+    /**
+     * @return whether the given output has a traceback (in which case pylint failed and the output
+     * shouldn't be used).
+     */
+    public static boolean hasTraceback(String output) {
+        return output.indexOf(TRACEBACK) != -1;
+    }
+
+    /**
+     * @return the name of the module for a line such as "************* Module pack.mod" or null if the
+     * passed line is not a module header.
+     */
+    public static String getModuleFromHeader(String line) {
+        if (line.startsWith(MODULE_HEADER)) {
+            return line.substring(MODULE_HEADER.length()).trim();
+        }
+        return null;
+    }
+
+    /**
+     * Parses a line of the output and adds the marker related to it (if any) to the passed list.
+     *
+     * @param tok the line to be parsed.
+     * @param doc the document for the module being linted.
+     * @param markers the list where the marker should be added.
+     */
+    public void parseLine(String tok, IDocument doc, List<MarkerInfo> markers) {
+        try {
+            int priority = 0;
+
+            //W0611:  3: Unused import finalize
+            //F0001:  0: Unable to load module test.test2 (list index out of range)
+            //C0321: 25:fdfd: More than one statement on a single line
+            int indexOfDoublePoints = tok.indexOf(":");
+            if (indexOfDoublePoints == -1) {
+                return;
+            }
+
+            if (tok.startsWith("C") && useC) {
+                //priority = IMarker.SEVERITY_WARNING;
+                priority = cSeverity;
+            } else if (tok.startsWith("R") && useR) {
+                //priority = IMarker.SEVERITY_WARNING;
+                priority = rSeverity;
+            } else if (tok.startsWith("W") && useW) {
+                //priority = IMarker.SEVERITY_WARNING;
+                priority = wSeverity;
+            } else if (tok.startsWith("E") && useE) {
+                //priority = IMarker.SEVERITY_ERROR;
+                priority = eSeverity;
+            } else if (tok.startsWith("F") && useF) {
+                //priority = IMarker.SEVERITY_ERROR;
+                priority = fSeverity;
+            } else {
+                return;
+            }
+
+            try {
+                int line = -1;
+                String id = "";
+                if (tok.indexOf(':') == 1) {
+                    // PyLint >= 1.0 has symbolic id at end of line, enclosed in parentheses
+                    Matcher m = PYLINT_MATCH_PATTERN.matcher(tok);
+                    if (m.matches()) {
+                        line = Integer.parseInt(tok.substring(m.start(1), m.end(1)));
+                        id = tok.substring(m.start(4), m.end(4)).trim();
+                        tok = tok.substring(m.start(3), m.end(3)).trim();
+                    } else {
+                        return;
+                    }
+                } else {
+                    // PyLint < 1.0 has 'Axxxx' alphanumeric id before first colon
+                    id = tok.substring(0, tok.indexOf(":")).trim();
+
+                    int i = tok.indexOf(":");
+                    if (i == -1) {
+                        return;
+                    }
+
+                    tok = tok.substring(i + 1);
+
+                    i = tok.indexOf(":");
+                    if (i == -1) {
+                        return;
+                    }
+
+                    final String substring = tok.substring(0, i).trim();
+                    //On PyLint 0.24 it started giving line,col (and not only the line).
+                    line = Integer.parseInt(StringUtils.split(substring, ',').get(0));
+
+                    i = tok.indexOf(":");
+                    if (i == -1) {
+                        return;
+                    }
+
+                    tok = tok.substring(i + 1);
+                }
+                IRegion region = null;
+                try {
+                    region = doc.getLineInformation(line - 1);
+                } catch (Exception e) {
+                    region = doc.getLineInformation(line);
+                }
+                String lineContents = doc.get(region.getOffset(), region.getLength());
+
+                int pos = -1;
+                if ((pos = lineContents.indexOf("IGNORE:")) != -1) {
+                    String lintW = lineContents.substring(pos + "IGNORE:".length());
+                    if (lintW.startsWith(id)) {
+                        return;
+                    }
+                }
+                markers.add(new MarkerInfo(doc, "ID:" + id + " " + tok, PyLintVisitor.PYLINT_PROBLEM_MARKER,
+                        priority, false, false, line - 1, 0, line - 1, 0, null));
+            } catch (RuntimeException e2) {
+                Log.log(e2);
+            }
+        } catch (Exception e1) {
+            Log.log(e1);
+        }
+    }
+}
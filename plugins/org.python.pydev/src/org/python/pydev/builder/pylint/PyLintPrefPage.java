@@ -95,6 +95,15 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
 
     public static final int DEFAULT_MAX_PYLINT_DELTA = 4;
 
+    //batch mode
+    public static final String USE_PYLINT_BATCH = "USE_PYLINT_BATCH";
+
+    public static final boolean DEFAULT_USE_PYLINT_BATCH = false;
+
+    public static final String PYLINT_BATCH_SIZE = "PYLINT_BATCH_SIZE";
+
+    public static final int DEFAULT_PYLINT_BATCH_SIZE = 20;
+
     public PyLintPrefPage() {
         super(FLAT);
         setPreferenceStore(PydevPlugin.getDefault().getPreferenceStore());
@@ -113,6 +122,10 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
         addField(new BooleanFieldEditor(USE_PYLINT, "Use PyLint?", p));
         addField(new BooleanFieldEditor(USE_CONSOLE, "Redirect PyLint output to console?", p));
         addField(new IntegerFieldEditor(MAX_PYLINT_DELTA, "Max simultaneous processes for PyLint?", p));
+        addField(new BooleanFieldEditor(USE_PYLINT_BATCH,
+                "Pass many files per PyLint process (in a pool with one process per core)?", p));
+        addField(new IntegerFieldEditor(PYLINT_BATCH_SIZE, "Max files per PyLint process (when passing many files)?",
+                p));
         FileFieldEditor fileField = new FileFieldEditor(PYLINT_FILE_LOCATION, "Location of the pylint executable:",
                 true, p);
         addField(fileField);
@@ -248,6 +261,14 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
         return PydevPrefs.getPreferences().getInt(MAX_PYLINT_DELTA);
     }
 
+    public static boolean useBatchMode() {
+        return PydevPrefs.getPreferences().getBoolean(USE_PYLINT_BATCH);
+    }
+
+    public static int getBatchSize() {
+        return PydevPrefs.getPreferences().getInt(PYLINT_BATCH_SIZE);
+    }
+
     public static int wSeverity() {
         return PydevPrefs.getPreferences().getInt(SEVERITY_WARNINGS);
     }
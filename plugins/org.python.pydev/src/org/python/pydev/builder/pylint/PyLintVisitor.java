@@ -15,11 +15,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -28,10 +26,10 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.jface.text.IRegion;
 import org.eclipse.ui.console.IOConsoleOutputStream;
 import org.python.pydev.builder.PyDevBuilderVisitor;
 import org.python.pydev.consoles.MessageConsoles;
@@ -48,7 +46,7 @@ import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_ui.UIConstants;
-import org.python.pydev.shared_ui.utils.PyMarkerUtils;
+import org.python.pydev.shared_ui.utils.PyMarkerSink;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
 /**
@@ -79,7 +77,7 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
         ICallback0<IDocument> document;
         IPath location;
 
-        List<Object[]> markers = new ArrayList<Object[]>();
+        List<MarkerInfo> markers = new ArrayList<MarkerInfo>();
 
         public PyLintThread(IResource resource, ICallback0<IDocument> document, IPath location) {
             setName("PyLint thread");
@@ -112,30 +110,7 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
                     final IDocument doc = document.call();
                     passPyLint(resource, out, doc);
 
-                    new Job("Adding markers") {
-
-                        @Override
-                        protected IStatus run(IProgressMonitor monitor) {
-
-                            ArrayList<MarkerInfo> lst = new ArrayList<PyMarkerUtils.MarkerInfo>();
-
-                            for (Iterator<Object[]> iter = markers.iterator(); iter.hasNext();) {
-                                Object[] el = iter.next();
-
-                                String tok = (String) el[0];
-                                int priority = ((Integer) el[1]).intValue();
-                                String id = (String) el[2];
-                                int line = ((Integer) el[3]).intValue();
-
-                                lst.add(new PyMarkerUtils.MarkerInfo(doc, "ID:" + id + " " + tok,
-                                        PYLINT_PROBLEM_MARKER, priority, false, false, line, 0, line, 0, null));
-                            }
-
-                            PyMarkerUtils.replaceMarkers(lst, resource, PYLINT_PROBLEM_MARKER, true, monitor);
-
-                            return PydevPlugin.makeStatus(Status.OK, "", null);
-                        }
-                    }.schedule();
+                    PyMarkerSink.getInstance().replaceMarkers(markers, resource, PYLINT_PROBLEM_MARKER, true, true);
                 }
 
             } catch (final Exception e) {
@@ -155,25 +130,6 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
             }
         }
 
-        private IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
-            if (PyLintPrefPage.useConsole()) {
-                return MessageConsoles.getConsoleOutputStream("PyLint", UIConstants.PY_LINT_ICON);
-            } else {
-                return null;
-            }
-        }
-
-        /**
-         * @param tok
-         * @param type
-         * @param priority
-         * @param id
-         * @param line
-         */
-        private void addToMarkers(String tok, int priority, String id, int line) {
-            markers.add(new Object[] { tok, priority, id, line });
-        }
-
         /**
          * @param resource
          * @param out 
@@ -186,195 +142,103 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
          */
         private void passPyLint(IResource resource, IOConsoleOutputStream out, IDocument doc) throws CoreException,
                 MisconfigurationException, PythonNatureWithoutProjectException {
-            String script = FileUtils.getFileAbsolutePath(new File(PyLintPrefPage.getPyLintLocation()));
             String target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
 
-            // check whether lint.py module or pylint executable has been specified
-            boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
-
-            ArrayList<String> cmdList = new ArrayList<String>();
-            // pylint executable
-            if (!isPyScript) {
-                cmdList.add(script);
-            }
-            //user args
-            String userArgs = StringUtils.replaceNewLines(
-                    PyLintPrefPage.getPyLintArgs(), " ");
-            StringTokenizer tokenizer2 = new StringTokenizer(userArgs);
-            while (tokenizer2.hasMoreTokens()) {
-                cmdList.add(tokenizer2.nextToken());
-            }
-            // target file to be linted
-            cmdList.add(target);
-            String[] cmdArray = cmdList.toArray(new String[0]);
-
             // run pylint in project location
             IProject project = resource.getProject();
-            File workingDir = project.getLocation().toFile();
-
-            Tuple<String, String> outTup;
-            if (isPyScript) {
-                // run Python script (lint.py) with the interpreter of current project
-                PythonNature nature = PythonNature.getPythonNature(project);
-                if (nature == null) {
-                    Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + project);
-                    Log.log(e);
-                    return;
-                }
-                String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
-                write("PyLint: Executing command line:", out, script, cmdArray);
-                outTup = new SimplePythonRunner().runAndGetOutputFromPythonScript(
-                        interpreter, script, cmdArray, workingDir, project);
-            } else {
-                // run executable command (pylint or pylint.bat or pylint.exe)
-                write("PyLint: Executing command line:", out, (Object) cmdArray);
-                outTup = new SimpleRunner().runAndGetOutput(
-                        cmdArray, workingDir, null, null, null);
+            Tuple<Process, String> processTup = createPyLintProcess(project, Arrays.asList(target), out);
+            if (processTup == null) {
+                return;
             }
+            Tuple<String, String> outTup = SimpleRunner.getProcessOutput(processTup.o1, processTup.o2,
+                    new NullProgressMonitor(), null);
             String output = outTup.o1;
             String errors = outTup.o2;
 
             write("PyLint: The stdout of the command line is:", out, output);
             write("PyLint: The stderr of the command line is:", out, errors);
 
-            StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
-
-            boolean useW = PyLintPrefPage.useWarnings();
-            boolean useE = PyLintPrefPage.useErrors();
-            boolean useF = PyLintPrefPage.useFatal();
-            boolean useC = PyLintPrefPage.useCodingStandard();
-            boolean useR = PyLintPrefPage.useRefactorTips();
-
-            //Set up local values for severity
-            int wSeverity = PyLintPrefPage.wSeverity();
-            int eSeverity = PyLintPrefPage.eSeverity();
-            int fSeverity = PyLintPrefPage.fSeverity();
-            int cSeverity = PyLintPrefPage.cSeverity();
-            int rSeverity = PyLintPrefPage.rSeverity();
-
             //System.out.println(output);
-            if (output.indexOf("Traceback (most recent call last):") != -1) {
+            if (PyLintOutputParser.hasTraceback(output)) {
                 Throwable e = new RuntimeException("PyLint ERROR: \n" + output);
                 Log.log(e);
                 return;
             }
-            if (errors.indexOf("Traceback (most recent call last):") != -1) {
+            if (PyLintOutputParser.hasTraceback(errors)) {
                 Throwable e = new RuntimeException("PyLint ERROR: \n" + errors);
                 Log.log(e);
                 return;
             }
-            while (tokenizer.hasMoreTokens()) {
-                String tok = tokenizer.nextToken();
-
-                try {
-                    boolean found = false;
-                    int priority = 0;
-
-                    //W0611:  3: Unused import finalize
-                    //F0001:  0: Unable to load module test.test2 (list index out of range)
-                    //C0321: 25:fdfd: More than one statement on a single line
-                    int indexOfDoublePoints = tok.indexOf(":");
-                    if (indexOfDoublePoints != -1) {
-
-                        if (tok.startsWith("C") && useC) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = cSeverity;
-                        } else if (tok.startsWith("R") && useR) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = rSeverity;
-                        } else if (tok.startsWith("W") && useW) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = wSeverity;
-                        } else if (tok.startsWith("E") && useE) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_ERROR;
-                            priority = eSeverity;
-                        } else if (tok.startsWith("F") && useF) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_ERROR;
-                            priority = fSeverity;
-                        } else {
-                            continue;
-                        }
-
-                    } else {
-                        continue;
-                    }
-
-                    try {
-                        if (found) {
-                            int line = -1;
-                            String id = "";
-                            if (tok.indexOf(':') == 1) {
-                                // PyLint >= 1.0 has symbolic id at end of line, enclosed in parentheses
-                                Pattern p = PYLINT_MATCH_PATTERN;
-                                Matcher m = p.matcher(tok);
-                                if (m.matches()) {
-                                    line = Integer.parseInt(tok.substring(m.start(1), m.end(1)));
-                                    id = tok.substring(m.start(4), m.end(4)).trim();
-                                    tok = tok.substring(m.start(3), m.end(3)).trim();
-                                } else {
-                                    continue;
-                                }
-                            } else {
-                                // PyLint < 1.0 has 'Axxxx' alphanumeric id before first colon
-                                id = tok.substring(0, tok.indexOf(":")).trim();
-
-                                int i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
 
-                                tok = tok.substring(i + 1);
+            PyLintOutputParser parser = new PyLintOutputParser();
+            StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
+            while (tokenizer.hasMoreTokens()) {
+                parser.parseLine(tokenizer.nextToken(), doc, markers);
+            }
+        }
 
-                                i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
+    }
 
-                                final String substring = tok.substring(0, i).trim();
-                                //On PyLint 0.24 it started giving line,col (and not only the line).
-                                line = Integer.parseInt(StringUtils.split(substring, ',').get(0));
+    static IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
+        if (PyLintPrefPage.useConsole()) {
+            return MessageConsoles.getConsoleOutputStream("PyLint", UIConstants.PY_LINT_ICON);
+        } else {
+            return null;
+        }
+    }
 
-                                i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
+    /**
+     * Creates the process which will run pylint for the passed targets (in the project location).
+     * 
+     * @param project the project which contains the targets.
+     * @param targets the absolute paths of the files to be linted.
+     * @param out the console to write to (may be null).
+     * 
+     * @return the process created and its command line or null if it wasn't possible to create it.
+     */
+    static Tuple<Process, String> createPyLintProcess(IProject project, List<String> targets,
+            IOConsoleOutputStream out) throws MisconfigurationException, PythonNatureWithoutProjectException {
+        String script = FileUtils.getFileAbsolutePath(new File(PyLintPrefPage.getPyLintLocation()));
 
-                                tok = tok.substring(i + 1);
-                            }
-                            IRegion region = null;
-                            try {
-                                region = doc.getLineInformation(line - 1);
-                            } catch (Exception e) {
-                                region = doc.getLineInformation(line);
-                            }
-                            String lineContents = doc.get(region.getOffset(), region.getLength());
+        // check whether lint.py module or pylint executable has been specified
+        boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
 
-                            int pos = -1;
-                            if ((pos = lineContents.indexOf("IGNORE:")) != -1) {
-                                String lintW = lineContents.substring(pos + "IGNORE:".length());
-                                if (lintW.startsWith(id)) {
-                                    continue;
-                                }
-                            }
-                            addToMarkers(tok, priority, id, line - 1);
-                        }
-                    } catch (RuntimeException e2) {
-                        Log.log(e2);
-                    }
-                } catch (Exception e1) {
-                    Log.log(e1);
-                }
+        ArrayList<String> cmdList = new ArrayList<String>();
+        // pylint executable
+        if (!isPyScript) {
+            cmdList.add(script);
+        }
+        //user args
+        String userArgs = StringUtils.replaceNewLines(
+                PyLintPrefPage.getPyLintArgs(), " ");
+        StringTokenizer tokenizer2 = new StringTokenizer(userArgs);
+        while (tokenizer2.hasMoreTokens()) {
+            cmdList.add(tokenizer2.nextToken());
+        }
+        // target files to be linted
+        cmdList.addAll(targets);
+        String[] cmdArray = cmdList.toArray(new String[0]);
+
+        // run pylint in project location
+        File workingDir = project.getLocation().toFile();
+
+        if (isPyScript) {
+            // run Python script (lint.py) with the interpreter of current project
+            PythonNature nature = PythonNature.getPythonNature(project);
+            if (nature == null) {
+                Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + project);
+                Log.log(e);
+                return null;
             }
+            String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
+            write("PyLint: Executing command line:", out, script, cmdArray);
+            String[] parameters = SimplePythonRunner.preparePythonCallParameters(interpreter, script, cmdArray);
+            return new SimpleRunner().run(parameters, workingDir, nature, new NullProgressMonitor());
+        } else {
+            // run executable command (pylint or pylint.bat or pylint.exe)
+            write("PyLint: Executing command line:", out, (Object) cmdArray);
+            return new SimpleRunner().run(cmdArray, workingDir, null, new NullProgressMonitor());
         }
-
-        private static Pattern PYLINT_MATCH_PATTERN = Pattern
-                .compile("\\A[CRWEF]:\\s*(\\d+)(,\\s*\\d+)?:(.*)\\((.*)\\)\\s*\\Z");
-
     }
 
     @Override
@@ -384,6 +248,7 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
         }
         //Whenever PyLint is passed, the markers will be deleted.
         try {
+            PyMarkerSink.getInstance().discardPending(resource, PYLINT_PROBLEM_MARKER);
             resource.deleteMarkers(PYLINT_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
         } catch (CoreException e3) {
             Log.log(e3);
@@ -411,8 +276,12 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
             IFile file = (IFile) resource;
             IPath location = file.getRawLocation();
             if (location != null) {
-                PyLintThread thread = new PyLintThread(resource, document, location);
-                thread.start();
+                if (PyLintPrefPage.useBatchMode()) {
+                    PyLintBatchRunner.getInstance().addToRun(resource, document, location);
+                } else {
+                    PyLintThread thread = new PyLintThread(resource, document, location);
+                    thread.start();
+                }
             }
         }
     }
@@ -450,6 +319,10 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
      */
     @Override
     public int maxResourcesToVisit() {
+        if (PyLintPrefPage.useBatchMode()) {
+            //When many files are passed to each process, it's ok to visit all the resources.
+            return MAX_TO_VISIT_INFINITE;
+        }
         int i = PyLintPrefPage.getMaxPyLintDelta();
         if (i < 0) {
             i = 0;
@@ -12,7 +12,9 @@
 package org.python.pydev.builder.todo;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,7 +28,11 @@ import org.python.pydev.core.docutils.ParsingUtils;
 import org.python.pydev.core.docutils.SyntaxErrorException;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.logging.DebugSettings;
+import org.python.pydev.shared_core.cache.LRUMap;
 import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.MultiStringMatcher;
+import org.python.pydev.shared_core.string.MultiStringMatcher.Match;
+import org.python.pydev.shared_ui.utils.PyMarkerSink;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
@@ -35,6 +41,40 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
  */
 public class PyTodoVisitor extends PyDevBuilderVisitor {
 
+    private static final int MAX_RESOURCES_CACHED = 50000;
+
+    /**
+     * resource -> hash of the comments and strings (and the tags) used to create its current todo markers (so that
+     * the markers aren't computed again if no comment or string changed).
+     */
+    private static final Map<IResource, Long> resourceToCommentsHash = Collections
+            .synchronizedMap(new LRUMap<IResource, Long>(MAX_RESOURCES_CACHED));
+
+    private static final Object matcherLock = new Object();
+
+    /**
+     * Access synchronized with matcherLock.
+     */
+    private static List<String> lastTodoTags;
+
+    /**
+     * Matcher for lastTodoTags (access synchronized with matcherLock).
+     */
+    private static MultiStringMatcher lastMatcher;
+
+    /**
+     * @return a matcher for the given tags (reused while the tags don't change).
+     */
+    /*default*/static MultiStringMatcher getMatcher(List<String> todoTags) {
+        synchronized (matcherLock) {
+            if (lastMatcher == null || !todoTags.equals(lastTodoTags)) {
+                lastTodoTags = new ArrayList<String>(todoTags);
+                lastMatcher = new MultiStringMatcher(lastTodoTags);
+            }
+            return lastMatcher;
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -46,6 +86,8 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
             List<String> todoTags = PyTodoPrefPage.getTodoTags();
             try {
                 if (!isResourceInPythonpathProjectSources(resource, this.getPythonNature(resource), false)) {
+                    resourceToCommentsHash.remove(resource);
+                    PyMarkerSink.getInstance().discardPending(resource, IMarker.TASK);
                     PyMarkerUtils.removeMarkers(resource, IMarker.TASK);
                     return;
                 }
@@ -55,50 +97,101 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
             }
 
             try {
-                PyMarkerUtils.replaceMarkers(computeTodoMarkers(document.call(), todoTags), resource, IMarker.TASK,
-                        false, monitor);
+                IDocument doc = document.call();
+                String str = doc.get();
+                List<int[]> partitions = getCommentsAndStrings(str);
+                long hash = computeCommentsHash(doc, str, partitions, todoTags);
+                Long lastHash = resourceToCommentsHash.get(resource);
+                if (lastHash != null && lastHash == hash) {
+                    return; //No comment or string changed: the current markers are still valid.
+                }
+                PyMarkerSink.getInstance().replaceMarkers(
+                        computeTodoMarkers(doc, str, partitions, getMatcher(todoTags)), resource, IMarker.TASK,
+                        false, false);
+                resourceToCommentsHash.put(resource, hash);
                 //timer.printDiff("Total time to put markers: "+lst.size());
             } catch (Exception e) {
+                resourceToCommentsHash.remove(resource);
                 Log.log(e);
             }
         }
 
     }
 
+    /**
+     * @return the [start, end] offsets of the comments and strings in the passed contents.
+     */
+    private static List<int[]> getCommentsAndStrings(String str) {
+        List<int[]> ret = new ArrayList<int[]>();
+        ParsingUtils utils = ParsingUtils.create(str);
+        int len = utils.len();
+        try {
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                switch (c) {
+                    case '\'':
+                    case '\"':
+                        int j = utils.eatLiterals(null, i);
+                        ret.add(new int[] { i, j });
+                        i = j;
+                        break;
+
+                    case '#':
+                        j = utils.eatComments(null, i);
+                        ret.add(new int[] { i, j });
+                        i = j;
+                        break;
+                }
+            }
+        } catch (SyntaxErrorException e) {
+            Log.log(e); //Should not happen!
+        }
+        return ret;
+    }
+
+    /**
+     * @return a hash with the contents, offsets and lines of the comments and strings and the tags searched
+     * (everything the markers depend on).
+     */
+    private static long computeCommentsHash(IDocument document, String str, List<int[]> partitions,
+            List<String> todoTags) throws BadLocationException {
+        long hash = 1125899906842597L;
+        for (String tag : todoTags) {
+            hash = 31 * hash + tag.hashCode();
+        }
+        int len = str.length();
+        for (int[] partition : partitions) {
+            int start = partition[0];
+            int end = Math.min(partition[1], len);
+            hash = 31 * hash + start;
+            hash = 31 * hash + document.getLineOfOffset(start);
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + str.charAt(i);
+            }
+        }
+        return hash;
+    }
+
     /**
      * Computes the TODO markers available for this document.
      * Considers only TODO flags in strings and comments.
      */
     /*default*/List<MarkerInfo> computeTodoMarkers(IDocument document, List<String> todoTags)
             throws BadLocationException {
-        List<PyMarkerUtils.MarkerInfo> lst = new ArrayList<PyMarkerUtils.MarkerInfo>();
-        if (todoTags.size() > 0) {
+        String str = document.get();
+        return computeTodoMarkers(document, str, getCommentsAndStrings(str), getMatcher(todoTags));
+    }
 
-            String str = document.get();
-            ParsingUtils utils = ParsingUtils.create(str);
-            int len = utils.len();
+    private List<MarkerInfo> computeTodoMarkers(IDocument document, String str, List<int[]> partitions,
+            MultiStringMatcher matcher) {
+        List<PyMarkerUtils.MarkerInfo> lst = new ArrayList<PyMarkerUtils.MarkerInfo>();
+        if (!matcher.isEmpty()) {
             try {
-                for (int i = 0; i < len; i++) {
-                    char c = str.charAt(i);
-                    switch (c) {
-                        case '\'':
-                        case '\"':
-                            int j = utils.eatLiterals(null, i);
-                            check(i, j, document, lst, todoTags);
-                            i = j;
-                            break;
-
-                        case '#':
-                            j = utils.eatComments(null, i);
-                            check(i, j, document, lst, todoTags);
-                            i = j;
-                            break;
-                    }
+                for (int[] partition : partitions) {
+                    check(partition[0], Math.min(partition[1], str.length()), document, str, lst, matcher);
                 }
             } catch (BadLocationException e) {
                 //ignore (if document changed in the iteration).
-            } catch (SyntaxErrorException e) {
-                Log.log(e); //Should not happen!
             }
 
             if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
@@ -108,45 +201,55 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
         return lst;
     }
 
+    private static final Comparator<Match> TAG_ORDER_COMPARATOR = new Comparator<Match>() {
+
+        @Override
+        public int compare(Match o1, Match o2) {
+            if (o1.patternIndex != o2.patternIndex) {
+                return o1.patternIndex < o2.patternIndex ? -1 : 1;
+            }
+            return o1.start < o2.start ? -1 : (o1.start == o2.start ? 0 : 1);
+        }
+    };
+
     /**
      * Checks a partition of a document for todo tags (filling lst with the markers to be created).
+     *
+     * All the tags are searched in a single pass. Only 1 task is created per line: the one with the tag which
+     * appears first in the tags (and its first occurrence in the line).
      */
-    private void check(int i, int j, IDocument document, List<MarkerInfo> lst, List<String> todoTags)
-            throws BadLocationException {
-        String tok = document.get(i, j - i);
-        int index;
-        HashSet<Integer> lines = new HashSet<Integer>();
-        for (String element : todoTags) {
-
-            if (element.length() == 0) {
-                continue;
+    private void check(int i, int j, IDocument document, String str, List<MarkerInfo> lst,
+            MultiStringMatcher matcher) throws BadLocationException {
+        List<Match> matches = matcher.findAll(str, i, j);
+        if (matches.size() == 0) {
+            return;
+        }
+        Map<Integer, Match> lineToMatch = new HashMap<Integer, Match>();
+        for (Match match : matches) {
+            int line = document.getLineOfOffset(match.start);
+            Match current = lineToMatch.get(line);
+            if (current == null || TAG_ORDER_COMPARATOR.compare(match, current) < 0) {
+                lineToMatch.put(line, match);
             }
-            int start = 0;
-            while ((index = tok.indexOf(element, start)) != -1) {
-
-                start = index + element.length();
-
-                int absoluteStart = i + index;
-                int line = document.getLineOfOffset(absoluteStart);
-                if (lines.contains(line)) {
-                    //Only 1 TASK per line!
-                    continue;
-                } else {
-                    lines.add(line);
-                }
+        }
+        List<Match> found = new ArrayList<Match>(lineToMatch.values());
+        Collections.sort(found, TAG_ORDER_COMPARATOR);
 
-                String message = tok.substring(index).trim();
-                String markerType = IMarker.TASK;
-                int severity = IMarker.SEVERITY_WARNING;
-                boolean userEditable = false;
-                boolean isTransient = false;
-                int absoluteEnd = absoluteStart + message.length();
-                Map<String, Object> additionalInfo = null;
-
-                MarkerInfo markerInfo = new PyMarkerUtils.MarkerInfo(document, message, markerType, severity,
-                        userEditable, isTransient, line, absoluteStart, absoluteEnd, additionalInfo);
-                lst.add(markerInfo);
-            }
+        for (Match match : found) {
+            int absoluteStart = match.start;
+            int line = document.getLineOfOffset(absoluteStart);
+
+            String message = str.substring(absoluteStart, j).trim();
+            String markerType = IMarker.TASK;
+            int severity = IMarker.SEVERITY_WARNING;
+            boolean userEditable = false;
+            boolean isTransient = false;
+            int absoluteEnd = absoluteStart + message.length();
+            Map<String, Object> additionalInfo = null;
+
+            MarkerInfo markerInfo = new PyMarkerUtils.MarkerInfo(document, message, markerType, severity,
+                    userEditable, isTransient, line, absoluteStart, absoluteEnd, additionalInfo);
+            lst.add(markerInfo);
         }
     }
 
@@ -155,6 +258,7 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
      */
     @Override
     public void visitRemovedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
+        resourceToCommentsHash.remove(resource);
     }
 
 }
\ No newline at end of file
@@ -12,8 +12,19 @@
 package org.python.pydev.editor.actions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.Assert;
@@ -39,6 +50,7 @@ import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.SelectionKeeper;
 import org.python.pydev.shared_core.string.TextSelectionUtils;
+import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_core.structure.Tuple3;
 
 /**
@@ -198,7 +210,7 @@ public class PyFormatStd extends PyAction implements IFormatter {
     }
 
     /**
-     * Formats the given selection
+     * Formats the given selection (only the top-level statements which contain the lines passed are formatted).
      * @see IFormatter
      */
     public void formatSelection(IDocument doc, int[] regionsForSave, IPyFormatStdProvider edit, PySelection ps,
@@ -211,12 +223,17 @@ public class PyFormatStd extends PyAction implements IFormatter {
 
         String docContents = doc.get();
         String delimiter = PySelection.getDelimiter(doc);
-        IDocument formatted;
+        int[] starts;
         try {
-            formatted = new Document(formatAll(formatStd, true, docContents, delimiter));
+            //Note: throws the same errors that formatting the whole document would throw.
+            starts = getTopLevelStarts(docContents, true);
         } catch (SyntaxErrorException e) {
             return;
         }
+
+        //chunk index -> (first line of the chunk, formatted chunk)
+        Map<Integer, Tuple<Integer, IDocument>> formattedChunks = new HashMap<Integer, Tuple<Integer, IDocument>>();
+
         //Actually replace the formatted lines: in our formatting, lines don't change, so, this is OK :)
         try {
             for (int i : regionsForSave) {
@@ -224,13 +241,28 @@ public class PyFormatStd extends PyAction implements IFormatter {
                 int iStart = r.getOffset();
                 int iEnd = r.getOffset() + r.getLength();
 
-                String line = PySelection.getLine(formatted, i);
+                int chunk = Arrays.binarySearch(starts, iStart);
+                if (chunk < 0) {
+                    chunk = -chunk - 2;
+                }
+                Tuple<Integer, IDocument> formatted = formattedChunks.get(chunk);
+                if (formatted == null) {
+                    int chunkEnd = chunk + 1 < starts.length ? starts[chunk + 1] : docContents.length();
+                    String chunkContents = docContents.substring(starts[chunk], chunkEnd);
+                    formatted = new Tuple<Integer, IDocument>(doc.getLineOfOffset(starts[chunk]), new Document(
+                            formatStr(chunkContents, formatStd, delimiter, true)));
+                    formattedChunks.put(chunk, formatted);
+                }
+
+                String line = PySelection.getLine(formatted.o2, i - formatted.o1);
                 replaces.add(new Tuple3<Integer, Integer, String>(iStart, iEnd - iStart, line));
             }
 
         } catch (BadLocationException e) {
             Log.log(e);
             return;
+        } catch (SyntaxErrorException e) {
+            return;
         }
 
         //Apply the formatting from bottom to top (so that the indexes are still valid).
@@ -294,7 +326,7 @@ public class PyFormatStd extends PyAction implements IFormatter {
 
     private String formatAll(FormatStd formatStd, boolean throwSyntaxError, String d, String delimiter)
             throws SyntaxErrorException {
-        String formatted = formatStr(d, formatStd, delimiter, throwSyntaxError);
+        String formatted = formatStrInParallel(d, formatStd, delimiter, throwSyntaxError);
 
         //To finish, check the end of line.
         if (formatStd.addNewLineAtEndOfFile) {
@@ -330,6 +362,186 @@ public class PyFormatStd extends PyAction implements IFormatter {
         return formatStd;
     }
 
+    /**
+     * Documents with less chars than this are always formatted in the current thread.
+     */
+    private static final int MIN_CHARS_TO_FORMAT_IN_PARALLEL = 64 * 1024;
+
+    /**
+     * Each task formatting in parallel should have at least this number of chars.
+     */
+    private static final int MIN_CHARS_PER_TASK = 16 * 1024;
+
+    /**
+     * Time after which an idle formatting thread finishes.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Object lockExecutor = new Object();
+
+    private static ThreadPoolExecutor executor;
+
+    /**
+     * @return the executor for formatting in parallel (its threads are daemon and finish when idle, so, it never needs
+     * to be shut down).
+     */
+    private static ExecutorService getExecutor() {
+        synchronized (lockExecutor) {
+            if (executor == null) {
+                int threads = Runtime.getRuntime().availableProcessors();
+                executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "PyFormatStd");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * Gets the offsets where the top-level statements start (i.e.: a line starting with a name or a decorator which
+     * is not inside a parenthesis, literal nor a line continuation).
+     * 
+     * The formatting of each top-level statement doesn't depend on what comes before it, so, formatting each one
+     * separately and joining the results gives the same output of formatting the whole string.
+     * 
+     * @param throwSyntaxError if true, the same syntax errors found when formatting the whole string are thrown.
+     * @return the offsets (the first one is always 0).
+     */
+    /*default*/static int[] getTopLevelStarts(String str, boolean throwSyntaxError) throws SyntaxErrorException {
+        ParsingUtils parsingUtils = ParsingUtils.create(str, throwSyntaxError);
+        int len = str.length();
+        List<Integer> starts = new ArrayList<Integer>();
+        starts.add(0);
+
+        int parensLevel = 0;
+        char prev = '\0';
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '\'':
+                case '"':
+                    i = parsingUtils.eatLiterals(null, i);
+                    break;
+
+                case '(':
+                    parensLevel++;
+                    break;
+
+                case ')':
+                    if (parensLevel > 0) {
+                        parensLevel--;
+                    }
+                    break;
+
+                case '#':
+                    //The new line is the last char of the comment.
+                    i = parsingUtils.eatComments(null, i);
+                    if (i >= len) {
+                        break;
+                    }
+                    c = str.charAt(i);
+                    //FALLTHROUGH
+
+                case '\r':
+                case '\n':
+                    if (c == '\r' && i < len - 1 && str.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    if (parensLevel == 0 && prev != '\\' && i < len - 1) {
+                        char next = str.charAt(i + 1);
+                        if (Character.isJavaIdentifierStart(next) || next == '@') {
+                            starts.add(i + 1);
+                        }
+                    }
+                    break;
+            }
+            prev = c;
+        }
+        if (parensLevel > 0 && throwSyntaxError) {
+            throw new SyntaxErrorException("No closing ')' found.");
+        }
+
+        int[] ret = new int[starts.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = starts.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Formats the string (with the same results of formatStr), but big strings are split in its top-level
+     * statements, which are formatted in parallel.
+     */
+    /*default*/String formatStrInParallel(String str, FormatStd std, String delimiter, boolean throwSyntaxError)
+            throws SyntaxErrorException {
+        int len = str.length();
+        if (len < MIN_CHARS_TO_FORMAT_IN_PARALLEL) {
+            return formatStr(str, std, delimiter, throwSyntaxError);
+        }
+        int tasks = Math.min(Runtime.getRuntime().availableProcessors() * 2, len / MIN_CHARS_PER_TASK);
+        return formatStrInParallel(str, std, delimiter, throwSyntaxError, tasks);
+    }
+
+    /**
+     * Formats the string splitting its top-level statements in (at most) the given number of tasks (each with
+     * contiguous statements of about the same size).
+     */
+    /*default*/String formatStrInParallel(final String str, final FormatStd std, final String delimiter,
+            final boolean throwSyntaxError, int tasks) throws SyntaxErrorException {
+        int[] starts = getTopLevelStarts(str, false);
+        if (tasks <= 1 || starts.length <= 1) {
+            return formatStr(str, std, delimiter, throwSyntaxError);
+        }
+
+        int len = str.length();
+        List<Callable<String>> callables = new ArrayList<Callable<String>>(tasks);
+        int taskStart = 0;
+        for (int i = 1; i <= starts.length; i++) {
+            int offset = i < starts.length ? starts[i] : len;
+            //Split when the offset passes the expected end of the current task (or at the end).
+            if (offset == len || offset >= (long) len * (callables.size() + 1) / tasks) {
+                final String part = str.substring(taskStart, offset);
+                callables.add(new Callable<String>() {
+
+                    public String call() throws Exception {
+                        return formatStr(part, std, delimiter, throwSyntaxError);
+                    }
+                });
+                taskStart = offset;
+                if (offset == len) {
+                    break;
+                }
+            }
+        }
+
+        FastStringBuffer buf = new FastStringBuffer(len + len / 10);
+        try {
+            for (Future<String> future : getExecutor().invokeAll(callables)) {
+                buf.append(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return formatStr(str, std, delimiter, throwSyntaxError);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SyntaxErrorException) {
+                throw (SyntaxErrorException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return buf.toString();
+    }
+
     /**
      * This method formats a string given some standard.
      * 
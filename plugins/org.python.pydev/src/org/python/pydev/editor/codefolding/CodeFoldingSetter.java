@@ -19,6 +19,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -30,7 +34,6 @@ import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
 import org.eclipse.ui.IPropertyListener;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.log.Log;
-import org.python.pydev.core.performanceeval.OptimizationRelatedConstants;
 import org.python.pydev.editor.PyEdit;
 import org.python.pydev.parser.jython.ISpecialStr;
 import org.python.pydev.parser.jython.SimpleNode;
@@ -69,8 +72,71 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener {
 
     private PyEdit editor;
 
+    /**
+     * Number of times we'll retry to get the annotation model (with a 100 millis delay).
+     */
+    private static final int MAX_RETRIES_TO_GET_MODEL = 10;
+
+    private final Object lock = new Object();
+
+    /**
+     * The last ast received which still wasn't handled (access synchronized with lock).
+     */
+    private SimpleNode pendingAst;
+
+    /**
+     * Whether there's an ast still not handled (the ast itself may be null).
+     */
+    private boolean hasPendingAst;
+
+    private int retriesToGetModel;
+
+    /**
+     * The marks are computed and applied in a job (so that the parser and the UI are not stalled by it). If
+     * many asts are received while the job is running, only the last one is used.
+     */
+    private final Job foldingJob = new Job("Update code folding") {
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            SimpleNode ast;
+            synchronized (lock) {
+                if (!hasPendingAst) {
+                    return Status.OK_STATUS;
+                }
+                ast = pendingAst;
+                pendingAst = null;
+                hasPendingAst = false;
+            }
+
+            ProjectionAnnotationModel model = (ProjectionAnnotationModel) editor
+                    .getAdapter(ProjectionAnnotationModel.class);
+            if (model == null) {
+                //this had to be done because sometimes we get here and we still are unable to get the
+                //projection annotation model. (there should be a better way, but this solves it...
+                //even if it looks like a hack...)
+                if (retriesToGetModel < MAX_RETRIES_TO_GET_MODEL) {
+                    retriesToGetModel++;
+                    synchronized (lock) {
+                        if (!hasPendingAst) {
+                            pendingAst = ast;
+                            hasPendingAst = true;
+                        }
+                    }
+                    this.schedule(100);
+                }
+                return Status.OK_STATUS;
+            }
+            retriesToGetModel = 0;
+            addMarksToModel(ast, model, monitor);
+            return Status.OK_STATUS;
+        }
+    };
+
     public CodeFoldingSetter(PyEdit editor) {
         this.editor = editor;
+        foldingJob.setSystem(true);
+        foldingJob.setPriority(Job.SHORT);
     }
 
     /*
@@ -78,71 +144,27 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener {
      * 
      * @see org.python.pydev.editor.model.IModelListener#modelChanged(org.python.pydev.editor.model.AbstractNode)
      */
-    public synchronized void modelChanged(final ISimpleNode ast) {
-        final SimpleNode root2 = (SimpleNode) ast;
-        ProjectionAnnotationModel model = (ProjectionAnnotationModel) editor
-                .getAdapter(ProjectionAnnotationModel.class);
-
-        if (model == null) {
-            //we have to get the model to do it... so, start a thread and try until get it...
-            //this had to be done because sometimes we get here and we still are unable to get the
-            //projection annotation model. (there should be a better way, but this solves it...
-            //even if it looks like a hack...)
-            Thread t = new Thread() {
-                public void run() {
-                    ProjectionAnnotationModel modelT = null;
-                    for (int i = 0; i < 10 && modelT == null; i++) { //we will try it for 10 secs...
-                        try {
-                            sleep(100);
-                        } catch (InterruptedException e) {
-                            Log.log(e);
-                        }
-                        modelT = (ProjectionAnnotationModel) editor.getAdapter(ProjectionAnnotationModel.class);
-                        if (modelT != null) {
-                            addMarksToModel(root2, modelT);
-                            break;
-                        }
-                    }
-                }
-            };
-            t.setPriority(Thread.MIN_PRIORITY);
-            t.setName("CodeFolding - get annotation model");
-            t.start();
-        } else {
-            addMarksToModel(root2, model);
+    public void modelChanged(final ISimpleNode ast) {
+        synchronized (lock) {
+            pendingAst = (SimpleNode) ast;
+            hasPendingAst = true;
         }
-
+        foldingJob.schedule();
     }
 
     /**
      * Given the ast, create the needed marks and set them in the passed model.
      */
-    @SuppressWarnings("unchecked")
-    private synchronized void addMarksToModel(SimpleNode root2, ProjectionAnnotationModel model) {
+    private void addMarksToModel(SimpleNode root2, ProjectionAnnotationModel model, IProgressMonitor monitor) {
         try {
             if (model != null) {
-                ArrayList<PyProjectionAnnotation> existing = new ArrayList<PyProjectionAnnotation>();
-
-                //get the existing annotations
-                Iterator<PyProjectionAnnotation> iter = model.getAnnotationIterator();
-                while (iter != null && iter.hasNext()) {
-                    PyProjectionAnnotation element = iter.next();
-                    existing.add(element);
-                }
-
-                //now, remove the annotations not used and add the new ones needed
                 IDocument doc = editor.getDocument();
                 if (doc != null) { //this can happen if we change the input of the editor very quickly.
                     List<FoldingEntry> marks = getMarks(doc, root2);
-                    Map<ProjectionAnnotation, Position> annotationsToAdd;
-                    if (marks.size() > OptimizationRelatedConstants.MAXIMUM_NUMBER_OF_CODE_FOLDING_MARKS) {
-                        annotationsToAdd = new HashMap<ProjectionAnnotation, Position>();
-
-                    } else {
-                        annotationsToAdd = getAnnotationsToAdd(marks, model, existing);
+                    if (monitor.isCanceled()) {
+                        return;
                     }
-
-                    model.replaceAnnotations(existing.toArray(new Annotation[existing.size()]), annotationsToAdd);
+                    updateModel(model, doc, marks);
                 }
             }
         } catch (Exception e) {
@@ -151,41 +173,57 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener {
     }
 
     /**
-     * To add a mark, we have to do the following:
-     * 
-     * Get the current node to add and find the next that is on the same indentation or on an indentation that is lower 
-     * than the current (this will mark the end of the selection).
+     * Updates the annotations in the model so that they reflect the passed marks. Annotations whose position
+     * didn't change are kept as is (so, their collapsed state is kept and the viewer only has to deal with
+     * the annotations that actually changed).
      * 
-     * If we don't find that, the end of the selection is the end of the file.
+     * @return a tuple with the number of annotations removed and added.
      */
-    private Map<ProjectionAnnotation, Position> getAnnotationsToAdd(List<FoldingEntry> nodes,
-            ProjectionAnnotationModel model, List<PyProjectionAnnotation> existing) {
+    @SuppressWarnings("unchecked")
+    public static Tuple<Integer, Integer> updateModel(ProjectionAnnotationModel model, IDocument doc,
+            List<FoldingEntry> marks) {
+        //get the existing annotations (indexed by their position)
+        Map<Position, Annotation> existing = new HashMap<Position, Annotation>();
+        List<Annotation> toRemove = new ArrayList<Annotation>();
+        Iterator<Annotation> iter = model.getAnnotationIterator();
+        while (iter != null && iter.hasNext()) {
+            Annotation element = iter.next();
+            Position position = model.getPosition(element);
+            if (position == null || position.isDeleted() || existing.containsKey(position)) {
+                toRemove.add(element);
+            } else {
+                existing.put(position, element);
+            }
+        }
 
+        //now, remove the annotations not used and add the new ones needed
         Map<ProjectionAnnotation, Position> annotationsToAdd = new HashMap<ProjectionAnnotation, Position>();
-        try {
-            for (FoldingEntry element : nodes) {
-                if (element.startLine < element.endLine - 1) {
-                    Tuple<ProjectionAnnotation, Position> tup = getAnnotationToAdd(element, element.startLine,
-                            element.endLine, model, existing);
-                    if (tup != null) {
-                        annotationsToAdd.put(tup.o1, tup.o2);
-                    }
+        for (FoldingEntry element : marks) {
+            if (element.startLine < element.endLine - 1) {
+                Position position = getPosition(doc, element.startLine, element.endLine);
+                if (position == null) {
+                    continue;
+                }
+                //We have to be careful not to remove existing annotations because if this happens, previous code
+                //folding is not correct.
+                if (existing.remove(position) == null) {
+                    annotationsToAdd.put(new PyProjectionAnnotation(element.getAstEntry()), position);
                 }
             }
-        } catch (BadLocationException e) {
-        } catch (NullPointerException e) {
         }
-        return annotationsToAdd;
+        toRemove.addAll(existing.values());
+
+        if (toRemove.size() > 0 || annotationsToAdd.size() > 0) {
+            model.modifyAnnotations(toRemove.toArray(new Annotation[toRemove.size()]), annotationsToAdd, null);
+        }
+        return new Tuple<Integer, Integer>(toRemove.size(), annotationsToAdd.size());
     }
 
     /**
-     * @return an annotation that should be added (or null if that entry already has an annotation
-     * added for it).
+     * @return the position from the start line to the end line (or null if it's not a valid position).
      */
-    private Tuple<ProjectionAnnotation, Position> getAnnotationToAdd(FoldingEntry node, int start, int end,
-            ProjectionAnnotationModel model, List<PyProjectionAnnotation> existing) throws BadLocationException {
+    private static Position getPosition(IDocument document, int start, int end) {
         try {
-            IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
             int offset = document.getLineOffset(start);
             int endOffset = offset;
             try {
@@ -195,9 +233,7 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener {
                 IRegion lineInformation = document.getLineInformation(end);
                 endOffset = lineInformation.getOffset() + lineInformation.getLength();
             }
-            Position position = new Position(offset, endOffset - offset);
-
-            return getAnnotationToAdd(position, node, model, existing);
+            return new Position(offset, endOffset - offset);
 
         } catch (BadLocationException x) {
             //this could happen
@@ -205,23 +241,6 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener {
         return null;
     }
 
-    /**
-     * We have to be careful not to remove existing annotations because if this happens, previous code folding is not correct.
-     */
-    private Tuple<ProjectionAnnotation, Position> getAnnotationToAdd(Position position, FoldingEntry node,
-            ProjectionAnnotationModel model, List<PyProjectionAnnotation> existing) {
-        for (Iterator<PyProjectionAnnotation> iter = existing.iterator(); iter.hasNext();) {
-            PyProjectionAnnotation element = iter.next();
-            Position existingPosition = model.getPosition(element);
-            if (existingPosition.equals(position)) {
-                //ok, do nothing to this annotation (neither remove nor add, as it already exists in the correct place).
-                existing.remove(element);
-                return null;
-            }
-        }
-        return new Tuple<ProjectionAnnotation, Position>(new PyProjectionAnnotation(node.getAstEntry()), position);
-    }
-
     /*
      * (non-Javadoc)
      * 
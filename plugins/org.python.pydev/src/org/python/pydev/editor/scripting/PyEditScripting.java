@@ -14,8 +14,7 @@ import java.util.ListResourceBundle;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.IDocument;
-import org.python.pydev.jython.IPythonInterpreter;
-import org.python.pydev.jython.JythonPlugin;
+import org.python.pydev.jython.SharedScriptingRuntime;
 import org.python.pydev.shared_ui.editor.BaseEditor;
 import org.python.pydev.shared_ui.editor.IPyEditListener;
 
@@ -23,35 +22,26 @@ import org.python.pydev.shared_ui.editor.IPyEditListener;
  * This class is used for scripting in Pydev.
  * It listens to the PyEdit actions and passes what is needed for the interpreter.
  * 
- * A new PyEditScripting is created for each editor. Therefore, we have one interpreter for each editor.
+ * A new PyEditScripting is created for each editor. Each editor has its own namespace, but the interpreters
+ * (and the compiled scripts) are shared among all the editors (see: SharedScriptingRuntime).
  * 
  * @author Fabio
  */
 public class PyEditScripting implements IPyEditListener {
 
-    private IPythonInterpreter interpreter;
-
-    private static Object systemGlobals = null;
+    private Object namespace;
 
     public PyEditScripting() {
-        createInterpreter();
-    }
-
-    private void createInterpreter() {
-        if (interpreter == null) {
-            interpreter = JythonPlugin.newPythonInterpreter();
-            if (systemGlobals == null) {
-                interpreter.exec("systemGlobals = {}");
-                systemGlobals = interpreter.get("systemGlobals");
-            }
-        }
+        namespace = SharedScriptingRuntime.getInstance().createNamespace();
     }
 
     private void doExec(HashMap<String, Object> locals) {
-        createInterpreter();
-        locals.put("systemGlobals", systemGlobals);
-        JythonPlugin.execAll(locals, "pyedit", interpreter); //execute all the files that start with 'pyedit' that are located beneath
-                                                             //the org.python.pydev.jython/jysrc directory and some user specified dir (if any).
+        if (namespace == null) {
+            return; //already disposed
+        }
+        //execute all the files that start with 'pyedit' that are located beneath
+        //the org.python.pydev.jython/jysrc directory and some user specified dir (if any).
+        SharedScriptingRuntime.getInstance().execAll(namespace, locals, "pyedit");
     }
 
     public void onSave(BaseEditor edit, IProgressMonitor monitor) {
@@ -74,8 +64,7 @@ public class PyEditScripting implements IPyEditListener {
         locals.put("editor", edit);
         doExec(locals);
 
-        interpreter.cleanup();
-        interpreter = null;
+        namespace = null;
     }
 
     public void onSetDocument(IDocument document, BaseEditor edit, IProgressMonitor monitor) {
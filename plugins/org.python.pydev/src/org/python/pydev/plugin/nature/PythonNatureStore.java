@@ -16,6 +16,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,9 +41,11 @@ import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.ProjectModulesManager;
@@ -88,13 +91,90 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
      */
     private volatile Document document = null;
 
+    /**
+     * The properties in the document (published whenever the document changes). Reads only go through it, so,
+     * they don't need to lock nor to go through the dom.
+     */
+    private volatile PropertiesSnapshot snapshot = PropertiesSnapshot.EMPTY;
+
     private static final boolean TRACE_PYTHON_NATURE_STORE = false;
 
+    /**
+     * Time to wait for other changes before writing the file (i.e.: the version and the pythonpath are usually
+     * changed together).
+     */
+    private static final long STORE_DELAY_MILLIS = 100;
+
     private StringBuffer indent = new StringBuffer();
 
     private volatile boolean inInit;
 
+    /**
+     * Whether there are changes in the document still not written to the file. Access synchronized with this.
+     */
+    private boolean storePending;
+
+    private final Job storeJob;
+
+    /**
+     * Immutable view of the properties in the xml document.
+     */
+    private static final class PropertiesSnapshot {
+
+        private static final PropertiesSnapshot EMPTY = new PropertiesSnapshot(new HashMap<String, String>(),
+                new HashMap<String, String>(), new HashMap<String, Map<String, String>>(), null);
+
+        /**
+         * key string -> value of pydev_property
+         */
+        private final Map<String, String> properties;
+
+        /**
+         * key string -> paths of pydev_pathproperty separated by |
+         */
+        private final Map<String, String> pathProperties;
+
+        /**
+         * key string -> (unmodifiable) map of pydev_variables_property
+         */
+        private final Map<String, Map<String, String>> mapProperties;
+
+        /**
+         * The error if the properties couldn't be gotten from the document (reported when reading).
+         */
+        private final Exception error;
+
+        private PropertiesSnapshot(Map<String, String> properties, Map<String, String> pathProperties,
+                Map<String, Map<String, String>> mapProperties, Exception error) {
+            this.properties = properties;
+            this.pathProperties = pathProperties;
+            this.mapProperties = mapProperties;
+            this.error = error;
+        }
+    }
+
+    public PythonNatureStore() {
+        storeJob = new Job("Saving " + STORE_FILE_NAME) {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                synchronized (PythonNatureStore.this) {
+                    if (storePending) {
+                        doStore();
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        storeJob.setSystem(true);
+    }
+
     public String getLastLoadedContents() {
+        synchronized (this) {
+            if (storePending) {
+                doStore();
+            }
+        }
         return lastLoadedContents;
     }
 
@@ -128,9 +208,14 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
                 //removing configurations...
                 traceFunc("setProject: null");
                 ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+                if (storePending) {
+                    doStore(); //don't lose changes not written yet.
+                }
+                storeJob.cancel();
                 this.project = null;
                 this.xmlFile = null;
                 this.document = null;
+                this.snapshot = PropertiesSnapshot.EMPTY;
 
             } else {
                 traceFunc("setProject - ", project.getName());
@@ -156,7 +241,7 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
     /**
      * @param function the function that is checking for load
      */
-    private synchronized void checkLoad(String function) {
+    private void checkLoad(String function) {
         if (!loaded) {
             Throwable e = new RuntimeException(StringUtils.format("%s still not loaded and '%s' already called.",
                     xmlFile, function));
@@ -167,12 +252,12 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
     /* (non-Javadoc)
      * @see org.python.pydev.plugin.nature.IPythonNatureStore#getPathProperty(org.eclipse.core.runtime.QualifiedName)
      */
-    public synchronized String getPathProperty(QualifiedName key) throws CoreException {
+    public String getPathProperty(QualifiedName key) throws CoreException {
         if (this.project == null) {
             return "";
         }
         checkLoad("getPathProperty");
-        String ret = getPathStringFromArray(getPathPropertyFromXml(key));
+        String ret = getSnapshot().pathProperties.get(getKeyString(key));
         traceFunc("END getPathProperty - ", key, ret);
         return ret;
     }
@@ -180,34 +265,80 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
     /* (non-Javadoc)
      * @see org.python.pydev.plugin.nature.IPythonNatureStore#getMapProperty(org.eclipse.core.runtime.QualifiedName)
      */
-    public synchronized Map<String, String> getMapProperty(QualifiedName key) throws CoreException {
+    public Map<String, String> getMapProperty(QualifiedName key) throws CoreException {
         if (this.project == null) {
             return null;
         }
         checkLoad("getMapProperty");
 
-        String[] keyAndValues = null;
-        synchronized (this) {
-            try {
-                Node propertyNode = findPropertyNodeInXml("pydev_variables_property", key);
-                if (propertyNode != null) {
-                    keyAndValues = getChildValuesWithType(propertyNode, "key", "value");
-                }
-            } catch (Exception e) {
-                traceFunc("END getMapProperty (EXCEPTION)");
-                IStatus status = new Status(IStatus.ERROR, "PythonNatureStore", -1, e.toString(), e);
-                throw new CoreException(status);
-            }
-        }
-
         Map<String, String> ret = null;
-        if (keyAndValues != null) {
-            ret = getMapStringFromArray(keyAndValues);
+        Map<String, String> map = getSnapshot().mapProperties.get(getKeyString(key));
+        if (map != null) {
+            ret = new HashMap<String, String>(map); //the caller may change it
         }
         traceFunc("END getMapProperty - ", key, ret);
         return ret;
     }
 
+    /**
+     * @return the current snapshot of the properties.
+     * @throws CoreException if the properties could not be gotten from the document.
+     */
+    private PropertiesSnapshot getSnapshot() throws CoreException {
+        PropertiesSnapshot current = this.snapshot;
+        if (current.error != null) {
+            Exception e = current.error;
+            IStatus status = new Status(IStatus.ERROR, "PythonNatureStore", -1, e.toString(), e);
+            throw new CoreException(status);
+        }
+        return current;
+    }
+
+    /**
+     * Creates a new snapshot with the properties in the document and publishes it. Must be called whenever the
+     * document changes.
+     */
+    private synchronized void updateSnapshot() {
+        traceFunc("updateSnapshot");
+        Map<String, String> properties = new HashMap<String, String>();
+        Map<String, String> pathProperties = new HashMap<String, String>();
+        Map<String, Map<String, String>> mapProperties = new HashMap<String, Map<String, String>>();
+        try {
+            NodeList childNodes = getRootNodeInXml().getChildNodes();
+            int len = childNodes != null ? childNodes.getLength() : 0;
+            for (int i = 0; i < len; i++) {
+                Node child = childNodes.item(i);
+                String name = getPropertyName(child);
+                if (name == null) {
+                    continue;
+                }
+                //Note: if the same property appears more than once, the first one is used.
+                String type = child.getNodeName();
+                if (type.equals("pydev_property")) {
+                    if (!properties.containsKey(name)) {
+                        properties.put(name, getTextContent(child));
+                    }
+
+                } else if (type.equals("pydev_pathproperty")) {
+                    if (!pathProperties.containsKey(name)) {
+                        pathProperties.put(name, getPathStringFromArray(getChildValuesWithType(child, "path")));
+                    }
+
+                } else if (type.equals("pydev_variables_property")) {
+                    if (!mapProperties.containsKey(name)) {
+                        String[] keyAndValues = getChildValuesWithType(child, "key", "value");
+                        mapProperties.put(name, keyAndValues != null ? Collections
+                                .unmodifiableMap(getMapStringFromArray(keyAndValues)) : null);
+                    }
+                }
+            }
+            this.snapshot = new PropertiesSnapshot(properties, pathProperties, mapProperties, null);
+        } catch (Exception e) {
+            this.snapshot = new PropertiesSnapshot(null, null, null, e);
+        }
+        traceFunc("END updateSnapshot");
+    }
+
     /* (non-Javadoc)
      * @see org.python.pydev.plugin.nature.IPythonNatureStore#setPathProperty(org.eclipse.core.runtime.QualifiedName, java.lang.String)
      */
@@ -256,8 +387,9 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
                     store = false;
                 }
 
+                updateSnapshot();
                 if (store) {
-                    doStore();
+                    requestStore();
                 }
 
             } catch (Exception e) {
@@ -315,6 +447,9 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
                 } catch (Exception e) {
                     handleProblemInXmlDocument(parser, file, e);
                 }
+                //Changed outside (i.e.: version control): the new contents win over changes still not written.
+                storePending = false;
+                updateSnapshot();
                 return true;
             }
         } catch (Exception e) {
@@ -354,6 +489,7 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
         migrateProperty(PythonNature.getPythonProjectVersionQualifiedName());
         migratePath(PythonPathNature.getProjectSourcePathQualifiedName());
         migratePath(PythonPathNature.getProjectExternalSourcePathQualifiedName());
+        updateSnapshot();
     }
 
     /**
@@ -427,7 +563,7 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
      * @param key
      * @return the assembled string key representation
      */
-    private synchronized String getKeyString(QualifiedName key) {
+    private String getKeyString(QualifiedName key) {
         traceFunc("getKeyString");
         String keyString = key.getQualifier() != null ? key.getQualifier() : "";
         String ret = keyString + "." + key.getLocalName();
@@ -453,16 +589,10 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
             for (int i = 0; i < childNodes.getLength(); i++) {
                 Node child = childNodes.item(i);
                 if (child.getNodeName().equals(type)) {
-                    NamedNodeMap attrs = child.getAttributes();
-                    if (attrs != null && attrs.getLength() > 0) {
-                        Node namedItem = attrs.getNamedItem("name");
-                        if (namedItem != null) {
-                            String name = namedItem.getNodeValue();
-                            if (name != null && name.equals(keyString)) {
-                                traceFunc("END findPropertyNodeInXml - ", child);
-                                return child;
-                            }
-                        }
+                    String name = getPropertyName(child);
+                    if (name != null && name.equals(keyString)) {
+                        traceFunc("END findPropertyNodeInXml - ", child);
+                        return child;
                     }
                 }
             }
@@ -471,6 +601,20 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
         return null;
     }
 
+    /**
+     * @return the value of the name attribute of a property node or null if it has no name.
+     */
+    private String getPropertyName(Node node) {
+        NamedNodeMap attrs = node.getAttributes();
+        if (attrs != null && attrs.getLength() > 0) {
+            Node namedItem = attrs.getNamedItem("name");
+            if (namedItem != null) {
+                return namedItem.getNodeValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the text contents of a nodes' children. The children shall have the specified type.
      * 
@@ -585,30 +729,21 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
     /* (non-Javadoc)
      * @see org.python.pydev.plugin.nature.IPythonNatureStore#getPropertyFromXml(org.eclipse.core.runtime.QualifiedName)
      */
-    public synchronized String getPropertyFromXml(QualifiedName key) {
+    public String getPropertyFromXml(QualifiedName key) {
         if (this.project == null) {
             return "";
         }
 
         traceFunc("getPropertyFromXml - ", key);
-        synchronized (this) {
-            checkLoad("getPropertyFromXml");
-            try {
-                Node propertyNode = findPropertyNodeInXml("pydev_property", key);
-
-                if (propertyNode != null) {
-                    String ret = getTextContent(propertyNode);
-                    traceFunc("END getPropertyFromXml -- ", ret);
-                    return ret;
-                }
-
-                traceFunc("END getPropertyFromXml (null)");
-                return null;
-            } catch (Exception e) {
-                traceFunc("END getPropertyFromXml (EXCEPTION)");
-                throw new RuntimeException("Error on document:" + document + " project:" + project, e);
-            }
+        checkLoad("getPropertyFromXml");
+        PropertiesSnapshot current = this.snapshot;
+        if (current.error != null) {
+            traceFunc("END getPropertyFromXml (EXCEPTION)");
+            throw new RuntimeException("Error on document:" + document + " project:" + project, current.error);
         }
+        String ret = current.properties.get(getKeyString(key));
+        traceFunc("END getPropertyFromXml -- ", ret);
+        return ret;
     }
 
     /* (non-Javadoc)
@@ -642,8 +777,9 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
                     store = false;
                 }
 
+                updateSnapshot();
                 if (store) {
-                    doStore();
+                    requestStore();
                 }
 
             } catch (Exception e) {
@@ -725,35 +861,6 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
         return ret;
     }
 
-    /**
-     * Retrieve the value of a path property from the Xml representation. If the property is not found in the Xml document, the eclipse persistent property of the same key is read and migrated to the
-     * xml representation.
-     * 
-     * @param key
-     * @return the array of strings representing paths
-     * @throws CoreException
-     */
-    private String[] getPathPropertyFromXml(QualifiedName key) throws CoreException {
-        traceFunc("getPathPropertyFromXml");
-        synchronized (this) {
-            try {
-                Node propertyNode = findPropertyNodeInXml("pydev_pathproperty", key);
-
-                if (propertyNode != null) {
-                    traceFunc("END getPathPropertyFromXml");
-                    return getChildValuesWithType(propertyNode, "path");
-                }
-
-                traceFunc("END getPathPropertyFromXml (null)");
-                return null;
-            } catch (Exception e) {
-                traceFunc("END getPathPropertyFromXml (EXCEPTION)");
-                IStatus status = new Status(IStatus.ERROR, "PythonNatureStore", -1, e.toString(), e);
-                throw new CoreException(status);
-            }
-        }
-    }
-
     /**
      * Store a path property in the xml document and request the storage of changes. If the paths parameter is null the property is removed from the document.
      * 
@@ -796,8 +903,9 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
                     store = false;
                 }
 
+                updateSnapshot();
                 if (store) {
-                    doStore();
+                    requestStore();
                 }
 
             } catch (Exception e) {
@@ -880,6 +988,15 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
         traceFunc("END resourceChanged -- rebuilt:", doRebuild);
     }
 
+    /**
+     * Requests the contents of the xml to be written to the file a bit later (so that many changes done at once are
+     * written together).
+     */
+    private synchronized void requestStore() {
+        storePending = true;
+        storeJob.schedule(STORE_DELAY_MILLIS);
+    }
+
     /**
      * This is the function that actually stores the contents of the xml into the file with the configurations.
      */
@@ -893,6 +1010,7 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
             traceFunc("END doStore (inInit)");
             return Status.OK_STATUS;
         }
+        storePending = false;
         synchronized (this) {
             if (document == null) {
                 traceFunc("END doStore (document == null)");
@@ -903,9 +1021,6 @@ class PythonNatureStore implements IResourceChangeListener, IPythonNatureStore {
             File file = getRawXmlFileLocation();
 
             try {
-                //Ok, we may receive multiple requests at once (e.g.: when updating the version and the pythonpath together), but
-                //as the file is pretty small, there should be no problems in writing it directly (if that proves a problem later on, we
-                //could have a *very* simple mechanism for saving it after some millis)
                 String str = new String(serializeDocument(document));
                 lastLoadedContents = str;
 
@@ -248,6 +248,8 @@ public class PydevPrefsInitializer extends AbstractPreferenceInitializer {
         //root
         node.putBoolean(PydevRootPrefs.CHECK_PREFERRED_PYDEV_SETTINGS,
                 PydevRootPrefs.DEFAULT_CHECK_PREFERRED_PYDEV_SETTINGS);
+        node.putBoolean(PydevRootPrefs.PACKAGE_EXPLORER_FAST_OUTLINE,
+                PydevRootPrefs.DEFAULT_PACKAGE_EXPLORER_FAST_OUTLINE);
 
     }
 
@@ -26,6 +26,9 @@ public class PydevRootPrefs extends FieldEditorPreferencePage implements IWorkbe
     public static final String CHECK_PREFERRED_PYDEV_SETTINGS = "CHECK_PREFERRED_PYDEV_SETTINGS";
     public static final boolean DEFAULT_CHECK_PREFERRED_PYDEV_SETTINGS = true;
 
+    public static final String PACKAGE_EXPLORER_FAST_OUTLINE = "PACKAGE_EXPLORER_FAST_OUTLINE";
+    public static final boolean DEFAULT_PACKAGE_EXPLORER_FAST_OUTLINE = true;
+
     public PydevRootPrefs() {
         setDescription(StringUtils.format("PyDev version: %s",
                 PydevPlugin.getVersion()));
@@ -44,6 +47,10 @@ public class PydevRootPrefs extends FieldEditorPreferencePage implements IWorkbe
                 "Check preferred Eclipse settings for PyDev on startup", p);
         addField(booleanField);
 
+        addField(new BooleanFieldEditor(PACKAGE_EXPLORER_FAST_OUTLINE,
+                "Compute the PyDev Package Explorer outline with the fast definitions parser (in background)?\n"
+                        + "(only classes, methods and attributes are shown)", p));
+
         addField(new ButtonFieldEditor("__UNUSED__", "Check preferred settings now.", p, new SelectionListener() {
 
             @Override
@@ -74,4 +81,8 @@ public class PydevRootPrefs extends FieldEditorPreferencePage implements IWorkbe
         return PydevPlugin.getDefault().getPreferenceStore().getBoolean(CHECK_PREFERRED_PYDEV_SETTINGS);
     }
 
+    public static boolean getPackageExplorerFastOutline() {
+        return PydevPlugin.getDefault().getPreferenceStore().getBoolean(PACKAGE_EXPLORER_FAST_OUTLINE);
+    }
+
 }
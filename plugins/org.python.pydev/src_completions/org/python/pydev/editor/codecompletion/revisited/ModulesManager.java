@@ -884,7 +884,7 @@ public abstract class ModulesManager implements IModulesManager {
                                     //NOTE: The nature (and so the grammar to be used) must be defined by this modules
                                     //manager (and not by the initial caller)!!
                                     n = AbstractModule.createModuleFromDoc(name, emptyModuleForZip.f, doc,
-                                            this.getNature(), false);
+                                            this.getNature(), false, deferFunctionBodies());
                                     SourceModule zipModule = (SourceModule) n;
                                     zipModule.zipFilePath = emptyModuleForZip.pathInZip;
                                     n = decorateModule(n, nature);
@@ -899,7 +899,8 @@ public abstract class ModulesManager implements IModulesManager {
                             try {
                                 //NOTE: The nature (and so the grammar to be used) must be defined by this modules
                                 //manager (and not by the initial caller)!!
-                                n = AbstractModule.createModule(name, e.f, this.getNature(), true);
+                                n = AbstractModule.createModule(name, e.f, this.getNature(), true,
+                                        deferFunctionBodies());
                                 n = decorateModule(n, nature);
                             } catch (IOException exc) {
                                 keyForCacheAccess.name = name;
@@ -1002,6 +1003,14 @@ public abstract class ModulesManager implements IModulesManager {
         return emptyModule;
     }
 
+    /**
+     * @return whether the statements in the body of the functions of the source modules created should only be kept
+     * in the ast when actually requested (only worth it for modules which are not changed by the user).
+     */
+    protected boolean deferFunctionBodies() {
+        return false;
+    }
+
     private ModulesKey createModulesKey(String name, File f) {
         ModulesKey newEntry = new ModulesKey(name, f);
         synchronized (modulesKeysLock) {
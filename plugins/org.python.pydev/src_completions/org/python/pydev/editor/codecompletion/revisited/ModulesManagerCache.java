@@ -9,18 +9,26 @@ package org.python.pydev.editor.codecompletion.revisited;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
 import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.shared_core.out_of_memory.IEvictableCache;
+import org.python.pydev.shared_core.out_of_memory.MemoryPressureManager;
 import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.utils.Metrics;
 
 /**
  * This is a 'global' cache implementation, that can have at most n objects in
  * the memory at any time.
  */
-final class ModulesManagerCache {
+final class ModulesManagerCache implements IEvictableCache {
     /**
      * Defines the maximum amount of modules that can be in the memory at any time (for all the managers)
      */
     private static final int MAX_NUMBER_OF_MODULES = 400;
 
+    /**
+     * A miss means that the module has to be created (and parsed again when requested).
+     */
+    private static final Metrics.HitRate HIT_RATE = Metrics.hitRate("ModulesManagerCache");
+
     /**
      * The access to the cache is synchronized
      */
@@ -29,6 +37,20 @@ final class ModulesManagerCache {
 
     ModulesManagerCache() {
         internalCache = new LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule>(MAX_NUMBER_OF_MODULES);
+        MemoryPressureManager.getInstance().register(this);
+    }
+
+    /**
+     * The modules have to be parsed again when evicted.
+     */
+    public int getRebuildCost() {
+        return REBUILD_COST_HIGH;
+    }
+
+    public int evict(double fraction) {
+        synchronized (lock) {
+            return internalCache.removeEldest(fraction);
+        }
     }
 
     /**
@@ -40,7 +62,11 @@ final class ModulesManagerCache {
 
             synchronized (lock) {
                 AbstractModule obj = internalCache.getObj(keyTuple);
-                if (obj == null && modulesManager.modulesKeys.containsKey(key)) {
+                if (obj != null) {
+                    HIT_RATE.hit();
+
+                } else if (modulesManager.modulesKeys.containsKey(key)) {
+                    HIT_RATE.miss();
                     key = modulesManager.modulesKeys.get(key); //get the 'real' key
                     obj = AbstractModule.createEmptyModule(key);
                     internalCache.add(keyTuple, obj);
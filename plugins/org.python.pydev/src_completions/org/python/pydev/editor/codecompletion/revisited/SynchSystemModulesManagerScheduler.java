@@ -37,7 +37,7 @@ import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.plugin.preferences.PydevPrefs;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.path_watch.EventsStackerRunnable;
-import org.python.pydev.shared_core.path_watch.IFilesystemChangesListener;
+import org.python.pydev.shared_core.path_watch.IFilesystemChangesListener2;
 import org.python.pydev.shared_core.path_watch.PathWatch;
 import org.python.pydev.shared_core.structure.DataAndImageTreeNode;
 import org.python.pydev.shared_core.structure.TreeNode;
@@ -362,7 +362,7 @@ public class SynchSystemModulesManagerScheduler implements IInterpreterManagerLi
      * Helper class: when a path in the IInterpreterInfo changes some content (or actual path),
      * it calls a listener to take action (i.e.: validate contents).
      */
-    public static final class InfoTracker implements IFilesystemChangesListener {
+    public static final class InfoTracker implements IFilesystemChangesListener2 {
 
         public final IInterpreterInfo info;
         public final IInterpreterManager manager;
@@ -387,6 +387,29 @@ public class SynchSystemModulesManagerScheduler implements IInterpreterManagerLi
             listener.onChangedIInterpreterInfo(this, file);
         }
 
+        @Override
+        public void filesChanged(List<File> added, List<File> removed) {
+            //Report only once for all the changes: a directory added has priority (as the listener waits for
+            //the directory to stop changing, i.e.: a copy operation), otherwise, any file changed.
+            File report = null;
+            for (File file : added) {
+                if (file.isDirectory()) {
+                    report = file;
+                    break;
+                }
+            }
+            if (report == null) {
+                if (added.size() > 0) {
+                    report = added.get(0);
+                } else if (removed.size() > 0) {
+                    report = removed.get(0);
+                }
+            }
+            if (report != null) {
+                listener.onChangedIInterpreterInfo(this, report);
+            }
+        }
+
         public void registerTracking(File f) {
             filepathsTracked.add(f);
         }
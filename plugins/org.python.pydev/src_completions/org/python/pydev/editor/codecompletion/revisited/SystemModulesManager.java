@@ -340,6 +340,15 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
         return null;
     }
 
+    /**
+     * The modules from the interpreter are mostly used for their definitions (so, the function bodies are only
+     * kept when requested).
+     */
+    @Override
+    protected boolean deferFunctionBodies() {
+        return true;
+    }
+
     /**
      * In the system modules manager, we also have to check for the builtins
      */
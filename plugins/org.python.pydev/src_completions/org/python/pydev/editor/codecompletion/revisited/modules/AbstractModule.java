@@ -267,9 +267,21 @@ public abstract class AbstractModule implements IModule {
      */
     public static AbstractModule createModule(String name, File f, IPythonNature nature, boolean checkForPath)
             throws IOException, MisconfigurationException {
+        return createModule(name, f, nature, checkForPath, false);
+    }
+
+    /**
+     * This method creates a source module from a file.
+     * 
+     * @param deferFunctionBodies if true, the statements in the body of the functions are only kept in the ast
+     * when actually requested (see: LazyFunctionBodies).
+     */
+    public static AbstractModule createModule(String name, File f, IPythonNature nature, boolean checkForPath,
+            boolean deferFunctionBodies) throws IOException, MisconfigurationException {
         if (PythonPathHelper.isValidFileMod(f.getName())) {
             if (PythonPathHelper.isValidSourceFile(f.getName())) {
-                return createModuleFromDoc(name, f, FileUtilsFileBuffer.getDocFromFile(f), nature, checkForPath);
+                return createModuleFromDoc(name, f, FileUtilsFileBuffer.getDocFromFile(f), nature, checkForPath,
+                        deferFunctionBodies);
 
             } else { //this should be a compiled extension... we have to get completions from the python shell.
                 return new CompiledModule(name, nature.getAstManager().getModulesManager());
@@ -286,16 +298,30 @@ public abstract class AbstractModule implements IModule {
      */
     public static SourceModule createModuleFromDoc(String name, File f, IDocument doc, IGrammarVersionProvider nature,
             boolean checkForPath) throws MisconfigurationException {
+        return createModuleFromDoc(name, f, doc, nature, checkForPath, false);
+    }
+
+    /** 
+     * This function creates the module given that you have a document (that will be parsed)
+     * 
+     * @param deferFunctionBodies if true, the statements in the body of the functions are only kept in the ast
+     * when actually requested (see: LazyFunctionBodies).
+     */
+    public static SourceModule createModuleFromDoc(String name, File f, IDocument doc, IGrammarVersionProvider nature,
+            boolean checkForPath, boolean deferFunctionBodies) throws MisconfigurationException {
         //for doc, we are only interested in python files.
 
         if (f != null) {
             if (!checkForPath || PythonPathHelper.isValidSourceFile(f.getName())) {
-                ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature, name,
-                        f));
+                PyParser.ParserInfo info = new PyParser.ParserInfo(doc, nature, name, f);
+                info.deferFunctionBodies = deferFunctionBodies;
+                ParseOutput obj = PyParser.reparseDocument(info);
                 return new SourceModule(name, f, (SimpleNode) obj.ast, obj.error);
             }
         } else {
-            ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature, name, f));
+            PyParser.ParserInfo info = new PyParser.ParserInfo(doc, nature, name, f);
+            info.deferFunctionBodies = deferFunctionBodies;
+            ParseOutput obj = PyParser.reparseDocument(info);
             return new SourceModule(name, f, (SimpleNode) obj.ast, obj.error);
         }
         return null;
@@ -25,6 +25,7 @@ import org.python.pydev.core.ILocalScope;
 import org.python.pydev.core.IToken;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.modules.SourceToken;
+import org.python.pydev.parser.LazyFunctionBodies;
 import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.parser.jython.ast.Assert;
 import org.python.pydev.parser.jython.ast.Attribute;
@@ -190,7 +191,7 @@ public class LocalScope implements ILocalScope {
                 if (onlyArgs) {
                     continue;
                 }
-                body = f.body;
+                body = LazyFunctionBodies.getBody(f);
             }
 
             else if (element instanceof ClassDef && !iter.hasNext()) {
@@ -311,8 +312,9 @@ public class LocalScope implements ILocalScope {
 
             if (element instanceof FunctionDef) {
                 FunctionDef f = (FunctionDef) element;
-                for (int i = 0; i < f.body.length; i++) {
-                    stmtType stmt = f.body[i];
+                stmtType[] body = LazyFunctionBodies.getBody(f);
+                for (int i = 0; i < body.length; i++) {
+                    stmtType stmt = body[i];
                     if (stmt != null) {
                         importedModules.addAll(GlobalModelVisitor.getTokens(stmt, GlobalModelVisitor.ALIAS_MODULES,
                                 moduleName, null, false));
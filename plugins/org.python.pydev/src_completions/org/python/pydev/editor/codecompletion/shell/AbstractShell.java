@@ -43,6 +43,7 @@ import org.python.pydev.shared_core.net.SocketUtil;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.utils.Metrics;
 import org.python.pydev.shared_core.utils.Timer;
 
 /**
@@ -58,6 +59,12 @@ public abstract class AbstractShell {
 
     public static final int BUFFER_SIZE = 1024 * 20; //When it was just 1024 it was 8 times slower for numpy completions!
 
+    /**
+     * Time from writing a request to the shell until its results are read (waiting for the lock is not included).
+     */
+    private static final Metrics.Timer ROUND_TRIP_TIMER = Metrics.timer("AbstractShell.roundTrip");
+    private static final Metrics.Counter ROUND_TRIP_FAILURES = Metrics.counter("AbstractShell.roundTripFailures");
+
     private static final int MAIN_THREAD_SHELL = 1;
 
     private static final int OTHER_THREADS_SHELL = 2;
@@ -688,12 +695,18 @@ public abstract class AbstractShell {
 
         try {
             synchronized (ioLock) {
-                this.write(StringUtils.join("", str));
-                FastStringBuffer read = this.read();
-                return read;
+                long start = ROUND_TRIP_TIMER.start();
+                try {
+                    this.write(StringUtils.join("", str));
+                    FastStringBuffer read = this.read();
+                    return read;
+                } finally {
+                    ROUND_TRIP_TIMER.stop(start);
+                }
             }
 
         } catch (Exception e) {
+            ROUND_TRIP_FAILURES.inc();
             String message = "ERROR reading shell.";
             if (process != null) {
                 message += "\n" + process.getProcessLog();
@@ -83,6 +83,7 @@ import org.python.pydev.plugin.nature.IPythonNatureListener;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.plugin.nature.PythonNatureListenersManager;
 import org.python.pydev.plugin.preferences.PyTitlePreferencesPage;
+import org.python.pydev.plugin.preferences.PydevRootPrefs;
 import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.structure.TreeNode;
@@ -140,6 +141,20 @@ public abstract class PythonBaseModelProvider extends BaseWorkbenchContentProvid
         }
     };
 
+    /**
+     * Keeps the outline of the files computed with the fast definitions parser (when that mode is enabled).
+     */
+    private final PythonFileOutlineCache outlineCache = new PythonFileOutlineCache(
+            new ICallback<Object, PythonFile>() {
+
+                public Object call(PythonFile pythonFile) {
+                    Collection<Runnable> runnables = new ArrayList<Runnable>();
+                    runnables.add(getRefreshRunnable(pythonFile.getActualObject()));
+                    processRunnables(runnables);
+                    return null;
+                }
+            });
+
     /**
      * Constructor... registers itself as a python nature listener
      */
@@ -277,7 +292,8 @@ public abstract class PythonBaseModelProvider extends BaseWorkbenchContentProvid
     public void propertyChange(PropertyChangeEvent event) {
         //When a property that'd change an icon changes, the tree must be updated.
         String property = event.getProperty();
-        if (PyTitlePreferencesPage.isTitlePreferencesIconRelatedProperty(property)) {
+        if (PyTitlePreferencesPage.isTitlePreferencesIconRelatedProperty(property)
+                || PydevRootPrefs.PACKAGE_EXPLORER_FAST_OUTLINE.equals(property)) {
             IWorkspace[] localInput = this.input;
             if (localInput != null) {
                 for (IWorkspace iWorkspace : localInput) {
@@ -684,7 +700,17 @@ public abstract class PythonBaseModelProvider extends BaseWorkbenchContentProvid
             PythonFile file = (PythonFile) wrappedResourceParent;
             if (PythonPathHelper.isValidSourceFile(file.getActualObject())) {
 
-                if (nature != null) {
+                if (!SharedCorePlugin.inTestMode() && PydevRootPrefs.getPackageExplorerFastOutline()) {
+                    //Computed in a job (with the fast definitions parser): show a placeholder until it's available.
+                    ParsedItem root = outlineCache.getRoot(file);
+                    if (root != null) {
+                        childrenToReturn = getChildrenFromParsedItem(wrappedResourceParent, root, file);
+                    } else {
+                        childrenToReturn = new Object[] { new PythonNode(file, wrappedResourceParent,
+                                PythonFileOutlineCache.createPendingItem()) };
+                    }
+
+                } else if (nature != null) {
                     ICodeCompletionASTManager astManager = nature.getAstManager();
                     //the nature may still not be completely restored...
                     if (astManager != null) {
@@ -838,6 +864,12 @@ public abstract class PythonBaseModelProvider extends BaseWorkbenchContentProvid
             Log.log(e);
         }
 
+        try {
+            this.outlineCache.dispose();
+        } catch (Exception e) {
+            Log.log(e);
+        }
+
         try {
             super.dispose();
         } catch (Exception e) {
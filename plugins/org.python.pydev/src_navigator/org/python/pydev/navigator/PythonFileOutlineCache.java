@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.navigator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.graphics.Image;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.navigator.elements.PythonFile;
+import org.python.pydev.outline.ParsedItem;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.visitors.scope.ASTEntryWithChildren;
+import org.python.pydev.parser.visitors.scope.OutlineCreatorVisitor;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.shared_core.cache.LRUMap;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.model.ErrorDescription;
+import org.python.pydev.shared_core.out_of_memory.IEvictableCache;
+import org.python.pydev.shared_core.out_of_memory.MemoryPressureManager;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_ui.UIConstants;
+import org.python.pydev.shared_ui.outline.IParsedItem;
+
+/**
+ * Keeps the outline roots for the files shown in the package explorer (keyed by the file modification stamp).
+ *
+ * The roots are computed in a job with the FastDefinitionsParser (which only gets the definitions -- classes,
+ * methods and attributes -- so, imports and comments are not shown in this mode) and the passed callback is
+ * called (in the job thread) when the root for some file becomes available.
+ */
+public class PythonFileOutlineCache implements IEvictableCache {
+
+    /**
+     * Placeholder shown while the actual structure of the file is being computed.
+     */
+    private static final class PendingParsedItem extends ParsedItem {
+
+        public PendingParsedItem() {
+            super(null, new ErrorDescription("Pending...", -1, -1, -1));
+        }
+
+        @Override
+        public Image getImage() {
+            return PydevPlugin.getImageCache().get(UIConstants.HISTORY);
+        }
+
+        @Override
+        public IParsedItem[] getChildren() {
+            return new IParsedItem[0];
+        }
+    }
+
+    /**
+     * file -> (modification stamp, root)
+     */
+    private final LRUMap<IFile, Tuple<Long, ParsedItem>> cache = new LRUMap<IFile, Tuple<Long, ParsedItem>>(300);
+
+    /**
+     * Files which still have to be computed (the last PythonFile requested for a given file is kept).
+     */
+    private final Map<IFile, PythonFile> pending = new LinkedHashMap<IFile, PythonFile>();
+
+    private final Object lock = new Object();
+
+    private final ICallback<Object, PythonFile> onRootComputed;
+
+    private final Job job = new Job("Computing package explorer outline") {
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            while (!monitor.isCanceled()) {
+                PythonFile pythonFile;
+                synchronized (lock) {
+                    if (pending.isEmpty()) {
+                        break;
+                    }
+                    IFile first = pending.keySet().iterator().next();
+                    pythonFile = pending.remove(first);
+                }
+                try {
+                    compute(pythonFile);
+                } catch (Throwable e) {
+                    Log.log(e);
+                }
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
+    /**
+     * @param onRootComputed called with the PythonFile whose root was just computed (so that it can be refreshed).
+     */
+    public PythonFileOutlineCache(ICallback<Object, PythonFile> onRootComputed) {
+        this.onRootComputed = onRootComputed;
+        job.setSystem(true);
+        job.setPriority(Job.SHORT);
+        MemoryPressureManager.getInstance().register(this);
+    }
+
+    /**
+     * The roots are computed with the fast definitions parser.
+     */
+    public int getRebuildCost() {
+        return REBUILD_COST_LOW;
+    }
+
+    public int evict(double fraction) {
+        synchronized (lock) {
+            return cache.removeEldest(fraction);
+        }
+    }
+
+    /**
+     * @return the root for the passed file if it's available for the current modification stamp or null
+     * if it's still not available (in which case its computation is scheduled).
+     */
+    public ParsedItem getRoot(PythonFile pythonFile) {
+        IFile file = pythonFile.getActualObject();
+        long stamp = file.getModificationStamp();
+        synchronized (lock) {
+            Tuple<Long, ParsedItem> cached = cache.get(file);
+            if (cached != null && cached.o1 == stamp) {
+                return cached.o2;
+            }
+            pending.put(file, pythonFile);
+        }
+        job.schedule();
+        return null;
+    }
+
+    /**
+     * @return a new placeholder to be shown while the root for some file is still being computed.
+     */
+    public static ParsedItem createPendingItem() {
+        return new PendingParsedItem();
+    }
+
+    public static boolean isPendingItem(ParsedItem item) {
+        return item instanceof PendingParsedItem;
+    }
+
+    private void compute(PythonFile pythonFile) throws Exception {
+        IFile file = pythonFile.getActualObject();
+        long stamp = file.getModificationStamp();
+        synchronized (lock) {
+            Tuple<Long, ParsedItem> cached = cache.get(file);
+            if (cached != null && cached.o1 == stamp) {
+                onRootComputed.call(pythonFile);
+                return;
+            }
+        }
+        if (!file.exists()) {
+            synchronized (lock) {
+                cache.remove(file);
+            }
+            return;
+        }
+
+        //Note: the stream is closed in getStreamContents.
+        String contents = FileUtils.getStreamContents(file.getContents(true), file.getCharset(), null);
+        ParsedItem root = createRoot(contents, file.getName());
+        synchronized (lock) {
+            cache.put(file, new Tuple<Long, ParsedItem>(stamp, root));
+        }
+        onRootComputed.call(pythonFile);
+    }
+
+    /**
+     * @return the root of the outline for the passed contents (computed with the FastDefinitionsParser).
+     */
+    public static ParsedItem createRoot(String contents, String moduleName) {
+        SimpleNode ast = FastDefinitionsParser.parse(contents, moduleName);
+        OutlineCreatorVisitor visitor = OutlineCreatorVisitor.create(ast);
+        return new ParsedItem(visitor.getAll().toArray(new ASTEntryWithChildren[0]), null);
+    }
+
+    public void dispose() {
+        job.cancel();
+        synchronized (lock) {
+            pending.clear();
+            cache.clear();
+        }
+    }
+}
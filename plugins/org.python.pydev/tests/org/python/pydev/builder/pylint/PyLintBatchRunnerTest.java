@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.shared_core.structure.Tuple;
+
+public class PyLintBatchRunnerTest extends TestCase {
+
+    public void testSplitInBatches() throws Exception {
+        List<Tuple<String, Integer>> items = new ArrayList<Tuple<String, Integer>>();
+        items.add(new Tuple<String, Integer>("a", 1));
+        items.add(new Tuple<String, Integer>("b", 2));
+        items.add(new Tuple<String, Integer>("a", 3));
+        items.add(new Tuple<String, Integer>("c", 4));
+        items.add(new Tuple<String, Integer>("d", 5));
+
+        List<List<Integer>> batches = PyLintBatchRunner.splitInBatches(items, 3);
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList(1, 2, 4), batches.get(0));
+        assertEquals(Arrays.asList(3, 5), batches.get(1));
+
+        batches = PyLintBatchRunner.splitInBatches(items, 1);
+        assertEquals(5, batches.size());
+
+        batches = PyLintBatchRunner.splitInBatches(items, 10);
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList(1, 2, 4, 5), batches.get(0));
+        assertEquals(Arrays.asList(3), batches.get(1));
+    }
+
+    public void testModuleNames() throws Exception {
+        assertEquals("mod", PyLintBatchRunner.getModuleName("mod.py", "pack"));
+        assertEquals("pack", PyLintBatchRunner.getModuleName("__init__.py", "pack"));
+
+        assertEquals("mod", PyLintBatchRunner.getLastPartOfModule("pack.mod"));
+        assertEquals("mod", PyLintBatchRunner.getLastPartOfModule("mod"));
+        assertEquals("mod", PyLintBatchRunner.getLastPartOfModule("/path/to/mod.py"));
+        assertEquals("to", PyLintBatchRunner.getLastPartOfModule("/path/to/__init__.py"));
+    }
+}
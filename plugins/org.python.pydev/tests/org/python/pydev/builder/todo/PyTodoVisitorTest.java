@@ -6,9 +6,12 @@
  */
 package org.python.pydev.builder.todo;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.jface.text.Document;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
 import junit.framework.TestCase;
 
@@ -47,4 +50,23 @@ public class PyTodoVisitorTest extends TestCase {
         document = new Document("#TODO\nTODO");
         assertEquals(1, todoVisitor.computeTodoMarkers(document, Arrays.asList("TODO")).size());
     }
+
+    public void testMultipleTags() throws Exception {
+        PyTodoVisitor todoVisitor = new PyTodoVisitor();
+        List<String> tags = Arrays.asList("TODO", "FIXME", "XXX");
+
+        Document document = new Document("#XXX then TODO\n#FIXME\n'''a\nXXX b'''\nTODO");
+        List<MarkerInfo> markers = todoVisitor.computeTodoMarkers(document, tags);
+        assertEquals(3, markers.size());
+        //Ordered by the tags (1 per line: the first tag in the tags wins).
+        assertEquals("TODO", markers.get(0).message);
+        assertEquals(0, markers.get(0).lineStart);
+        assertEquals("FIXME", markers.get(1).message);
+        assertEquals(1, markers.get(1).lineStart);
+        assertEquals("XXX b'''", markers.get(2).message);
+        assertEquals(3, markers.get(2).lineStart);
+
+        assertEquals(0, todoVisitor.computeTodoMarkers(document, new ArrayList<String>()).size());
+        assertSame(PyTodoVisitor.getMatcher(tags), PyTodoVisitor.getMatcher(Arrays.asList("TODO", "FIXME", "XXX")));
+    }
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+import org.eclipse.jface.text.rules.IToken;
+import org.python.pydev.core.docutils.PyPartitionScanner;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.testutils.Benchmark;
+
+/**
+ * Benchmarks the hand-written PyPartitionScanner and the rule-based scanner it replaced in the corpus used in
+ * PyPartitionScannerEquivalenceTest.
+ *
+ * See {@link Benchmark} for the system properties which control it (the results are reported as json lines).
+ */
+public class PartitionScannerBenchmark extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PartitionScannerBenchmark.class);
+    }
+
+    private static int scan(IPartitionTokenScanner scanner, List<Document> docs) {
+        int tokens = 0;
+        for (Document doc : docs) {
+            scanner.setRange(doc, 0, doc.getLength());
+            IToken token = scanner.nextToken();
+            while (!token.isEOF()) {
+                tokens++;
+                token = scanner.nextToken();
+            }
+        }
+        return tokens;
+    }
+
+    public void testPartitionScannerBenchmark() throws Exception {
+        final List<Document> docs = new ArrayList<Document>();
+        for (String contents : PyPartitionScannerEquivalenceTest.getCorpus()) {
+            docs.add(new Document(contents));
+        }
+        Benchmark benchmark = new Benchmark("partitionScanner");
+        String corpus = "pysrc+synthetic";
+
+        final PyRuleBasedPartitionScanner ruleBased = new PyRuleBasedPartitionScanner();
+        benchmark.run("PyRuleBasedPartitionScanner", corpus, docs.size(), new ICallback0<Object>() {
+
+            @Override
+            public Object call() {
+                return scan(ruleBased, docs);
+            }
+        });
+
+        final PyPartitionScanner handWritten = new PyPartitionScanner();
+        benchmark.run("PyPartitionScanner", corpus, docs.size(), new ICallback0<Object>() {
+
+            @Override
+            public Object call() {
+                return scan(handWritten, docs);
+            }
+        });
+        assertEquals(2, benchmark.getResults().size());
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+import org.python.pydev.core.IPythonPartitions;
+import org.python.pydev.core.TestDependent;
+import org.python.pydev.core.docutils.PyPartitionScanner;
+import org.python.pydev.core.docutils.PyPartitioner;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Checks that the hand-written PyPartitionScanner gives the same partitions as the rule-based scanner it replaced
+ * (see PartitionScannerBenchmark for the time each one takes to scan the same corpus).
+ *
+ * Note: all the documents end with a comment line because the rule-based scanner did not properly restore its
+ * position when a single-line string with escapes was not closed until the end of the document (the hand-written
+ * scanner treats the quote as default content in that case).
+ */
+public class PyPartitionScannerEquivalenceTest extends TestCase {
+
+    private static final String END = "\n# end\n";
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PyPartitionScannerEquivalenceTest.class);
+    }
+
+    /*default*/static List<String> getCorpus() {
+        List<String> corpus = new ArrayList<String>();
+        File[] files = new File(TestDependent.TEST_PYDEV_PLUGIN_LOC + "pysrc").listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".py")) {
+                    corpus.add(FileUtils.getFileContents(file) + END);
+                }
+            }
+        }
+        corpus.add(createSyntheticContents(2000) + END);
+        return corpus;
+    }
+
+    private static String createSyntheticContents(int classes) {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < classes; i++) {
+            buf.append("class Foo").append(i).append("(object): # comment with 'quote\n");
+            buf.append("    '''\n    Docstring with \"quotes\" and \\''' escaped quotes\n    '''\n");
+            buf.append("    def method(self, a=\"str\\\"ing\", b=r'raw\\'', c=u\"\"\"uni\"\"\", d=b'b'):\n");
+            buf.append("        x = `a` + 'continues \\\n on next line' + \"\"\"\"nested ''' quotes\"\"\"\n");
+            buf.append("        return {'a': \"#not a comment\", \"b\": '\"'} #\"comment\r\n");
+            buf.append("    attr = ''; other = \"\"\r");
+        }
+        return buf.toString();
+    }
+
+    private static String getPartitions(IDocument document, PyPartitioner partitioner) {
+        FastStringBuffer buf = new FastStringBuffer();
+        ITypedRegion[] regions = partitioner.computePartitioning(0, document.getLength());
+        for (ITypedRegion region : regions) {
+            buf.append(region.getType()).append(':').append(region.getOffset()).append(':')
+                    .append(region.getLength()).append('\n');
+        }
+        return buf.toString();
+    }
+
+    private static PyPartitioner connect(IDocument document, IPartitionTokenScanner scanner) {
+        PyPartitioner partitioner = new PyPartitioner(scanner, IPythonPartitions.types);
+        partitioner.connect(document);
+        document.setDocumentPartitioner(partitioner);
+        return partitioner;
+    }
+
+    public void testSameAsRuleBasedInCorpus() throws Exception {
+        for (String contents : getCorpus()) {
+            Document doc1 = new Document(contents);
+            Document doc2 = new Document(contents);
+            PyPartitioner ruleBased = connect(doc1, new PyRuleBasedPartitionScanner());
+            PyPartitioner handWritten = connect(doc2, new PyPartitionScanner());
+            assertEquals(getPartitions(doc1, ruleBased), getPartitions(doc2, handWritten));
+        }
+    }
+
+    public void testSameAsRuleBasedWhileEditing() throws Exception {
+        String[] inserts = new String[] { "'", "\"", "'''", "\"\"\"", "`", "#", "\n", "\r\n", "a", " ", "",
+                "r'", "x = 10\n" };
+        Random random = new Random(1);
+        String contents = createSyntheticContents(20);
+        Document doc1 = new Document(contents + END);
+        Document doc2 = new Document(contents + END);
+        PyPartitioner ruleBased = connect(doc1, new PyRuleBasedPartitionScanner());
+        PyPartitioner handWritten = connect(doc2, new PyPartitionScanner());
+
+        for (int i = 0; i < 2000; i++) {
+            int editableLen = doc1.getLength() - END.length();
+            int offset = random.nextInt(editableLen + 1);
+            int len = random.nextInt(3);
+            if (offset + len > editableLen) {
+                len = editableLen - offset;
+            }
+            String text = inserts[random.nextInt(inserts.length)];
+            doc1.replace(offset, len, text);
+            doc2.replace(offset, len, text);
+            assertEquals(doc1.get(), doc2.get());
+            assertEquals("Failed at edit: " + i, getPartitions(doc1, ruleBased), getPartitions(doc2, handWritten));
+        }
+    }
+}
@@ -68,12 +68,9 @@ public class PyPartitionScannerTest extends TestCase {
         PyPartitioner partitioner = PyPartitionScanner.createPyPartitioner();
         String scan = TestUtils.scan(partitioner.getScanner(), document);
         assertEquals(TestUtils.listToExpected("__python_singleline_string1:0:7",
-                "null:7:1",
-                "null:8:1",
-                "null:9:1",
+                "null:7:3",
                 "__python_singleline_string1:10:8",
-                "null:18:1",
-                "null:19:1",
+                "null:18:2",
                 "__python_singleline_string1:20:3",
                 "null:23:1",
                 "__python_multiline_string1:24:9",
@@ -112,6 +109,30 @@ public class PyPartitionScannerTest extends TestCase {
 
     }
 
+    public void testPartitioningPrefixesAndNesting() throws Exception {
+        String txt = ""
+                + "a = r'\\'' + u\"\"\"x'''y\"\"\" # c'\n"
+                + "b = '''\"\"\"'''\r\n"
+                + "c = 'unfinished\n"
+                + "d = \"\"";
+
+        IDocument document = new Document(txt);
+        PyPartitioner partitioner = PyPartitionScanner.createPyPartitioner();
+        String scan = TestUtils.scan(partitioner.getScanner(), document);
+        assertEquals(TestUtils.listToExpected("null:0:5",
+                "__python_singleline_string1:5:4",
+                "null:9:4",
+                "__python_multiline_string2:13:11",
+                "null:24:1",
+                "__python_comment:25:5",
+                "null:30:4",
+                "__python_multiline_string1:34:9",
+                "null:43:6",
+                "__python_singleline_string1:49:12",
+                "null:61:4",
+                "__python_singleline_string2:65:2"), scan);
+    }
+
     private void checkPartitions(IDocument document, String... expected) throws Exception {
         String found = TestUtils.getContentTypesAsStr(document);
         assertEquals(TestUtils.listToExpected(expected), found);
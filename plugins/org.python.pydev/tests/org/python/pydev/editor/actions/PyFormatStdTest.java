@@ -11,13 +11,17 @@
  */
 package org.python.pydev.editor.actions;
 
+import java.util.Random;
+
 import junit.framework.TestCase;
 
 import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IRegion;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.docutils.SyntaxErrorException;
 import org.python.pydev.editor.actions.PyFormatStd.FormatStd;
 import org.python.pydev.shared_core.SharedCorePlugin;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 
 /**
@@ -980,6 +984,162 @@ public class PyFormatStdTest extends TestCase {
         checkFormatResults(s, s1);
     }
 
+    public void testTopLevelStarts() throws Exception {
+        String s = "" +
+                "import os\n" +
+                "a = call(\n" +
+                "b=10)\n" +
+                "c = '''\n" +
+                "d\n" +
+                "'''\n" +
+                "e = 1 + \\\n" +
+                "f\n" +
+                "    g = 1 # comment\n" +
+                "@dec\r\n" +
+                "# comment\n" +
+                "h = 2";
+        int[] starts = PyFormatStd.getTopLevelStarts(s, true);
+        assertEquals(6, starts.length);
+        assertEquals(0, starts[0]);
+        assertEquals(s.indexOf("a = call"), starts[1]);
+        assertEquals(s.indexOf("c = "), starts[2]);
+        assertEquals(s.indexOf("e = "), starts[3]);
+        assertEquals(s.indexOf("@dec"), starts[4]);
+        assertEquals(s.indexOf("h = "), starts[5]);
+
+        try {
+            PyFormatStd.getTopLevelStarts("a = call(\nb = 10\n", true);
+            fail("Expected syntax error.");
+        } catch (SyntaxErrorException e) {
+            //expected
+        }
+        assertEquals(1, PyFormatStd.getTopLevelStarts("a = call(\nb = 10\n", false).length);
+    }
+
+    private static String createRandomContents(Random random, int tokens) {
+        String[] options = new String[] { "a", "b1", "x", " ", "  ", "\t", "=", "==", "+", "-", "*", "**", "/", "%",
+                "<", ">", "!=", "&", "|", "^", "~", ",", ", ", "(", ")", "[", "]", "{", "}", ":", "'", "\"", "'''",
+                "\"\"\"", "\\", "#", "# c", "\n", "\n", "\n", "@dec", "def ", "class ", "import ", "lambda ", "1e",
+                "5", "3.", "print ", "'s'", "\"t\"" };
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < tokens; i++) {
+            buf.append(options[random.nextInt(options.length)]);
+        }
+        return buf.toString();
+    }
+
+    private static FormatStd createRandomStd(Random random) {
+        FormatStd std = new FormatStd();
+        std.operatorsWithSpace = random.nextBoolean();
+        std.spaceAfterComma = random.nextBoolean();
+        std.parametersWithSpace = random.nextBoolean();
+        std.assignWithSpaceInsideParens = random.nextBoolean();
+        std.trimLines = random.nextBoolean();
+        std.trimMultilineLiterals = random.nextBoolean();
+        std.spacesBeforeComment = random.nextInt(4) - 1;
+        std.spacesInStartComment = random.nextInt(3) - 1;
+        return std;
+    }
+
+    private static String formatOrError(PyFormatStd pyFormatStd, String s, FormatStd std, boolean throwSyntaxError,
+            int tasks) {
+        try {
+            if (tasks == 0) {
+                return pyFormatStd.formatStr(s, std, "\n", throwSyntaxError);
+            }
+            return pyFormatStd.formatStrInParallel(s, std, "\n", throwSyntaxError, tasks);
+        } catch (Throwable e) {
+            return "Error: " + e.getClass().getName();
+        }
+    }
+
+    public void testFormatInParallelSameAsSequential() throws Exception {
+        PyFormatStd pyFormatStd = new PyFormatStd();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            String s = createRandomContents(random, random.nextInt(80));
+            FormatStd std = createRandomStd(random);
+            boolean throwSyntaxError = random.nextBoolean();
+            String expected = formatOrError(pyFormatStd, s, std, throwSyntaxError, 0);
+            for (int tasks = 2; tasks <= 5; tasks++) {
+                assertEquals(s, expected, formatOrError(pyFormatStd, s, std, throwSyntaxError, tasks));
+            }
+        }
+    }
+
+    public void testFormatBigDocumentInParallel() throws Exception {
+        std.spaceAfterComma = true;
+        std.trimLines = true;
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < 3000; i++) {
+            buf.append("class Foo").append(i).append("(object):  \n");
+            buf.append("    def method(self,a,b=(1+2)):#comment\n");
+            buf.append("        return call(a,\n");
+            buf.append("            b)+'''x,y\n'''\n");
+            buf.append("\n");
+            buf.append("a").append(i).append("=[1,2]\n");
+        }
+        String s = buf.toString();
+        PyFormatStd pyFormatStd = new PyFormatStd();
+        String expected = pyFormatStd.formatStr(s, std, "\n", true);
+        assertEquals(expected, pyFormatStd.formatStrInParallel(s, std, "\n", true));
+        assertEquals(expected, pyFormatStd.formatStrInParallel(s, std, "\n", true, 8));
+    }
+
+    public void testFormatSelectionOnlyFormatsSelectedStatements() throws Exception {
+        std.spaceAfterComma = true;
+        std.trimLines = true;
+        String s = "" +
+                "a=call(1,\n" +
+                "  2)\n" +
+                "\n" +
+                "class Foo:  \n" +
+                "    def m(self,a):\n" +
+                "        b=a,1\n" +
+                "c=10\n";
+        String expected = "" +
+                "a=call(1,\n" +
+                "  2)\n" +
+                "\n" +
+                "class Foo:  \n" +
+                "    def m(self, a):\n" +
+                "        b = a, 1\n" +
+                "c=10\n";
+        Document doc = new Document(s);
+        new PyFormatStd().formatSelection(doc, new int[] { 4, 5 }, null, null, std);
+        assertEquals(expected, doc.get());
+
+        doc = new Document(s);
+        new PyFormatStd().formatSelection(doc, new int[] { 0 }, null, null, std);
+        assertEquals(s.replace("a=call(1,", "a = call(1,"), doc.get());
+    }
+
+    public void testFormatSelectionSameAsFormatAll() throws Exception {
+        PyFormatStd pyFormatStd = new PyFormatStd();
+        Random random = new Random(2);
+        for (int i = 0; i < 2000; i++) {
+            String s = createRandomContents(random, random.nextInt(60));
+            FormatStd std = createRandomStd(random);
+            String formattedAll;
+            try {
+                formattedAll = pyFormatStd.formatStr(s, std, "\n", true);
+            } catch (Exception e) {
+                continue;
+            }
+            Document original = new Document(s);
+            Document formatted = new Document(formattedAll);
+            int line = random.nextInt(original.getNumberOfLines());
+
+            Document doc = new Document(s);
+            pyFormatStd.formatSelection(doc, new int[] { line }, null, null, std);
+
+            IRegion region = original.getLineInformation(line);
+            String expected = s.substring(0, region.getOffset()) + PySelection.getLine(formatted, line)
+                    + s.substring(region.getOffset() + region.getLength());
+            assertEquals(s, expected, doc.get());
+        }
+    }
+
     /**
      * Checks the results with the default passed and then with '\r' and '\n' considering
      * that the result of formatting the input string will be the same as the input.
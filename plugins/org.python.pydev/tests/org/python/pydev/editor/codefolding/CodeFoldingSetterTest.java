@@ -14,10 +14,12 @@ import junit.framework.TestCase;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceStore;
 import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.parser.PyParser;
 import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.structure.Tuple;
 
 public class CodeFoldingSetterTest extends TestCase {
 
@@ -199,6 +201,43 @@ public class CodeFoldingSetterTest extends TestCase {
 
     }
 
+    public void testUpdateModelOnlyAppliesDiff() throws Exception {
+        setOptionTrue(PyDevCodeFoldingPrefPage.FOLD_FUNCTIONDEF);
+        setOptionTrue(PyDevCodeFoldingPrefPage.USE_CODE_FOLDING);
+        String initial = "" +
+                "def m1():\n" +
+                "    a = 1\n" +
+                "    b = 1\n" +
+                "\n" +
+                "def m2():\n" +
+                "    a = 1\n" +
+                "    b = 1\n" +
+                "\n" +
+                "def m3():\n" +
+                "    a = 1\n" +
+                "    b = 1\n" +
+                "\n";
+        ProjectionAnnotationModel model = new ProjectionAnnotationModel();
+
+        Document doc = new Document(initial);
+        assertEquals(new Tuple<Integer, Integer>(0, 3), CodeFoldingSetter.updateModel(model, doc, getMarks(doc)));
+        assertEquals(new Tuple<Integer, Integer>(0, 0), CodeFoldingSetter.updateModel(model, doc, getMarks(doc)));
+
+        //only the new one is added
+        doc = new Document(initial + "def m4():\n    a = 1\n    b = 1\n\n");
+        assertEquals(new Tuple<Integer, Integer>(0, 1), CodeFoldingSetter.updateModel(model, doc, getMarks(doc)));
+
+        //only the changed one is replaced
+        doc = new Document(initial + "def m4():\n    a = 1\n    b = 1\n    c = 1\n\n");
+        assertEquals(new Tuple<Integer, Integer>(1, 1), CodeFoldingSetter.updateModel(model, doc, getMarks(doc)));
+
+        int count = 0;
+        for (Iterator<?> it = model.getAnnotationIterator(); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(4, count);
+    }
+
     public void testExceptMarks() throws Exception {
         setAllOptions(true);
         Document doc = new Document("" +
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.jythontests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.jython.IPythonInterpreter;
+import org.python.pydev.jython.JythonPlugin;
+import org.python.pydev.jython.SharedScriptingRuntime;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.testutils.Benchmark;
+
+/**
+ * Benchmarks the time spent in the scripts when an editor is opened (onCreateActions and onSetDocument) with an
+ * interpreter for each editor (as it was before the SharedScriptingRuntime) and with the shared runtime.
+ *
+ * See {@link Benchmark} for the system properties which control it (the results are reported as json lines).
+ */
+public class ScriptingBenchmark extends TestCase {
+
+    private static final int EDITORS = 10;
+    private static final int SCRIPTS = 8;
+
+    private File baseDir;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ScriptingBenchmark.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        JythonPlugin.setDebugReload(false);
+        JythonPlugin.IN_TESTS = true;
+        baseDir = FileUtils.getTempFileAt(new File(System.getProperty("java.io.tmpdir")), "scripting_benchmark");
+        baseDir.mkdirs();
+        for (int i = 0; i < SCRIPTS; i++) {
+            //same structure of the pyedit_*.py scripts: imports and definitions done at each execution.
+            FileUtils.writeStrToFile("" +
+                    "import re\n" +
+                    "from java.lang import Runnable\n" +
+                    "class Action" + i + "(Runnable):\n" +
+                    "    def run(self):\n" +
+                    "        return re.compile(r'\\w+').findall('a b c')\n" +
+                    "if cmd == 'onCreateActions':\n" +
+                    "    action" + i + " = Action" + i + "()\n" +
+                    "elif cmd == 'onSetDocument':\n" +
+                    "    action" + i + ".run()\n" +
+                    "", new File(baseDir, "tst_script" + i + ".py"));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedScriptingRuntime.disposeInstance();
+        FileUtils.deleteDirectoryTree(baseDir);
+        JythonPlugin.setDebugReload(true);
+        super.tearDown();
+    }
+
+    private static HashMap<String, Object> createLocals(String cmd) {
+        HashMap<String, Object> locals = new HashMap<String, Object>();
+        locals.put("cmd", cmd);
+        return locals;
+    }
+
+    private static void checkNoErrors(List<Throwable> errors) {
+        if (errors.size() > 0) {
+            throw new RuntimeException("Errors executing the scripts: " + errors);
+        }
+    }
+
+    public void testScriptingBenchmark() throws Exception {
+        Benchmark benchmark = new Benchmark("scripting");
+        benchmark.addConfig("scripts", SCRIPTS);
+        final File[] folders = new File[] { baseDir };
+        String corpus = "synthetic-pyedit";
+
+        benchmark.run("openEditor.interpreterPerEditor", corpus, EDITORS, new ICallback0<Object>() {
+
+            @Override
+            public Object call() {
+                List<Object> systemGlobals = new ArrayList<Object>();
+                for (int i = 0; i < EDITORS; i++) {
+                    IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter();
+                    try {
+                        interpreter.exec("systemGlobals = {}");
+                        HashMap<String, Object> locals = createLocals("onCreateActions");
+                        locals.put("systemGlobals", interpreter.get("systemGlobals"));
+                        checkNoErrors(JythonPlugin.execAll(locals, "tst", interpreter, folders, null));
+                        locals.put("cmd", "onSetDocument");
+                        checkNoErrors(JythonPlugin.execAll(locals, "tst", interpreter, folders, null));
+                        systemGlobals.add(interpreter.get("systemGlobals"));
+                    } finally {
+                        interpreter.cleanup();
+                    }
+                }
+                return systemGlobals;
+            }
+        });
+
+        final SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        benchmark.run("openEditor.sharedRuntime", corpus, EDITORS, new ICallback0<Object>() {
+
+            @Override
+            public Object call() {
+                List<Object> namespaces = new ArrayList<Object>();
+                for (int i = 0; i < EDITORS; i++) {
+                    Object ns = runtime.createNamespace();
+                    checkNoErrors(runtime.execAll(ns, createLocals("onCreateActions"), "tst", folders));
+                    checkNoErrors(runtime.execAll(ns, createLocals("onSetDocument"), "tst", folders));
+                    namespaces.add(ns);
+                }
+                return namespaces;
+            }
+        });
+        assertEquals(2, benchmark.getResults().size());
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.jythontests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.python.core.PyObject;
+import org.python.pydev.jython.JythonPlugin;
+import org.python.pydev.jython.SharedScriptingRuntime;
+import org.python.pydev.shared_core.io.FileUtils;
+
+public class SharedScriptingRuntimeTest extends TestCase {
+
+    private File baseDir;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(SharedScriptingRuntimeTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        JythonPlugin.setDebugReload(false);
+        JythonPlugin.IN_TESTS = true;
+        baseDir = FileUtils.getTempFileAt(new File(System.getProperty("java.io.tmpdir")), "shared_scripting");
+        baseDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedScriptingRuntime.disposeInstance();
+        FileUtils.deleteDirectoryTree(baseDir);
+        JythonPlugin.setDebugReload(true);
+        super.tearDown();
+    }
+
+    private List<Throwable> exec(Object namespace, String cmd) {
+        return exec(namespace, cmd, new HashMap<String, Object>());
+    }
+
+    private List<Throwable> exec(Object namespace, String cmd, HashMap<String, Object> locals) {
+        locals.put("cmd", cmd);
+        return SharedScriptingRuntime.getInstance().execAll(namespace, locals, "tst", new File[] { baseDir });
+    }
+
+    /**
+     * Runs the given code in threads and fails if they don't finish in the timeout (instead of hanging the tests).
+     */
+    private void runInThreads(int count, final Runnable runnable) throws Exception {
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(20000);
+            assertFalse("Thread still running (deadlocked?)", thread.isAlive());
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+    }
+
+    private Object get(Object namespace, String name) {
+        PyObject obj = ((PyObject) namespace).__finditem__(name);
+        return obj != null ? obj.__tojava__(Object.class) : null;
+    }
+
+    public void testNamespacesAreIsolated() throws Exception {
+        FileUtils.writeStrToFile("" +
+                "if cmd == 'onCreateActions':\n" +
+                "    created = cmd\n" +
+                "systemGlobals[cmd] = 1\n" +
+                "", new File(baseDir, "tst_a.py"));
+
+        SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        Object ns1 = runtime.createNamespace();
+        Object ns2 = runtime.createNamespace();
+
+        assertEquals(0, exec(ns1, "onCreateActions").size());
+        assertEquals(0, exec(ns2, "onSave").size());
+
+        assertEquals("onCreateActions", get(ns1, "created"));
+        assertNull(get(ns2, "created"));
+
+        //systemGlobals is shared among all the namespaces
+        PyObject systemGlobals = ((PyObject) ns2).__finditem__("systemGlobals");
+        assertNotNull(systemGlobals.__finditem__("onCreateActions"));
+        assertNotNull(systemGlobals.__finditem__("onSave"));
+    }
+
+    public void testCompiledOnceAndInvalidated() throws Exception {
+        File f = new File(baseDir, "tst_b.py");
+        FileUtils.writeStrToFile("value = 1\n", f);
+
+        SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        Object ns = runtime.createNamespace();
+        exec(ns, "onSave");
+        exec(ns, "onSave");
+        assertEquals(1, get(ns, "value"));
+        assertTrue(runtime.getStatistics(), runtime.getStatistics().contains("compilations: 1 "));
+
+        FileUtils.writeStrToFile("value = 2\n", f);
+        runtime.invalidate(f);
+        exec(ns, "onSave");
+        assertEquals(2, get(ns, "value"));
+        assertTrue(runtime.getStatistics(), runtime.getStatistics().contains("compilations: 2 "));
+        assertTrue(runtime.getStatistics(), runtime.getStatistics().contains("tst:onSave: execs: 3"));
+    }
+
+    public void testErrorsReported() throws Exception {
+        FileUtils.writeStrToFile("raise RuntimeError('error')\n", new File(baseDir, "tst_c.py"));
+        SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        assertEquals(1, exec(runtime.createNamespace(), "onSave").size());
+    }
+
+    public void testNestedExecution() throws Exception {
+        FileUtils.writeStrToFile("" +
+                "if cmd == 'onCreateActions':\n" +
+                "    inner = runtime.createNamespace()\n" +
+                "    innerErrors = runtime.execAll(inner, innerLocals, 'tst', folders)\n" +
+                "    innerValue = inner['value']\n" +
+                "else:\n" +
+                "    value = cmd\n" +
+                "", new File(baseDir, "tst_d.py"));
+
+        final SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        final Object ns = runtime.createNamespace();
+        final HashMap<String, Object> locals = new HashMap<String, Object>();
+        HashMap<String, Object> innerLocals = new HashMap<String, Object>();
+        innerLocals.put("cmd", "onSave");
+        locals.put("runtime", runtime);
+        locals.put("innerLocals", innerLocals);
+        locals.put("folders", new File[] { baseDir });
+
+        //the script running the scripts of another namespace in the same thread must not deadlock.
+        runInThreads(1, new Runnable() {
+
+            public void run() {
+                assertEquals(0, exec(ns, "onCreateActions", locals).size());
+            }
+        });
+        assertEquals("onSave", get(ns, "innerValue"));
+        assertEquals(0, ((List<?>) get(ns, "innerErrors")).size());
+    }
+
+    public void testConcurrentClientsDontBlock() throws Exception {
+        FileUtils.writeStrToFile("" +
+                "latch.countDown()\n" +
+                "latch.await()\n" +
+                "", new File(baseDir, "tst_e.py"));
+
+        //more clients than interpreters in the pool executing at the same time.
+        final int clients = 4;
+        final CountDownLatch latch = new CountDownLatch(clients);
+        final SharedScriptingRuntime runtime = SharedScriptingRuntime.getInstance();
+        runInThreads(clients, new Runnable() {
+
+            public void run() {
+                HashMap<String, Object> locals = new HashMap<String, Object>();
+                locals.put("latch", latch);
+                assertEquals(0, exec(runtime.createNamespace(), "onSave", locals).size());
+            }
+        });
+        //the additional interpreters are not kept.
+        assertFalse(runtime.getStatistics(), runtime.getStatistics().contains("interpreters: " + clients));
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.python.pydev.core.IPythonNature;
 import org.python.pydev.editor.actions.PySelectionTest;
 import org.python.pydev.editor.codecompletion.revisited.ProjectModulesManager;
 import org.python.pydev.plugin.PydevPlugin;
@@ -141,4 +142,41 @@ public class PythonNatureStoreTest extends TestCase {
         PySelectionTest.checkStrEquals(contents3, strContents.replaceFirst(" standalone=\"no\"", "")); //depending on the java version, standalone="no" may be generated
         assertEquals(map, store.getMapProperty(PythonPathNature.getProjectVariableSubstitutionQualifiedName()));
     }
+
+    public void testReadsFromSnapshot() throws Exception {
+        PythonNatureStore store = new PythonNatureStore();
+        store.setProject(new ProjectStub2("test"));
+
+        assertEquals("/test", store.getPathProperty(PythonPathNature.getProjectSourcePathQualifiedName()));
+        assertEquals(IPythonNature.PYTHON_VERSION_2_5,
+                store.getPropertyFromXml(PythonNature.getPythonProjectVersionQualifiedName()));
+        assertNull(store.getMapProperty(PythonPathNature.getProjectVariableSubstitutionQualifiedName()));
+
+        //changes are seen right away (even if the file is only written later)
+        store.setPathProperty(PythonPathNature.getProjectSourcePathQualifiedName(), "/test/foo|/bar/kkk");
+        store.setPropertyToXml(PythonNature.getPythonProjectVersionQualifiedName(),
+                IPythonNature.PYTHON_VERSION_2_7, true);
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("MY_KEY", "MY_VALUE");
+        store.setMapProperty(PythonPathNature.getProjectVariableSubstitutionQualifiedName(), map);
+
+        assertEquals("/test/foo|/bar/kkk", store.getPathProperty(PythonPathNature.getProjectSourcePathQualifiedName()));
+        assertEquals(IPythonNature.PYTHON_VERSION_2_7,
+                store.getPropertyFromXml(PythonNature.getPythonProjectVersionQualifiedName()));
+
+        Map<String, String> mapProperty = store.getMapProperty(
+                PythonPathNature.getProjectVariableSubstitutionQualifiedName());
+        assertEquals(map, mapProperty);
+        mapProperty.put("OTHER", "VALUE"); //changing the returned map must not change the store
+        assertEquals(map, store.getMapProperty(PythonPathNature.getProjectVariableSubstitutionQualifiedName()));
+
+        //all the pending changes are in the contents written
+        String strContents = store.getLastLoadedContents();
+        assertTrue(strContents, strContents.indexOf("<path>/bar/kkk</path>") != -1);
+        assertTrue(strContents, strContents.indexOf(IPythonNature.PYTHON_VERSION_2_7) != -1);
+        assertTrue(strContents, strContents.indexOf("<value>MY_VALUE</value>") != -1);
+
+        store.setPathProperty(PythonPathNature.getProjectSourcePathQualifiedName(), null);
+        assertNull(store.getPathProperty(PythonPathNature.getProjectSourcePathQualifiedName()));
+    }
 }
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.navigator;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.outline.ParsedItem;
+import org.python.pydev.shared_ui.outline.IParsedItem;
+
+public class PythonFileOutlineCacheTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PythonFileOutlineCacheTest.class);
+    }
+
+    public void testCreateRoot() throws Exception {
+        String contents = "" +
+                "import os\n" +
+                "class Foo(object):\n" +
+                "    attr = 10\n" +
+                "    def method(self):\n" +
+                "        self.a = 20\n" +
+                "def func():\n" +
+                "    pass\n" +
+                "GLOBAL = 1\n" +
+                "";
+        ParsedItem root = PythonFileOutlineCache.createRoot(contents, "mod");
+        IParsedItem[] children = root.getChildren();
+        assertEquals(3, children.length);
+        assertEquals("Foo", children[0].toString());
+        assertEquals("func", children[1].toString());
+        assertEquals("GLOBAL", children[2].toString());
+
+        IParsedItem[] classChildren = children[0].getChildren();
+        assertEquals(2, classChildren.length);
+        assertEquals("attr", classChildren[0].toString());
+        assertEquals("method", classChildren[1].toString());
+    }
+
+    public void testPendingItem() throws Exception {
+        ParsedItem pending = PythonFileOutlineCache.createPendingItem();
+        assertTrue(PythonFileOutlineCache.isPendingItem(pending));
+        assertEquals("Pending...", pending.toString());
+        assertEquals(0, pending.getChildren().length);
+        assertFalse(PythonFileOutlineCache.isPendingItem(PythonFileOutlineCache.createRoot("", "mod")));
+    }
+}